@@ -21,6 +21,8 @@ import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.servlet.ServletContext;
 
@@ -43,6 +45,7 @@ public class AnnotationConfigProvider extends HttpConfigurationProvider
    public static final String CONFIG_SCAN_CLASSES_DIR = "org.ocpsoft.rewrite.annotation.SCAN_CLASSES_DIRECTORY";
    public static final String CONFIG_SCAN_LIB_DIR = "org.ocpsoft.rewrite.annotation.SCAN_LIB_DIRECTORY";
    public static final String CONFIG_BASE_PACKAGES = "org.ocpsoft.rewrite.annotation.BASE_PACKAGES";
+   public static final String CONFIG_SCAN_THREADS = "org.ocpsoft.rewrite.annotation.SCAN_THREADS";
 
    @Override
    public int priority()
@@ -78,6 +81,22 @@ public class AnnotationConfigProvider extends HttpConfigurationProvider
          scanLibDir = true;
       }
 
+      // the number of threads reading class files, defaults to one per processor
+      int scanThreads = Runtime.getRuntime().availableProcessors();
+      String threadsConfig = servletContext.getInitParameter(CONFIG_SCAN_THREADS);
+      if ((threadsConfig != null) && !threadsConfig.trim().isEmpty())
+      {
+         try
+         {
+            scanThreads = Math.max(1, Integer.parseInt(threadsConfig.trim()));
+         }
+         catch (NumberFormatException e)
+         {
+            log.warn("Ignoring invalid value [" + threadsConfig + "] for servlet context init parameter ["
+                     + CONFIG_SCAN_THREADS + "].");
+         }
+      }
+
       // users can disable annotation scanning
       if ((packageFilters != null) && packageFilters.trim().equalsIgnoreCase("none"))
       {
@@ -127,22 +146,38 @@ public class AnnotationConfigProvider extends HttpConfigurationProvider
        * ======================================================
        */
 
-      // TODO this should be pulled out into a utility allowing it to run in Java SE
-      // compile a list of class finders to run
-      List<ClassFinder> classFinders = new ArrayList<ClassFinder>();
-      if (scanClassesDir)
-      {
-         classFinders.add(new WebClassesFinder(servletContext, classloader, packageFilter, byteCodeFilter));
-      }
-      if (scanLibDir)
+      // class files are read concurrently, but classes are always visited on this thread
+      ExecutorService executor = scanThreads > 1 ? new ForkJoinPool(scanThreads) : null;
+
+      try
       {
-         classFinders.add(new WebLibFinder(servletContext, classloader, packageFilter, byteCodeFilter));
-      }
 
-      // start the scanning process
-      for (ClassFinder finder : classFinders)
+         // TODO this should be pulled out into a utility allowing it to run in Java SE
+         // compile a list of class finders to run
+         List<ClassFinder> classFinders = new ArrayList<ClassFinder>();
+         if (scanClassesDir)
+         {
+            classFinders.add(new WebClassesFinder(servletContext, classloader, packageFilter, byteCodeFilter,
+                     executor));
+         }
+         if (scanLibDir)
+         {
+            classFinders.add(new WebLibFinder(servletContext, classloader, packageFilter, byteCodeFilter, executor));
+         }
+
+         // start the scanning process
+         for (ClassFinder finder : classFinders)
+         {
+            finder.findClasses(classVisitor);
+         }
+
+      }
+      finally
       {
-         finder.findClasses(classVisitor);
+         if (executor != null)
+         {
+            executor.shutdown();
+         }
       }
 
       // return the rules collected by the class visitor
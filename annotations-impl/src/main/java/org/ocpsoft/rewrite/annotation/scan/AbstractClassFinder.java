@@ -18,6 +18,12 @@ package org.ocpsoft.rewrite.annotation.scan;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.servlet.ServletContext;
 
@@ -58,6 +64,11 @@ public abstract class AbstractClassFinder implements ClassFinder
     */
    private final ByteCodeFilter byteCodeFilter;
 
+   /**
+    * The pool used to read class files concurrently, or <code>null</code> to read them on the calling thread
+    */
+   private final ExecutorService executor;
+
    /**
     * Initialization procedure
     * 
@@ -67,11 +78,26 @@ public abstract class AbstractClassFinder implements ClassFinder
     */
    public AbstractClassFinder(ServletContext servletContext, ClassLoader classLoader, PackageFilter packageFilter,
             ByteCodeFilter byteCodeFilter)
+   {
+      this(servletContext, classLoader, packageFilter, byteCodeFilter, null);
+   }
+
+   /**
+    * Initialization procedure
+    * 
+    * @param servletContext The {@link ServletContext} of the web application.
+    * @param classLoader The {@link ClassLoader} to use for loading classes
+    * @param packageFilter The {@link PackageFilter} used to check if a package has to be scanned.
+    * @param executor The {@link ExecutorService} used to read class files concurrently (may be <code>null</code>)
+    */
+   public AbstractClassFinder(ServletContext servletContext, ClassLoader classLoader, PackageFilter packageFilter,
+            ByteCodeFilter byteCodeFilter, ExecutorService executor)
    {
       this.servletContext = servletContext;
       this.classLoader = classLoader;
       this.packageFilter = packageFilter;
       this.byteCodeFilter = byteCodeFilter;
+      this.executor = executor;
    }
 
    /**
@@ -163,6 +189,28 @@ public abstract class AbstractClassFinder implements ClassFinder
     * @param visitor the visitor
     */
    protected void processClass(String className, InputStream classFileStream, ClassVisitor visitor)
+   {
+      if (acceptClass(className, classFileStream))
+      {
+         visitClass(className, visitor);
+      }
+   }
+
+   /**
+    * <p>
+    * Check whether a class file may contain annotations by scanning it with the {@link ByteCodeFilter}. Classes without
+    * a class file, or with a class file that cannot be parsed, are always accepted. This method does not load the class
+    * and may be called concurrently.
+    * </p>
+    * <p>
+    * Please not the the called of this method is responsible to close the supplied {@link InputStream}!
+    * </p>
+    * 
+    * @param className The FQCN of the class
+    * @param classFileStream The Java class file of the class (may be <code>null</code>)
+    * @return <code>true</code> if the class should be visited
+    */
+   protected boolean acceptClass(String className, InputStream classFileStream)
    {
 
       // bytecode check is only performed if the InputStream is available
@@ -179,7 +227,7 @@ public abstract class AbstractClassFinder implements ClassFinder
             // No annotations -> abort
             if (!shouldScanClass)
             {
-               return;
+               return false;
             }
 
             // filter says we should scan the class
@@ -198,6 +246,20 @@ public abstract class AbstractClassFinder implements ClassFinder
          }
       }
 
+      return true;
+
+   }
+
+   /**
+    * Load a class and call {@link ClassVisitor#visit(Class)}. Must be called on the thread that called
+    * {@link #findClasses(ClassVisitor)}.
+    * 
+    * @param className The FQCN of the class
+    * @param visitor the visitor
+    */
+   protected void visitClass(String className, ClassVisitor visitor)
+   {
+
       try
       {
          // request this class from the ClassLoader
@@ -220,4 +282,65 @@ public abstract class AbstractClassFinder implements ClassFinder
 
    }
 
+   /**
+    * Run the given tasks, concurrently if an {@link ExecutorService} has been supplied, and return their results in the
+    * same order as the tasks.
+    * 
+    * @param tasks The tasks to run
+    * @return the results of the tasks
+    */
+   protected <T> List<T> execute(List<Callable<T>> tasks)
+   {
+
+      List<T> results = new ArrayList<T>(tasks.size());
+
+      try
+      {
+
+         // nothing to gain from another thread
+         if (executor == null || tasks.size() < 2)
+         {
+            for (Callable<T> task : tasks)
+            {
+               results.add(task.call());
+            }
+            return results;
+         }
+
+         for (Future<T> future : executor.invokeAll(tasks))
+         {
+            results.add(future.get());
+         }
+         return results;
+
+      }
+      catch (ExecutionException e)
+      {
+         Throwable cause = e.getCause();
+         if (cause instanceof RuntimeException)
+         {
+            throw (RuntimeException) cause;
+         }
+         if (cause instanceof Error)
+         {
+            throw (Error) cause;
+         }
+         throw new IllegalStateException("Failed to scan for classes: " + cause.getMessage(), cause);
+      }
+      catch (InterruptedException e)
+      {
+         Thread.currentThread().interrupt();
+         throw new IllegalStateException("Interrupted while scanning for classes", e);
+      }
+      catch (RuntimeException e)
+      {
+         throw e;
+      }
+      catch (Exception e)
+      {
+         throw new IllegalStateException("Failed to scan for classes: " + e.getMessage(), e);
+      }
+
+   }
+
 }
@@ -19,8 +19,12 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 
 import javax.servlet.ServletContext;
 
@@ -30,7 +34,8 @@ import org.ocpsoft.rewrite.annotation.spi.ClassFinder;
 /**
  * Implementation of {@link ClassFinder} that searches for classes in the <code>/WEB-INF/classes</code> directory of a
  * web application. Please note that this class is stateful. It should be used only for one call to
- * {@link #findClasses(ClassVisitor)}.
+ * {@link #findClasses(ClassVisitor)}. If an {@link ExecutorService} is supplied, class files are read concurrently; the
+ * classes found are always visited on the calling thread, in the order in which they were found.
  * 
  * @author Christian Kaltepoth
  */
@@ -47,6 +52,16 @@ public class WebClassesFinder extends AbstractClassFinder
     */
    private final Set<String> processedClasses = new LinkedHashSet<String>();
 
+   /**
+    * Class file entries accepted by the {@link PackageFilter} that still need to be read
+    */
+   private final List<String> pendingEntries = new ArrayList<String>();
+
+   /**
+    * The number of class files read by a single task
+    */
+   private final static int BATCH_SIZE = 64;
+
    /**
     * Initialization
     */
@@ -56,6 +71,15 @@ public class WebClassesFinder extends AbstractClassFinder
       super(servletContext, classLoader, packageFilter, byteCodeFilter);
    }
 
+   /**
+    * Initialization
+    */
+   public WebClassesFinder(ServletContext servletContext, ClassLoader classLoader, PackageFilter packageFilter,
+            ByteCodeFilter byteCodeFilter, ExecutorService executor)
+   {
+      super(servletContext, classLoader, packageFilter, byteCodeFilter, executor);
+   }
+
    @Override
    public void findClasses(ClassVisitor visitor)
    {
@@ -74,6 +98,9 @@ public class WebClassesFinder extends AbstractClassFinder
          // call recursive directory processing method
          processDirectory(classesFolderUrl, CLASSES_FOLDER, visitor);
 
+         // read the class files found, and visit the accepted classes
+         processPendingEntries(visitor);
+
       }
       catch (MalformedURLException e)
       {
@@ -83,8 +110,8 @@ public class WebClassesFinder extends AbstractClassFinder
 
    /**
     * Scan for classes in a single directory. This method will call itself recursively if it finds other directories and
-    * call {@link #processClass(String, InputStream, ClassVisitor)} when it finds a file ending with ".class" and
-    * that is accepted by the {@link PackageFilter}
+    * queue each file ending with ".class" that is accepted by the {@link PackageFilter} to be read once all
+    * directories have been scanned
     * 
     * @param absoluteUrl The absolute URL of the WEB-INF node to scan
     * @param relativePath The path of the node inside the WEB-INF
@@ -161,45 +188,98 @@ public class WebClassesFinder extends AbstractClassFinder
          // mark this class as processed
          processedClasses.add(className);
 
-         // the class file stream
-         InputStream classFileStream = null;
+         // the class file will be read once all directories have been processed
+         pendingEntries.add(entryName);
+      }
 
-         // close the stream in finally block
-         try
-         {
+   }
 
-            /*
-             * Try to open the .class file. if this isn't possible, we will scan it anyway.
-             */
-            classFileStream = servletContext.getResourceAsStream(entryName);
+   /**
+    * Read all pending class files in batches, possibly in parallel, and visit the accepted classes in order.
+    */
+   private void processPendingEntries(ClassVisitor visitor)
+   {
 
-            if (classFileStream == null)
+      List<Callable<List<String>>> tasks = new ArrayList<Callable<List<String>>>();
+      for (int start = 0; start < pendingEntries.size(); start += BATCH_SIZE)
+      {
+         final List<String> batch = pendingEntries.subList(start,
+                  Math.min(start + BATCH_SIZE, pendingEntries.size()));
+
+         tasks.add(new Callable<List<String>>() {
+            @Override
+            public List<String> call() throws Exception
             {
-               if (log.isDebugEnabled())
+               List<String> result = new ArrayList<String>();
+               for (String entryName : batch)
                {
-                  log.debug("Could not obtain InputStream for class file: " + entryName);
+                  String className = getClassName(entryName.substring(CLASSES_FOLDER.length()));
+                  if (readClassEntry(className, entryName))
+                  {
+                     result.add(className);
+                  }
                }
+               return result;
             }
+         });
+      }
+
+      for (List<String> classNames : execute(tasks))
+      {
+         for (String className : classNames)
+         {
+            visitClass(className, visitor);
+         }
+      }
+
+      pendingEntries.clear();
+
+   }
+
+   /**
+    * Check a single class file with the {@link ByteCodeFilter}.
+    */
+   private boolean readClassEntry(String className, String entryName)
+   {
 
-            // analyze the class (with or without classFileStream)
-            processClass(className, classFileStream, visitor);
+      // the class file stream
+      InputStream classFileStream = null;
 
+      // close the stream in finally block
+      try
+      {
+
+         /*
+          * Try to open the .class file. if this isn't possible, we will scan it anyway.
+          */
+         classFileStream = servletContext.getResourceAsStream(entryName);
+
+         if (classFileStream == null)
+         {
+            if (log.isDebugEnabled())
+            {
+               log.debug("Could not obtain InputStream for class file: " + entryName);
+            }
          }
-         finally
+
+         // analyze the class (with or without classFileStream)
+         return acceptClass(className, classFileStream);
+
+      }
+      finally
+      {
+         try
          {
-            try
+            if (classFileStream != null)
             {
-               if (classFileStream != null)
-               {
-                  classFileStream.close();
-               }
+               classFileStream.close();
             }
-            catch (IOException e)
+         }
+         catch (IOException e)
+         {
+            if (log.isDebugEnabled())
             {
-               if (log.isDebugEnabled())
-               {
-                  log.debug("Failed to close input stream: " + e.getMessage());
-               }
+               log.debug("Failed to close input stream: " + e.getMessage());
             }
          }
       }
@@ -15,12 +15,23 @@
  */
 package org.ocpsoft.rewrite.annotation.scan;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.net.URISyntaxException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
 import java.util.jar.JarEntry;
 import java.util.jar.JarInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import javax.servlet.ServletContext;
 
@@ -29,7 +40,8 @@ import org.ocpsoft.rewrite.annotation.spi.ClassFinder;
 
 /**
  * Implementation of {@link ClassFinder} that searches for classes in the JAR archives found in the
- * <code>/WEB-INF/lib/</code> directory of a web application.
+ * <code>/WEB-INF/lib/</code> directory of a web application. If an {@link ExecutorService} is supplied, the archives
+ * are read concurrently; the classes found are always visited on the calling thread, ordered by archive name.
  *
  * @author Christian Kaltepoth
  */
@@ -50,6 +62,15 @@ public class WebLibFinder extends AbstractClassFinder
       super(servletContext, classLoader, packageFilter, byteCodeFilter);
    }
 
+   /**
+    * Initialization
+    */
+   public WebLibFinder(ServletContext servletContext, ClassLoader classLoader, PackageFilter packageFilter,
+            ByteCodeFilter byteCodeFilter, ExecutorService executor)
+   {
+      super(servletContext, classLoader, packageFilter, byteCodeFilter, executor);
+   }
+
    @Override
    public void findClasses(ClassVisitor visitor)
    {
@@ -68,24 +89,44 @@ public class WebLibFinder extends AbstractClassFinder
             return;
          }
 
-         // call getResourcePaths to get directory entries
-         Set<?> paths = servletContext.getResourcePaths(LIB_FOLDER);
+         // call getResourcePaths to get directory entries, sorted for a predictable order
+         Set<String> paths = new TreeSet<String>();
+         for (Object relativePath : servletContext.getResourcePaths(LIB_FOLDER))
+         {
+            paths.add(relativePath.toString());
+         }
 
-         // loop over all entries of the directory
-         for (Object relativePath : paths)
+         // read all JAR files, possibly in parallel
+         List<Callable<List<String>>> tasks = new ArrayList<Callable<List<String>>>();
+         for (String relativePath : paths)
          {
 
             // get full URL of the current directory entry
-            URL entryUrl = servletContext.getResource(relativePath.toString());
+            final URL entryUrl = servletContext.getResource(relativePath);
 
             // we are only interested in JAR files
             if (entryUrl.getPath().endsWith(".jar"))
             {
-               processJarFile(entryUrl, visitor);
+               tasks.add(new Callable<List<String>>() {
+                  @Override
+                  public List<String> call() throws Exception
+                  {
+                     return processJarFile(entryUrl);
+                  }
+               });
             }
 
          }
 
+         // load and visit the accepted classes
+         for (List<String> classNames : execute(tasks))
+         {
+            for (String className : classNames)
+            {
+               visitClass(className, visitor);
+            }
+         }
+
       }
       catch (MalformedURLException e)
       {
@@ -97,9 +138,9 @@ public class WebLibFinder extends AbstractClassFinder
     * Process a single JAR file in the <code>/WEB-INF/lib/</code> directory.
     *
     * @param jarUrl The URL of the JAR file
-    * @param visitor The visitor to call on classes
+    * @return the names of the classes that should be visited, in archive order
     */
-   private void processJarFile(URL jarUrl, ClassVisitor visitor)
+   private List<String> processJarFile(URL jarUrl)
    {
 
       // log file name on debug lvel
@@ -108,46 +149,113 @@ public class WebLibFinder extends AbstractClassFinder
          log.debug("Processing JAR file: " + jarUrl.toString());
       }
 
-      // Use a JarInputStream to read the archive
-      JarInputStream jarStream = null;
+      List<String> result = new ArrayList<String>();
 
       // catch any type of IOException
       try
       {
 
-         // open the JAR stream
-         jarStream = new JarInputStream(jarUrl.openStream());
+         // prefer random access to the archive, so that entries rejected by name are never decompressed
+         File file = getFile(jarUrl);
+         if (file != null)
+         {
+            processZipFile(file, result);
+         }
+         else
+         {
+            processJarStream(jarUrl, result);
+         }
+
+      }
+      catch (IOException e)
+      {
+         log.error("Failed to read JAR file: " + jarUrl.toString(), e);
+      }
+
+      return result;
+
+   }
+
+   /**
+    * Read an archive on the file system through a {@link ZipFile}.
+    */
+   private void processZipFile(File file, List<String> result) throws IOException
+   {
+
+      ZipFile zipFile = new ZipFile(file);
+      try
+      {
 
          // Loop over all entries of the archive
-         JarEntry jarEntry = null;
-         while ((jarEntry = jarStream.getNextJarEntry()) != null)
+         Enumeration<? extends ZipEntry> entries = zipFile.entries();
+         while (entries.hasMoreElements())
          {
+            ZipEntry entry = entries.nextElement();
 
-            // We are only interested in java class files
-            if (jarEntry.getName().endsWith(".class"))
+            // We are only interested in java class files accepted by the PackageFilter
+            String className = getAcceptedClassName(entry);
+            if (className != null)
             {
+               InputStream classFileStream = zipFile.getInputStream(entry);
+               try
+               {
+                  if (acceptClass(className, classFileStream))
+                  {
+                     result.add(className);
+                  }
+               }
+               finally
+               {
+                  classFileStream.close();
+               }
+            }
+         }
 
-               // generate FQCN from entry
-               String className = getClassName(jarEntry.getName());
+      }
+      finally
+      {
+         try
+         {
+            zipFile.close();
+         }
+         catch (IOException e)
+         {
+            // ignore IO failures on close
+         }
+      }
 
-               // check name against PackageFilter
-               if (mustProcessClass(className))
-               {
+   }
 
-                  // analyze this class
-                  processClass(className, jarStream, visitor);
+   /**
+    * Read an archive that is not on the file system through a {@link JarInputStream}.
+    */
+   private void processJarStream(URL jarUrl, List<String> result) throws IOException
+   {
 
-               }
+      // Use a JarInputStream to read the archive
+      JarInputStream jarStream = null;
 
+      try
+      {
+
+         // open the JAR stream
+         jarStream = new JarInputStream(jarUrl.openStream());
+
+         // Loop over all entries of the archive
+         JarEntry jarEntry = null;
+         while ((jarEntry = jarStream.getNextJarEntry()) != null)
+         {
+
+            // We are only interested in java class files accepted by the PackageFilter
+            String className = getAcceptedClassName(jarEntry);
+            if (className != null && acceptClass(className, jarStream))
+            {
+               result.add(className);
             }
 
          }
 
       }
-      catch (IOException e)
-      {
-         log.error("Failed to read JAR file: " + jarUrl.toString(), e);
-      }
       finally
       {
          // Close the stream if it has been opened
@@ -166,6 +274,49 @@ public class WebLibFinder extends AbstractClassFinder
 
    }
 
+   /**
+    * Return the name of the class stored in the given entry, or <code>null</code> if the entry is not a class file or
+    * is rejected by the {@link PackageFilter}.
+    */
+   private String getAcceptedClassName(ZipEntry entry)
+   {
+      if (entry.isDirectory() || !entry.getName().endsWith(".class"))
+      {
+         return null;
+      }
+
+      // generate FQCN from entry
+      String className = getClassName(entry.getName());
+      return mustProcessClass(className) ? className : null;
+   }
+
+   /**
+    * Return the archive referenced by a <code>file:</code> URL, or <code>null</code> if the URL does not point to a
+    * regular file.
+    */
+   private File getFile(URL url)
+   {
+      if (!"file".equals(url.getProtocol()))
+      {
+         return null;
+      }
+
+      File file;
+      try
+      {
+         file = new File(url.toURI());
+      }
+      catch (URISyntaxException e)
+      {
+         file = new File(url.getPath());
+      }
+      catch (IllegalArgumentException e)
+      {
+         file = new File(url.getPath());
+      }
+      return file.isFile() ? file : null;
+   }
+
    @Override
    public int priority()
    {
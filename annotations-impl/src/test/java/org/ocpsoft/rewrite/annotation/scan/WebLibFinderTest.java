@@ -19,6 +19,8 @@ import static org.junit.Assert.assertNotNull;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.annotation.Annotation;
@@ -28,6 +30,8 @@ import java.net.URLStreamHandler;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 import java.util.jar.JarOutputStream;
 import java.util.zip.ZipEntry;
 
@@ -83,6 +87,80 @@ public class WebLibFinderTest
 
    }
 
+   @Test
+   public void testWebLibFinderWithZipFilesInParallel() throws Exception
+   {
+
+      // Two archives on the file system, one of them with a class that is not annotated
+      File libDir = File.createTempFile("rewrite", "lib");
+      libDir.delete();
+      libDir.mkdir();
+      File first = writeJar(new File(libDir, "a.jar"), ClassFinderTestBean.class, PackageFilter.class);
+      File second = writeJar(new File(libDir, "b.jar"), WebLibFinderTest.class);
+
+      // Contents of the lib directory
+      Set<String> libDirectory = new TreeSet<String>(Arrays.asList("/WEB-INF/lib/b.jar", "/WEB-INF/lib/a.jar"));
+
+      // Mock of ServletContext that knows our directories and files
+      ServletContext servletContext = Mockito.mock(ServletContext.class);
+      Mockito.when(servletContext.getResource("/WEB-INF/lib/")).thenReturn(libDir.toURI().toURL());
+      Mockito.when(servletContext.getResourcePaths("/WEB-INF/lib/")).thenReturn(libDirectory);
+      Mockito.when(servletContext.getResource("/WEB-INF/lib/a.jar")).thenReturn(first.toURI().toURL());
+      Mockito.when(servletContext.getResource("/WEB-INF/lib/b.jar")).thenReturn(second.toURI().toURL());
+
+      Set<Class<? extends Annotation>> types = new HashSet<Class<? extends Annotation>>();
+      types.add(TestAnnotation.class);
+
+      ClassVisitor classVisitor = Mockito.mock(ClassVisitor.class);
+      ForkJoinPool executor = new ForkJoinPool(2);
+      try
+      {
+         WebLibFinder finder = new WebLibFinder(servletContext, getClass().getClassLoader(), new PackageFilter(null),
+                  new ByteCodeFilter(types), executor);
+         finder.findClasses(classVisitor);
+      }
+      finally
+      {
+         executor.shutdown();
+         first.delete();
+         second.delete();
+         libDir.delete();
+      }
+
+      // Only the annotated class is visited
+      Mockito.verify(classVisitor).visit(ClassFinderTestBean.class);
+      Mockito.verifyNoMoreInteractions(classVisitor);
+
+   }
+
+   private File writeJar(File file, Class<?>... classes) throws IOException
+   {
+      JarOutputStream jarOutput = new JarOutputStream(new FileOutputStream(file));
+      try
+      {
+         for (Class<?> clazz : classes)
+         {
+            String classLocation = clazz.getName().replace('.', '/') + ".class";
+            InputStream classStream = clazz.getClassLoader().getResourceAsStream(classLocation);
+            assertNotNull("Cannot find test class", classStream);
+
+            jarOutput.putNextEntry(new ZipEntry(classLocation));
+            byte[] buffer = new byte[255];
+            for (int len; (len = classStream.read(buffer)) != -1;)
+            {
+               jarOutput.write(buffer, 0, len);
+            }
+            jarOutput.closeEntry();
+            classStream.close();
+         }
+      }
+      finally
+      {
+         jarOutput.close();
+      }
+      return file;
+   }
+
    /**
     * A custom {@link URLStreamHandler} that will always return an in-memory JAR archive containing only the
     * {@link ClassFinderTestBean} class.
@@ -17,9 +17,9 @@ package org.ocpsoft.rewrite.el;
 
 import java.util.Iterator;
 
-import org.ocpsoft.common.services.ServiceLoader;
 import org.ocpsoft.logging.Logger;
 import org.ocpsoft.rewrite.el.spi.BeanNameResolver;
+import org.ocpsoft.rewrite.spi.ServiceRegistry;
 
 /**
  * This implementation of {@link Expression} is able to automatically build the EL expression from the type of the bean.
@@ -59,12 +59,11 @@ class TypeBasedExpression implements Expression
 
    }
 
-   @SuppressWarnings("unchecked")
    private String lookupBeanName()
    {
 
       // load the available SPI implementations
-      Iterator<BeanNameResolver> iterator = ServiceLoader.load(BeanNameResolver.class).iterator();
+      Iterator<BeanNameResolver> iterator = ServiceRegistry.getServices(BeanNameResolver.class).iterator();
       while (iterator.hasNext()) {
          BeanNameResolver resolver = iterator.next();
 
@@ -15,6 +15,8 @@
  */
 package org.ocpsoft.rewrite.servlet;
 
+import java.io.IOException;
+
 import javax.servlet.ServletRequest;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -43,6 +45,8 @@ public abstract class RewriteWrappedResponse extends HttpServletResponseWrapper
 
    private HttpServletRequest request;
 
+   private int status = SC_OK;
+
    /**
     * Set the current {@link RewriteWrappedResponse} instance.
     */
@@ -68,6 +72,58 @@ public abstract class RewriteWrappedResponse extends HttpServletResponseWrapper
       return request;
    }
 
+   /**
+    * Get the status code most recently set through this {@link RewriteWrappedResponse}, or <code>200</code> if none has
+    * been set.
+    */
+   public int getStatus()
+   {
+      return status;
+   }
+
+   @Override
+   public void setStatus(int sc)
+   {
+      this.status = sc;
+      super.setStatus(sc);
+   }
+
+   @Override
+   @SuppressWarnings("deprecation")
+   public void setStatus(int sc, String sm)
+   {
+      this.status = sc;
+      super.setStatus(sc, sm);
+   }
+
+   @Override
+   public void sendError(int sc) throws IOException
+   {
+      this.status = sc;
+      super.sendError(sc);
+   }
+
+   @Override
+   public void sendError(int sc, String msg) throws IOException
+   {
+      this.status = sc;
+      super.sendError(sc, msg);
+   }
+
+   @Override
+   public void sendRedirect(String location) throws IOException
+   {
+      this.status = SC_MOVED_TEMPORARILY;
+      super.sendRedirect(location);
+   }
+
+   @Override
+   public void reset()
+   {
+      this.status = SC_OK;
+      super.reset();
+   }
+
    /**
     * Return <code>true</code> if any {@link ResponseContentInterceptor} instances have been registered on the current
     * {@link HttpServletResponse}.
@@ -25,6 +25,7 @@ import org.ocpsoft.rewrite.context.Context;
 import org.ocpsoft.rewrite.event.Flow;
 import org.ocpsoft.rewrite.exception.RewriteException;
 import org.ocpsoft.rewrite.servlet.RewriteLifecycleContext;
+import org.ocpsoft.rewrite.servlet.util.ParsedAddress;
 
 /**
  * Base implementation of {@link InboundServletRewriteEvent}
@@ -41,6 +42,11 @@ public abstract class BaseRewrite<IN extends ServletRequest, OUT extends Servlet
    private Context context;
    private ServletContext servletContext;
 
+   /*
+    * For caching and performance purposes only.
+    */
+   private ParsedAddress parsedAddress;
+
    public BaseRewrite(final IN request, final OUT response, final ServletContext servletContext)
    {
       this.servletContext = servletContext;
@@ -171,6 +177,23 @@ public abstract class BaseRewrite<IN extends ServletRequest, OUT extends Servlet
       this.response = response;
    }
 
+   /**
+    * Get the {@link ParsedAddress} most recently remembered for this event, or <code>null</code> if none has been
+    * parsed. Use {@link ParsedAddress#of(org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite)} instead.
+    */
+   public ParsedAddress getParsedAddress()
+   {
+      return parsedAddress;
+   }
+
+   /**
+    * Remember the given {@link ParsedAddress} for the remainder of this event.
+    */
+   public void setParsedAddress(final ParsedAddress parsedAddress)
+   {
+      this.parsedAddress = parsedAddress;
+   }
+
    /**
     * Enum to represent the finite state of the Rewrite container.
     */
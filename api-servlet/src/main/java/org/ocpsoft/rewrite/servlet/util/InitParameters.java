@@ -0,0 +1,54 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.util;
+
+import javax.servlet.ServletContext;
+
+import org.ocpsoft.logging.Logger;
+
+/**
+ * Utility for reading {@link ServletContext} init parameters, as configured by <code>context-param</code> elements in
+ * <code>web.xml</code>.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public final class InitParameters
+{
+   private static final Logger log = Logger.getLogger(InitParameters.class);
+
+   private InitParameters()
+   {}
+
+   /**
+    * Get the value of the given init parameter as a non-negative <code>int</code>. Negative values are treated as
+    * <code>0</code>. Return the given default value if the parameter is not set, or is not a number.
+    */
+   public static int getInt(ServletContext context, String name, int defaultValue)
+   {
+      String value = context.getInitParameter(name);
+      if (value != null && !value.trim().isEmpty())
+      {
+         try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+         }
+         catch (NumberFormatException e) {
+            log.warn("Ignoring invalid value [" + value + "] for servlet context init parameter [" + name
+                     + "]. Using default [" + defaultValue + "].");
+         }
+      }
+      return defaultValue;
+   }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.util;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.ocpsoft.rewrite.servlet.event.BaseRewrite;
+import org.ocpsoft.rewrite.servlet.http.event.HttpOutboundServletRewrite;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.urlbuilder.Address;
+import org.ocpsoft.urlbuilder.AddressBuilder;
+
+/**
+ * Lazily parsed view of the {@link Address} of an {@link HttpServletRewrite} event, as inspected by path, query, URL,
+ * and domain conditions. Each part of the {@link Address} is parsed at most once, the first time it is requested, so
+ * that a {@link org.ocpsoft.rewrite.config.Configuration} with many rules does not parse the same {@link Address}
+ * once per rule.
+ * <p>
+ * Use {@link #of(HttpServletRewrite)} to obtain the view for the current event. The view is remembered by events that
+ * extend {@link BaseRewrite}, and is parsed again only if the {@link Address} of the event is replaced, for example by
+ * {@link HttpOutboundServletRewrite#setOutboundAddress(Address)}.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public final class ParsedAddress
+{
+   private final HttpServletRewrite event;
+   private final Address address;
+   private final String contextPath;
+   private final boolean outbound;
+
+   private boolean pathParsed;
+   private String path;
+   private Map<String, String[]> query;
+   private String host;
+   private String url;
+
+   private ParsedAddress(final HttpServletRewrite event, final Address address)
+   {
+      this.event = event;
+      this.address = address;
+      this.contextPath = event.getContextPath();
+      this.outbound = event instanceof HttpOutboundServletRewrite;
+   }
+
+   /**
+    * Get the {@link ParsedAddress} of the current {@link Address} of the given event: the outbound {@link Address} of
+    * an {@link HttpOutboundServletRewrite}, or the inbound {@link Address} otherwise.
+    */
+   public static ParsedAddress of(final HttpServletRewrite event)
+   {
+      Address address = event instanceof HttpOutboundServletRewrite
+               ? ((HttpOutboundServletRewrite) event).getOutboundAddress() : event.getInboundAddress();
+
+      if (event instanceof BaseRewrite)
+      {
+         BaseRewrite<?, ?> base = (BaseRewrite<?, ?>) event;
+         ParsedAddress parsed = base.getParsedAddress();
+         if (parsed == null || parsed.address != address || !parsed.contextPath.equals(event.getContextPath()))
+         {
+            parsed = new ParsedAddress(event, address);
+            base.setParsedAddress(parsed);
+         }
+         return parsed;
+      }
+      return new ParsedAddress(event, address);
+   }
+
+   /**
+    * Get the {@link Address} from which this view was parsed.
+    */
+   public Address getAddress()
+   {
+      return address;
+   }
+
+   /**
+    * Get the path of the {@link Address}, relative to the context path. Inbound paths are decoded; outbound paths are
+    * returned as given. Returns <code>null</code> if the {@link Address} has no path, such as an external URL without
+    * a trailing slash, or an anchor link.
+    */
+   public String getPath()
+   {
+      if (!pathParsed)
+      {
+         String result = address.getPath();
+         if (result != null)
+         {
+            if (!outbound)
+               result = AddressBuilder.begin().pathDecoded(result).buildLiteral().toString();
+            result = stripContextPath(result);
+         }
+         path = result;
+         pathParsed = true;
+      }
+      return path;
+   }
+
+   /**
+    * Get the decoded query parameters of the {@link Address}, in order of first appearance. The returned {@link Map}
+    * and its value arrays must not be modified.
+    */
+   @SuppressWarnings("deprecation")
+   public Map<String, String[]> getQueryParameters()
+   {
+      if (query == null)
+      {
+         QueryStringBuilder queryString = QueryStringBuilder.createFromEncoded(address.getQuery()).decode();
+         Map<String, String[]> result = new LinkedHashMap<String, String[]>();
+         for (String name : queryString.getParameterNames()) {
+            result.put(name, queryString.getParameterValues(name));
+         }
+         query = Collections.unmodifiableMap(result);
+      }
+      return query;
+   }
+
+   /**
+    * Get the host name of the {@link Address}, exactly as given. Outbound addresses that do not specify a host fall back to
+    * the host name of the current request.
+    */
+   public String getHost()
+   {
+      if (host == null)
+      {
+         host = outbound ? address.getDomain() : null;
+         if (host == null)
+            host = event.getRequest().getServerName();
+      }
+      return host;
+   }
+
+   /**
+    * Get the full {@link Address} as a {@link String}. Outbound addresses are made relative to the context path.
+    */
+   public String getURL()
+   {
+      if (url == null)
+      {
+         String result = address.toString();
+         url = outbound ? stripContextPath(result) : result;
+      }
+      return url;
+   }
+
+   private String stripContextPath(final String path)
+   {
+      if (!contextPath.equals("/") && path.startsWith(contextPath))
+         return path.substring(contextPath.length());
+      return path;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "ParsedAddress [" + address + "]";
+   }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.servlet.Servlet;
+import javax.servlet.ServletContext;
+
+import org.ocpsoft.common.pattern.WeightedComparator;
+import org.ocpsoft.common.services.ServiceLoader;
+import org.ocpsoft.common.util.Iterators;
+import org.ocpsoft.rewrite.servlet.ServletRegistration;
+import org.ocpsoft.rewrite.servlet.spi.ServletRegistrationProvider;
+
+/**
+ * Immutable snapshot of the {@link Servlet} mappings registered in a {@link ServletContext}, compiled into exact,
+ * prefix, and extension matchers so that a path can be tested without consulting the
+ * {@link ServletRegistrationProvider} SPI, or re-parsing <code>web.xml</code>, on every request.
+ * <p>
+ * A snapshot is built once per {@link ServletContext}, the first time it is requested. Applications that register
+ * {@link Servlet} instances after that point (for example, through the Servlet 3.0 dynamic registration API) must call
+ * {@link #invalidate(ServletContext)} so that the next snapshot picks up the new mappings.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public final class ServletMappings
+{
+   private static final String KEY = ServletMappings.class.getName() + "_snapshot";
+
+   private static volatile List<ServletRegistrationProvider> providers;
+
+   private final Set<String> exact = new HashSet<String>();
+   private final List<String> prefixes = new ArrayList<String>();
+   private final Set<String> extensions = new HashSet<String>();
+   private final List<Pattern> patterns = new ArrayList<Pattern>();
+
+   private ServletMappings(Collection<ServletRegistration> registrations)
+   {
+      for (ServletRegistration registration : registrations)
+      {
+         for (String mapping : registration.getMappings())
+         {
+            if (mapping == null)
+               continue;
+
+            if (!mapping.startsWith("/"))
+               mapping = "/" + mapping;
+
+            if (mapping.startsWith("/*.") && mapping.indexOf('*', 1) < 0 && mapping.indexOf('/', 1) < 0)
+               extensions.add(mapping.substring(3));
+
+            else if (mapping.endsWith("/*") && mapping.indexOf('*') == mapping.length() - 1)
+               prefixes.add(mapping.substring(0, mapping.length() - 2));
+
+            else if (mapping.contains("*"))
+               patterns.add(Pattern.compile(toRegex(mapping)));
+
+            else
+               exact.add(mapping);
+         }
+      }
+   }
+
+   /**
+    * Compile the given {@link ServletRegistration} instances into a new {@link ServletMappings} snapshot.
+    */
+   public static ServletMappings compile(Collection<ServletRegistration> registrations)
+   {
+      return new ServletMappings(registrations);
+   }
+
+   /**
+    * Get the {@link ServletMappings} snapshot of the given {@link ServletContext}, building it from the
+    * {@link ServletRegistrationProvider} SPI if this is the first request, or if the snapshot has been invalidated.
+    */
+   public static ServletMappings getInstance(ServletContext context)
+   {
+      ServletMappings mappings = (ServletMappings) context.getAttribute(KEY);
+      if (mappings == null)
+      {
+         mappings = compile(getServletRegistrations(context));
+         context.setAttribute(KEY, mappings);
+      }
+      return mappings;
+   }
+
+   /**
+    * Discard the {@link ServletMappings} snapshot of the given {@link ServletContext}. The next call to
+    * {@link #getInstance(ServletContext)} will obtain the current {@link Servlet} registrations again.
+    */
+   public static void invalidate(ServletContext context)
+   {
+      context.removeAttribute(KEY);
+   }
+
+   /**
+    * Return <code>true</code> if the given context-relative path is mapped by any {@link Servlet} in this snapshot.
+    */
+   public boolean matches(String path)
+   {
+      if (path == null)
+         return false;
+
+      if (!path.startsWith("/"))
+         path = "/" + path;
+
+      if (exact.contains(path))
+         return true;
+
+      /*
+       * Normal loop for performance reasons. As before these snapshots existed, "/foo/*" matches "/foo/" and
+       * everything below it, but not "/foo" itself.
+       */
+      for (int i = 0; i < prefixes.size(); i++) {
+         String prefix = prefixes.get(i);
+         if (path.length() > prefix.length() && path.startsWith(prefix) && path.charAt(prefix.length()) == '/')
+            return true;
+      }
+
+      if (!extensions.isEmpty())
+      {
+         int dot = path.lastIndexOf('.');
+         if (dot > path.lastIndexOf('/') && extensions.contains(path.substring(dot + 1)))
+            return true;
+      }
+
+      for (int i = 0; i < patterns.size(); i++) {
+         if (patterns.get(i).matcher(path).matches())
+            return true;
+      }
+
+      return false;
+   }
+
+   /**
+    * Obtains the list of registered {@link Servlet} instances using the {@link ServletRegistrationProvider} SPI.
+    */
+   private static List<ServletRegistration> getServletRegistrations(ServletContext context)
+   {
+      for (ServletRegistrationProvider provider : getServletRegistrationProviders())
+      {
+         List<ServletRegistration> registrations = provider.getServletRegistrations(context);
+         if (registrations != null)
+         {
+            return registrations;
+         }
+      }
+      throw new IllegalStateException("Unable to find the Servlet registrations of the application");
+   }
+
+   /**
+    * Returns the list of {@link ServletRegistrationProvider} implementations.
+    */
+   private static List<ServletRegistrationProvider> getServletRegistrationProviders()
+   {
+      if (providers == null)
+      {
+         List<ServletRegistrationProvider> result = Iterators.asList(
+                  ServiceLoader.loadTypesafe(ServletRegistrationProvider.class).iterator());
+         Collections.sort(result, new WeightedComparator());
+         providers = result;
+      }
+      return providers;
+   }
+
+   /**
+    * Convert a non-standard mapping containing wildcards into a regular expression, quoting everything else.
+    */
+   private static String toRegex(String mapping)
+   {
+      StringBuilder result = new StringBuilder();
+      int start = 0;
+      int star;
+      while ((star = mapping.indexOf('*', start)) >= 0)
+      {
+         if (star > start)
+            result.append(Pattern.quote(mapping.substring(start, star)));
+         result.append(".*");
+         start = star + 1;
+      }
+      if (start < mapping.length())
+         result.append(Pattern.quote(mapping.substring(start)));
+      return result.toString();
+   }
+
+   @Override
+   public String toString()
+   {
+      return "ServletMappings [exact=" + exact + ", prefixes=" + prefixes + ", extensions=" + extensions
+               + ", patterns=" + patterns + "]";
+   }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ocpsoft.rewrite.event.Flow;
+import org.ocpsoft.rewrite.servlet.event.BaseRewrite;
+import org.ocpsoft.rewrite.servlet.http.event.HttpOutboundServletRewrite;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.urlbuilder.Address;
+import org.ocpsoft.urlbuilder.AddressBuilder;
+
+public class ParsedAddressTest
+{
+   @Test
+   public void testInboundPathDecodedAndContextPathStripped()
+   {
+      ParsedAddress parsed = ParsedAddress.of(new Inbound("/ctx", "/ctx/a%20b/c%2Fd"));
+      Assert.assertEquals("/a b/c/d", parsed.getPath());
+   }
+
+   @Test
+   public void testRootContextPathNotStripped()
+   {
+      Assert.assertEquals("/a/b", ParsedAddress.of(new Inbound("/", "/a/b")).getPath());
+      Assert.assertEquals("/a/b", ParsedAddress.of(new Inbound("", "/a/b")).getPath());
+   }
+
+   @Test
+   public void testOutboundPathNotDecoded()
+   {
+      ParsedAddress parsed = ParsedAddress.of(new Outbound("/ctx", "/ctx/a%20b?x=1"));
+      Assert.assertEquals("/a%20b", parsed.getPath());
+      Assert.assertEquals("/a%20b?x=1", parsed.getURL());
+   }
+
+   @Test
+   public void testInboundURLNotStripped()
+   {
+      ParsedAddress parsed = ParsedAddress.of(new Inbound("/ctx", "/ctx/a?x=1"));
+      Assert.assertEquals("/ctx/a?x=1", parsed.getURL());
+   }
+
+   @Test
+   public void testQueryParametersDecodedInOrder()
+   {
+      ParsedAddress parsed = ParsedAddress.of(new Inbound("", "/a?b=x%20y&a=1&a=2"));
+      Assert.assertArrayEquals(new Object[] { "b", "a" }, parsed.getQueryParameters().keySet().toArray());
+      Assert.assertArrayEquals(new String[] { "x y" }, parsed.getQueryParameters().get("b"));
+      Assert.assertArrayEquals(new String[] { "1", "2" }, parsed.getQueryParameters().get("a"));
+   }
+
+   @Test(expected = UnsupportedOperationException.class)
+   public void testQueryParametersUnmodifiable()
+   {
+      ParsedAddress.of(new Inbound("", "/a?b=c")).getQueryParameters().clear();
+   }
+
+   @Test
+   public void testInboundHostFromRequest()
+   {
+      Assert.assertEquals("Example.COM", ParsedAddress.of(new Inbound("", "/a")).getHost());
+   }
+
+   @Test
+   public void testOutboundHostFromAddress()
+   {
+      Assert.assertEquals("WWW.Example.ORG",
+               ParsedAddress.of(new Outbound("", "http://WWW.Example.ORG/a")).getHost());
+      Assert.assertEquals("Example.COM", ParsedAddress.of(new Outbound("", "/a")).getHost());
+   }
+
+   @Test
+   public void testNoPath()
+   {
+      Assert.assertNull(ParsedAddress.of(new Outbound("", "#top")).getPath());
+   }
+
+   @Test
+   public void testParsedOncePerEvent()
+   {
+      Outbound event = new Outbound("/ctx", "/ctx/a%20b?x=1");
+      ParsedAddress parsed = ParsedAddress.of(event);
+      Assert.assertSame(parsed, ParsedAddress.of(event));
+      Assert.assertSame(parsed.getPath(), ParsedAddress.of(event).getPath());
+      Assert.assertSame(parsed.getQueryParameters(), ParsedAddress.of(event).getQueryParameters());
+   }
+
+   @Test
+   public void testParsedAgainWhenAddressReplaced()
+   {
+      Outbound event = new Outbound("/ctx", "/ctx/a");
+      ParsedAddress parsed = ParsedAddress.of(event);
+      Assert.assertEquals("/a", parsed.getPath());
+
+      event.setOutboundAddress(AddressBuilder.create("/ctx/b"));
+      Assert.assertNotSame(parsed, ParsedAddress.of(event));
+      Assert.assertEquals("/b", ParsedAddress.of(event).getPath());
+   }
+
+   @Test
+   public void testParsedAgainWhenContextPathChanges()
+   {
+      Inbound event = new Inbound("/ctx", "/ctx/a");
+      ParsedAddress parsed = ParsedAddress.of(event);
+      event.contextPath = "/";
+      Assert.assertNotSame(parsed, ParsedAddress.of(event));
+      Assert.assertEquals("/ctx/a", ParsedAddress.of(event).getPath());
+   }
+
+   private static HttpServletRequest request()
+   {
+      return (HttpServletRequest) Proxy.newProxyInstance(ParsedAddressTest.class.getClassLoader(),
+               new Class<?>[] { HttpServletRequest.class }, new InvocationHandler() {
+                  @Override
+                  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+                  {
+                     if ("getServerName".equals(method.getName()))
+                        return "Example.COM";
+                     throw new UnsupportedOperationException(method.getName());
+                  }
+               });
+   }
+
+   private static class Inbound extends BaseRewrite<HttpServletRequest, HttpServletResponse> implements
+            HttpServletRewrite
+   {
+      private final Address address;
+      String contextPath;
+
+      public Inbound(String contextPath, String address)
+      {
+         super(request(), null, null);
+         this.contextPath = contextPath;
+         this.address = AddressBuilder.create(address);
+      }
+
+      @Override
+      public String getContextPath()
+      {
+         return contextPath;
+      }
+
+      @Override
+      public Address getInboundAddress()
+      {
+         return address;
+      }
+
+      @Override
+      public Address getAddress()
+      {
+         return getInboundAddress();
+      }
+
+      @Override
+      public void setFlow(Flow flow)
+      {}
+   }
+
+   private static class Outbound extends Inbound implements HttpOutboundServletRewrite
+   {
+      private final Address original;
+      private Address outbound;
+
+      public Outbound(String contextPath, String address)
+      {
+         super(contextPath, "/inbound");
+         this.original = this.outbound = AddressBuilder.create(address);
+      }
+
+      @Override
+      public Address getOutboundAddress()
+      {
+         return outbound;
+      }
+
+      @Override
+      public void setOutboundAddress(Address address)
+      {
+         this.outbound = address;
+      }
+
+      @Override
+      public Address getOriginalOutboundAddress()
+      {
+         return original;
+      }
+
+      @Override
+      public Address getAddress()
+      {
+         return getOutboundAddress();
+      }
+   }
+}
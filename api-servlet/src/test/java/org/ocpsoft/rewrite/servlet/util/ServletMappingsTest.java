@@ -0,0 +1,85 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.util;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ocpsoft.rewrite.servlet.ServletRegistration;
+
+public class ServletMappingsTest
+{
+   private ServletMappings compile(String... mappings)
+   {
+      ServletRegistration registration = new ServletRegistration();
+      registration.setClassName("com.example.Servlet");
+      registration.addMappings(Arrays.asList(mappings));
+      return ServletMappings.compile(Arrays.asList(registration));
+   }
+
+   @Test
+   public void testExactMapping()
+   {
+      ServletMappings mappings = compile("/something.mapped", "other", "/");
+      Assert.assertTrue(mappings.matches("/something.mapped"));
+      Assert.assertTrue(mappings.matches("/other"));
+      Assert.assertTrue(mappings.matches("/"));
+      Assert.assertFalse(mappings.matches("/something.other"));
+      Assert.assertFalse(mappings.matches("/something"));
+   }
+
+   @Test
+   public void testPrefixMapping()
+   {
+      ServletMappings mappings = compile("/faces/*");
+      Assert.assertTrue(mappings.matches("/faces/index.xhtml"));
+      Assert.assertTrue(mappings.matches("/faces/"));
+      Assert.assertFalse(mappings.matches("/facesx/index.xhtml"));
+      Assert.assertFalse(mappings.matches("/index.xhtml"));
+
+      Assert.assertTrue(compile("/*").matches("/anything/at/all"));
+      Assert.assertTrue(compile("/*").matches("/"));
+   }
+
+   @Test
+   public void testPrefixMappingDoesNotMatchBarePrefix()
+   {
+      ServletMappings mappings = compile("/faces/*");
+      Assert.assertFalse(mappings.matches("/faces"));
+      Assert.assertFalse(mappings.matches("faces"));
+   }
+
+   @Test
+   public void testExtensionMapping()
+   {
+      ServletMappings mappings = compile("*.jsf", "*.xhtml");
+      Assert.assertTrue(mappings.matches("/index.jsf"));
+      Assert.assertTrue(mappings.matches("/a/b/c.xhtml"));
+      Assert.assertTrue(mappings.matches("index.jsf"));
+      Assert.assertFalse(mappings.matches("/index.jsp"));
+      Assert.assertFalse(mappings.matches("/dir.jsf/index"));
+      Assert.assertFalse(mappings.matches("/indexjsf"));
+   }
+
+   @Test
+   public void testWildcardMapping()
+   {
+      ServletMappings mappings = compile("/a*.b");
+      Assert.assertTrue(mappings.matches("/a/c.b"));
+      Assert.assertFalse(mappings.matches("/a/cxb"));
+   }
+}
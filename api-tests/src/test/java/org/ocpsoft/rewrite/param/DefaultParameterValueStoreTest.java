@@ -89,4 +89,39 @@ public class DefaultParameterValueStoreTest
       Assert.assertTrue(valueStore.submit(event, context, parameter, expected));
       Assert.assertEquals(expected, valueStore.retrieve(parameter));
    }
+
+   @Test
+   public void testSubmitWithLayout()
+   {
+      ParameterStore store = DefaultParameterStore.getInstance(context);
+      Parameter<?> foo = store.get("foo", new DefaultParameter("foo"));
+      ParameterLayout layout = ParameterLayout.compile(store);
+      Parameter<?> bar = store.get("bar", new DefaultParameter("bar"));
+
+      DefaultParameterValueStore valueStore = new DefaultParameterValueStore(layout);
+      Assert.assertTrue(layout.slotOf(foo) >= 0);
+      Assert.assertEquals(-1, layout.slotOf(bar));
+
+      Assert.assertTrue(valueStore.submit(event, context, foo, "value"));
+      Assert.assertFalse(valueStore.submit(event, context, foo, "other"));
+      Assert.assertTrue(valueStore.submit(event, context, bar, "other"));
+      Assert.assertEquals("value", valueStore.retrieve(foo));
+      Assert.assertEquals("other", valueStore.retrieve(bar));
+   }
+
+   @Test
+   public void testResetDiscardsValues()
+   {
+      ParameterStore store = DefaultParameterStore.getInstance(context);
+      Parameter<?> foo = store.get("foo", new DefaultParameter("foo"));
+      ParameterLayout layout = ParameterLayout.compile(store);
+
+      DefaultParameterValueStore valueStore = new DefaultParameterValueStore(layout);
+      Assert.assertTrue(valueStore.submit(event, context, foo, "value"));
+
+      valueStore.reset(layout);
+      Assert.assertNull(valueStore.retrieve(foo));
+      Assert.assertTrue(valueStore.submit(event, context, foo, "other"));
+      Assert.assertEquals("other", valueStore.retrieve(foo));
+   }
 }
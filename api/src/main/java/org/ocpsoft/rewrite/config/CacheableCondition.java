@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import org.ocpsoft.rewrite.event.Rewrite;
+import org.ocpsoft.rewrite.spi.RuleCacheProvider;
+
+/**
+ * Marker interface for {@link Condition} instances whose result depends solely on the direction, dispatch type, and
+ * address of the {@link Rewrite} event being evaluated. Such a {@link Condition} never consults request headers,
+ * sessions, expression language, or any other mutable state, and may therefore safely be memoized by
+ * {@link RuleCacheProvider} implementations.
+ * <p>
+ * A {@link CompositeCondition} that implements this interface is only considered cacheable if all of its children are
+ * also cacheable.
+ * 
+ * @see CacheableConditionVisitor
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface CacheableCondition extends Condition
+{}
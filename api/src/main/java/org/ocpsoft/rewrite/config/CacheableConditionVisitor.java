@@ -0,0 +1,46 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import org.ocpsoft.rewrite.util.Visitor;
+
+/**
+ * {@link Visitor} implementation for {@link Condition}s that determines whether or not every visited {@link Condition}
+ * is a {@link CacheableCondition}.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class CacheableConditionVisitor implements Visitor<Condition>
+{
+   private boolean cacheable = true;
+
+   @Override
+   public void visit(Condition condition)
+   {
+      if (!(condition instanceof CacheableCondition)) {
+         cacheable = false;
+      }
+   }
+
+   /**
+    * Return <code>true</code> if all visited {@link Condition} instances were {@link CacheableCondition} instances;
+    * otherwise, return <code>false</code>.
+    */
+   public boolean isCacheable()
+   {
+      return cacheable;
+   }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import org.ocpsoft.rewrite.event.Rewrite;
+import org.ocpsoft.rewrite.spi.RuleCacheProvider;
+
+/**
+ * Marker interface for {@link Operation} instances whose effect depends solely on the address of the {@link Rewrite}
+ * event being performed, and on the parameter values extracted from it. Such an {@link Operation} never consults
+ * request headers, sessions, locale, expression language, or any other mutable state, so its result may be memoized
+ * by {@link RuleCacheProvider} implementations and outbound rewriting caches.
+ * <p>
+ * A {@link CompositeOperation} that implements this interface is only considered cacheable if all of its children are
+ * also cacheable.
+ * 
+ * @see CacheableOperationVisitor
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface CacheableOperation extends Operation
+{}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.ocpsoft.rewrite.param.ParameterLayout;
+import org.ocpsoft.rewrite.param.ParameterizedRule;
+
+/**
+ * The unified, immutable {@link Configuration} built by {@link ConfigurationLoader} from all registered
+ * {@link ConfigurationProvider} instances, along with any data structures precomputed for its {@link Rule} instances.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class CompiledConfiguration implements Configuration
+{
+   private final ConfigurationBuilder configuration;
+   private final List<Rule> rules;
+   private final RuleIndex ruleIndex;
+   private final Map<Rule, ParameterLayout> parameterLayouts;
+
+   CompiledConfiguration(final ConfigurationBuilder configuration)
+   {
+      this.configuration = configuration;
+      this.rules = configuration.getRules();
+      this.ruleIndex = RuleIndex.build(rules);
+
+      this.parameterLayouts = new IdentityHashMap<Rule, ParameterLayout>(rules.size() * 2);
+      for (Rule rule : rules) {
+         if (rule instanceof ParameterizedRule)
+            parameterLayouts.put(rule, ParameterLayout.compile(((ParameterizedRule) rule).getParameterStore()));
+      }
+   }
+
+   @Override
+   public List<Rule> getRules()
+   {
+      return rules;
+   }
+
+   /**
+    * Get the {@link RuleIndex} of the {@link Rule} instances in this {@link Configuration}.
+    */
+   public RuleIndex getRuleIndex()
+   {
+      return ruleIndex;
+   }
+
+   /**
+    * Get the {@link ParameterLayout} of the given {@link Rule}, or {@link ParameterLayout#EMPTY} if the {@link Rule} is
+    * not a {@link ParameterizedRule} of this {@link Configuration}.
+    */
+   public ParameterLayout getParameterLayout(final Rule rule)
+   {
+      ParameterLayout layout = parameterLayouts.get(rule);
+      return layout == null ? ParameterLayout.EMPTY : layout;
+   }
+
+   @Override
+   public String toString()
+   {
+      return configuration.toString();
+   }
+}
@@ -94,7 +94,7 @@ public final class Conditions
     */
    public static ConditionBuilder create()
    {
-      return new DefaultConditionBuilder() {
+      return new DefaultConditionBuilderInternal() {
          @Override
          public boolean evaluate(Rewrite event, EvaluationContext context)
          {
@@ -139,6 +139,12 @@ public final class Conditions
          {
             return Arrays.asList(condition);
          }
+
+         @Override
+         Condition getDelegate()
+         {
+            return condition;
+         }
       };
    }
 }
@@ -22,6 +22,17 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.ocpsoft.common.pattern.WeightedComparator;
 import org.ocpsoft.common.services.ServiceLoader;
@@ -29,35 +40,79 @@ import org.ocpsoft.common.util.Iterators;
 import org.ocpsoft.logging.Logger;
 import org.ocpsoft.rewrite.bind.Evaluation;
 import org.ocpsoft.rewrite.context.Context;
+import org.ocpsoft.rewrite.exception.RewriteException;
 import org.ocpsoft.rewrite.param.ConfigurableParameter;
 import org.ocpsoft.rewrite.param.DefaultParameter;
 import org.ocpsoft.rewrite.param.Parameter;
 import org.ocpsoft.rewrite.param.ParameterStore;
 import org.ocpsoft.rewrite.param.Parameterized;
+import org.ocpsoft.rewrite.param.ParameterizedPatternAutomaton;
+import org.ocpsoft.rewrite.param.ParameterizedPatternHolder;
+import org.ocpsoft.rewrite.param.ParameterizedPatternParser;
 import org.ocpsoft.rewrite.param.ParameterizedRule;
 import org.ocpsoft.rewrite.spi.ConfigurationCacheProvider;
+import org.ocpsoft.rewrite.spi.ServiceRegistry;
 import org.ocpsoft.rewrite.util.Visitor;
 
 /**
  * Responsible for loading all {@link ConfigurationProvider} instances, and building a single unified
  * {@link Configuration} based on {@link ConfigurationProvider#priority()}
+ * <p>
+ * Once a {@link Configuration} has been built, it is published as an immutable snapshot. If every
+ * {@link ConfigurationCacheProvider} later reports an empty cache (for instance, because configuration reloading is
+ * enabled), the snapshot continues to be served while a replacement is built on a background thread. If the
+ * replacement cannot be built, the failure is recorded, and the previous snapshot is stored in the caches again so
+ * that the build is not retried until the caches are next emptied.
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
 public class ConfigurationLoader
 {
+   /**
+    * System property that, when set to <code>false</code>, disables compiling the patterns of all loaded
+    * {@link Condition} instances into a single {@link ParameterizedPatternAutomaton}.
+    */
+   public static final String PATTERN_AUTOMATON = "org.ocpsoft.rewrite.config.PATTERN_AUTOMATON";
+
+   /**
+    * System property that enables building the {@link Configuration} on multiple threads. Set to <code>true</code> to
+    * use one thread per available processor, or to the number of threads to use. When enabled, every
+    * {@link ConfigurationProvider} must be safe to invoke concurrently with the others, and {@link Condition} and
+    * {@link Operation} instances must not be shared between {@link Rule} instances. The order of the resulting
+    * {@link Rule} list is the same as when building on a single thread.
+    */
+   public static final String PARALLEL_BUILD = "org.ocpsoft.rewrite.config.PARALLEL_BUILD";
+
    public static Logger log = Logger.getLogger(ConfigurationLoader.class);
    private final List<ConfigurationCacheProvider<?>> caches;
    private final List<ConfigurationProvider<?>> providers;
 
+   private volatile Snapshot snapshot;
+   private volatile RuntimeException failure;
+   private final AtomicBoolean rebuilding = new AtomicBoolean();
+   private final ThreadPoolExecutor reloader;
+
    @SuppressWarnings({ "unchecked" })
    public ConfigurationLoader(Object context)
    {
-      caches = Iterators.asList(ServiceLoader.load(ConfigurationCacheProvider.class));
+      this(Iterators.asList(ServiceLoader.load(ConfigurationCacheProvider.class)),
+               Iterators.asList(ServiceLoader.load(ConfigurationProvider.class)));
+   }
+
+   ConfigurationLoader(List<ConfigurationCacheProvider<?>> caches, List<ConfigurationProvider<?>> providers)
+   {
+      this.caches = caches;
       Collections.sort(caches, new WeightedComparator());
 
-      providers = Iterators.asList(ServiceLoader.load(ConfigurationProvider.class));
+      this.providers = providers;
       Collections.sort(providers, new WeightedComparator());
+
+      /*
+       * A single thread performs every rebuild, and exits when configuration reloading is idle.
+       */
+      reloader = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+               new BuildThreadFactory("Rewrite configuration reload"));
+      reloader.allowCoreThreadTimeOut(true);
    }
 
    /**
@@ -84,7 +139,6 @@ public class ConfigurationLoader
    @SuppressWarnings({ "rawtypes", "unchecked" })
    private Configuration buildCached(Object context)
    {
-      Configuration result = null;
       /*
        * Do not force synchronization if a configuration is primed.
        */
@@ -92,50 +146,114 @@ public class ConfigurationLoader
          Configuration cachedConfig = cache.getConfiguration(context);
          if (cachedConfig != null)
          {
-            result = cachedConfig;
-            break;
+            return cachedConfig;
          }
       }
 
-      if (result == null)
+      /*
+       * The cache has been emptied since the last build; keep serving the previous snapshot until it is replaced.
+       */
+      Snapshot current = snapshot;
+      if (current != null && current.context == context)
       {
-         synchronized (this) {
-
-            /*
-             * Double check in order to ensure that a configuration wasn't built after our first cache check.
-             */
-            for (ConfigurationCacheProvider cache : caches) {
-               Configuration cachedConfig = cache.getConfiguration(context);
-               if (cachedConfig != null)
-               {
-                  result = cachedConfig;
-                  break;
-               }
-            }
+         rebuild(context);
+         return current.configuration;
+      }
 
-            if (result == null)
-            {
-               result = build(context);
+      synchronized (this) {
 
-               for (ConfigurationCacheProvider cache : caches) {
-                  cache.setConfiguration(context, result);
-               }
+         /*
+          * Double check in order to ensure that a configuration wasn't built after our first cache check.
+          */
+         for (ConfigurationCacheProvider cache : caches) {
+            Configuration cachedConfig = cache.getConfiguration(context);
+            if (cachedConfig != null)
+            {
+               return cachedConfig;
             }
          }
+
+         current = snapshot;
+         if (current != null && current.context == context)
+         {
+            return current.configuration;
+         }
+
+         return publish(context, build(context));
       }
+   }
 
-      return result;
+   /**
+    * Return the exception thrown by the most recent background rebuild, or <code>null</code> if that rebuild
+    * succeeded, or no rebuild has been performed.
+    */
+   public RuntimeException getReloadFailure()
+   {
+      return failure;
+   }
+
+   /**
+    * Build a replacement {@link Configuration} on a background thread, unless a rebuild is already in progress.
+    */
+   private void rebuild(final Object context)
+   {
+      if (!rebuilding.compareAndSet(false, true))
+         return;
+
+      final Snapshot previous = snapshot;
+      reloader.execute(new Runnable() {
+         @Override
+         public void run()
+         {
+            try {
+               ServiceRegistry.reload();
+               publish(context, build(context));
+               failure = null;
+               log.debug("Reloaded Rewrite configuration.");
+            }
+            catch (RuntimeException e) {
+               failure = e;
+               log.error("Failed to reload Rewrite configuration, continuing with the previous configuration.", e);
+               publish(context, previous.configuration);
+            }
+            finally {
+               rebuilding.set(false);
+            }
+         }
+      });
+   }
+
+   @SuppressWarnings({ "rawtypes", "unchecked" })
+   private Configuration publish(Object context, Configuration configuration)
+   {
+      snapshot = new Snapshot(context, configuration);
+      for (ConfigurationCacheProvider cache : caches) {
+         cache.setConfiguration(context, configuration);
+      }
+      return configuration;
    }
 
    @SuppressWarnings({ "rawtypes", "unchecked" })
    private Configuration build(Object context)
    {
+      int threads = getBuildThreads();
+      ExecutorService executor = null;
+      if (threads > 1)
+         executor = Executors.newFixedThreadPool(threads, new BuildThreadFactory("Rewrite configuration build"));
 
-      Map<Integer, List<Rule>> priorityMap = new LinkedHashMap<Integer, List<Rule>>();
-      for (ConfigurationProvider provider : providers) {
-         if (provider.handles(context))
-         {
-            Configuration configuration = provider.getConfiguration(context);
+      try {
+         List<ConfigurationProvider> handlers = new ArrayList<ConfigurationProvider>();
+         for (ConfigurationProvider provider : providers) {
+            if (provider.handles(context))
+               handlers.add(provider);
+         }
+
+         List<Configuration> configurations = getConfigurations(executor, handlers, context);
+
+         Map<Integer, List<Rule>> priorityMap = new LinkedHashMap<Integer, List<Rule>>();
+         for (int i = 0; i < handlers.size(); i++) {
+            ConfigurationProvider provider = handlers.get(i);
+            Configuration configuration = configurations.get(i);
 
             if (configuration != null)
             {
@@ -169,58 +287,203 @@ public class ConfigurationLoader
                         + "].");
             }
          }
-      }
 
-      ConfigurationBuilder result = ConfigurationBuilder.begin();
-      ArrayList<Integer> sortedKeys = new ArrayList<Integer>(priorityMap.keySet());
-      Collections.sort(sortedKeys);
+         ConfigurationBuilder result = ConfigurationBuilder.begin();
+         ArrayList<Integer> sortedKeys = new ArrayList<Integer>(priorityMap.keySet());
+         Collections.sort(sortedKeys);
 
-      for (Integer integer : sortedKeys) {
-         List<Rule> list = priorityMap.get(integer);
-         for (final Rule rule : list) {
-            result.addRule(rule);
+         List<Rule> sorted = new ArrayList<Rule>();
+         for (Integer integer : sortedKeys) {
+            sorted.addAll(priorityMap.get(integer));
+         }
 
-            try {
-               if (rule instanceof ParameterizedRule) {
-                  ParameterizedCallback callback = new ParameterizedCallback() {
-                     @Override
-                     public void call(Parameterized parameterized)
-                     {
-                        Set<String> names = parameterized.getRequiredParameterNames();
-                        ParameterStore store = ((ParameterizedRule) rule).getParameterStore();
+         if (executor == null)
+         {
+            for (Rule rule : sorted) {
+               result.addRule(rule);
+               visitParameterized(rule);
+            }
+         }
+         else
+         {
+            for (Rule rule : sorted) {
+               result.addRule(rule);
+            }
+            visitParameterized(executor, threads, sorted);
+         }
 
-                        if (names != null)
-                           for (String name : names) {
-                              Parameter<?> parameter = store.get(name, new DefaultParameter(name));
-                              if (parameter instanceof ConfigurableParameter<?>)
-                                 ((ConfigurableParameter<?>) parameter).bindsTo(Evaluation.property(name));
-                           }
+         if (!"false".equalsIgnoreCase(System.getProperty(PATTERN_AUTOMATON)))
+            compilePatterns(result.getRules());
 
-                        parameterized.setParameterStore(store);
-                     }
-                  };
+         return new CompiledConfiguration(result);
+      }
+      finally {
+         if (executor != null)
+            executor.shutdown();
+      }
+   }
 
-                  Visitor<Condition> conditionVisitor = new ParameterizedConditionVisitor(callback);
-                  new ConditionVisit(rule).accept(conditionVisitor);
+   /**
+    * Return the {@link Configuration} of each given {@link ConfigurationProvider}, in the same order.
+    */
+   @SuppressWarnings({ "rawtypes", "unchecked" })
+   private List<Configuration> getConfigurations(ExecutorService executor, List<ConfigurationProvider> handlers,
+            final Object context)
+   {
+      List<Configuration> result = new ArrayList<Configuration>(handlers.size());
+      if (executor == null || handlers.size() < 2)
+      {
+         for (ConfigurationProvider provider : handlers) {
+            result.add(provider.getConfiguration(context));
+         }
+         return result;
+      }
+
+      List<Future<Configuration>> futures = new ArrayList<Future<Configuration>>(handlers.size());
+      for (final ConfigurationProvider provider : handlers) {
+         futures.add(executor.submit(new Callable<Configuration>() {
+            @Override
+            public Configuration call() throws Exception
+            {
+               return provider.getConfiguration(context);
+            }
+         }));
+      }
+
+      for (Future<Configuration> future : futures) {
+         result.add(await(future));
+      }
+      return result;
+   }
 
-                  Visitor<Operation> operationVisitor = new ParameterizedOperationVisitor(callback);
-                  new OperationVisit(rule).accept(operationVisitor);
+   /**
+    * Wire the parameters of the given {@link Rule} instances in contiguous batches, one per thread.
+    */
+   private void visitParameterized(ExecutorService executor, int threads, final List<Rule> rules)
+   {
+      int batch = (rules.size() + threads - 1) / threads;
+      List<Future<Void>> futures = new ArrayList<Future<Void>>(threads);
+      for (int start = 0; start < rules.size(); start += batch) {
+         final List<Rule> subList = rules.subList(start, Math.min(start + batch, rules.size()));
+         futures.add(executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws Exception
+            {
+               for (Rule rule : subList) {
+                  visitParameterized(rule);
                }
+               return null;
             }
-            catch (RuntimeException e) {
-               String message = "Error encountered while visiting rule: " + rule;
+         }));
+      }
+
+      for (Future<Void> future : futures) {
+         await(future);
+      }
+   }
 
-               if (rule instanceof Context)
+   @SuppressWarnings({ "rawtypes", "unchecked" })
+   private void visitParameterized(final Rule rule)
+   {
+      try {
+         if (rule instanceof ParameterizedRule) {
+            ParameterizedCallback callback = new ParameterizedCallback() {
+               @Override
+               public void call(Parameterized parameterized)
                {
-                  message += " defined at " + ((Context) rule).get(RuleMetadata.PROVIDER_LOCATION) + "\n";
+                  Set<String> names = parameterized.getRequiredParameterNames();
+                  ParameterStore store = ((ParameterizedRule) rule).getParameterStore();
+
+                  if (names != null)
+                     for (String name : names) {
+                        Parameter<?> parameter = store.get(name, new DefaultParameter(name));
+                        if (parameter instanceof ConfigurableParameter<?>)
+                           ((ConfigurableParameter<?>) parameter).bindsTo(Evaluation.property(name));
+                     }
+
+                  parameterized.setParameterStore(store);
                }
-               log.error(message);
-               throw e;
-            }
+            };
+
+            Visitor<Condition> conditionVisitor = new ParameterizedConditionVisitor(callback);
+            new ConditionVisit(rule).accept(conditionVisitor);
+
+            Visitor<Operation> operationVisitor = new ParameterizedOperationVisitor(callback);
+            new OperationVisit(rule).accept(operationVisitor);
          }
       }
+      catch (RuntimeException e) {
+         String message = "Error encountered while visiting rule: " + rule;
 
-      return result;
+         if (rule instanceof Context)
+         {
+            message += " defined at " + ((Context) rule).get(RuleMetadata.PROVIDER_LOCATION) + "\n";
+         }
+         log.error(message);
+         throw e;
+      }
+   }
+
+   private <T> T await(Future<T> future)
+   {
+      try {
+         return future.get();
+      }
+      catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new RewriteException("Interrupted while building the Rewrite configuration.", e);
+      }
+      catch (ExecutionException e) {
+         Throwable cause = e.getCause();
+         if (cause instanceof RuntimeException)
+            throw (RuntimeException) cause;
+         if (cause instanceof Error)
+            throw (Error) cause;
+         throw new RewriteException("Error encountered while building the Rewrite configuration.", cause);
+      }
+   }
+
+   private int getBuildThreads()
+   {
+      String value = System.getProperty(PARALLEL_BUILD);
+      if (value == null || value.trim().isEmpty() || "false".equalsIgnoreCase(value.trim()))
+         return 1;
+
+      if ("true".equalsIgnoreCase(value.trim()))
+         return Runtime.getRuntime().availableProcessors();
+
+      try {
+         return Math.max(1, Integer.parseInt(value.trim()));
+      }
+      catch (NumberFormatException e) {
+         log.warn("Ignoring invalid value [" + value + "] for system property [" + PARALLEL_BUILD + "].");
+         return 1;
+      }
+   }
+
+   /**
+    * Compile the patterns of all {@link ParameterizedPatternHolder} conditions into a single
+    * {@link ParameterizedPatternAutomaton}. Must be called once all {@link ParameterStore} instances have been set.
+    */
+   private void compilePatterns(List<Rule> rules)
+   {
+      final List<ParameterizedPatternParser> parsers = new ArrayList<ParameterizedPatternParser>();
+      Visitor<Condition> visitor = new Visitor<Condition>() {
+         @Override
+         public void visit(Condition condition)
+         {
+            if (condition instanceof ParameterizedPatternHolder)
+               parsers.addAll(((ParameterizedPatternHolder) condition).getPatternParsers());
+         }
+      };
+
+      for (Rule rule : rules) {
+         new ConditionVisit(rule).accept(visitor);
+      }
+
+      ParameterizedPatternAutomaton automaton = ParameterizedPatternAutomaton.compile(parsers);
+      if (automaton != null && log.isDebugEnabled())
+         log.debug("Compiled [" + automaton.size() + "] of [" + parsers.size() + "] patterns into a single automaton.");
    }
 
    @SuppressWarnings("unchecked")
@@ -236,4 +499,43 @@ public class ConfigurationLoader
       }
    }
 
+   /**
+    * A built {@link Configuration} and the context it was built for.
+    */
+   private static class Snapshot
+   {
+      private final Object context;
+      private final Configuration configuration;
+
+      public Snapshot(Object context, Configuration configuration)
+      {
+         this.context = context;
+         this.configuration = configuration;
+      }
+   }
+
+   /**
+    * Creates daemon threads that load classes and services from the class loader of the thread building the
+    * {@link Configuration}.
+    */
+   private static class BuildThreadFactory implements ThreadFactory
+   {
+      private final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+      private final String name;
+      private final AtomicInteger count = new AtomicInteger();
+
+      public BuildThreadFactory(String name)
+      {
+         this.name = name;
+      }
+
+      @Override
+      public Thread newThread(Runnable runnable)
+      {
+         Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+         thread.setDaemon(true);
+         thread.setContextClassLoader(loader);
+         return thread;
+      }
+   }
 }
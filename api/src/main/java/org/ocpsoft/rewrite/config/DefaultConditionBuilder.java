@@ -38,12 +38,19 @@ public abstract class DefaultConditionBuilder implements ConditionBuilder
       if (condition == null)
          return this;
 
+      final Condition delegate = And.all(self, condition);
       return new DefaultConditionBuilderInternal(self, condition) {
 
          @Override
          public boolean evaluate(Rewrite event, EvaluationContext context)
          {
-            return And.all(self, condition).evaluate(event, context);
+            return delegate.evaluate(event, context);
+         }
+
+         @Override
+         Condition getDelegate()
+         {
+            return delegate;
          }
 
          @Override
@@ -62,12 +69,19 @@ public abstract class DefaultConditionBuilder implements ConditionBuilder
       if (condition == null)
          return this;
 
+      final Condition delegate = And.all(self, Not.any(condition));
       return new DefaultConditionBuilderInternal(self, condition) {
 
          @Override
          public boolean evaluate(Rewrite event, EvaluationContext context)
          {
-            return And.all(self, Not.any(condition)).evaluate(event, context);
+            return delegate.evaluate(event, context);
+         }
+
+         @Override
+         Condition getDelegate()
+         {
+            return delegate;
          }
 
          @Override
@@ -86,12 +100,19 @@ public abstract class DefaultConditionBuilder implements ConditionBuilder
       if (condition == null)
          return this;
 
+      final Condition delegate = Or.any(self, condition);
       return new DefaultConditionBuilderInternal(self, condition) {
 
          @Override
          public boolean evaluate(Rewrite event, EvaluationContext context)
          {
-            return Or.any(self, condition).evaluate(event, context);
+            return delegate.evaluate(event, context);
+         }
+
+         @Override
+         Condition getDelegate()
+         {
+            return delegate;
          }
 
          @Override
@@ -110,11 +131,18 @@ public abstract class DefaultConditionBuilder implements ConditionBuilder
       if (condition == null)
          return this;
 
+      final Condition delegate = Or.any(self, Not.any(condition));
       return new DefaultConditionBuilderInternal(self, condition) {
          @Override
          public boolean evaluate(Rewrite event, EvaluationContext context)
          {
-            return Or.any(self, Not.any(condition)).evaluate(event, context);
+            return delegate.evaluate(event, context);
+         }
+
+         @Override
+         Condition getDelegate()
+         {
+            return delegate;
          }
 
          @Override
@@ -126,7 +154,7 @@ public abstract class DefaultConditionBuilder implements ConditionBuilder
    }
 
    static abstract class DefaultConditionBuilderInternal extends DefaultConditionBuilder implements
-            CompositeCondition
+            CompositeCondition, CacheableCondition
    {
       private List<Condition> conditions;
 
@@ -140,5 +168,14 @@ public abstract class DefaultConditionBuilder implements ConditionBuilder
       {
          return conditions;
       }
+
+      /**
+       * Return the equivalent {@link Condition} to which evaluation is delegated, expressed in terms of {@link And},
+       * {@link Or}, and {@link Not}; or <code>null</code> if there is none.
+       */
+      Condition getDelegate()
+      {
+         return null;
+      }
    }
 }
@@ -37,7 +37,8 @@ public abstract class DefaultOperationBuilder implements OperationBuilder
       return new DefaultOperationBuilderInternal(this, other);
    }
 
-   static class DefaultOperationBuilderInternal extends DefaultOperationBuilder implements CompositeOperation
+   static class DefaultOperationBuilderInternal extends DefaultOperationBuilder implements CompositeOperation,
+            CacheableOperation
    {
       private final Operation left;
       private final Operation right;
@@ -23,7 +23,7 @@ import org.ocpsoft.rewrite.event.Rewrite;
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public final class False extends DefaultConditionBuilder
+public final class False extends DefaultConditionBuilder implements CacheableCondition
 {
    @Override
    public boolean evaluate(final Rewrite event, final EvaluationContext context)
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import java.util.Set;
+
+import org.ocpsoft.rewrite.event.InboundRewrite;
+import org.ocpsoft.rewrite.event.OutboundRewrite;
+import org.ocpsoft.rewrite.event.Rewrite;
+
+/**
+ * A {@link Condition} that can only be satisfied when the path of the current {@link Rewrite} event, relative to the
+ * application context, begins with one of a known set of literal prefixes. {@link RuleIndex} uses this information to
+ * avoid evaluating {@link Rule} instances that cannot possibly match a given path.
+ * 
+ * @see RuleIndex
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface IndexableCondition extends Condition
+{
+   /**
+    * Return the literal prefixes, one of which must begin the path of any {@link InboundRewrite} satisfying this
+    * {@link Condition}; or <code>null</code> if this {@link Condition} does not constrain the inbound path.
+    */
+   Set<String> getInboundPathPrefixes();
+
+   /**
+    * Return the literal prefixes, one of which must begin the path of any {@link OutboundRewrite} satisfying this
+    * {@link Condition}; or <code>null</code> if this {@link Condition} does not constrain the outbound path.
+    */
+   Set<String> getOutboundPathPrefixes();
+}
@@ -15,7 +15,8 @@
  */
 package org.ocpsoft.rewrite.config;
 
-import org.ocpsoft.common.services.ServiceLoader;
+import java.util.List;
+
 import org.ocpsoft.logging.Logger;
 import org.ocpsoft.rewrite.bind.Binding;
 import org.ocpsoft.rewrite.bind.Retrieval;
@@ -23,6 +24,7 @@ import org.ocpsoft.rewrite.bind.Submission;
 import org.ocpsoft.rewrite.context.EvaluationContext;
 import org.ocpsoft.rewrite.event.Rewrite;
 import org.ocpsoft.rewrite.spi.InvocationResultHandler;
+import org.ocpsoft.rewrite.spi.ServiceRegistry;
 
 /**
  * Builds {@link Operation} instances used to directly invoke {@link Binding} submission or retrieval on {@link Rewrite}
@@ -65,8 +67,8 @@ public abstract class Invoke extends DefaultOperationBuilder
 
       if (result != null)
       {
-         ServiceLoader<InvocationResultHandler> providers = ServiceLoader.load(InvocationResultHandler.class);
-         if (!providers.iterator().hasNext())
+         List<InvocationResultHandler> providers = ServiceRegistry.getServices(InvocationResultHandler.class);
+         if (providers.isEmpty())
          {
             log.debug("No instances of [" + InvocationResultHandler.class.getName()
                      + "] were registered to handing binding invocation result [" + result + "]");
@@ -8,7 +8,7 @@ import org.ocpsoft.rewrite.event.Rewrite;
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public final class NoOp extends DefaultOperationBuilder
+public final class NoOp extends DefaultOperationBuilder implements CacheableOperation
 {
    @Override
    public void perform(Rewrite event, EvaluationContext context)
@@ -31,7 +31,7 @@ import org.ocpsoft.rewrite.event.Rewrite;
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  * 
  */
-public final class Not extends DefaultConditionBuilder implements CompositeCondition
+public final class Not extends DefaultConditionBuilder implements CompositeCondition, CacheableCondition
 {
    private final Condition condition;
 
@@ -31,7 +31,7 @@ import org.ocpsoft.rewrite.event.Rewrite;
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public final class Perform extends DefaultOperationBuilder implements CompositeOperation
+public final class Perform extends DefaultOperationBuilder implements CompositeOperation, CacheableOperation
 {
    private final Operation[] operations;
 
@@ -44,7 +44,7 @@ import org.ocpsoft.rewrite.util.Visitor;
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
 public final class RuleBuilder implements ParameterizedRule, RelocatableRule, CompositeCondition, CompositeOperation,
-         CompositeRule, Context
+         CompositeRule, CacheableCondition, CacheableOperation, Context
 {
    private final ParameterStore store;
 
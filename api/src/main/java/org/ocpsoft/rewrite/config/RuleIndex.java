@@ -0,0 +1,323 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.ocpsoft.rewrite.config.DefaultConditionBuilder.DefaultConditionBuilderInternal;
+
+/**
+ * Index of the {@link Rule} instances of a {@link Configuration}, keyed on the literal path prefixes reported by the
+ * {@link IndexableCondition} instances each {@link Rule} requires in order to match. Prefixes are stored in a trie of
+ * path segments, so that the {@link Rule} instances able to match a given path can be found without evaluating every
+ * {@link Rule} in turn. {@link Rule} instances that do not constrain the path are candidates for every path.
+ * <p>
+ * Candidates are returned as ascending indices into the {@link Rule} list from which the index was built, so that
+ * priority order is preserved.
+ * 
+ * @see CompiledConfiguration#getRuleIndex()
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public final class RuleIndex
+{
+   private final PathTrie inbound;
+   private final PathTrie outbound;
+
+   private RuleIndex(final PathTrie inbound, final PathTrie outbound)
+   {
+      this.inbound = inbound;
+      this.outbound = outbound;
+   }
+
+   /**
+    * Build a new {@link RuleIndex} for the given list of {@link Rule} instances.
+    */
+   public static RuleIndex build(final List<Rule> rules)
+   {
+      PathTrie inbound = new PathTrie();
+      PathTrie outbound = new PathTrie();
+      for (int i = 0; i < rules.size(); i++)
+      {
+         Rule rule = rules.get(i);
+         inbound.add(i, getPrefixes(rule, true));
+         outbound.add(i, getPrefixes(rule, false));
+      }
+      inbound.freeze();
+      outbound.freeze();
+      return new RuleIndex(inbound, outbound);
+   }
+
+   /**
+    * Return the ascending indices of all {@link Rule} instances that may match an inbound event with the given path,
+    * or <code>null</code> if no {@link Rule} constrains the inbound path. The returned array must not be modified.
+    */
+   public int[] getInboundCandidates(final String path)
+   {
+      return inbound.getCandidates(path);
+   }
+
+   /**
+    * Return the ascending indices of all {@link Rule} instances that may match an outbound event with the given path
+    * (which may be <code>null</code>), or <code>null</code> if no {@link Rule} constrains the outbound path. The
+    * returned array must not be modified.
+    */
+   public int[] getOutboundCandidates(final String path)
+   {
+      return outbound.getCandidates(path);
+   }
+
+   /**
+    * Return the prefixes of which one must begin the path of any event satisfying the given {@link Condition}, or
+    * <code>null</code> if the path is not constrained.
+    */
+   static Set<String> getPrefixes(final Condition condition, final boolean inbound)
+   {
+      if (condition instanceof IndexableCondition)
+      {
+         IndexableCondition indexable = (IndexableCondition) condition;
+         Set<String> prefixes = inbound ? indexable.getInboundPathPrefixes() : indexable.getOutboundPathPrefixes();
+         if (prefixes == null || prefixes.contains(null) || prefixes.contains(""))
+            return null;
+         return prefixes;
+      }
+
+      else if (condition instanceof And || condition instanceof RuleBuilder)
+      {
+         /*
+          * Every child must match, so the most specific constraint of any child applies.
+          */
+         Set<String> result = null;
+         for (Condition child : ((CompositeCondition) condition).getConditions())
+         {
+            Set<String> prefixes = getPrefixes(child, inbound);
+            if (prefixes != null && (result == null || shortest(prefixes) > shortest(result)))
+               result = prefixes;
+         }
+         return result;
+      }
+
+      else if (condition instanceof Or)
+      {
+         Set<String> result = new LinkedHashSet<String>();
+         for (Condition child : ((Or) condition).getConditions())
+         {
+            Set<String> prefixes = getPrefixes(child, inbound);
+            if (prefixes == null)
+               return null;
+            result.addAll(prefixes);
+         }
+         return result;
+      }
+
+      else if (condition instanceof DefaultConditionBuilderInternal)
+      {
+         Condition delegate = ((DefaultConditionBuilderInternal) condition).getDelegate();
+         if (delegate != null)
+            return getPrefixes(delegate, inbound);
+      }
+
+      return null;
+   }
+
+   private static int shortest(final Set<String> prefixes)
+   {
+      int result = Integer.MAX_VALUE;
+      for (String prefix : prefixes)
+      {
+         result = Math.min(result, prefix.length());
+      }
+      return result;
+   }
+
+   /**
+    * Trie of path segments. The final, partial segment of each prefix is stored at the node of the preceding segment,
+    * and is matched with {@link String#startsWith(String, int)}.
+    */
+   private static class PathTrie
+   {
+      private static final int[] NONE = new int[0];
+
+      private final Node root = new Node();
+      private final List<Integer> unconstrained = new ArrayList<Integer>();
+      private int[] unindexed = NONE;
+      private boolean indexed = false;
+
+      public void add(final int rule, final Set<String> prefixes)
+      {
+         if (prefixes == null)
+         {
+            unconstrained.add(rule);
+            return;
+         }
+
+         indexed = true;
+         for (String prefix : prefixes)
+         {
+            Node node = root;
+            int start = 0;
+            int end;
+            while ((end = prefix.indexOf('/', start)) >= 0)
+            {
+               node = node.child(prefix.substring(start, end));
+               start = end + 1;
+            }
+            node.add(prefix.substring(start), rule);
+         }
+      }
+
+      public void freeze()
+      {
+         unindexed = new int[unconstrained.size()];
+         for (int i = 0; i < unindexed.length; i++)
+         {
+            unindexed[i] = unconstrained.get(i);
+         }
+         unconstrained.clear();
+         root.freeze();
+      }
+
+      public int[] getCandidates(final String path)
+      {
+         if (!indexed)
+            return null;
+
+         if (path == null)
+            return unindexed;
+
+         int[] matched = new int[8];
+         int count = 0;
+
+         Node node = root;
+         int start = 0;
+         while (node != null)
+         {
+            for (int i = 0; i < node.partials.length; i++)
+            {
+               if (path.startsWith(node.partials[i], start))
+               {
+                  int[] rules = node.rules[i];
+                  if (count + rules.length > matched.length)
+                     matched = Arrays.copyOf(matched, Math.max(matched.length * 2, count + rules.length));
+                  System.arraycopy(rules, 0, matched, count, rules.length);
+                  count += rules.length;
+               }
+            }
+
+            int end = path.indexOf('/', start);
+            if (end < 0)
+               break;
+
+            node = node.children.get(path.substring(start, end));
+            start = end + 1;
+         }
+
+         if (count == 0)
+            return unindexed;
+
+         Arrays.sort(matched, 0, count);
+         return merge(matched, count, unindexed);
+      }
+
+      /**
+       * Merge two ascending arrays, omitting duplicates.
+       */
+      private static int[] merge(final int[] left, final int leftCount, final int[] right)
+      {
+         int[] result = new int[leftCount + right.length];
+         int size = 0;
+         int l = 0;
+         int r = 0;
+         while (l < leftCount || r < right.length)
+         {
+            int next;
+            if (r == right.length || (l < leftCount && left[l] < right[r]))
+               next = left[l++];
+            else
+               next = right[r++];
+
+            if (size == 0 || result[size - 1] != next)
+               result[size++] = next;
+         }
+         return size == result.length ? result : Arrays.copyOf(result, size);
+      }
+   }
+
+   private static class Node
+   {
+      private static final String[] NO_PARTIALS = new String[0];
+      private static final int[][] NO_RULES = new int[0][];
+
+      private final Map<String, Node> children = new HashMap<String, Node>();
+      private final Map<String, List<Integer>> entries = new LinkedHashMap<String, List<Integer>>();
+      private String[] partials = NO_PARTIALS;
+      private int[][] rules = NO_RULES;
+
+      public Node child(final String segment)
+      {
+         Node result = children.get(segment);
+         if (result == null)
+         {
+            result = new Node();
+            children.put(segment, result);
+         }
+         return result;
+      }
+
+      public void add(final String partial, final int rule)
+      {
+         List<Integer> list = entries.get(partial);
+         if (list == null)
+         {
+            list = new ArrayList<Integer>();
+            entries.put(partial, list);
+         }
+         if (list.isEmpty() || list.get(list.size() - 1) != rule)
+            list.add(rule);
+      }
+
+      public void freeze()
+      {
+         partials = new String[entries.size()];
+         rules = new int[entries.size()][];
+         int i = 0;
+         for (Entry<String, List<Integer>> entry : entries.entrySet())
+         {
+            partials[i] = entry.getKey();
+            List<Integer> list = entry.getValue();
+            rules[i] = new int[list.size()];
+            for (int k = 0; k < list.size(); k++)
+            {
+               rules[i][k] = list.get(k);
+            }
+            i++;
+         }
+         entries.clear();
+
+         for (Node child : children.values())
+         {
+            child.freeze();
+         }
+      }
+   }
+}
@@ -15,44 +15,49 @@
  */
 package org.ocpsoft.rewrite.param;
 
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
 
-import org.ocpsoft.common.services.ServiceLoader;
 import org.ocpsoft.common.util.Assert;
-import org.ocpsoft.common.util.Iterators;
-import org.ocpsoft.logging.Logger;
 import org.ocpsoft.rewrite.context.EvaluationContext;
 import org.ocpsoft.rewrite.event.Rewrite;
+import org.ocpsoft.rewrite.param.GlobalParameters.GlobalParameter;
 import org.ocpsoft.rewrite.spi.GlobalParameterProvider;
-import org.ocpsoft.rewrite.util.ServiceLogger;
 
 /**
  * Default implementation of {@link ParameterValueStore}
+ * <p>
+ * When created with a {@link ParameterLayout}, values of the {@link Parameter} instances in that layout are kept in an
+ * array indexed by slot, and the same instance may be {@link #reset(ParameterLayout)} and re-used for each
+ * {@link org.ocpsoft.rewrite.config.Rule} evaluated during an event. Values of any other {@link Parameter} are kept in
+ * a {@link Map}.
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
 public class DefaultParameterValueStore implements ParameterValueStore, Iterable<Entry<Parameter<?>, String>>
 {
-   Map<Parameter<?>, String> map = new LinkedHashMap<Parameter<?>, String>();
-   private static List<GlobalParameterProvider> providers;
-   private static final Logger log = Logger.getLogger(DefaultParameterValueStore.class);
+   private static final String[] NO_VALUES = new String[0];
+
+   private ParameterLayout layout = ParameterLayout.EMPTY;
+   private String[] values = NO_VALUES;
+   private Map<Parameter<?>, String> map;
 
    /**
     * Create a new, empty {@link DefaultParameterValueStore} instance.
     */
-   @SuppressWarnings("unchecked")
    public DefaultParameterValueStore()
+   {}
+
+   /**
+    * Create a new, empty {@link DefaultParameterValueStore} instance, storing values of the {@link Parameter}
+    * instances in the given {@link ParameterLayout} by slot.
+    */
+   public DefaultParameterValueStore(ParameterLayout layout)
    {
-      if (providers == null)
-      {
-         providers = Iterators.asList(ServiceLoader.load(GlobalParameterProvider.class));
-         ServiceLogger.logLoadedServices(log, GlobalParameterProvider.class, providers);
-      }
+      reset(layout);
    }
 
    /**
@@ -61,17 +66,49 @@ public class DefaultParameterValueStore implements ParameterValueStore, Iterable
     */
    public DefaultParameterValueStore(DefaultParameterValueStore instance)
    {
-      for (Entry<Parameter<?>, String> entry : instance)
-      {
-         map.put(entry.getKey(), entry.getValue());
-      }
+      this.layout = instance.layout;
+      this.values = Arrays.copyOf(instance.values, instance.values.length);
+      if (instance.map != null)
+         this.map = new LinkedHashMap<Parameter<?>, String>(instance.map);
+   }
+
+   /**
+    * Discard all values in this {@link DefaultParameterValueStore}, and store values of the {@link Parameter}
+    * instances in the given {@link ParameterLayout} by slot from now on. The existing value array is re-used when it is
+    * large enough.
+    */
+   public void reset(ParameterLayout layout)
+   {
+      this.layout = layout == null ? ParameterLayout.EMPTY : layout;
+      int size = this.layout.size();
+      if (values.length < size)
+         values = new String[size];
+      else
+         Arrays.fill(values, 0, size, null);
+
+      if (map != null)
+         map.clear();
    }
 
    @Override
    public String retrieve(Parameter<?> parameter)
    {
-      String value = map.get(parameter);
-      return value;
+      int slot = layout.slotOf(parameter);
+      if (slot >= 0)
+         return values[slot];
+      return map == null ? null : map.get(parameter);
+   }
+
+   private void store(int slot, Parameter<?> parameter, String value)
+   {
+      if (slot >= 0)
+         values[slot] = value;
+      else
+      {
+         if (map == null)
+            map = new LinkedHashMap<Parameter<?>, String>();
+         map.put(parameter, value);
+      }
    }
 
    @Override
@@ -81,48 +118,30 @@ public class DefaultParameterValueStore implements ParameterValueStore, Iterable
       Assert.notNull(context, "EvaluationContext must not be null.");
       Assert.notNull(param, "Parameter must not be null.");
 
+      int slot = layout.slotOf(param);
+      GlobalParameter global = getGlobal(slot, param);
+
       boolean result = false;
-      boolean supportsSubmission = supportsSubmission(event, context, param, value);
+      boolean supportsSubmission = global == null
+               || global.provider.supportsSubmission(event, context, global.parameter);
       if (!supportsSubmission)
       {
          result = true;
       }
-      else if (supportsSubmission && isValid(event, context, param, value))
+      else if (supportsSubmission && isValid(event, context, slot, global, param, value))
       {
          // FIXME Transposition processing will break multi-conditional matching
          for (Transposition<String> transposition : param.getTranspositions())
          {
             value = transposition.transpose(event, context, value);
          }
-         map.put(param, value);
+         store(slot, param, value);
          result = true;
       }
 
       return result;
    }
 
-   private boolean supportsSubmission(Rewrite event, EvaluationContext context, Parameter<?> param, String value)
-   {
-      boolean result = true;
-      for (GlobalParameterProvider provider : providers)
-      {
-         Set<Parameter<?>> params = provider.getParameters();
-         if (params != null)
-         {
-            for (Parameter<?> parameter : params)
-            {
-               if (parameter != null && parameter.getName() != null && parameter.getName().equals(param.getName()))
-               {
-                  result = provider.supportsSubmission(event, context, parameter);
-                  break;
-               }
-            }
-         }
-      }
-
-      return result;
-   }
-
    @Override
    public boolean isValid(Rewrite event, EvaluationContext context, Parameter<?> param, String value)
    {
@@ -130,9 +149,16 @@ public class DefaultParameterValueStore implements ParameterValueStore, Iterable
       Assert.notNull(context, "EvaluationContext must not be null.");
       Assert.notNull(param, "Parameter must not be null.");
 
-      String stored = map.get(param);
+      int slot = layout.slotOf(param);
+      return isValid(event, context, slot, getGlobal(slot, param), param, value);
+   }
+
+   private boolean isValid(Rewrite event, EvaluationContext context, int slot, GlobalParameter global,
+            Parameter<?> param, String value)
+   {
+      String stored = slot >= 0 ? values[slot] : (map == null ? null : map.get(param));
       boolean result = false;
-      if (_doParameterProviderValidation(event, context, param, value))
+      if (global != null && global.provider.isValid(event, context, param, value))
       {
          result = true;
       }
@@ -155,38 +181,40 @@ public class DefaultParameterValueStore implements ParameterValueStore, Iterable
       return result;
    }
 
-   private boolean _doParameterProviderValidation(Rewrite event, EvaluationContext context, Parameter<?> param,
-            String value)
+   /**
+    * Get the {@link GlobalParameterProvider} registration for the given {@link Parameter}; precomputed by the
+    * {@link ParameterLayout} for parameters that have a slot.
+    */
+   private GlobalParameter getGlobal(int slot, Parameter<?> param)
    {
-      boolean result = false;
-      for (GlobalParameterProvider provider : providers)
-      {
-         Set<Parameter<?>> params = provider.getParameters();
-         if (params != null)
-         {
-            for (Parameter<?> parameter : params)
-            {
-               if (parameter != null && parameter.getName() != null && parameter.getName().equals(param.getName()))
-               {
-                  result = provider.isValid(event, context, param, value);
-                  break;
-               }
-            }
-         }
-      }
-      return result;
+      if (slot >= 0)
+         return layout.getGlobal(slot);
+      return GlobalParameters.get(param.getName());
    }
 
    @Override
    public Iterator<Entry<Parameter<?>, String>> iterator()
    {
-      return map.entrySet().iterator();
+      return asMap().entrySet().iterator();
+   }
+
+   private Map<Parameter<?>, String> asMap()
+   {
+      Map<Parameter<?>, String> result = new LinkedHashMap<Parameter<?>, String>();
+      for (int i = 0; i < layout.size(); i++)
+      {
+         if (values[i] != null)
+            result.put(layout.getParameter(i), values[i]);
+      }
+      if (map != null)
+         result.putAll(map);
+      return result;
    }
 
    @Override
    public String toString()
    {
-      return map.keySet().toString();
+      return asMap().keySet().toString();
    }
 
    /**
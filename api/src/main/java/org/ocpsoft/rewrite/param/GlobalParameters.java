@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.param;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.ocpsoft.common.services.ServiceLoader;
+import org.ocpsoft.common.util.Iterators;
+import org.ocpsoft.logging.Logger;
+import org.ocpsoft.rewrite.spi.GlobalParameterProvider;
+import org.ocpsoft.rewrite.util.ServiceLogger;
+
+/**
+ * Index of the {@link Parameter} instances provided by all registered {@link GlobalParameterProvider} instances, by
+ * name. The index is built once, the first time it is needed, so that value submission does not have to scan (and
+ * re-create) the {@link Parameter} set of each {@link GlobalParameterProvider}.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+final class GlobalParameters
+{
+   private static final Logger log = Logger.getLogger(GlobalParameters.class);
+   private static volatile Map<String, GlobalParameter> parameters;
+
+   private GlobalParameters()
+   {}
+
+   /**
+    * Get the {@link GlobalParameter} registered with the given name, or <code>null</code> if no
+    * {@link GlobalParameterProvider} provides a {@link Parameter} of that name. When more than one provider does, the
+    * last provider wins.
+    */
+   public static GlobalParameter get(final String name)
+   {
+      if (name == null)
+         return null;
+      return getParameters().get(name);
+   }
+
+   @SuppressWarnings("unchecked")
+   private static Map<String, GlobalParameter> getParameters()
+   {
+      Map<String, GlobalParameter> result = parameters;
+      if (result == null)
+      {
+         synchronized (GlobalParameters.class)
+         {
+            result = parameters;
+            if (result == null)
+            {
+               List<GlobalParameterProvider> providers = Iterators.asList(ServiceLoader
+                        .load(GlobalParameterProvider.class));
+               ServiceLogger.logLoadedServices(log, GlobalParameterProvider.class, providers);
+
+               result = new HashMap<String, GlobalParameter>();
+               for (GlobalParameterProvider provider : providers)
+               {
+                  Set<Parameter<?>> params = provider.getParameters();
+                  if (params != null)
+                  {
+                     for (Parameter<?> parameter : params)
+                     {
+                        if (parameter != null && parameter.getName() != null)
+                           result.put(parameter.getName(), new GlobalParameter(provider, parameter));
+                     }
+                  }
+               }
+               result = Collections.unmodifiableMap(result);
+               parameters = result;
+            }
+         }
+      }
+      return result;
+   }
+
+   /**
+    * A {@link Parameter} and the {@link GlobalParameterProvider} that provided it.
+    */
+   static final class GlobalParameter
+   {
+      final GlobalParameterProvider provider;
+      final Parameter<?> parameter;
+
+      GlobalParameter(final GlobalParameterProvider provider, final Parameter<?> parameter)
+      {
+         this.provider = provider;
+         this.parameter = parameter;
+      }
+   }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.param;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.ocpsoft.rewrite.param.GlobalParameters.GlobalParameter;
+import org.ocpsoft.rewrite.spi.GlobalParameterProvider;
+
+/**
+ * Immutable assignment of an integer slot to each {@link Parameter} of a {@link ParameterStore}, compiled once per
+ * {@link org.ocpsoft.rewrite.config.Rule} when a {@link org.ocpsoft.rewrite.config.Configuration} is loaded. A
+ * {@link DefaultParameterValueStore} created with (or {@link DefaultParameterValueStore#reset(ParameterLayout) reset}
+ * to) a {@link ParameterLayout} keeps the values of these parameters in an array, and knows in advance which of them
+ * are provided by a {@link GlobalParameterProvider}.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public final class ParameterLayout
+{
+   /**
+    * A {@link ParameterLayout} without any slots.
+    */
+   public static final ParameterLayout EMPTY = new ParameterLayout(new ArrayList<Parameter<?>>());
+
+   /*
+    * Below this size, a linear scan by identity is faster than hashing.
+    */
+   private static final int INDEX_THRESHOLD = 8;
+
+   private final Parameter<?>[] parameters;
+   private final GlobalParameter[] globals;
+   private final Map<Parameter<?>, Integer> index;
+
+   private ParameterLayout(final List<Parameter<?>> parameters)
+   {
+      this.parameters = parameters.toArray(new Parameter<?>[parameters.size()]);
+      this.globals = new GlobalParameter[this.parameters.length];
+
+      for (int i = 0; i < this.parameters.length; i++)
+      {
+         globals[i] = GlobalParameters.get(this.parameters[i].getName());
+      }
+
+      if (this.parameters.length > INDEX_THRESHOLD)
+      {
+         index = new IdentityHashMap<Parameter<?>, Integer>();
+         for (int i = 0; i < this.parameters.length; i++)
+         {
+            index.put(this.parameters[i], i);
+         }
+      }
+      else
+         index = null;
+   }
+
+   /**
+    * Compile a {@link ParameterLayout} for the {@link Parameter} instances currently contained in the given
+    * {@link ParameterStore}, in iteration order.
+    */
+   public static ParameterLayout compile(final ParameterStore store)
+   {
+      if (store == null || store.isEmpty())
+         return EMPTY;
+
+      List<Parameter<?>> parameters = new ArrayList<Parameter<?>>(store.size());
+      for (Entry<String, Parameter<?>> entry : store)
+      {
+         if (entry.getValue() != null)
+            parameters.add(entry.getValue());
+      }
+      return new ParameterLayout(parameters);
+   }
+
+   /**
+    * Get the number of slots in this {@link ParameterLayout}.
+    */
+   public int size()
+   {
+      return parameters.length;
+   }
+
+   /**
+    * Get the slot of the given {@link Parameter}, or <code>-1</code> if the {@link Parameter} was not part of the
+    * {@link ParameterStore} from which this {@link ParameterLayout} was compiled.
+    */
+   public int slotOf(final Parameter<?> parameter)
+   {
+      if (index != null)
+      {
+         Integer slot = index.get(parameter);
+         return slot == null ? -1 : slot;
+      }
+
+      for (int i = 0; i < parameters.length; i++)
+      {
+         if (parameters[i] == parameter)
+            return i;
+      }
+      return -1;
+   }
+
+   /**
+    * Get the {@link Parameter} assigned to the given slot.
+    */
+   public Parameter<?> getParameter(final int slot)
+   {
+      return parameters[slot];
+   }
+
+   /**
+    * Get the {@link GlobalParameter} sharing the name of the {@link Parameter} in the given slot, or
+    * <code>null</code> if no {@link GlobalParameterProvider} provides one.
+    */
+   GlobalParameter getGlobal(final int slot)
+   {
+      return globals[slot];
+   }
+}
@@ -0,0 +1,692 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.param;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import org.ocpsoft.rewrite.param.RegexParameterizedPatternParser.RegexGroup;
+import org.ocpsoft.rewrite.util.ParseTools.CapturingGroup;
+
+/**
+ * A single automaton compiled from the patterns of many {@link RegexParameterizedPatternParser} instances, which then
+ * match values through this automaton instead of through individual {@link Pattern} instances.
+ * <p>
+ * The automaton is a lazily constructed DFA over the union of all compiled patterns, so that deciding whether a value
+ * matches takes time linear in the length of the value, regardless of the number of patterns or the content of the
+ * value. Parameter values are only extracted once a pattern is known to match, with the same greedy semantics as
+ * {@link Pattern}.
+ * <p>
+ * Only patterns in which every parameter is constrained by a single character class, optionally followed by
+ * <code>+</code> or <code>*</code> (such as the default <code>[^/]+</code> of path patterns, <code>.*</code>, or
+ * <code>\d+</code>), and in which parameters are separated by literal text, are supported. All other patterns continue
+ * to be matched by {@link Pattern}.
+ * <p>
+ * The final state reached by a value is remembered for that {@link String} instance, so that conditions of many rules
+ * inspecting the same value of the same event, such as the path returned by a parsed address, walk the automaton only
+ * once, and then only test whether the state accepts their pattern. New states are computed without locking.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public final class ParameterizedPatternAutomaton
+{
+   private static final int MAX_STATES = 10000;
+   private static final int MEMO_SIZE = 64;
+   private static final String[] NO_VALUES = new String[0];
+
+   private static final CharClass DOT = new CharClass(true, new char[] {
+            '\n', '\n', '\r', '\r', '\u0085', '\u0085', '\u2028', '\u2029' });
+   private static final CharClass DIGIT = new CharClass(false, new char[] { '0', '9' });
+   private static final CharClass WORD = new CharClass(false, new char[] { '0', '9', 'A', 'Z', '_', '_', 'a', 'z' });
+   private static final CharClass SPACE = new CharClass(false, new char[] { '\t', '\r', ' ', ' ' });
+
+   /*
+    * One NFA state per pattern element, followed by one accepting state per pattern.
+    */
+   private final CharClass[] classes;
+   private final boolean[] repeating;
+   private final int[] accepting;
+   private final int[] bases;
+   private final int[][] parameters;
+
+   private final ConcurrentMap<StateKey, State> states = new ConcurrentHashMap<StateKey, State>();
+   private final Memo[] memos = new Memo[MEMO_SIZE];
+   private final State start;
+   private final State dead;
+
+   private ParameterizedPatternAutomaton(final List<CompiledPattern> patterns)
+   {
+      int size = 0;
+      for (CompiledPattern pattern : patterns)
+      {
+         size += pattern.classes.size() + 1;
+      }
+
+      classes = new CharClass[size];
+      repeating = new boolean[size];
+      accepting = new int[size];
+      bases = new int[patterns.size() + 1];
+      parameters = new int[patterns.size()][];
+
+      int state = 0;
+      for (int p = 0; p < patterns.size(); p++)
+      {
+         CompiledPattern pattern = patterns.get(p);
+         bases[p] = state;
+         parameters[p] = pattern.parameters;
+         for (int e = 0; e < pattern.classes.size(); e++)
+         {
+            classes[state] = pattern.classes.get(e);
+            repeating[state] = pattern.repeating.get(e);
+            accepting[state] = -1;
+            state++;
+         }
+         accepting[state++] = p;
+      }
+      bases[patterns.size()] = state;
+
+      dead = intern(new int[0]);
+      List<Integer> initial = new ArrayList<Integer>();
+      for (int p = 0; p < patterns.size(); p++)
+      {
+         addClosure(bases[p], initial);
+      }
+      start = intern(toSortedArray(initial));
+   }
+
+   /**
+    * Compile all supported patterns among the given {@link ParameterizedPatternParser} instances into a new
+    * {@link ParameterizedPatternAutomaton}, which those parsers will use from then on. Return <code>null</code> if no
+    * pattern is supported.
+    * <p>
+    * Patterns must be compiled only once their {@link ParameterStore} has been set, since the regular expressions
+    * constraining their parameters are part of the automaton.
+    */
+   public static ParameterizedPatternAutomaton compile(final Collection<? extends ParameterizedPatternParser> parsers)
+   {
+      List<RegexParameterizedPatternParser> supported = new ArrayList<RegexParameterizedPatternParser>();
+      List<CompiledPattern> patterns = new ArrayList<CompiledPattern>();
+      Set<ParameterizedPatternParser> seen = Collections
+               .newSetFromMap(new IdentityHashMap<ParameterizedPatternParser, Boolean>());
+      for (ParameterizedPatternParser parser : parsers)
+      {
+         if (parser instanceof RegexParameterizedPatternParser && seen.add(parser))
+         {
+            CompiledPattern pattern = compilePattern((RegexParameterizedPatternParser) parser);
+            if (pattern != null)
+            {
+               supported.add((RegexParameterizedPatternParser) parser);
+               patterns.add(pattern);
+            }
+         }
+      }
+
+      if (patterns.isEmpty())
+         return null;
+
+      ParameterizedPatternAutomaton result = new ParameterizedPatternAutomaton(patterns);
+      for (int i = 0; i < supported.size(); i++)
+      {
+         supported.get(i).setAutomaton(result, i);
+      }
+      return result;
+   }
+
+   /**
+    * Return the number of patterns compiled into this automaton.
+    */
+   public int size()
+   {
+      return parameters.length;
+   }
+
+   /**
+    * Match the given value against the pattern with the given id. Return the value of each parameter, in order, or
+    * <code>null</code> if the value does not match.
+    */
+   String[] match(final int pattern, final String value)
+   {
+      State state = walk(value);
+      if (Arrays.binarySearch(state.accepts, pattern) < 0)
+         return null;
+
+      if (parameters[pattern].length == 0)
+         return NO_VALUES;
+
+      return extract(pattern, value);
+   }
+
+   /**
+    * Return the state reached by the given value, walking the automaton only if this {@link String} instance was not
+    * the last value walked that shares its slot. {@link Memo} instances are immutable, so slots need no locking.
+    */
+   private State walk(final String value)
+   {
+      int slot = System.identityHashCode(value) & (MEMO_SIZE - 1);
+      Memo memo = memos[slot];
+      if (memo != null && memo.value == value)
+         return memo.state;
+
+      State state = start;
+      for (int i = 0; i < value.length() && state != dead; i++)
+      {
+         state = next(state, value.charAt(i));
+      }
+      memos[slot] = new Memo(value, state);
+      return state;
+   }
+
+   /**
+    * Extract parameter values from a value known to match the given pattern. Each element greedily consumes as many
+    * characters as possible while a match of the remaining elements remains possible, which yields the same result as
+    * a backtracking {@link Pattern}.
+    */
+   private String[] extract(final int pattern, final String value)
+   {
+      int base = bases[pattern];
+      int elements = bases[pattern + 1] - base - 1;
+      int length = value.length();
+      int width = length + 1;
+
+      /*
+       * possible[e * width + i] is true if elements e and up can match the value from index i onward.
+       */
+      boolean[] possible = new boolean[(elements + 1) * width];
+      possible[elements * width + length] = true;
+      for (int e = elements - 1; e >= 0; e--)
+      {
+         CharClass charClass = classes[base + e];
+         for (int i = length; i >= 0; i--)
+         {
+            boolean consume = i < length && charClass.matches(value.charAt(i));
+            if (repeating[base + e])
+               possible[e * width + i] = possible[(e + 1) * width + i] || (consume && possible[e * width + i + 1]);
+            else
+               possible[e * width + i] = consume && possible[(e + 1) * width + i + 1];
+         }
+      }
+
+      if (!possible[0])
+         return null;
+
+      int[] positions = new int[elements + 1];
+      int i = 0;
+      for (int e = 0; e < elements;)
+      {
+         if (repeating[base + e] && !(i < length && classes[base + e].matches(value.charAt(i))
+                  && possible[e * width + i + 1]))
+         {
+            positions[++e] = i;
+         }
+         else if (repeating[base + e])
+         {
+            i++;
+         }
+         else
+         {
+            positions[++e] = ++i;
+         }
+      }
+
+      int[] bounds = parameters[pattern];
+      String[] result = new String[bounds.length / 2];
+      for (int k = 0; k < result.length; k++)
+      {
+         result[k] = value.substring(positions[bounds[k * 2]], positions[bounds[k * 2 + 1]]);
+      }
+      return result;
+   }
+
+   private State next(final State state, final char c)
+   {
+      State result;
+      if (c < State.CACHED)
+         result = state.cached[c];
+      else
+      {
+         Map<Character, State> uncached = state.uncached;
+         result = uncached == null ? null : uncached.get(c);
+      }
+
+      if (result == null)
+         result = transition(state, c);
+      return result;
+   }
+
+   /**
+    * Compute and remember a transition. Concurrent callers may compute the same transition, but agree on the resulting
+    * state, since states are interned.
+    */
+   private State transition(final State state, final char c)
+   {
+      List<Integer> targets = new ArrayList<Integer>();
+      for (int s : state.states)
+      {
+         if (classes[s] != null && classes[s].matches(c))
+            addClosure(repeating[s] ? s : s + 1, targets);
+      }
+      int[] sorted = toSortedArray(targets);
+
+      State result = states.get(new StateKey(sorted));
+      if (result == null)
+      {
+         /*
+          * Once the automaton has grown too large, further states are computed as needed but not retained.
+          */
+         if (states.size() >= MAX_STATES)
+            return new State(sorted, getAccepts(sorted));
+         result = intern(sorted);
+      }
+
+      if (c < State.CACHED)
+         state.cached[c] = result;
+      else
+      {
+         Map<Character, State> uncached = state.uncached;
+         if (uncached == null)
+            state.uncached = uncached = new ConcurrentHashMap<Character, State>();
+         uncached.put(c, result);
+      }
+      return result;
+   }
+
+   private State intern(final int[] sorted)
+   {
+      State result = new State(sorted, getAccepts(sorted));
+      State existing = states.putIfAbsent(new StateKey(sorted), result);
+      return existing == null ? result : existing;
+   }
+
+   private int[] getAccepts(final int[] sorted)
+   {
+      List<Integer> result = new ArrayList<Integer>();
+      for (int s : sorted)
+      {
+         if (accepting[s] >= 0)
+            result.add(accepting[s]);
+      }
+      return toSortedArray(result);
+   }
+
+   /**
+    * Add the given state and every state reachable from it without consuming input.
+    */
+   private void addClosure(int state, final List<Integer> result)
+   {
+      result.add(state);
+      while (classes[state] != null && repeating[state])
+      {
+         result.add(++state);
+      }
+   }
+
+   /**
+    * Return the given states as a sorted array without duplicates.
+    */
+   private static int[] toSortedArray(final List<Integer> list)
+   {
+      int[] result = new int[list.size()];
+      for (int i = 0; i < result.length; i++)
+      {
+         result[i] = list.get(i);
+      }
+      Arrays.sort(result);
+
+      int size = 0;
+      for (int i = 0; i < result.length; i++)
+      {
+         if (size == 0 || result[i] != result[size - 1])
+            result[size++] = result[i];
+      }
+      return size == result.length ? result : Arrays.copyOf(result, size);
+   }
+
+   /*
+    * Pattern compilation.
+    */
+
+   private static CompiledPattern compilePattern(final RegexParameterizedPatternParser parser)
+   {
+      CompiledPattern result = new CompiledPattern();
+      char[] chars = parser.getChars();
+      List<RegexGroup> groups = parser.getRegexGroups();
+      result.parameters = new int[groups.size() * 2];
+
+      CapturingGroup last = null;
+      for (int g = 0; g < groups.size(); g++)
+      {
+         RegexGroup group = groups.get(g);
+         CapturingGroup capture = group.getCapture();
+         int literalStart = last == null ? 0 : last.getEnd() + 1;
+
+         /*
+          * Adjacent parameters may split a surrogate pair between them, which a Pattern never does.
+          */
+         if (last != null && literalStart >= capture.getStart())
+            return null;
+
+         String literal = String.valueOf(chars, literalStart, capture.getStart() - literalStart);
+         if (!addLiteral(result, parser.unescape(literal)))
+            return null;
+
+         result.parameters[g * 2] = result.classes.size();
+         if (!addParameter(result, parser.getParameterPattern(group.getName())))
+            return null;
+         result.parameters[g * 2 + 1] = result.classes.size();
+
+         last = capture;
+      }
+
+      int literalStart = last == null ? 0 : last.getEnd() + 1;
+      String literal = String.valueOf(chars, literalStart, chars.length - literalStart);
+      if (!addLiteral(result, parser.unescape(literal)))
+         return null;
+
+      return result;
+   }
+
+   private static boolean addLiteral(final CompiledPattern pattern, final String literal)
+   {
+      /*
+       * Literals are quoted in the equivalent Pattern, which breaks on an embedded quote terminator.
+       */
+      if (literal.contains("\\E"))
+         return false;
+
+      for (int i = 0; i < literal.length(); i++)
+      {
+         char c = literal.charAt(i);
+         if (Character.isSurrogate(c))
+            return false;
+         pattern.add(new CharClass(false, new char[] { c, c }), false);
+      }
+      return true;
+   }
+
+   private static boolean addParameter(final CompiledPattern pattern, final String regex)
+   {
+      if (regex == null || regex.isEmpty())
+         return false;
+
+      CharClass charClass;
+      int index;
+      char c = regex.charAt(0);
+      if (c == '.')
+      {
+         charClass = DOT;
+         index = 1;
+      }
+      else if (c == '[')
+      {
+         charClass = parseCharClass(regex);
+         index = charClass == null ? -1 : charClass.end;
+      }
+      else if (c == '\\' && regex.length() > 1)
+      {
+         charClass = getEscape(regex.charAt(1), true);
+         index = 2;
+      }
+      else
+         return false;
+
+      if (charClass == null)
+         return false;
+
+      if (index == regex.length())
+      {
+         /*
+          * A single negated class consumes an entire supplementary code point in a Pattern, but only one char here.
+          */
+         if (charClass.negated)
+            return false;
+         pattern.add(charClass, false);
+         return true;
+      }
+      else if (index == regex.length() - 1 && regex.charAt(index) == '+')
+      {
+         pattern.add(charClass, false);
+         pattern.add(charClass, true);
+         return true;
+      }
+      else if (index == regex.length() - 1 && regex.charAt(index) == '*')
+      {
+         pattern.add(charClass, true);
+         return true;
+      }
+      return false;
+   }
+
+   /**
+    * Parse a simple character class at the beginning of the given regular expression, such as <code>[^/]</code> or
+    * <code>[a-zA-Z0-9_-]</code>. Return <code>null</code> if the class is not supported.
+    */
+   private static CharClass parseCharClass(final String regex)
+   {
+      List<Character> ranges = new ArrayList<Character>();
+      boolean negated = false;
+      int i = 1;
+      if (i < regex.length() && regex.charAt(i) == '^')
+      {
+         negated = true;
+         i++;
+      }
+
+      boolean first = true;
+      while (i < regex.length())
+      {
+         char c = regex.charAt(i);
+         if (c == ']' && !first)
+         {
+            char[] result = new char[ranges.size()];
+            for (int k = 0; k < result.length; k += 2)
+            {
+               result[k] = ranges.get(k);
+               result[k + 1] = ranges.get(k + 1);
+               if (result[k] <= Character.MAX_SURROGATE && result[k + 1] >= Character.MIN_SURROGATE)
+                  return null;
+            }
+            return new CharClass(negated, result, i + 1);
+         }
+         else if (c == '[' || c == ']' || c == '&')
+            return null;
+
+         char low;
+         if (c == '\\')
+         {
+            if (i + 1 >= regex.length())
+               return null;
+
+            CharClass escape = getEscape(regex.charAt(i + 1), false);
+            if (escape == null)
+               return null;
+
+            i += 2;
+            if (escape.ranges.length > 2 || escape.ranges[0] != escape.ranges[1])
+            {
+               for (char bound : escape.ranges)
+                  ranges.add(bound);
+               first = false;
+               continue;
+            }
+            low = escape.ranges[0];
+         }
+         else
+         {
+            low = c;
+            i++;
+         }
+
+         char high = low;
+         if (i + 1 < regex.length() && regex.charAt(i) == '-' && regex.charAt(i + 1) != ']')
+         {
+            char next = regex.charAt(i + 1);
+            if (next == '[' || next == '\\')
+               return null;
+            high = next;
+            i += 2;
+            if (high < low)
+               return null;
+         }
+
+         ranges.add(low);
+         ranges.add(high);
+         first = false;
+      }
+      return null;
+   }
+
+   /**
+    * Return the {@link CharClass} denoted by the given escaped character, or <code>null</code> if not supported.
+    */
+   private static CharClass getEscape(final char c, final boolean allowNegated)
+   {
+      switch (c) {
+      case 'd':
+         return DIGIT;
+      case 'w':
+         return WORD;
+      case 's':
+         return SPACE;
+      case 'D':
+         return allowNegated ? DIGIT.negate() : null;
+      case 'W':
+         return allowNegated ? WORD.negate() : null;
+      case 'S':
+         return allowNegated ? SPACE.negate() : null;
+      default:
+         if (Character.isLetterOrDigit(c) || Character.isSurrogate(c))
+            return null;
+         return new CharClass(false, new char[] { c, c });
+      }
+   }
+
+   private static class CompiledPattern
+   {
+      private final List<CharClass> classes = new ArrayList<CharClass>();
+      private final List<Boolean> repeating = new ArrayList<Boolean>();
+      private int[] parameters;
+
+      public void add(final CharClass charClass, final boolean repeat)
+      {
+         classes.add(charClass);
+         repeating.add(repeat);
+      }
+   }
+
+   /**
+    * A set of characters, stored as inclusive ranges.
+    */
+   private static class CharClass
+   {
+      private final boolean negated;
+      private final char[] ranges;
+      private final int end;
+
+      public CharClass(final boolean negated, final char[] ranges)
+      {
+         this(negated, ranges, -1);
+      }
+
+      public CharClass(final boolean negated, final char[] ranges, final int end)
+      {
+         this.negated = negated;
+         this.ranges = ranges;
+         this.end = end;
+      }
+
+      public CharClass negate()
+      {
+         return new CharClass(!negated, ranges);
+      }
+
+      public boolean matches(final char c)
+      {
+         for (int i = 0; i < ranges.length; i += 2)
+         {
+            if (c >= ranges[i] && c <= ranges[i + 1])
+               return !negated;
+         }
+         return negated;
+      }
+   }
+
+   /**
+    * A DFA state: the set of NFA states it represents, the patterns it accepts, and its known transitions.
+    */
+   private static class State
+   {
+      private static final int CACHED = 128;
+
+      private final int[] states;
+      private final int[] accepts;
+      private final State[] cached = new State[CACHED];
+      private volatile Map<Character, State> uncached;
+
+      public State(final int[] states, final int[] accepts)
+      {
+         this.states = states;
+         this.accepts = accepts;
+      }
+   }
+
+   /**
+    * The state reached by a single {@link String} instance.
+    */
+   private static class Memo
+   {
+      private final String value;
+      private final State state;
+
+      public Memo(final String value, final State state)
+      {
+         this.value = value;
+         this.state = state;
+      }
+   }
+
+   private static class StateKey
+   {
+      private final int[] states;
+      private final int hash;
+
+      public StateKey(final int[] states)
+      {
+         this.states = states;
+         this.hash = Arrays.hashCode(states);
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return hash;
+      }
+
+      @Override
+      public boolean equals(final Object obj)
+      {
+         return obj instanceof StateKey && Arrays.equals(states, ((StateKey) obj).states);
+      }
+   }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.param;
+
+import java.util.List;
+
+import org.ocpsoft.rewrite.config.ConfigurationLoader;
+
+/**
+ * An object that matches values against one or more {@link ParameterizedPatternParser} instances. The patterns of
+ * every {@link org.ocpsoft.rewrite.config.Condition} implementing this interface are compiled by
+ * {@link ConfigurationLoader} into a single {@link ParameterizedPatternAutomaton}.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface ParameterizedPatternHolder
+{
+   /**
+    * Get the {@link ParameterizedPatternParser} instances used by this object.
+    */
+   List<ParameterizedPatternParser> getPatternParsers();
+}
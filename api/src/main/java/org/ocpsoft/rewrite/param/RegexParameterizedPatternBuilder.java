@@ -17,7 +17,6 @@ package org.ocpsoft.rewrite.param;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -47,6 +46,7 @@ public class RegexParameterizedPatternBuilder implements ParameterizedPatternBui
    private final char[] chars;
    private final List<RegexGroup> groups = new ArrayList<RegexGroup>();
    private final String defaultParameterPattern;
+   private final Template template;
    private ParameterStore store;
 
    private RegexParameterizedPatternParser parser = null;
@@ -94,6 +94,7 @@ public class RegexParameterizedPatternBuilder implements ParameterizedPatternBui
       this.pattern = pattern;
       this.chars = pattern.toCharArray();
       this.groups.addAll(RegexParameterizedPatternParser.getGroups(type, chars));
+      this.template = new Template(chars, groups);
    }
 
    @Override
@@ -108,7 +109,13 @@ public class RegexParameterizedPatternBuilder implements ParameterizedPatternBui
             final Transposition<String> transposition)
             throws ParameterizationException
    {
-      return build(extractBoundValues(event, context, transposition));
+      Object[] values = extractBoundValues(event, context, transposition);
+      StringBuilder builder = template.newBuilder();
+      for (int i = 0; i < template.names.length; i++)
+      {
+         builder.append(template.literals[i]).append(values[template.slots[i]]);
+      }
+      return builder.append(template.literals[template.names.length]).toString();
    }
 
    @Override
@@ -119,106 +126,44 @@ public class RegexParameterizedPatternBuilder implements ParameterizedPatternBui
          throw new ParameterizationException("Must supply [" + groups.size() + "] values to build output string.");
       }
 
-      StringBuilder builder = new StringBuilder();
-      CapturingGroup last = null;
-
-      int index = 0;
-      for (RegexGroup param : groups)
-      {
-         CapturingGroup capture = param.getCapture();
-
-         if ((last != null) && (last.getEnd() < capture.getStart()))
-         {
-            builder.append(Arrays.copyOfRange(chars, last.getEnd() + 1, capture.getStart()));
-         }
-         else if ((last == null) && (capture.getStart() > 0))
-         {
-            builder.append(Arrays.copyOfRange(chars, 0, capture.getStart()));
-         }
-
-         builder.append(values.get(index++));
-
-         last = capture;
-      }
-
-      if ((last != null) && (last.getEnd() < chars.length))
+      StringBuilder builder = template.newBuilder();
+      for (int i = 0; i < template.names.length; i++)
       {
-         builder.append(Arrays.copyOfRange(chars, last.getEnd() + 1, chars.length));
+         builder.append(template.literals[i]).append(values.get(i));
       }
-      else if (last == null)
-      {
-         builder.append(chars);
-      }
-
-      String result = builder.toString();
-
-      // if (!getParser().matches(result))
-      // {
-      // throw new IllegalStateException("Generated a value that does not match constraints.");
-      // }
-
-      return result;
+      return builder.append(template.literals[template.names.length]).toString();
    }
 
    @Override
    public String build(final Map<String, Object> values) throws ParameterizationException
    {
-      StringBuilder builder = new StringBuilder();
-      CapturingGroup last = null;
-
-      for (RegexGroup param : groups)
+      StringBuilder builder = template.newBuilder();
+      for (int i = 0; i < template.names.length; i++)
       {
-         CapturingGroup capture = param.getCapture();
-
-         if ((last != null) && (last.getEnd() < capture.getStart()))
-         {
-            builder.append(Arrays.copyOfRange(chars, last.getEnd() + 1, capture.getStart()));
-         }
-         else if ((last == null) && (capture.getStart() > 0))
-         {
-            builder.append(Arrays.copyOfRange(chars, 0, capture.getStart()));
-         }
-
-         if (!values.containsKey(param.getName()))
-            throw new ParameterizationException("No value supplied for parameter [" + param.getName()
+         String name = template.names[i];
+         if (!values.containsKey(name))
+            throw new ParameterizationException("No value supplied for parameter [" + name
                      + "] when building pattern [" + getPattern() + "].");
 
-         builder.append(values.get(param.getName()));
-
-         last = capture;
+         builder.append(template.literals[i]).append(values.get(name));
       }
-
-      if ((last != null) && (last.getEnd() < chars.length))
-      {
-         builder.append(Arrays.copyOfRange(chars, last.getEnd() + 1, chars.length));
-      }
-      else if (last == null)
-      {
-         builder.append(chars);
-      }
-
-      String result = builder.toString();
-
-      // if (!getParser().matches(result))
-      // {
-      // throw new IllegalStateException("Generated a value that does not match constraints.");
-      // }
-
-      return result;
+      return builder.append(template.literals[template.names.length]).toString();
    }
 
    /**
-    * Extract bound values from configured {@link Binding} instances. Return a {@link Map} of the extracted key-value
-    * pairs. Before storing the values in the map, this method applies the supplied {@link Transposition} instance.
+    * Extract bound values from configured {@link Binding} instances. Return an array of the extracted values, indexed
+    * by {@link Template#slots}. Before storing the values in the array, this method applies the supplied
+    * {@link Transposition} instance.
     */
-   private Map<String, Object> extractBoundValues(final Rewrite event, final EvaluationContext context,
+   private Object[] extractBoundValues(final Rewrite event, final EvaluationContext context,
             Transposition<String> transposition)
    {
-      Map<String, Object> result = new LinkedHashMap<String, Object>();
+      Object[] result = new Object[template.parameters.length];
 
-      for (RegexGroup group : groups)
+      for (int i = 0; i < template.parameters.length; i++)
       {
-         Parameter<?> parameter = store.get(group.getName());
+         String name = template.parameters[i];
+         Parameter<?> parameter = store.get(name);
          Object value = null;
 
          // TODO TEST ME!!!
@@ -233,12 +178,12 @@ public class RegexParameterizedPatternBuilder implements ParameterizedPatternBui
          }
 
          if (value == null)
-            throw new ParameterizationException("The value of required parameter [" + group.getName() + "] was null.");
+            throw new ParameterizationException("The value of required parameter [" + name + "] was null.");
 
          if (transposition != null)
             value = transposition.transpose(event, context, value.toString());
 
-         result.put(group.getName(), value);
+         result[i] = value;
       }
       return result;
    }
@@ -270,12 +215,7 @@ public class RegexParameterizedPatternBuilder implements ParameterizedPatternBui
    @Override
    public Set<String> getRequiredParameterNames()
    {
-      Set<String> result = new LinkedHashSet<String>();
-      for (RegexGroup group : groups)
-      {
-         result.add(group.getName());
-      }
-      return result;
+      return new LinkedHashSet<String>(Arrays.asList(template.parameters));
    }
 
    @Override
@@ -297,4 +237,80 @@ public class RegexParameterizedPatternBuilder implements ParameterizedPatternBui
          return false;
       }
    }
+
+   /**
+    * Immutable output template of a {@link RegexParameterizedPatternBuilder}, compiled once from its pattern: the
+    * literal text surrounding each parameter, and the name of each parameter. Building a value then only appends
+    * these pre-computed segments to a {@link StringBuilder} of sufficient initial capacity.
+    */
+   static final class Template
+   {
+      /*
+       * Initial capacity reserved for the value of each parameter.
+       */
+      private static final int VALUE_CAPACITY = 16;
+
+      /**
+       * Literal text preceding each parameter, followed by the literal text after the last parameter.
+       */
+      final String[] literals;
+
+      /**
+       * Name of each parameter, in order of appearance.
+       */
+      final String[] names;
+
+      /**
+       * Distinct parameter names, in order of first appearance.
+       */
+      final String[] parameters;
+
+      /**
+       * Index into {@link #parameters} of each parameter in {@link #names}.
+       */
+      final int[] slots;
+
+      private final int capacity;
+
+      Template(final char[] chars, final List<RegexGroup> groups)
+      {
+         literals = new String[groups.size() + 1];
+         names = new String[groups.size()];
+         slots = new int[groups.size()];
+
+         List<String> distinct = new ArrayList<String>();
+         int length = 0;
+         int position = 0;
+         for (int i = 0; i < groups.size(); i++)
+         {
+            RegexGroup group = groups.get(i);
+            CapturingGroup capture = group.getCapture();
+
+            literals[i] = new String(chars, position, Math.max(0, capture.getStart() - position)).intern();
+            length += literals[i].length();
+            position = capture.getEnd() + 1;
+
+            names[i] = group.getName();
+            int slot = distinct.indexOf(names[i]);
+            if (slot < 0)
+            {
+               slot = distinct.size();
+               distinct.add(names[i]);
+            }
+            slots[i] = slot;
+         }
+
+         literals[groups.size()] = new String(chars, Math.min(position, chars.length),
+                  Math.max(0, chars.length - position)).intern();
+         length += literals[groups.size()].length();
+
+         parameters = distinct.toArray(new String[distinct.size()]);
+         capacity = length + VALUE_CAPACITY * names.length;
+      }
+
+      StringBuilder newBuilder()
+      {
+         return new StringBuilder(capacity);
+      }
+   }
 }
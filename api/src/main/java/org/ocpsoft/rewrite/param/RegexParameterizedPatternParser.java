@@ -51,6 +51,8 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
    private String defaultParameterPattern;
    private ParameterStore store;
    private CaptureType type;
+   private volatile ParameterizedPatternAutomaton automaton;
+   private int automatonId;
 
    RegexParameterizedPatternParser(RegexParameterizedPatternBuilder builder,
             String defaultParameterPattern, String pattern)
@@ -161,9 +163,57 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
    @Override
    public ParameterizedPatternResult parse(final String value)
    {
+      ParameterizedPatternAutomaton automaton = this.automaton;
+      if (automaton != null)
+         return new AutomatonMatchResult(groups, automaton.match(automatonId, value));
+
       return new RegexParameterizedPatternMatchResult(groups, getCompiledPattern(store).matcher(value));
    }
 
+   /**
+    * Match values of this pattern using the given {@link ParameterizedPatternAutomaton}, in which this pattern has the
+    * given id, instead of a {@link Pattern}.
+    */
+   void setAutomaton(final ParameterizedPatternAutomaton automaton, final int id)
+   {
+      this.automatonId = id;
+      this.automaton = automaton;
+   }
+
+   char[] getChars()
+   {
+      return chars;
+   }
+
+   List<RegexGroup> getRegexGroups()
+   {
+      return groups;
+   }
+
+   /**
+    * Return the regular expression to which the given parameter is constrained, or <code>null</code> if it is
+    * constrained by more than one regular expression.
+    */
+   String getParameterPattern(final String name)
+   {
+      if (store != null && store.contains(name))
+      {
+         String result = null;
+         for (Constraint<String> constraint : store.get(name).getConstraints())
+         {
+            if (constraint instanceof RegexConstraint)
+            {
+               if (result != null)
+                  return null;
+               result = ((RegexConstraint) constraint).getPattern();
+            }
+         }
+         if (result != null)
+            return result;
+      }
+      return defaultParameterPattern;
+   }
+
    public Pattern getCompiledPattern(ParameterStore store)
    {
       if (compiledPattern == null)
@@ -243,6 +293,16 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
       return compiledPattern;
    }
 
+   /**
+    * Return the literal text with which every value matched by this pattern must begin; that is, the unescaped portion
+    * of the pattern preceding its first parameter, or the entire unescaped pattern if it has no parameters.
+    */
+   public String getLiteralPrefix()
+   {
+      int end = groups.isEmpty() ? chars.length : groups.get(0).getCapture().getStart();
+      return unescape(String.valueOf(chars, 0, end));
+   }
+
    private String sanitizePattern(Constraint<String> constraint)
    {
       StringBuilder result = new StringBuilder();
@@ -262,7 +322,7 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
       return result.toString();
    }
 
-   private String unescape(String literal)
+   String unescape(String literal)
    {
       String result = literal.replace("\\\\", "\\");
       result = result.replace("\\" + type.getBegin(), String.valueOf(type.getBegin()));
@@ -296,11 +356,13 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
    {
       private final CapturingGroup capture;
       private final int index;
+      private final String name;
 
       public RegexGroup(final CapturingGroup capture, int index)
       {
          this.capture = capture;
          this.index = index;
+         this.name = new String(capture.getCaptured()).intern();
       }
 
       public int getIndex()
@@ -310,7 +372,7 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
 
       public String getName()
       {
-         return new String(capture.getCaptured());
+         return name;
       }
 
       public CapturingGroup getCapture()
@@ -342,31 +404,19 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
       this.store = store;
    }
 
-   private static class RegexParameterizedPatternMatchResult implements ParameterizedPatternResult
+   private static abstract class AbstractMatchResult implements ParameterizedPatternResult
    {
-      private Matcher matcher;
-      private List<RegexGroup> groups;
-      private Boolean matched;
+      private final List<RegexGroup> groups;
 
-      public RegexParameterizedPatternMatchResult(List<RegexGroup> groups, Matcher matcher)
+      public AbstractMatchResult(List<RegexGroup> groups)
       {
          this.groups = groups;
-         this.matcher = matcher;
       }
 
       /**
-       * Returns <code>true</code> if the {@link ParameterizedPattern} matched the input value, <code>false</code> if
-       * not.
+       * Get the value captured by the parameter with the given index. Only valid if {@link #matches()}.
        */
-      @Override
-      public boolean matches()
-      {
-         if (matched == null)
-         {
-            matched = matcher.matches();
-         }
-         return matched;
-      }
+      protected abstract String getValue(int index);
 
       @Override
       public Map<Parameter<?>, String> getParameters(EvaluationContext context)
@@ -374,11 +424,11 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
          Map<Parameter<?>, String> values = new LinkedHashMap<Parameter<?>, String>();
          ParameterStore store = DefaultParameterStore.getInstance(context);
 
-         if (matcher.matches())
+         if (matches())
          {
             for (RegexGroup group : groups)
             {
-               values.put(store.get(group.getName()), matcher.group(group.getIndex() + 1));
+               values.put(store.get(group.getName()), getValue(group.getIndex()));
             }
          }
          return values;
@@ -391,10 +441,10 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
          {
             ParameterStore store = DefaultParameterStore.getInstance(context);
 
-            int index = 1;
+            int index = 0;
             for (RegexGroup group : groups)
             {
-               String value = matcher.group(index++);
+               String value = getValue(index++);
                Parameter<?> param = store.get(group.getName());
 
                ParameterValueStore valueStore = DefaultParameterValueStore.getInstance(context);
@@ -416,10 +466,10 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
          {
             ParameterStore store = DefaultParameterStore.getInstance(context);
 
-            int index = 1;
+            int index = 0;
             for (RegexGroup group : groups)
             {
-               String value = matcher.group(index++);
+               String value = getValue(index++);
                Parameter<?> param = store.get(group.getName());
 
                ParameterValueStore valueStore = DefaultParameterValueStore.getInstance(context);
@@ -433,6 +483,60 @@ public class RegexParameterizedPatternParser implements ParameterizedPatternPars
          }
          return false;
       }
+   }
+
+   private static class RegexParameterizedPatternMatchResult extends AbstractMatchResult
+   {
+      private Matcher matcher;
+      private Boolean matched;
+
+      public RegexParameterizedPatternMatchResult(List<RegexGroup> groups, Matcher matcher)
+      {
+         super(groups);
+         this.matcher = matcher;
+      }
 
+      /**
+       * Returns <code>true</code> if the {@link ParameterizedPattern} matched the input value, <code>false</code> if
+       * not.
+       */
+      @Override
+      public boolean matches()
+      {
+         if (matched == null)
+         {
+            matched = matcher.matches();
+         }
+         return matched;
+      }
+
+      @Override
+      protected String getValue(int index)
+      {
+         return matcher.group(index + 1);
+      }
+   }
+
+   private static class AutomatonMatchResult extends AbstractMatchResult
+   {
+      private final String[] values;
+
+      public AutomatonMatchResult(List<RegexGroup> groups, String[] values)
+      {
+         super(groups);
+         this.values = values;
+      }
+
+      @Override
+      public boolean matches()
+      {
+         return values != null;
+      }
+
+      @Override
+      protected String getValue(int index)
+      {
+         return values[index];
+      }
    }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.spi;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.ocpsoft.common.pattern.Weighted;
+import org.ocpsoft.common.pattern.WeightedComparator;
+import org.ocpsoft.common.services.ServiceLoader;
+
+/**
+ * Application-wide registry of service instances located via {@link ServiceLoader}. Each service type is loaded,
+ * enriched, and (if it extends {@link Weighted}) sorted by priority only once per {@link ClassLoader}, after which the
+ * same immutable {@link List} is returned to every caller. This avoids scanning <code>META-INF/services</code> on
+ * every request.
+ * <p>
+ * Registries are keyed on the {@link Thread#getContextClassLoader()} of the calling thread, so applications sharing a
+ * single copy of Rewrite do not see each other's services. Call {@link #reload()} to discard the services of the
+ * current {@link ClassLoader}, for instance when configuration reloading is enabled during development.
+ * <p>
+ * Service instances are loaded by the application's {@link ClassLoader}, and therefore strongly reference it. To allow
+ * that {@link ClassLoader} to be collected when the application is undeployed, registries are only weakly reachable
+ * from this class; callers that need the services to survive garbage collection, such as the filter of a web
+ * application, should hold on to the result of {@link #getInstance()} for as long as the application is running.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public final class ServiceRegistry
+{
+   private static final Map<ClassLoader, WeakReference<ServiceRegistry>> registries =
+            new WeakHashMap<ClassLoader, WeakReference<ServiceRegistry>>();
+
+   /*
+    * Almost every lookup comes from the same application, so remember the last registry to avoid locking.
+    */
+   private static volatile WeakReference<ServiceRegistry> last = new WeakReference<ServiceRegistry>(null);
+
+   private final WeakReference<ClassLoader> loader;
+   private final ConcurrentMap<Class<?>, List<?>> services = new ConcurrentHashMap<Class<?>, List<?>>();
+
+   private ServiceRegistry(ClassLoader loader)
+   {
+      this.loader = new WeakReference<ClassLoader>(loader);
+   }
+
+   /**
+    * Return the immutable, priority-ordered {@link List} of services of the given type visible to the current
+    * {@link Thread#getContextClassLoader()}.
+    */
+   public static <T> List<T> getServices(Class<T> type)
+   {
+      return getInstance().get(type);
+   }
+
+   /**
+    * Return the {@link ServiceRegistry} for the current {@link Thread#getContextClassLoader()}.
+    */
+   public static ServiceRegistry getInstance()
+   {
+      ClassLoader loader = Thread.currentThread().getContextClassLoader();
+
+      ServiceRegistry registry = last.get();
+      if (registry != null && loader != null && registry.loader.get() == loader)
+         return registry;
+
+      synchronized (registries)
+      {
+         WeakReference<ServiceRegistry> reference = registries.get(loader);
+         registry = reference == null ? null : reference.get();
+         if (registry == null)
+         {
+            registry = new ServiceRegistry(loader);
+            reference = new WeakReference<ServiceRegistry>(registry);
+            registries.put(loader, reference);
+         }
+         last = reference;
+      }
+      return registry;
+   }
+
+   /**
+    * Discard all services loaded for the current {@link Thread#getContextClassLoader()}. Services will be located
+    * again on next access. The {@link ServiceRegistry} itself is retained, so references obtained from
+    * {@link #getInstance()} remain valid.
+    */
+   public static void reload()
+   {
+      ClassLoader loader = Thread.currentThread().getContextClassLoader();
+      synchronized (registries)
+      {
+         WeakReference<ServiceRegistry> reference = registries.get(loader);
+         ServiceRegistry registry = reference == null ? null : reference.get();
+         if (registry != null)
+            registry.services.clear();
+         last = new WeakReference<ServiceRegistry>(null);
+      }
+   }
+
+   /**
+    * Return the immutable, priority-ordered {@link List} of services of the given type visible to this registry's
+    * {@link ClassLoader}.
+    */
+   @SuppressWarnings("unchecked")
+   public <T> List<T> get(Class<T> type)
+   {
+      List<T> result = (List<T>) services.get(type);
+      if (result == null)
+      {
+         result = load(type);
+         List<T> existing = (List<T>) services.putIfAbsent(type, result);
+         if (existing != null)
+            result = existing;
+      }
+      return result;
+   }
+
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   private <T> List<T> load(Class<T> type)
+   {
+      List<T> result = new ArrayList<T>();
+      for (T service : ServiceLoader.load(type, loader.get())) {
+         result.add(service);
+      }
+
+      if (Weighted.class.isAssignableFrom(type))
+         Collections.sort((List) result, new WeightedComparator());
+
+      return Collections.unmodifiableList(result);
+   }
+
+   @Override
+   public String toString()
+   {
+      return "ServiceRegistry [" + loader.get() + "]";
+   }
+}
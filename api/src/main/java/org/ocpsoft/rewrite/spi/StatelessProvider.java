@@ -0,0 +1,31 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.spi;
+
+import org.ocpsoft.rewrite.param.Converter;
+import org.ocpsoft.rewrite.param.Validator;
+
+/**
+ * Marker interface for {@link ConverterProvider} and {@link ValidatorProvider} implementations that always return the
+ * same stateless, thread-safe {@link Converter} or {@link Validator} for a given lookup. Instances obtained from such
+ * a provider may be resolved once and reused for every subsequent conversion or validation. Providers that look up
+ * instances through a container such as CDI or Spring, which may create a new instance for every lookup, must not
+ * implement this interface.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface StatelessProvider
+{}
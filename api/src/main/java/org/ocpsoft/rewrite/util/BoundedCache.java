@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thread-safe cache holding at most a fixed number of entries, which are evicted in least-recently-used order once the
+ * cache is full. Entries are split into independently locked segments to reduce contention between concurrent requests.
+ * A cache created with a size of <code>0</code> is disabled, and never stores anything.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class BoundedCache<K, V>
+{
+   private static final int SEGMENTS = 16;
+
+   private final Segment<K, V>[] segments;
+
+   @SuppressWarnings("unchecked")
+   public BoundedCache(int size)
+   {
+      if (size > 0)
+      {
+         int count = Math.min(SEGMENTS, size);
+         segments = new Segment[count];
+         for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<K, V>((size + count - 1) / count);
+         }
+      }
+      else
+         segments = new Segment[0];
+   }
+
+   /**
+    * Return <code>true</code> if this cache was created with a size greater than <code>0</code>.
+    */
+   public boolean isEnabled()
+   {
+      return segments.length > 0;
+   }
+
+   /**
+    * Get the value cached for the given key, or <code>null</code> if there is none.
+    */
+   public V get(K key)
+   {
+      if (!isEnabled())
+         return null;
+
+      Segment<K, V> segment = segmentFor(key);
+      synchronized (segment)
+      {
+         return segment.get(key);
+      }
+   }
+
+   /**
+    * Cache the given value, evicting the least recently used entry of its segment if that segment is full.
+    */
+   public void put(K key, V value)
+   {
+      if (!isEnabled())
+         return;
+
+      Segment<K, V> segment = segmentFor(key);
+      synchronized (segment)
+      {
+         segment.put(key, value);
+      }
+   }
+
+   /**
+    * Remove the entry for the given key, but only if it is still mapped to the given value.
+    */
+   public void remove(K key, V value)
+   {
+      if (!isEnabled())
+         return;
+
+      Segment<K, V> segment = segmentFor(key);
+      synchronized (segment)
+      {
+         if (segment.get(key) == value)
+            segment.remove(key);
+      }
+   }
+
+   /**
+    * Remove all entries from this cache.
+    */
+   public void clear()
+   {
+      for (Segment<K, V> segment : segments) {
+         synchronized (segment)
+         {
+            segment.clear();
+         }
+      }
+   }
+
+   private Segment<K, V> segmentFor(K key)
+   {
+      int hash = key.hashCode();
+      hash ^= (hash >>> 16);
+      return segments[(hash & 0x7fffffff) % segments.length];
+   }
+
+   private static class Segment<K, V> extends LinkedHashMap<K, V>
+   {
+      private static final long serialVersionUID = -3270934215520263451L;
+      private final int capacity;
+
+      public Segment(int capacity)
+      {
+         super(16, 0.75f, true);
+         this.capacity = capacity;
+      }
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+      {
+         return size() > capacity;
+      }
+   }
+}
@@ -29,35 +29,58 @@ import org.ocpsoft.rewrite.param.Transposition;
  */
 public class Transpositions
 {
+   /*
+    * Characters that java.net.URI never quotes in the path component.
+    */
+   private static final String PATH_SAFE = "-_.!~*'():@&=+$,/;";
 
-   public static Transposition<String> encodePath()
-   {
-      return new Transposition<String>() {
-         @Override
-         public String transpose(Rewrite event, EvaluationContext context, String value)
+   private static final Transposition<String> ENCODE_PATH = new Transposition<String>() {
+      @Override
+      public String transpose(Rewrite event, EvaluationContext context, String value)
+      {
+         if (isPathSafe(value))
+            return value;
+
+         try
          {
-            try
-            {
-               final URI uri = new URI("http", "localhost", "/" + value, null);
-               return uri.toASCIIString().substring(17);
-            }
-            catch (URISyntaxException e)
-            {
-               throw new IllegalArgumentException(e);
-            }
+            final URI uri = new URI("http", "localhost", "/" + value, null);
+            return uri.toASCIIString().substring(17);
          }
-      };
+         catch (URISyntaxException e)
+         {
+            throw new IllegalArgumentException(e);
+         }
+      }
+   };
+
+   private static final Transposition<String> IDENTITY = new Transposition<String>() {
+      @Override
+      public String transpose(Rewrite event, EvaluationContext context, String value)
+      {
+         return value;
+      }
+   };
+
+   public static Transposition<String> encodePath()
+   {
+      return ENCODE_PATH;
    }
 
    public static Transposition<String> identity()
    {
-      return new Transposition<String>() {
-         @Override
-         public String transpose(Rewrite event, EvaluationContext context, String value)
-         {
-            return value;
-         }
-      };
+      return IDENTITY;
+   }
+
+   private static boolean isPathSafe(String value)
+   {
+      for (int i = 0; i < value.length(); i++)
+      {
+         char c = value.charAt(i);
+         if (!((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                  || PATH_SAFE.indexOf(c) >= 0))
+            return false;
+      }
+      return true;
    }
 
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.ocpsoft.rewrite.context.EvaluationContext;
+import org.ocpsoft.rewrite.event.Rewrite;
+
+public class CacheableConditionVisitorTest
+{
+   private final Condition custom = new Condition() {
+      @Override
+      public boolean evaluate(Rewrite event, EvaluationContext context)
+      {
+         return true;
+      }
+   };
+
+   @Test
+   public void testCacheableConditionTree()
+   {
+      Condition root = And.all(new True(), Or.any(Direction.isInbound(), Not.any(new False())));
+
+      CacheableConditionVisitor visitor = new CacheableConditionVisitor();
+      new ConditionVisit(root).accept(visitor);
+
+      assertTrue(visitor.isCacheable());
+   }
+
+   @Test
+   public void testNestedCustomConditionIsNotCacheable()
+   {
+      Condition root = And.all(new True(), Or.any(Direction.isInbound(), Not.any(custom)));
+
+      CacheableConditionVisitor visitor = new CacheableConditionVisitor();
+      new ConditionVisit(root).accept(visitor);
+
+      assertFalse(visitor.isCacheable());
+   }
+
+   @Test
+   public void testConditionBuilderChain()
+   {
+      CacheableConditionVisitor visitor = new CacheableConditionVisitor();
+      new ConditionVisit(Conditions.create().and(Direction.isOutbound()).orNot(new True())).accept(visitor);
+      assertTrue(visitor.isCacheable());
+
+      visitor = new CacheableConditionVisitor();
+      new ConditionVisit(Conditions.create().and(custom)).accept(visitor);
+      assertFalse(visitor.isCacheable());
+   }
+
+   @Test
+   public void testRuleBuilder()
+   {
+      CacheableConditionVisitor visitor = new CacheableConditionVisitor();
+      new ConditionVisit(RuleBuilder.define().when(Direction.isInbound())).accept(visitor);
+      assertTrue(visitor.isCacheable());
+
+      visitor = new CacheableConditionVisitor();
+      new ConditionVisit(RuleBuilder.define().when(Direction.isInbound()).when(custom)).accept(visitor);
+      assertFalse(visitor.isCacheable());
+   }
+}
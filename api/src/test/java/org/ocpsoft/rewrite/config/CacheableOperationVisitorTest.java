@@ -0,0 +1,88 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.ocpsoft.rewrite.context.EvaluationContext;
+import org.ocpsoft.rewrite.event.Rewrite;
+
+public class CacheableOperationVisitorTest
+{
+   private final Operation custom = new Operation() {
+      @Override
+      public void perform(Rewrite event, EvaluationContext context)
+      {}
+   };
+
+   private final Operation cacheable = new CacheableOperation() {
+      @Override
+      public void perform(Rewrite event, EvaluationContext context)
+      {}
+   };
+
+   @Test
+   public void testCacheableOperationTree()
+   {
+      Operation root = Perform.all(new NoOp(), Operations.create().and(cacheable));
+
+      CacheableOperationVisitor visitor = new CacheableOperationVisitor();
+      new OperationVisit(root).accept(visitor);
+
+      assertTrue(visitor.isCacheable());
+   }
+
+   @Test
+   public void testNestedCustomOperationIsNotCacheable()
+   {
+      Operation root = Perform.all(new NoOp(), Operations.create().and(custom));
+
+      CacheableOperationVisitor visitor = new CacheableOperationVisitor();
+      new OperationVisit(root).accept(visitor);
+
+      assertFalse(visitor.isCacheable());
+   }
+
+   @Test
+   public void testWrappedCustomOperationIsNotCacheable()
+   {
+      CacheableOperationVisitor visitor = new CacheableOperationVisitor();
+      new OperationVisit(Operations.onOutbound(cacheable)).accept(visitor);
+      assertFalse(visitor.isCacheable());
+   }
+
+   @Test
+   public void testRuleBuilder()
+   {
+      CacheableOperationVisitor visitor = new CacheableOperationVisitor();
+      new OperationVisit(RuleBuilder.define().when(Direction.isOutbound())).accept(visitor);
+      assertTrue(visitor.isCacheable());
+
+      visitor = new CacheableOperationVisitor();
+      new OperationVisit(RuleBuilder.define().perform(cacheable)).accept(visitor);
+      assertTrue(visitor.isCacheable());
+
+      visitor = new CacheableOperationVisitor();
+      new OperationVisit(RuleBuilder.define().perform(cacheable).perform(custom)).accept(visitor);
+      assertFalse(visitor.isCacheable());
+
+      visitor = new CacheableOperationVisitor();
+      new OperationVisit(RuleBuilder.wrap(RuleBuilder.define().perform(custom))).accept(visitor);
+      assertFalse(visitor.isCacheable());
+   }
+}
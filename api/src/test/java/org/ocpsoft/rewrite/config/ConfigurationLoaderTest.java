@@ -0,0 +1,336 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ocpsoft.rewrite.spi.ConfigurationCacheProvider;
+
+public class ConfigurationLoaderTest
+{
+   private final Object context = new Object();
+
+   private MockCache cache;
+   private MockProvider provider;
+   private ConfigurationLoader loader;
+
+   @Before
+   public void setUp()
+   {
+      cache = new MockCache();
+      provider = new MockProvider();
+
+      List<ConfigurationCacheProvider<?>> caches = new ArrayList<ConfigurationCacheProvider<?>>();
+      caches.add(cache);
+      List<ConfigurationProvider<?>> providers = new ArrayList<ConfigurationProvider<?>>();
+      providers.add(provider);
+      loader = new ConfigurationLoader(caches, providers);
+   }
+
+   @Test
+   public void testFirstBuildIsCached()
+   {
+      Configuration configuration = loader.loadConfiguration(context);
+      assertSame(configuration, cache.configuration);
+      assertSame(configuration, loader.loadConfiguration(context));
+      assertEquals(1, provider.builds.get());
+   }
+
+   @Test
+   public void testStaleConfigurationServedWhileRebuilding() throws InterruptedException
+   {
+      Configuration first = loader.loadConfiguration(context);
+
+      provider.block = new CountDownLatch(1);
+      cache.configuration = null;
+      assertSame(first, loader.loadConfiguration(context));
+      assertTrue(provider.started.await(5, TimeUnit.SECONDS));
+      assertSame(first, loader.loadConfiguration(context));
+
+      provider.block.countDown();
+      Configuration second = awaitCached();
+      assertNotSame(first, second);
+      assertSame(second, loader.loadConfiguration(context));
+      assertNull(loader.getReloadFailure());
+   }
+
+   @Test
+   public void testConcurrentTriggersRebuildOnce() throws InterruptedException
+   {
+      loader.loadConfiguration(context);
+
+      provider.block = new CountDownLatch(1);
+      cache.configuration = null;
+      for (int i = 0; i < 10; i++) {
+         loader.loadConfiguration(context);
+      }
+      assertTrue(provider.started.await(5, TimeUnit.SECONDS));
+      for (int i = 0; i < 10; i++) {
+         loader.loadConfiguration(context);
+      }
+
+      provider.block.countDown();
+      awaitCached();
+      assertEquals(2, provider.builds.get());
+   }
+
+   @Test
+   public void testFailedRebuildIsRecordedAndNotRetried() throws InterruptedException
+   {
+      Configuration first = loader.loadConfiguration(context);
+
+      provider.fail = true;
+      cache.configuration = null;
+      assertSame(first, loader.loadConfiguration(context));
+
+      assertSame(first, awaitCached());
+      assertNotNull(loader.getReloadFailure());
+      assertEquals("Broken configuration", loader.getReloadFailure().getMessage());
+
+      assertSame(first, loader.loadConfiguration(context));
+      assertEquals(2, provider.builds.get());
+
+      provider.fail = false;
+      cache.configuration = null;
+      loader.loadConfiguration(context);
+      assertNotSame(first, awaitCached());
+      assertNull(loader.getReloadFailure());
+   }
+
+   @Test
+   public void testParallelBuildKeepsSequentialRuleOrder()
+   {
+      List<String> sequential = getRuleIds(buildUncached(null));
+      List<String> parallel = getRuleIds(buildUncached("4"));
+
+      assertEquals(23, sequential.size());
+      assertEquals("low-0", sequential.get(0));
+      assertEquals("relocated", sequential.get(sequential.size() - 1));
+      assertEquals(sequential, parallel);
+   }
+
+   @Test
+   public void testParallelBuildPropagatesProviderException()
+   {
+      RulesProvider broken = new RulesProvider("broken", 5, 0, 1) {
+         @Override
+         public Configuration getConfiguration(Object context)
+         {
+            throw new IllegalStateException("Broken provider");
+         }
+      };
+
+      String previous = System.getProperty(ConfigurationLoader.PARALLEL_BUILD);
+      System.setProperty(ConfigurationLoader.PARALLEL_BUILD, "4");
+      try {
+         List<ConfigurationProvider<?>> providers = new ArrayList<ConfigurationProvider<?>>(getRulesProviders());
+         providers.add(broken);
+         new ConfigurationLoader(new ArrayList<ConfigurationCacheProvider<?>>(), providers).loadConfiguration(context);
+         fail("Expected the exception thrown by the provider");
+      }
+      catch (IllegalStateException e) {
+         assertEquals("Broken provider", e.getMessage());
+      }
+      finally {
+         restore(previous);
+      }
+   }
+
+   /*
+    * Providers of mixed priorities whose builds finish in a different order than they are started.
+    */
+   private List<ConfigurationProvider<?>> getRulesProviders()
+   {
+      List<ConfigurationProvider<?>> providers = new ArrayList<ConfigurationProvider<?>>();
+      providers.add(new RulesProvider("high", 10, 40, 5));
+      providers.add(new RulesProvider("low", -5, 30, 3));
+      providers.add(new RulesProvider("middle", 0, 0, 4));
+      providers.add(new RulesProvider("high-again", 10, 0, 5));
+      providers.add(new RulesProvider("other", 3, 20, 5));
+      return providers;
+   }
+
+   private Configuration buildUncached(String parallel)
+   {
+      String previous = System.getProperty(ConfigurationLoader.PARALLEL_BUILD);
+      if (parallel == null)
+         System.clearProperty(ConfigurationLoader.PARALLEL_BUILD);
+      else
+         System.setProperty(ConfigurationLoader.PARALLEL_BUILD, parallel);
+      try {
+         return new ConfigurationLoader(new ArrayList<ConfigurationCacheProvider<?>>(), getRulesProviders())
+                  .loadConfiguration(context);
+      }
+      finally {
+         restore(previous);
+      }
+   }
+
+   private void restore(String previous)
+   {
+      if (previous == null)
+         System.clearProperty(ConfigurationLoader.PARALLEL_BUILD);
+      else
+         System.setProperty(ConfigurationLoader.PARALLEL_BUILD, previous);
+   }
+
+   private List<String> getRuleIds(Configuration configuration)
+   {
+      List<String> result = new ArrayList<String>();
+      for (Rule rule : configuration.getRules()) {
+         result.add(rule.getId());
+      }
+      return result;
+   }
+
+   private Configuration awaitCached() throws InterruptedException
+   {
+      for (int i = 0; i < 500 && cache.configuration == null; i++) {
+         Thread.sleep(10);
+      }
+      assertNotNull(cache.configuration);
+      return cache.configuration;
+   }
+
+   private static class MockCache implements ConfigurationCacheProvider<Object>
+   {
+      private volatile Configuration configuration;
+
+      @Override
+      public Configuration getConfiguration(Object context)
+      {
+         return configuration;
+      }
+
+      @Override
+      public void setConfiguration(Object context, Configuration configuration)
+      {
+         this.configuration = configuration;
+      }
+
+      @Override
+      public boolean handles(Object payload)
+      {
+         return true;
+      }
+
+      @Override
+      public int priority()
+      {
+         return 0;
+      }
+   }
+
+   private static class RulesProvider implements ConfigurationProvider<Object>
+   {
+      private final String name;
+      private final int priority;
+      private final long delay;
+      private final int count;
+
+      public RulesProvider(String name, int priority, long delay, int count)
+      {
+         this.name = name;
+         this.priority = priority;
+         this.delay = delay;
+         this.count = count;
+      }
+
+      @Override
+      public Configuration getConfiguration(Object context)
+      {
+         try {
+            Thread.sleep(delay);
+         }
+         catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+
+         ConfigurationBuilder builder = ConfigurationBuilder.begin();
+         for (int i = 0; i < count; i++) {
+            builder.addRule(RuleBuilder.define(name + "-" + i));
+         }
+         if ("middle".equals(name))
+            builder.addRule(RuleBuilder.define("relocated").withPriority(100));
+         return builder;
+      }
+
+      @Override
+      public boolean handles(Object payload)
+      {
+         return true;
+      }
+
+      @Override
+      public int priority()
+      {
+         return priority;
+      }
+   }
+
+   private static class MockProvider implements ConfigurationProvider<Object>
+   {
+      private final AtomicInteger builds = new AtomicInteger();
+      private final CountDownLatch started = new CountDownLatch(1);
+      private volatile CountDownLatch block;
+      private volatile boolean fail;
+
+      @Override
+      public Configuration getConfiguration(Object context)
+      {
+         if (builds.incrementAndGet() > 1)
+            started.countDown();
+
+         try {
+            if (block != null)
+               block.await(5, TimeUnit.SECONDS);
+         }
+         catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+
+         if (fail)
+            throw new IllegalStateException("Broken configuration");
+         return ConfigurationBuilder.begin();
+      }
+
+      @Override
+      public boolean handles(Object payload)
+      {
+         return true;
+      }
+
+      @Override
+      public int priority()
+      {
+         return 0;
+      }
+   }
+}
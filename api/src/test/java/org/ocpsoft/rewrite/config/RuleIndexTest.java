@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.config;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.ocpsoft.rewrite.context.EvaluationContext;
+import org.ocpsoft.rewrite.event.Rewrite;
+
+public class RuleIndexTest
+{
+   private static Condition prefix(final String... prefixes)
+   {
+      return new IndexableCondition() {
+         @Override
+         public boolean evaluate(Rewrite event, EvaluationContext context)
+         {
+            return true;
+         }
+
+         @Override
+         public Set<String> getInboundPathPrefixes()
+         {
+            return new LinkedHashSet<String>(Arrays.asList(prefixes));
+         }
+
+         @Override
+         public Set<String> getOutboundPathPrefixes()
+         {
+            return null;
+         }
+      };
+   }
+
+   private static RuleIndex index(Condition... conditions)
+   {
+      ConfigurationBuilder builder = ConfigurationBuilder.begin();
+      for (Condition condition : conditions) {
+         builder.addRule().when(condition);
+      }
+      List<Rule> rules = builder.getRules();
+      return RuleIndex.build(rules);
+   }
+
+   @Test
+   public void testUnindexedConfigurationHasNoCandidates()
+   {
+      RuleIndex index = index(new True(), Direction.isInbound());
+      assertNull(index.getInboundCandidates("/foo"));
+      assertNull(index.getOutboundCandidates("/foo"));
+   }
+
+   @Test
+   public void testCandidatesPreservePriorityOrder()
+   {
+      RuleIndex index = index(prefix("/products/"), new True(), prefix("/products/item-"), prefix("/about"),
+               prefix("/"));
+
+      assertArrayEquals(new int[] { 0, 1, 2, 4 }, index.getInboundCandidates("/products/item-42"));
+      assertArrayEquals(new int[] { 0, 1, 4 }, index.getInboundCandidates("/products/list"));
+      assertArrayEquals(new int[] { 1, 4 }, index.getInboundCandidates("/products"));
+      assertArrayEquals(new int[] { 1, 3, 4 }, index.getInboundCandidates("/about/team"));
+      assertArrayEquals(new int[] { 1 }, index.getInboundCandidates("about"));
+      assertNull(index.getOutboundCandidates("/foo"));
+   }
+
+   @Test
+   public void testCompositeConditions()
+   {
+      RuleIndex index = index(
+               Direction.isInbound().and(prefix("/a")),
+               Or.any(prefix("/b"), prefix("/c")),
+               Or.any(prefix("/b"), new True()),
+               Not.any(prefix("/a")),
+               And.all(prefix("/a"), prefix("/a/b/")),
+               prefix("/d", "/e"));
+
+      assertArrayEquals(new int[] { 0, 2, 3 }, index.getInboundCandidates("/a/c"));
+      assertArrayEquals(new int[] { 0, 2, 3, 4 }, index.getInboundCandidates("/a/b/c"));
+      assertArrayEquals(new int[] { 1, 2, 3 }, index.getInboundCandidates("/c"));
+      assertArrayEquals(new int[] { 2, 3, 5 }, index.getInboundCandidates("/e/f"));
+      assertArrayEquals(new int[] { 2, 3 }, index.getInboundCandidates(null));
+   }
+}
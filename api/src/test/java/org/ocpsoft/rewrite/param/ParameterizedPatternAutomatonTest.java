@@ -0,0 +1,203 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.param;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParameterizedPatternAutomatonTest
+{
+   private static RegexParameterizedPatternParser parser(String defaultPattern, String pattern, String... constraints)
+   {
+      RegexParameterizedPatternParser parser = new RegexParameterizedPatternParser(defaultPattern, pattern);
+      DefaultParameterStore store = new DefaultParameterStore();
+      int i = 0;
+      for (String name : parser.getRequiredParameterNames())
+      {
+         DefaultParameter parameter = (DefaultParameter) store.get(name, new DefaultParameter(name));
+         if (i < constraints.length && constraints[i] != null)
+            parameter.constrainedBy(new RegexConstraint(constraints[i]));
+         i++;
+      }
+      parser.setParameterStore(store);
+
+      /*
+       * The compiled Pattern is retained, and serves as the reference for the automaton.
+       */
+      parser.getCompiledPattern(store);
+      return parser;
+   }
+
+   private static void assertSameResult(RegexParameterizedPatternParser expected, ParameterizedPatternAutomaton automaton,
+            int id, String value)
+   {
+      Matcher matcher = expected.getCompiledPattern(null).matcher(value);
+      String[] values = automaton.match(id, value);
+      if (matcher.matches())
+      {
+         Assert.assertNotNull("Expected [" + expected + "] to match [" + value + "]", values);
+         String[] groups = new String[matcher.groupCount()];
+         for (int i = 0; i < groups.length; i++)
+         {
+            groups[i] = matcher.group(i + 1);
+         }
+         Assert.assertArrayEquals("Values of [" + expected + "] for [" + value + "]", groups, values);
+      }
+      else
+         Assert.assertNull("Expected [" + expected + "] not to match [" + value + "]", values);
+   }
+
+   @Test
+   public void testUnsupportedPatternsAreNotCompiled()
+   {
+      RegexParameterizedPatternParser adjacent = parser("[^/]+", "/{a}{b}");
+      RegexParameterizedPatternParser alternation = parser("[^/]+", "/{a}", "foo|bar");
+      RegexParameterizedPatternParser supported = parser("[^/]+", "/{a}/{b}", "\\d+", "[a-z0-9_-]*");
+
+      ParameterizedPatternAutomaton automaton = ParameterizedPatternAutomaton.compile(
+               Arrays.<ParameterizedPatternParser> asList(adjacent, alternation, supported));
+      Assert.assertEquals(1, automaton.size());
+      Assert.assertNull(ParameterizedPatternAutomaton.compile(Arrays.<ParameterizedPatternParser> asList(adjacent)));
+   }
+
+   private static List<RegexParameterizedPatternParser> getPatterns()
+   {
+      return Arrays.asList(
+               parser("[^/]+", "/"),
+               parser("[^/]+", "/products/item-{id}/{name}"),
+               parser("[^/]+", "/products/{id}", "\\d+"),
+               parser("[^/]+", "/{lang}/about", "[a-z]+"),
+               parser("[^/]+", "/files/{path}.{ext}", ".*", "[^.]+"),
+               parser(".*", "{scheme}://{host}/{path}"),
+               parser("[^/]+", "/a.b\\{c\\}/{x}"),
+               parser("[^/]+", "/search/{term}", "\\w*"),
+               parser("[^/]+", "/{a}-{b}-{c}"));
+   }
+
+   private static List<RegexParameterizedPatternParser> getRandomizedPatterns()
+   {
+      return Arrays.asList(
+               parser("[^/]+", "/{a}/x{b}x/{c}"),
+               parser("[^/]+", "/{a}.{b}", "[ab.]*", "[^a]+"),
+               parser("[^/]+", "/x{a}/{b}", ".+", "\\D*"));
+   }
+
+   @Test
+   public void testMatchesLikePattern()
+   {
+      /*
+       * Parsers that are compiled into an automaton no longer use their Pattern, so compare against separate copies.
+       */
+      List<RegexParameterizedPatternParser> parsers = getPatterns();
+      ParameterizedPatternAutomaton automaton = ParameterizedPatternAutomaton.compile(getPatterns());
+      Assert.assertEquals(parsers.size(), automaton.size());
+
+      String[] values = { "", "/", "//", "/products/item-42/widget", "/products/item-/widget", "/products/42",
+               "/products/4x2", "/en/about", "/eng/about", "/files/a/b/c.tar.gz", "/files/.gz", "/files/a.",
+               "http://example.com/foo", "http://example.com/", "/a.b{c}/x", "/a.b\\{c\\}/x", "/search/",
+               "/search/foo_bar9", "/search/foo-bar", "/a-b-c-d", "/--", "/a-b-", "/a\n-b-c", "/\uD83D\uDE00-b-c" };
+
+      for (int i = 0; i < parsers.size(); i++)
+      {
+         for (String value : values)
+         {
+            assertSameResult(parsers.get(i), automaton, i, value);
+         }
+      }
+   }
+
+   @Test
+   public void testRandomInputsMatchLikePattern()
+   {
+      List<RegexParameterizedPatternParser> parsers = getRandomizedPatterns();
+      ParameterizedPatternAutomaton automaton = ParameterizedPatternAutomaton.compile(getRandomizedPatterns());
+      Assert.assertEquals(parsers.size(), automaton.size());
+
+      char[] alphabet = { '/', 'x', 'a', 'b', '.', '1' };
+      Random random = new Random(42);
+      for (int n = 0; n < 5000; n++)
+      {
+         StringBuilder value = new StringBuilder();
+         int length = random.nextInt(12);
+         for (int k = 0; k < length; k++)
+         {
+            value.append(alphabet[random.nextInt(alphabet.length)]);
+         }
+
+         for (int i = 0; i < parsers.size(); i++)
+         {
+            assertSameResult(parsers.get(i), automaton, i, value.toString());
+         }
+      }
+   }
+
+   @Test
+   public void testConcurrentMatchingWhileStatesAreBuilt() throws Exception
+   {
+      final List<RegexParameterizedPatternParser> parsers = getRandomizedPatterns();
+      final ParameterizedPatternAutomaton automaton = ParameterizedPatternAutomaton.compile(getRandomizedPatterns());
+      final char[] alphabet = { '/', 'x', 'a', 'b', '.', '1', '\u00e9', '\u4e2d' };
+
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+         List<Future<Void>> results = new ArrayList<Future<Void>>();
+         for (int t = 0; t < 8; t++)
+         {
+            final Random random = new Random(t);
+            results.add(executor.submit(new Callable<Void>() {
+               @Override
+               public Void call()
+               {
+                  for (int n = 0; n < 2000; n++)
+                  {
+                     StringBuilder builder = new StringBuilder();
+                     int length = random.nextInt(12);
+                     for (int k = 0; k < length; k++)
+                     {
+                        builder.append(alphabet[random.nextInt(alphabet.length)]);
+                     }
+
+                     String value = builder.toString();
+                     for (int i = 0; i < parsers.size(); i++)
+                     {
+                        assertSameResult(parsers.get(i), automaton, i, value);
+                     }
+                  }
+                  return null;
+               }
+            }));
+         }
+
+         for (Future<Void> result : results)
+         {
+            result.get();
+         }
+      }
+      finally {
+         executor.shutdownNow();
+      }
+   }
+}
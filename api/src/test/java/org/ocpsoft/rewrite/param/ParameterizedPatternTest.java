@@ -17,6 +17,7 @@ package org.ocpsoft.rewrite.param;
 
 import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -145,6 +146,17 @@ public class ParameterizedPatternTest
       Assert.assertTrue(parameterized.parse(value).matches());
    }
 
+   @Test
+   public void testLiteralPrefix()
+   {
+      Assert.assertEquals("/products/item-",
+               new RegexParameterizedPatternParser("[^/]+", "/products/item-{id}/{name}").getLiteralPrefix());
+      Assert.assertEquals("/about", new RegexParameterizedPatternParser("[^/]+", "/about").getLiteralPrefix());
+      Assert.assertEquals("", new RegexParameterizedPatternParser("[^/]+", "{path}").getLiteralPrefix());
+      Assert.assertEquals("c:\\Users\\",
+               new RegexParameterizedPatternParser(CaptureType.BRACE, "c:\\\\Users\\\\{user}").getLiteralPrefix());
+   }
+
    @Test
    public void testEscapingParams()
    {
@@ -481,4 +493,16 @@ public class ParameterizedPatternTest
       Assert.assertEquals("/lincoln/orders/24", path.build(Arrays.<Object> asList("lincoln", "24")));
    }
 
+   @Test
+   public void testBuildAdjacentAndRepeatedParameters()
+   {
+      ParameterizedPatternBuilder path = new RegexParameterizedPatternBuilder("{a}{b}/{a}.html");
+      Map<String, Object> map = new LinkedHashMap<String, Object>();
+      map.put("a", "x");
+      map.put("b", "y");
+      Assert.assertEquals("xy/x.html", path.build(map));
+      Assert.assertEquals("12/3.html", path.build(Arrays.<Object> asList("1", "2", "3")));
+      Assert.assertEquals(new LinkedHashSet<String>(Arrays.asList("a", "b")), path.getRequiredParameterNames());
+   }
+
 }
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.spi;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.ocpsoft.common.pattern.Weighted;
+
+public class ServiceRegistryTest
+{
+   @Test
+   public void testServicesSortedByPriority()
+   {
+      List<MockService> services = ServiceRegistry.getServices(MockService.class);
+      Assert.assertEquals(2, services.size());
+      Assert.assertTrue(services.get(0) instanceof LowPriorityMockService);
+      Assert.assertTrue(services.get(1) instanceof HighPriorityMockService);
+   }
+
+   @Test
+   public void testServicesLoadedOnce()
+   {
+      List<MockService> services = ServiceRegistry.getServices(MockService.class);
+      Assert.assertSame(services, ServiceRegistry.getServices(MockService.class));
+      Assert.assertSame(ServiceRegistry.getInstance(), ServiceRegistry.getInstance());
+   }
+
+   @Test(expected = UnsupportedOperationException.class)
+   public void testServicesImmutable()
+   {
+      ServiceRegistry.getServices(MockService.class).clear();
+   }
+
+   @Test
+   public void testReloadDiscardsServices()
+   {
+      List<MockService> services = ServiceRegistry.getServices(MockService.class);
+      ServiceRegistry.reload();
+      List<MockService> reloaded = ServiceRegistry.getServices(MockService.class);
+      Assert.assertNotSame(services, reloaded);
+      Assert.assertNotSame(services.get(0), reloaded.get(0));
+      Assert.assertEquals(2, reloaded.size());
+   }
+
+   @Test
+   public void testReloadRetainsRegistry()
+   {
+      ServiceRegistry registry = ServiceRegistry.getInstance();
+      ServiceRegistry.reload();
+      Assert.assertSame(registry, ServiceRegistry.getInstance());
+   }
+
+   @Test
+   public void testClassLoaderNotRetained() throws InterruptedException
+   {
+      /*
+       * The ServiceLoader remembers the ServiceEnricher loader of its first caller, so make sure that is not ours.
+       */
+      ServiceRegistry.getServices(MockService.class);
+
+      Thread thread = Thread.currentThread();
+      ClassLoader original = thread.getContextClassLoader();
+      ClassLoader loader = new ServiceClassLoader(original);
+      try {
+         thread.setContextClassLoader(loader);
+         List<MockService> services = ServiceRegistry.getServices(MockService.class);
+         Assert.assertFalse(services.isEmpty());
+         Assert.assertSame(loader, services.get(0).getClass().getClassLoader());
+      }
+      finally {
+         thread.setContextClassLoader(original);
+      }
+
+      WeakReference<ClassLoader> reference = new WeakReference<ClassLoader>(loader);
+      loader = null;
+      for (int i = 0; i < 50 && reference.get() != null; i++) {
+         System.gc();
+         Thread.sleep(10);
+      }
+      Assert.assertNull(reference.get());
+   }
+
+   @Test
+   public void testNoServices()
+   {
+      Assert.assertTrue(ServiceRegistry.getServices(Runnable.class).isEmpty());
+   }
+
+   /**
+    * Defines the {@link MockService} implementations itself, as a web application {@link ClassLoader} would.
+    */
+   private static class ServiceClassLoader extends URLClassLoader
+   {
+      public ServiceClassLoader(ClassLoader parent)
+      {
+         super(new URL[] { ServiceRegistryTest.class.getProtectionDomain().getCodeSource().getLocation() }, parent);
+      }
+
+      @Override
+      protected synchronized Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException
+      {
+         if (name.endsWith("PriorityMockService"))
+         {
+            Class<?> result = findLoadedClass(name);
+            return result == null ? findClass(name) : result;
+         }
+         return super.loadClass(name, resolve);
+      }
+   }
+
+   public interface MockService extends Weighted
+   {
+   }
+
+   public static class HighPriorityMockService implements MockService
+   {
+      @Override
+      public int priority()
+      {
+         return 10;
+      }
+   }
+
+   public static class LowPriorityMockService implements MockService
+   {
+      @Override
+      public int priority()
+      {
+         return -5;
+      }
+   }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BoundedCacheTest
+{
+   @Test
+   public void testDisabledCacheStoresNothing()
+   {
+      BoundedCache<String, String> cache = new BoundedCache<String, String>(0);
+      Assert.assertFalse(cache.isEnabled());
+
+      cache.put("a", "1");
+      Assert.assertNull(cache.get("a"));
+   }
+
+   @Test
+   public void testLeastRecentlyUsedEntryIsEvicted()
+   {
+      /*
+       * Sixteen segments of two entries each; small integers that differ by a multiple of sixteen share a segment.
+       */
+      BoundedCache<Integer, String> cache = new BoundedCache<Integer, String>(32);
+      cache.put(0, "0");
+      cache.put(16, "16");
+      Assert.assertEquals("0", cache.get(0));
+
+      cache.put(32, "32");
+      Assert.assertEquals("0", cache.get(0));
+      Assert.assertNull(cache.get(16));
+      Assert.assertEquals("32", cache.get(32));
+
+      cache.put(1, "1");
+      Assert.assertEquals("1", cache.get(1));
+      Assert.assertEquals("0", cache.get(0));
+   }
+
+   @Test
+   public void testRemoveOnlyIfMappedToValue()
+   {
+      BoundedCache<String, String> cache = new BoundedCache<String, String>(16);
+      cache.put("a", "1");
+
+      cache.remove("a", "2");
+      Assert.assertEquals("1", cache.get("a"));
+
+      cache.remove("a", cache.get("a"));
+      Assert.assertNull(cache.get("a"));
+   }
+
+   @Test
+   public void testClear()
+   {
+      BoundedCache<String, String> cache = new BoundedCache<String, String>(16);
+      cache.put("a", "1");
+      cache.put("b", "2");
+      cache.clear();
+      Assert.assertNull(cache.get("a"));
+      Assert.assertNull(cache.get("b"));
+   }
+}
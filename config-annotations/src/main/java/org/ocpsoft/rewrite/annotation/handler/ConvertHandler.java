@@ -16,9 +16,10 @@
 package org.ocpsoft.rewrite.annotation.handler;
 
 import java.lang.reflect.Field;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
-import org.ocpsoft.common.services.ServiceLoader;
 import org.ocpsoft.common.util.Assert;
 import org.ocpsoft.logging.Logger;
 import org.ocpsoft.rewrite.annotation.Convert;
@@ -32,6 +33,8 @@ import org.ocpsoft.rewrite.param.Converter;
 import org.ocpsoft.rewrite.param.Parameter;
 import org.ocpsoft.rewrite.param.ParameterConfiguration;
 import org.ocpsoft.rewrite.spi.ConverterProvider;
+import org.ocpsoft.rewrite.spi.ServiceRegistry;
+import org.ocpsoft.rewrite.spi.StatelessProvider;
 
 /**
  * Handler for {@link Convert}.
@@ -101,15 +104,22 @@ public class ConvertHandler extends FieldAnnotationHandler<Convert>
 
    /**
     * This class uses the {@link ConverterProvider} SPI to lazily obtain the {@link Converter} for a given {@link Class}
-    * instance.
+    * instance. Primitive, primitive wrapper, and {@link Enum} types fall back to a {@link TypedConverter} if no
+    * {@link ConverterProvider} supports them. The {@link Converter} is resolved only once if it was obtained from a
+    * {@link StatelessProvider}.
     */
-   private static class LazyConverterAdapter implements Converter<Object>
+   static class LazyConverterAdapter implements Converter<Object>
    {
 
       private final Class<?> targetType;
       private final String converterId;
       private final Class<?> converterType;
 
+      /*
+       * Only set once the converter is known to be safe for reuse; see StatelessProvider.
+       */
+      private volatile Converter<?> resolved;
+
       private LazyConverterAdapter(Class<?> targetType, String converterId, Class<?> converterType)
       {
          this.targetType = targetType;
@@ -133,14 +143,23 @@ public class ConvertHandler extends FieldAnnotationHandler<Convert>
       }
 
       @Override
-      @SuppressWarnings("unchecked")
       public Object convert(Rewrite event, EvaluationContext context, Object value)
+      {
+         Converter<?> converter = resolved;
+         if (converter == null) {
+            converter = resolve(ServiceRegistry.getServices(ConverterProvider.class));
+         }
+         return converter.convert(event, context, value);
+      }
+
+      Converter<?> resolve(Iterable<ConverterProvider> services)
       {
 
          Converter<?> converter = null;
+         ConverterProvider source = null;
 
          // let one of the SPI implementations build the converter
-         Iterator<ConverterProvider> providers = ServiceLoader.load(ConverterProvider.class).iterator();
+         Iterator<ConverterProvider> providers = services.iterator();
          while (providers.hasNext()) {
             ConverterProvider provider = providers.next();
 
@@ -155,13 +174,22 @@ public class ConvertHandler extends FieldAnnotationHandler<Convert>
             }
 
             if (converter != null) {
+               source = provider;
                break;
             }
 
          }
+
+         // fall back to a built-in converter for primitives, their wrappers, and enums
+         if (converter == null && targetType != null) {
+            converter = TypedConverter.forType(targetType);
+         }
          Assert.notNull(converter, "Got no converter from any ConverterProvider for: " + this.toString());
 
-         return converter.convert(event, context, value);
+         if (source instanceof StatelessProvider) {
+            resolved = converter;
+         }
+         return converter;
 
       }
 
@@ -187,4 +215,79 @@ public class ConvertHandler extends FieldAnnotationHandler<Convert>
       }
 
    }
+
+   /**
+    * Converts {@link String} values to primitive, primitive wrapper, and {@link Enum} types without consulting any
+    * {@link ConverterProvider}. Returns <code>null</code> if the value cannot be converted.
+    */
+   static class TypedConverter implements Converter<Object>
+   {
+      private static final Map<Class<?>, Class<?>> WRAPPERS = new HashMap<Class<?>, Class<?>>();
+
+      static {
+         WRAPPERS.put(boolean.class, Boolean.class);
+         WRAPPERS.put(byte.class, Byte.class);
+         WRAPPERS.put(char.class, Character.class);
+         WRAPPERS.put(short.class, Short.class);
+         WRAPPERS.put(int.class, Integer.class);
+         WRAPPERS.put(long.class, Long.class);
+         WRAPPERS.put(float.class, Float.class);
+         WRAPPERS.put(double.class, Double.class);
+      }
+
+      private final Class<?> type;
+
+      private TypedConverter(Class<?> type)
+      {
+         this.type = type;
+      }
+
+      public static TypedConverter forType(Class<?> targetType)
+      {
+         Class<?> type = WRAPPERS.containsKey(targetType) ? WRAPPERS.get(targetType) : targetType;
+         if (type.isEnum() || WRAPPERS.containsValue(type)) {
+            return new TypedConverter(type);
+         }
+         return null;
+      }
+
+      @Override
+      @SuppressWarnings({ "unchecked", "rawtypes" })
+      public Object convert(Rewrite event, EvaluationContext context, Object value)
+      {
+         if (value == null || type.isInstance(value)) {
+            return value;
+         }
+
+         String string = value.toString().trim();
+         try {
+            if (type.isEnum())
+               return Enum.valueOf((Class<? extends Enum>) type, string);
+            if (type == Boolean.class)
+               return Boolean.valueOf(string);
+            if (type == Character.class)
+               return string.length() == 1 ? Character.valueOf(string.charAt(0)) : null;
+            if (type == Byte.class)
+               return Byte.valueOf(string);
+            if (type == Short.class)
+               return Short.valueOf(string);
+            if (type == Integer.class)
+               return Integer.valueOf(string);
+            if (type == Long.class)
+               return Long.valueOf(string);
+            if (type == Float.class)
+               return Float.valueOf(string);
+            return Double.valueOf(string);
+         }
+         catch (IllegalArgumentException e) {
+            return null;
+         }
+      }
+
+      @Override
+      public String toString()
+      {
+         return this.getClass().getSimpleName() + " for " + type.getName();
+      }
+   }
 }
@@ -18,7 +18,6 @@ package org.ocpsoft.rewrite.annotation.handler;
 import java.lang.reflect.Field;
 import java.util.Iterator;
 
-import org.ocpsoft.common.services.ServiceLoader;
 import org.ocpsoft.common.util.Assert;
 import org.ocpsoft.logging.Logger;
 import org.ocpsoft.rewrite.annotation.Validate;
@@ -32,6 +31,8 @@ import org.ocpsoft.rewrite.param.Parameter;
 import org.ocpsoft.rewrite.param.ParameterConfiguration;
 import org.ocpsoft.rewrite.param.Validator;
 import org.ocpsoft.rewrite.spi.ValidatorProvider;
+import org.ocpsoft.rewrite.spi.ServiceRegistry;
+import org.ocpsoft.rewrite.spi.StatelessProvider;
 
 /**
  * Handler for {@link Validate}.
@@ -101,7 +102,7 @@ public class ValidateHandler extends FieldAnnotationHandler<Validate>
 
    /**
     * This class uses the {@link ValidatorProvider} SPI to lazily obtain the {@link Validator} for a given {@link Class}
-    * instance.
+    * instance. The {@link Validator} is resolved only once if it was obtained from a {@link StatelessProvider}.
     */
    private static class LazyValidatorAdapter implements Validator<Object>
    {
@@ -110,6 +111,11 @@ public class ValidateHandler extends FieldAnnotationHandler<Validate>
       private final String validatorId;
       private final Class<?> validatorType;
 
+      /*
+       * Only set once the validator is known to be safe for reuse; see StatelessProvider.
+       */
+      private volatile Validator<?> resolved;
+
       private LazyValidatorAdapter(Class<?> targetType, String validatorId, Class<?> validatorType)
       {
          this.targetType = targetType;
@@ -136,11 +142,21 @@ public class ValidateHandler extends FieldAnnotationHandler<Validate>
       @SuppressWarnings({ "rawtypes", "unchecked" })
       public boolean isValid(Rewrite event, EvaluationContext context, Object value)
       {
+         Validator validator = resolved;
+         if (validator == null) {
+            validator = resolve();
+         }
+         return validator.isValid(event, context, value);
+      }
 
-         Validator validator = null;
+      private Validator<?> resolve()
+      {
+
+         Validator<?> validator = null;
+         ValidatorProvider source = null;
 
          // let one of the SPI implementations build the validator
-         Iterator<ValidatorProvider> providers = ServiceLoader.load(ValidatorProvider.class).iterator();
+         Iterator<ValidatorProvider> providers = ServiceRegistry.getServices(ValidatorProvider.class).iterator();
          while (providers.hasNext()) {
             ValidatorProvider provider = providers.next();
 
@@ -155,13 +171,17 @@ public class ValidateHandler extends FieldAnnotationHandler<Validate>
             }
 
             if (validator != null) {
+               source = provider;
                break;
             }
 
          }
          Assert.notNull(validator, "Got no validator from any ValidatorProvider for: " + this.toString());
 
-         return validator.isValid(event, context, value);
+         if (source instanceof StatelessProvider) {
+            resolved = validator;
+         }
+         return validator;
 
       }
 
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.annotation.handler;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.lang.annotation.ElementType;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.ocpsoft.rewrite.annotation.handler.ConvertHandler.LazyConverterAdapter;
+import org.ocpsoft.rewrite.annotation.handler.ConvertHandler.TypedConverter;
+import org.ocpsoft.rewrite.context.EvaluationContext;
+import org.ocpsoft.rewrite.event.Rewrite;
+import org.ocpsoft.rewrite.param.Converter;
+import org.ocpsoft.rewrite.spi.ConverterProvider;
+
+public class ConvertHandlerTest
+{
+   @Test
+   public void testPrimitivesAndWrappers()
+   {
+      assertEquals(42, TypedConverter.forType(int.class).convert(null, null, "42"));
+      assertEquals(42, TypedConverter.forType(Integer.class).convert(null, null, " 42 "));
+      assertEquals(42L, TypedConverter.forType(long.class).convert(null, null, "42"));
+      assertEquals(1.5d, TypedConverter.forType(Double.class).convert(null, null, "1.5"));
+      assertEquals('x', TypedConverter.forType(char.class).convert(null, null, "x"));
+      assertEquals(Boolean.TRUE, TypedConverter.forType(boolean.class).convert(null, null, "true"));
+   }
+
+   @Test
+   public void testEnum()
+   {
+      assertEquals(ElementType.FIELD, TypedConverter.forType(ElementType.class).convert(null, null, "FIELD"));
+   }
+
+   @Test
+   public void testNullAndConvertedValuesPassThrough()
+   {
+      assertNull(TypedConverter.forType(Integer.class).convert(null, null, null));
+      assertEquals(7, TypedConverter.forType(Integer.class).convert(null, null, 7));
+   }
+
+   @Test
+   public void testUnsupportedType()
+   {
+      assertNull(TypedConverter.forType(String.class));
+      assertNull(TypedConverter.forType(Object.class));
+   }
+
+   @Test
+   public void testInvalidValuesConvertToNull()
+   {
+      assertNull(TypedConverter.forType(Integer.class).convert(null, null, "abc"));
+      assertNull(TypedConverter.forType(int.class).convert(null, null, ""));
+      assertNull(TypedConverter.forType(ElementType.class).convert(null, null, "NOPE"));
+      assertNull(TypedConverter.forType(Character.class).convert(null, null, "xy"));
+   }
+
+   @Test
+   public void testTargetTypeFallsBackToTypedConverter()
+   {
+      List<ConverterProvider> providers = Arrays.<ConverterProvider> asList(new ColorConverterProvider());
+      Converter<?> converter = LazyConverterAdapter.forTargetType(Integer.class).resolve(providers);
+      assertEquals(42, converter.convert(null, null, "42"));
+      assertNull(converter.convert(null, null, "abc"));
+   }
+
+   @Test
+   public void testProviderConverterTakesPrecedence()
+   {
+      List<ConverterProvider> providers = Arrays.<ConverterProvider> asList(new ColorConverterProvider());
+      Converter<?> converter = LazyConverterAdapter.forTargetType(Color.class).resolve(providers);
+      assertEquals("converted RED", converter.convert(null, null, "RED"));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testNoConverterForUnsupportedType()
+   {
+      LazyConverterAdapter.forTargetType(Object.class).resolve(Collections.<ConverterProvider> emptyList());
+   }
+
+   public enum Color
+   {
+      RED, GREEN
+   }
+
+   /**
+    * Stands in for an application converter, such as a JSF converter registered for a type.
+    */
+   public static class ColorConverterProvider implements ConverterProvider
+   {
+      @Override
+      public Converter<?> getByTargetType(Class<?> targetType)
+      {
+         if (targetType != Color.class)
+            return null;
+
+         return new Converter<String>() {
+            @Override
+            public String convert(Rewrite event, EvaluationContext context, Object value)
+            {
+               return "converted " + value;
+            }
+         };
+      }
+
+      @Override
+      public Converter<?> getByConverterType(Class<?> converterType)
+      {
+         return null;
+      }
+
+      @Override
+      public Converter<?> getByConverterId(String id)
+      {
+         return null;
+      }
+
+      @Override
+      public int priority()
+      {
+         return 0;
+      }
+   }
+}
@@ -23,8 +23,8 @@ import javax.servlet.ServletContext;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.ocpsoft.common.services.ServiceLoader;
 import org.ocpsoft.rewrite.el.spi.BeanNameResolver;
+import org.ocpsoft.rewrite.spi.ServiceRegistry;
 
 /**
  * <p>
@@ -49,7 +49,7 @@ public class LazyBeanNameFinder
 
    /**
     * Creates a new {@link LazyBeanNameFinder}. The constructor will find all implementations of
-    * {@link ELBeanNameResolver} by using the {@link ServiceLoader} mechanism.
+    * {@link ELBeanNameResolver} by using the {@link ServiceRegistry}.
     * 
     * @param servletContext The servlet context
     */
@@ -65,9 +65,9 @@ public class LazyBeanNameFinder
          classLoader = this.getClass().getClassLoader();
       }
 
-      // find resolvers via ServiceLoader
-      @SuppressWarnings("unchecked")
-      Iterator<BeanNameResolver> beanNameFinderIterator = ServiceLoader.load(BeanNameResolver.class).iterator();
+      // find resolvers via ServiceRegistry
+      Iterator<BeanNameResolver> beanNameFinderIterator = ServiceRegistry.getServices(BeanNameResolver.class)
+               .iterator();
 
       // call init() method on all resolvers
       while (beanNameFinderIterator.hasNext())
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.ocpsoft.rewrite.servlet.config.proxy;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.utils.URIUtils;
+import org.ocpsoft.logging.Logger;
+
+/**
+ * Runs a {@link ProxyServlet} on a {@link ProxyClient} worker thread, after the container thread has been released with
+ * {@link HttpServletRequest#startAsync(javax.servlet.ServletRequest, javax.servlet.ServletResponse)}. Upstream data is
+ * only read as fast as the client accepts it, since every write to the response blocks the worker thread.
+ * <p>
+ * If the destination has reached its concurrency limit, the task waits for a turn without holding a thread, and is
+ * answered with <code>503 Service Unavailable</code> if the queue timeout expires first. A task that exceeds the
+ * asynchronous timeout, or whose destination does not answer within the socket timeout, is answered with
+ * <code>504 Gateway Timeout</code>.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+class AsyncProxyTask implements Runnable, AsyncListener
+{
+   private static final Logger log = Logger.getLogger(AsyncProxyTask.class);
+
+   private final ProxyServlet servlet;
+   private final ProxyClient client;
+   private final AsyncContext async;
+   private final AsyncRouteLimit limit;
+   private final AtomicBoolean completed = new AtomicBoolean();
+   private volatile ScheduledFuture<?> expiry;
+
+   private AsyncProxyTask(ProxyServlet servlet, ProxyClient client, AsyncContext async, AsyncRouteLimit limit)
+   {
+      this.servlet = servlet;
+      this.client = client;
+      this.async = async;
+      this.limit = limit;
+   }
+
+   /**
+    * Proxy the given request asynchronously, as soon as the destination is below its concurrency limit.
+    */
+   public static void start(ProxyServlet servlet, ProxyClient client, HttpServletRequest request,
+            HttpServletResponse response)
+   {
+      AsyncContext async = request.startAsync(request, response);
+      async.setTimeout(client.getAsyncTimeout());
+
+      /*
+       * Never wait for the destination longer than for the whole request
+       */
+      if (servlet.requestConfig.getSocketTimeout() <= 0 && client.getAsyncTimeout() > 0)
+         servlet.requestConfig = RequestConfig.copy(servlet.requestConfig)
+                  .setSocketTimeout((int) client.getAsyncTimeout()).build();
+
+      AsyncProxyTask task = new AsyncProxyTask(servlet, client,
+               async, client.getAsyncLimit(URIUtils.extractHost(servlet.targetUriObj)));
+      async.addListener(task);
+
+      if (task.limit.acquire(task))
+      {
+         if (!task.dispatch())
+         {
+            task.reject();
+            task.release();
+         }
+      }
+      else
+         task.await();
+   }
+
+   /**
+    * Wait for a turn, for no longer than the queue timeout.
+    */
+   private void await()
+   {
+      long timeout = client.getAsyncQueueTimeout();
+      if (timeout > 0)
+      {
+         try {
+            expiry = client.getScheduler().schedule(new Runnable() {
+               @Override
+               public void run()
+               {
+                  expire();
+               }
+            }, timeout, TimeUnit.MILLISECONDS);
+            return;
+         }
+         catch (RejectedExecutionException e) {
+            // shutting down
+         }
+      }
+      expire();
+   }
+
+   private void expire()
+   {
+      if (limit.remove(this))
+      {
+         log.warn("Rejected asynchronous proxy of [" + getRequestURI() + "] to [" + servlet.targetUri
+                  + "]: too many concurrent requests to destination.");
+         reject();
+      }
+   }
+
+   /**
+    * Hand this task to a worker thread. Returns <code>false</code> if the worker pool has been shut down.
+    */
+   private boolean dispatch()
+   {
+      ScheduledFuture<?> expiry = this.expiry;
+      if (expiry != null)
+         expiry.cancel(false);
+      try {
+         client.getExecutor().execute(this);
+         return true;
+      }
+      catch (RejectedExecutionException e) {
+         return false;
+      }
+   }
+
+   /**
+    * Give up the permit of this task, handing it to the next waiting task, if any.
+    */
+   private void release()
+   {
+      AsyncProxyTask next = (AsyncProxyTask) limit.release();
+      while (next != null && !next.dispatch())
+      {
+         next.reject();
+         next = (AsyncProxyTask) limit.release();
+      }
+   }
+
+   @Override
+   public void run()
+   {
+      try
+      {
+         if (!completed.get())
+         {
+            HttpServletRequest request = (HttpServletRequest) async.getRequest();
+            HttpServletResponse response = (HttpServletResponse) async.getResponse();
+            try
+            {
+               servlet.service(request, response);
+            }
+            catch (Exception e)
+            {
+               if (!completed.get())
+               {
+                  if (e instanceof InterruptedIOException)
+                  {
+                     log.warn("Timed out proxying [" + request.getRequestURI() + "] to destination ["
+                              + servlet.targetUri + "]: " + e);
+                     setStatus(response, HttpServletResponse.SC_GATEWAY_TIMEOUT);
+                  }
+                  else
+                  {
+                     log.error("Could not proxy [" + request.getRequestURI() + "] to destination ["
+                              + servlet.targetUri + "]", e);
+                     setStatus(response, HttpServletResponse.SC_BAD_GATEWAY);
+                  }
+               }
+            }
+         }
+      }
+      finally
+      {
+         release();
+         complete();
+      }
+   }
+
+   /**
+    * Answer with <code>503 Service Unavailable</code>, unless this task has already completed.
+    */
+   void reject()
+   {
+      respond(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+   }
+
+   @Override
+   public void onTimeout(AsyncEvent event)
+   {
+      if (limit.remove(this))
+      {
+         log.warn("Rejected asynchronous proxy of [" + getRequestURI() + "] to [" + servlet.targetUri
+                  + "]: timed out waiting for destination to become available.");
+         respond(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      }
+      else
+      {
+         log.warn("Timed out proxying [" + getRequestURI() + "] to destination [" + servlet.targetUri + "]");
+         respond(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+      }
+   }
+
+   @Override
+   public void onError(AsyncEvent event)
+   {
+      limit.remove(this);
+      complete();
+   }
+
+   @Override
+   public void onComplete(AsyncEvent event)
+   {
+      completed.set(true);
+   }
+
+   @Override
+   public void onStartAsync(AsyncEvent event)
+   {}
+
+   private void respond(int status)
+   {
+      if (completed.compareAndSet(false, true))
+      {
+         setStatus((HttpServletResponse) async.getResponse(), status);
+         async.complete();
+      }
+   }
+
+   private void complete()
+   {
+      if (completed.compareAndSet(false, true))
+         async.complete();
+   }
+
+   private static void setStatus(HttpServletResponse response, int status)
+   {
+      if (!response.isCommitted())
+      {
+         response.reset();
+         response.setStatus(status);
+      }
+   }
+
+   private String getRequestURI()
+   {
+      return ((HttpServletRequest) async.getRequest()).getRequestURI();
+   }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.ocpsoft.rewrite.servlet.config.proxy;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Limits the number of asynchronous {@link Proxy} operations running against a single destination. Operations over the
+ * limit wait in first-in, first-out order, and are handed the permit of the next operation to finish, without holding
+ * a thread while they wait.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+class AsyncRouteLimit
+{
+   private final int max;
+   private final Deque<Runnable> waiting = new ArrayDeque<Runnable>();
+   private int active;
+
+   public AsyncRouteLimit(int max)
+   {
+      if (max < 1)
+         throw new IllegalArgumentException("Limit must be at least 1, but was [" + max + "]");
+      this.max = max;
+   }
+
+   /**
+    * Take a permit for the given task, and return <code>true</code>; or if none is available, queue the task and return
+    * <code>false</code>. A queued task is returned by a later call to {@link #release()}, unless it is first
+    * {@link #remove(Runnable) removed}.
+    */
+   public synchronized boolean acquire(Runnable task)
+   {
+      if (active < max)
+      {
+         active++;
+         return true;
+      }
+      waiting.addLast(task);
+      return false;
+   }
+
+   /**
+    * Give up a permit. If a task is waiting, the permit is handed over to it, and the task is returned so that the
+    * caller may run it; otherwise returns <code>null</code>.
+    */
+   public synchronized Runnable release()
+   {
+      Runnable next = waiting.pollFirst();
+      if (next == null && active > 0)
+         active--;
+      return next;
+   }
+
+   /**
+    * Stop waiting for a permit for the given task. Returns <code>true</code> if the task was still waiting, or
+    * <code>false</code> if it has already been handed a permit.
+    */
+   public synchronized boolean remove(Runnable task)
+   {
+      return waiting.remove(task);
+   }
+
+   public synchronized int getActive()
+   {
+      return active;
+   }
+
+   public synchronized int getWaiting()
+   {
+      return waiting.size();
+   }
+}
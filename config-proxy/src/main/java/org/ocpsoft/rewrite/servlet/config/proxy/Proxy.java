@@ -6,16 +6,23 @@
  */
 package org.ocpsoft.rewrite.servlet.config.proxy;
 
+import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
 
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import org.ocpsoft.rewrite.context.EvaluationContext;
 import org.ocpsoft.rewrite.exception.RewriteException;
 import org.ocpsoft.rewrite.param.ParameterStore;
 import org.ocpsoft.rewrite.param.Parameterized;
 import org.ocpsoft.rewrite.param.ParameterizedPatternBuilder;
 import org.ocpsoft.rewrite.param.RegexParameterizedPatternBuilder;
+import org.ocpsoft.rewrite.servlet.RewriteWrappedResponse;
 import org.ocpsoft.rewrite.servlet.config.HttpOperation;
 import org.ocpsoft.rewrite.servlet.config.Lifecycle;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
@@ -27,6 +34,7 @@ import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
 public abstract class Proxy extends HttpOperation implements Parameterized
 {
    private final ParameterizedPatternBuilder destination;
+   private boolean async;
 
    private Proxy(String destination)
    {
@@ -44,6 +52,22 @@ public abstract class Proxy extends HttpOperation implements Parameterized
       };
    }
 
+   /**
+    * Release the container thread while this {@link Proxy} waits for the destination, by continuing the request on a
+    * worker thread with Servlet 3.0 asynchronous processing. The request is proxied synchronously if asynchronous
+    * processing is not supported for the current request, for example if the <code>RewriteFilter</code> has not been
+    * mapped with <code>&lt;async-supported&gt;true&lt;/async-supported&gt;</code>. The request is also proxied
+    * synchronously if the response content is intercepted or its stream is wrapped, since interceptors and stream
+    * wrappers are finished on the container thread as soon as the <code>RewriteFilter</code> returns.
+    * 
+    * @see ProxyClient
+    */
+   public Proxy withAsync()
+   {
+      this.async = true;
+      return this;
+   }
+
    @Override
    public void performHttp(HttpServletRewrite event, EvaluationContext context)
    {
@@ -54,7 +78,7 @@ public abstract class Proxy extends HttpOperation implements Parameterized
       try
       {
          proxyServlet.init(proxyConfig);
-         proxyServlet.service(event.getRequest(), event.getResponse());
+         proxy(proxyServlet, event.getServletContext(), event.getRequest(), event.getResponse());
          Lifecycle.abort().perform(event, context);
       }
       catch (Exception e)
@@ -63,6 +87,21 @@ public abstract class Proxy extends HttpOperation implements Parameterized
       }
    }
 
+   void proxy(ProxyServlet proxyServlet, ServletContext servletContext, HttpServletRequest request,
+            HttpServletResponse response) throws ServletException, IOException
+   {
+      if (async && request.isAsyncSupported() && isUnwrapped(request))
+         AsyncProxyTask.start(proxyServlet, ProxyClient.getInstance(servletContext), request, response);
+      else
+         proxyServlet.service(request, response);
+   }
+
+   private static boolean isUnwrapped(HttpServletRequest request)
+   {
+      RewriteWrappedResponse wrapped = RewriteWrappedResponse.getCurrentInstance(request);
+      return wrapped == null || (!wrapped.isResponseContentIntercepted() && !wrapped.isResponseStreamWrapped());
+   }
+
    @Override
    public Set<String> getRequiredParameterNames()
    {
@@ -0,0 +1,362 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.ocpsoft.rewrite.servlet.config.proxy;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.ServletContext;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.protocol.HttpContext;
+import org.ocpsoft.logging.Logger;
+import org.ocpsoft.rewrite.servlet.util.InitParameters;
+
+/**
+ * Pooled {@link CloseableHttpClient} shared by every {@link Proxy} operation of a {@link ServletContext}. Connections
+ * are pooled per destination route and kept alive between proxied requests; the client is closed by
+ * {@link ProxyContextListener} when the {@link ServletContext} is destroyed.
+ * <p>
+ * The pool may be tuned with the following servlet context init parameters in <code>web.xml</code> (timeouts are in
+ * milliseconds, and <code>0</code> means no timeout):
+ * 
+ * <pre>
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.PROXY_MAX_CONNECTIONS&lt;/param-name&gt;
+ *   &lt;param-value&gt;200&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.PROXY_MAX_CONNECTIONS_PER_ROUTE&lt;/param-name&gt;
+ *   &lt;param-value&gt;20&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.PROXY_CONNECT_TIMEOUT&lt;/param-name&gt;
+ *   &lt;param-value&gt;0&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.PROXY_SOCKET_TIMEOUT&lt;/param-name&gt;
+ *   &lt;param-value&gt;0&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.PROXY_IDLE_TIMEOUT&lt;/param-name&gt;
+ *   &lt;param-value&gt;60000&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ * 
+ * Pooled connections are kept alive for as long as the destination allows, but never longer than the idle timeout.
+ * <p>
+ * Asynchronous {@link Proxy} operations are executed by a dedicated pool of worker threads, which is shut down with the
+ * connection pool. Each destination host may only be proxied by a limited number of them at once (by default, the
+ * maximum number of connections per route); further requests wait for their turn without holding a thread, and are
+ * answered with <code>503 Service Unavailable</code> if none comes within the queue timeout. Each asynchronous
+ * request is answered with <code>504 Gateway Timeout</code> if it does not complete within the asynchronous timeout,
+ * which also bounds the socket timeout of asynchronous requests when no socket timeout is configured:
+ * 
+ * <pre>
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.PROXY_ASYNC_THREADS&lt;/param-name&gt;
+ *   &lt;param-value&gt;50&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.PROXY_ASYNC_MAX_PER_ROUTE&lt;/param-name&gt;
+ *   &lt;param-value&gt;20&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.PROXY_ASYNC_QUEUE_TIMEOUT&lt;/param-name&gt;
+ *   &lt;param-value&gt;10000&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.PROXY_ASYNC_TIMEOUT&lt;/param-name&gt;
+ *   &lt;param-value&gt;60000&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ * 
+ * The destination is still read with blocking I/O on the worker threads; only the container thread is released.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class ProxyClient
+{
+   public static final String MAX_CONNECTIONS = "org.ocpsoft.rewrite.config.PROXY_MAX_CONNECTIONS";
+   public static final String MAX_CONNECTIONS_PER_ROUTE = "org.ocpsoft.rewrite.config.PROXY_MAX_CONNECTIONS_PER_ROUTE";
+   public static final String CONNECT_TIMEOUT = "org.ocpsoft.rewrite.config.PROXY_CONNECT_TIMEOUT";
+   public static final String SOCKET_TIMEOUT = "org.ocpsoft.rewrite.config.PROXY_SOCKET_TIMEOUT";
+   public static final String IDLE_TIMEOUT = "org.ocpsoft.rewrite.config.PROXY_IDLE_TIMEOUT";
+   public static final String ASYNC_THREADS = "org.ocpsoft.rewrite.config.PROXY_ASYNC_THREADS";
+   public static final String ASYNC_MAX_PER_ROUTE = "org.ocpsoft.rewrite.config.PROXY_ASYNC_MAX_PER_ROUTE";
+   public static final String ASYNC_QUEUE_TIMEOUT = "org.ocpsoft.rewrite.config.PROXY_ASYNC_QUEUE_TIMEOUT";
+   public static final String ASYNC_TIMEOUT = "org.ocpsoft.rewrite.config.PROXY_ASYNC_TIMEOUT";
+
+   private static final String KEY = ProxyClient.class.getName() + "_instance";
+
+   private static final Logger log = Logger.getLogger(ProxyClient.class);
+
+   private final PoolingHttpClientConnectionManager connectionManager;
+   private final CloseableHttpClient client;
+   private final RequestConfig requestConfig;
+   private final long idleTimeout;
+   private volatile long lastEviction = System.currentTimeMillis();
+
+   private final int asyncThreads;
+   private final int asyncMaxPerRoute;
+   private final long asyncQueueTimeout;
+   private final long asyncTimeout;
+   private final ConcurrentMap<HttpHost, AsyncRouteLimit> asyncLimits = new ConcurrentHashMap<HttpHost, AsyncRouteLimit>();
+   private volatile ThreadPoolExecutor executor;
+   private volatile ScheduledExecutorService scheduler;
+
+   private ProxyClient(ServletContext context)
+   {
+      int maxConnections = InitParameters.getInt(context, MAX_CONNECTIONS, 200);
+      int maxPerRoute = InitParameters.getInt(context, MAX_CONNECTIONS_PER_ROUTE, 20);
+      int connectTimeout = InitParameters.getInt(context, CONNECT_TIMEOUT, 0);
+      int socketTimeout = InitParameters.getInt(context, SOCKET_TIMEOUT, 0);
+      this.idleTimeout = InitParameters.getInt(context, IDLE_TIMEOUT, 60000);
+      this.asyncThreads = Math.max(1, InitParameters.getInt(context, ASYNC_THREADS, 50));
+      this.asyncMaxPerRoute = Math.max(1, InitParameters.getInt(context, ASYNC_MAX_PER_ROUTE, maxPerRoute));
+      this.asyncQueueTimeout = InitParameters.getInt(context, ASYNC_QUEUE_TIMEOUT, 10000);
+      this.asyncTimeout = InitParameters.getInt(context, ASYNC_TIMEOUT, 60000);
+
+      connectionManager = new PoolingHttpClientConnectionManager();
+      connectionManager.setMaxTotal(Math.max(1, maxConnections));
+      connectionManager.setDefaultMaxPerRoute(Math.max(1, maxPerRoute));
+
+      requestConfig = RequestConfig.custom()
+               .setConnectTimeout(connectTimeout)
+               .setConnectionRequestTimeout(connectTimeout)
+               .setSocketTimeout(socketTimeout)
+               .build();
+
+      client = HttpClients.custom()
+               .setConnectionManager(connectionManager)
+               .setDefaultRequestConfig(requestConfig)
+               .setKeepAliveStrategy(new KeepAliveStrategy(idleTimeout))
+               .build();
+
+      if (log.isDebugEnabled())
+         log.debug("Initialized Proxy connection pool with [" + maxConnections + "] connections, [" + maxPerRoute
+                  + "] per route, and idle timeout [" + idleTimeout + "] ms.");
+   }
+
+   /**
+    * Get the {@link ProxyClient} of the given {@link ServletContext}, creating it if necessary.
+    */
+   public static ProxyClient getInstance(ServletContext context)
+   {
+      ProxyClient result = (ProxyClient) context.getAttribute(KEY);
+      if (result == null)
+      {
+         synchronized (context)
+         {
+            result = (ProxyClient) context.getAttribute(KEY);
+            if (result == null)
+            {
+               result = new ProxyClient(context);
+               context.setAttribute(KEY, result);
+            }
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Close the {@link ProxyClient} of the given {@link ServletContext}, if one was created, releasing all pooled
+    * connections.
+    */
+   public static void close(ServletContext context)
+   {
+      ProxyClient client = (ProxyClient) context.getAttribute(KEY);
+      if (client != null)
+      {
+         context.removeAttribute(KEY);
+         client.shutdown();
+         try {
+            client.client.close();
+         }
+         catch (IOException e) {
+            log.warn("Failed to close Proxy connection pool", e);
+         }
+      }
+   }
+
+   /**
+    * Get the pooled {@link CloseableHttpClient}. Idle and expired connections are evicted from the pool at most once
+    * per half idle timeout, as a side effect of this call.
+    */
+   public CloseableHttpClient getHttpClient()
+   {
+      if (idleTimeout > 0)
+      {
+         long now = System.currentTimeMillis();
+         if (now - lastEviction > idleTimeout / 2)
+         {
+            lastEviction = now;
+            connectionManager.closeExpiredConnections();
+            connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+         }
+      }
+      return client;
+   }
+
+   /**
+    * Get the {@link ExecutorService} that runs asynchronous {@link Proxy} operations, creating it if necessary.
+    */
+   public ExecutorService getExecutor()
+   {
+      if (executor == null)
+      {
+         synchronized (this)
+         {
+            if (executor == null)
+            {
+               ThreadPoolExecutor created = new ThreadPoolExecutor(asyncThreads, asyncThreads, 60, TimeUnit.SECONDS,
+                        new LinkedBlockingQueue<Runnable>(), new ProxyThreadFactory("rewrite-proxy-"));
+               created.allowCoreThreadTimeOut(true);
+               executor = created;
+            }
+         }
+      }
+      return executor;
+   }
+
+   /**
+    * Get the {@link ScheduledExecutorService} that expires asynchronous {@link Proxy} operations waiting for their
+    * turn, creating it if necessary.
+    */
+   ScheduledExecutorService getScheduler()
+   {
+      if (scheduler == null)
+      {
+         synchronized (this)
+         {
+            if (scheduler == null)
+            {
+               ScheduledThreadPoolExecutor created = new ScheduledThreadPoolExecutor(1, new ProxyThreadFactory(
+                        "rewrite-proxy-timer-"));
+               created.setRemoveOnCancelPolicy(true);
+               scheduler = created;
+            }
+         }
+      }
+      return scheduler;
+   }
+
+   /**
+    * Get the {@link AsyncRouteLimit} that limits the number of concurrent asynchronous {@link Proxy} operations to the
+    * given destination {@link HttpHost}.
+    */
+   AsyncRouteLimit getAsyncLimit(HttpHost host)
+   {
+      AsyncRouteLimit result = asyncLimits.get(host);
+      if (result == null)
+      {
+         AsyncRouteLimit created = new AsyncRouteLimit(asyncMaxPerRoute);
+         result = asyncLimits.putIfAbsent(host, created);
+         if (result == null)
+            result = created;
+      }
+      return result;
+   }
+
+   /**
+    * Get the default {@link RequestConfig} of the pooled {@link CloseableHttpClient}.
+    */
+   public RequestConfig getRequestConfig()
+   {
+      return requestConfig;
+   }
+
+   /**
+    * Get the number of milliseconds an asynchronous {@link Proxy} operation may wait for its turn, or <code>0</code> if
+    * it must be rejected at once when its destination is busy.
+    */
+   public long getAsyncQueueTimeout()
+   {
+      return asyncQueueTimeout;
+   }
+
+   /**
+    * Get the number of milliseconds an asynchronous {@link Proxy} operation may take in total, or <code>0</code> for no
+    * timeout.
+    */
+   public long getAsyncTimeout()
+   {
+      return asyncTimeout;
+   }
+
+   private void shutdown()
+   {
+      if (scheduler != null)
+         scheduler.shutdownNow();
+      if (executor != null)
+      {
+         for (Runnable pending : executor.shutdownNow())
+         {
+            if (pending instanceof AsyncProxyTask)
+               ((AsyncProxyTask) pending).reject();
+         }
+      }
+   }
+
+   private static class ProxyThreadFactory implements ThreadFactory
+   {
+      private final AtomicInteger count = new AtomicInteger();
+      private final String prefix;
+
+      public ProxyThreadFactory(String prefix)
+      {
+         this.prefix = prefix;
+      }
+
+      @Override
+      public Thread newThread(Runnable runnable)
+      {
+         Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+         thread.setDaemon(true);
+         return thread;
+      }
+   }
+
+   /**
+    * Honors the <code>Keep-Alive</code> header of the destination, but never keeps a connection longer than the idle
+    * timeout.
+    */
+   private static class KeepAliveStrategy implements ConnectionKeepAliveStrategy
+   {
+      private final long max;
+
+      public KeepAliveStrategy(long max)
+      {
+         this.max = max;
+      }
+
+      @Override
+      public long getKeepAliveDuration(HttpResponse response, HttpContext context)
+      {
+         long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+         if (max > 0 && (duration <= 0 || duration > max))
+            return max;
+         return duration;
+      }
+   }
+}
@@ -18,6 +18,7 @@ package org.ocpsoft.rewrite.servlet.config.proxy;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
 import java.util.BitSet;
@@ -37,12 +38,12 @@ import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.AbortableHttpRequest;
 import org.apache.http.client.params.ClientPNames;
+import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.client.utils.URIUtils;
 import org.apache.http.entity.InputStreamEntity;
-import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
 import org.apache.http.message.BasicHeader;
 import org.apache.http.message.BasicHttpEntityEnclosingRequest;
 import org.apache.http.message.BasicHttpRequest;
@@ -88,6 +89,7 @@ public class ProxyServlet
    protected URI targetUriObj;
    protected String targetUri;
    protected HttpClient proxyClient;
+   protected RequestConfig requestConfig;
 
    private ServletConfig servletConfig;
 
@@ -98,6 +100,7 @@ public class ProxyServlet
       return servletConfig;
    }
 
+   @SuppressWarnings("deprecation")
    public void init(ServletConfig servletConfig) throws ServletException
    {
       this.servletConfig = servletConfig;
@@ -117,19 +120,50 @@ public class ProxyServlet
       }
       targetUri = targetUriObj.toString();
 
+      /*
+       * Go through the deprecated hooks, so that subclasses overriding them keep working
+       */
       HttpParams hcParams = new BasicHttpParams();
       readConfigParam(hcParams, ClientPNames.HANDLE_REDIRECTS, Boolean.class);
       proxyClient = createHttpClient(hcParams);
+      requestConfig = ProxyClient.getInstance(servletConfig.getServletContext()).getRequestConfig();
+
+      Object redirects = hcParams.getParameter(ClientPNames.HANDLE_REDIRECTS);
+      if (redirects instanceof Boolean)
+      {
+         requestConfig = RequestConfig.copy(requestConfig).setRedirectsEnabled((Boolean) redirects).build();
+      }
    }
 
    /**
-    * Called from {@link #init(javax.servlet.ServletConfig)}. HttpClient offers many opportunities for customization.
+    * Called from {@link #init(javax.servlet.ServletConfig)}. By default, returns the pooled {@link HttpClient} shared
+    * by all {@link ProxyServlet} instances of the current {@link javax.servlet.ServletContext}.
+    */
+   protected HttpClient createHttpClient(ProxyClient pool)
+   {
+      return pool.getHttpClient();
+   }
+
+   /**
+    * Called from {@link #init(javax.servlet.ServletConfig)}. By default, delegates to
+    * {@link #createHttpClient(ProxyClient)} with the pool of the current {@link javax.servlet.ServletContext}; the given
+    * {@link HttpParams} are not applied to the pooled client.
+    * 
+    * @deprecated Override {@link #createHttpClient(ProxyClient)} instead.
     */
+   @Deprecated
    protected HttpClient createHttpClient(HttpParams hcParams)
    {
-      return new DefaultHttpClient(new ThreadSafeClientConnManager(), hcParams);
+      return createHttpClient(ProxyClient.getInstance(getServletConfig().getServletContext()));
    }
 
+   /**
+    * Copy the init parameter with the given name, if any, into the given {@link HttpParams}. Only
+    * {@link ClientPNames#HANDLE_REDIRECTS} is applied to proxied requests.
+    * 
+    * @deprecated Configure the pooled client with {@link ProxyClient} context init parameters instead.
+    */
+   @Deprecated
    protected void readConfigParam(HttpParams hcParams, String hcParamName, Class type)
    {
       String val_str = getServletConfig().getInitParameter(hcParamName);
@@ -160,10 +194,8 @@ public class ProxyServlet
    public void destroy()
    {
       /*
-       * shutdown() must be called according to documentation.
+       * The pooled client is owned by the ServletContext, and is closed by ProxyContextListener.
        */
-      if (proxyClient != null)
-         proxyClient.getConnectionManager().shutdown();
    }
 
    protected void service(HttpServletRequest servletRequest, HttpServletResponse servletResponse)
@@ -194,6 +226,7 @@ public class ProxyServlet
 
       copyRequestHeaders(servletRequest, proxyRequest);
 
+      HttpResponse proxyResponse = null;
       try
       {
          /*
@@ -204,7 +237,9 @@ public class ProxyServlet
             logger.debug("proxy " + method + " uri: " + servletRequest.getRequestURI() + " -- "
                      + proxyRequest.getRequestLine().getUri());
          }
-         HttpResponse proxyResponse = proxyClient.execute(URIUtils.extractHost(targetUriObj), proxyRequest);
+         HttpClientContext clientContext = HttpClientContext.create();
+         clientContext.setRequestConfig(requestConfig);
+         proxyResponse = proxyClient.execute(URIUtils.extractHost(targetUriObj), proxyRequest, clientContext);
 
          /*
           * Process the response
@@ -253,6 +288,14 @@ public class ProxyServlet
             throw (IOException) e;
          throw new RuntimeException(e);
       }
+      finally
+      {
+         /*
+          * Return the connection to the pool, or discard it if the entity was not fully consumed
+          */
+         if (proxyResponse instanceof Closeable)
+            closeQuietly((Closeable) proxyResponse);
+      }
    }
 
    protected boolean doResponseRedirectOrNotModifiedLogic(
@@ -378,7 +421,8 @@ public class ProxyServlet
    }
 
    /**
-    * Copy response body data (the entity) from the proxy to the servlet client.
+    * Copy response body data (the entity) from the proxy to the servlet client. Data is streamed as it arrives, and
+    * flushed to the client whenever the proxy has no more data immediately available.
     */
    protected void copyResponseEntity(HttpResponse proxyResponse, HttpServletResponse servletResponse)
             throws IOException
@@ -389,7 +433,22 @@ public class ProxyServlet
          OutputStream servletOutputStream = servletResponse.getOutputStream();
          try
          {
-            entity.writeTo(servletOutputStream);
+            InputStream content = entity.getContent();
+            try
+            {
+               byte[] buffer = new byte[8192];
+               int read;
+               while ((read = content.read(buffer)) != -1)
+               {
+                  servletOutputStream.write(buffer, 0, read);
+                  if (content.available() == 0)
+                     servletOutputStream.flush();
+               }
+            }
+            finally
+            {
+               closeQuietly(content);
+            }
          }
          finally
          {
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.ocpsoft.rewrite.servlet.config.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.http.client.config.RequestConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class AsyncProxyTaskTest
+{
+   private ServletContext context;
+   private ProxyClient client;
+
+   @Before
+   public void setUp()
+   {
+      context = mock(ServletContext.class);
+      when(context.getInitParameter(ProxyClient.ASYNC_MAX_PER_ROUTE)).thenReturn("1");
+      when(context.getInitParameter(ProxyClient.ASYNC_TIMEOUT)).thenReturn("30000");
+   }
+
+   @After
+   public void tearDown()
+   {
+      ProxyClient.close(context);
+   }
+
+   private void createClient(int queueTimeout)
+   {
+      when(context.getInitParameter(ProxyClient.ASYNC_QUEUE_TIMEOUT)).thenReturn(String.valueOf(queueTimeout));
+      client = ProxyClient.getInstance(context);
+      when(context.getAttribute(anyString())).thenReturn(client);
+   }
+
+   @Test
+   public void testQueuedRequestRunsWhenDestinationBecomesAvailable() throws Exception
+   {
+      CountDownLatch latch = new CountDownLatch(1);
+      TestServlet first = new TestServlet(latch, null);
+      TestServlet second = new TestServlet(null, null);
+      createClient(10000);
+
+      Exchange a = start(first);
+      assertTrue(first.started.await(5, TimeUnit.SECONDS));
+      Exchange b = start(second);
+
+      Thread.sleep(100);
+      assertEquals(0, second.calls.get());
+
+      latch.countDown();
+      verify(a.async, timeout(5000)).complete();
+      verify(b.async, timeout(5000)).complete();
+      assertEquals(1, second.calls.get());
+      verify(b.response, never()).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+   }
+
+   @Test
+   public void testQueuedRequestRejectedAfterQueueTimeout() throws Exception
+   {
+      CountDownLatch latch = new CountDownLatch(1);
+      TestServlet first = new TestServlet(latch, null);
+      TestServlet second = new TestServlet(null, null);
+      createClient(100);
+
+      Exchange a = start(first);
+      assertTrue(first.started.await(5, TimeUnit.SECONDS));
+      Exchange b = start(second);
+
+      verify(b.response, timeout(5000)).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      verify(b.async, timeout(5000)).complete();
+
+      latch.countDown();
+      verify(a.async, timeout(5000)).complete();
+      assertEquals(0, second.calls.get());
+   }
+
+   @Test
+   public void testDestinationTimeoutAnswersGatewayTimeout() throws Exception
+   {
+      createClient(100);
+      Exchange a = start(new TestServlet(null, new SocketTimeoutException("Read timed out")));
+      verify(a.response, timeout(5000)).setStatus(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+      verify(a.async, timeout(5000)).complete();
+   }
+
+   @Test
+   public void testDestinationFailureAnswersBadGateway() throws Exception
+   {
+      createClient(100);
+      Exchange a = start(new TestServlet(null, new IOException("Connection reset")));
+      verify(a.response, timeout(5000)).setStatus(HttpServletResponse.SC_BAD_GATEWAY);
+      verify(a.async, timeout(5000)).complete();
+   }
+
+   @Test
+   public void testAsyncTimeoutAnswersGatewayTimeoutOnce() throws Exception
+   {
+      CountDownLatch latch = new CountDownLatch(1);
+      TestServlet servlet = new TestServlet(latch, null);
+      createClient(100);
+      Exchange a = start(servlet);
+      assertTrue(servlet.started.await(5, TimeUnit.SECONDS));
+
+      a.listener.onTimeout(null);
+      verify(a.response).setStatus(HttpServletResponse.SC_GATEWAY_TIMEOUT);
+      verify(a.async).complete();
+
+      latch.countDown();
+      Thread.sleep(100);
+      verify(a.async, times(1)).complete();
+   }
+
+   @Test
+   public void testSocketTimeoutBoundedByAsyncTimeout() throws Exception
+   {
+      TestServlet servlet = new TestServlet(null, null);
+      createClient(100);
+      Exchange a = start(servlet);
+      verify(a.async, timeout(5000)).complete();
+      verify(a.async).setTimeout(30000);
+      assertEquals(30000, servlet.requestConfig.getSocketTimeout());
+   }
+
+   private Exchange start(ProxyServlet servlet)
+   {
+      Exchange exchange = new Exchange();
+      AsyncProxyTask.start(servlet, client, exchange.request, exchange.response);
+      ArgumentCaptor<AsyncListener> listener = ArgumentCaptor.forClass(AsyncListener.class);
+      verify(exchange.async).addListener(listener.capture());
+      exchange.listener = listener.getValue();
+      return exchange;
+   }
+
+   private static class Exchange
+   {
+      final HttpServletRequest request = mock(HttpServletRequest.class);
+      final HttpServletResponse response = mock(HttpServletResponse.class);
+      final AsyncContext async = mock(AsyncContext.class);
+      AsyncListener listener;
+
+      Exchange()
+      {
+         when(request.startAsync(any(HttpServletRequest.class), any(HttpServletResponse.class))).thenReturn(async);
+         when(request.getRequestURI()).thenReturn("/proxy");
+         when(async.getRequest()).thenReturn(request);
+         when(async.getResponse()).thenReturn(response);
+      }
+   }
+
+   private static class TestServlet extends ProxyServlet
+   {
+      final AtomicInteger calls = new AtomicInteger();
+      final CountDownLatch started = new CountDownLatch(1);
+      private final CountDownLatch latch;
+      private final Exception failure;
+
+      TestServlet(CountDownLatch latch, Exception failure)
+      {
+         this.latch = latch;
+         this.failure = failure;
+         this.targetUriObj = URI.create("http://localhost:8080/target");
+         this.targetUri = targetUriObj.toString();
+         this.requestConfig = RequestConfig.custom().setSocketTimeout(0).build();
+      }
+
+      @Override
+      protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+               IOException
+      {
+         calls.incrementAndGet();
+         started.countDown();
+         try {
+            if (latch != null)
+               latch.await(5, TimeUnit.SECONDS);
+         }
+         catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+         }
+         if (failure instanceof IOException)
+            throw (IOException) failure;
+      }
+   }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.ocpsoft.rewrite.servlet.config.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class AsyncRouteLimitTest
+{
+   private static Runnable task()
+   {
+      return new Runnable() {
+         @Override
+         public void run()
+         {}
+      };
+   }
+
+   @Test
+   public void testAcquireUpToLimit()
+   {
+      AsyncRouteLimit limit = new AsyncRouteLimit(2);
+      assertTrue(limit.acquire(task()));
+      assertTrue(limit.acquire(task()));
+      assertFalse(limit.acquire(task()));
+      assertEquals(2, limit.getActive());
+      assertEquals(1, limit.getWaiting());
+   }
+
+   @Test
+   public void testReleaseHandsPermitToWaitersInOrder()
+   {
+      AsyncRouteLimit limit = new AsyncRouteLimit(1);
+      Runnable first = task();
+      Runnable second = task();
+      Runnable third = task();
+      assertTrue(limit.acquire(first));
+      assertFalse(limit.acquire(second));
+      assertFalse(limit.acquire(third));
+
+      assertSame(second, limit.release());
+      assertSame(third, limit.release());
+      assertEquals(1, limit.getActive());
+      assertNull(limit.release());
+      assertEquals(0, limit.getActive());
+   }
+
+   @Test
+   public void testRemovedWaiterIsSkipped()
+   {
+      AsyncRouteLimit limit = new AsyncRouteLimit(1);
+      Runnable second = task();
+      Runnable third = task();
+      limit.acquire(task());
+      limit.acquire(second);
+      limit.acquire(third);
+
+      assertTrue(limit.remove(second));
+      assertFalse(limit.remove(second));
+      assertSame(third, limit.release());
+      assertFalse(limit.remove(third));
+   }
+
+   @Test
+   public void testReleaseNeverGoesNegative()
+   {
+      AsyncRouteLimit limit = new AsyncRouteLimit(1);
+      assertNull(limit.release());
+      assertEquals(0, limit.getActive());
+      assertTrue(limit.acquire(task()));
+      assertFalse(limit.acquire(task()));
+   }
+
+   @Test(expected = IllegalArgumentException.class)
+   public void testLimitMustBePositive()
+   {
+      new AsyncRouteLimit(0);
+   }
+}
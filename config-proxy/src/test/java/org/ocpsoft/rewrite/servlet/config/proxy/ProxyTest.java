@@ -0,0 +1,135 @@
+/*
+ * Copyright 2013 Red Hat, Inc. and/or its affiliates.
+ *
+ * Licensed under the Eclipse Public License version 1.0, available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.ocpsoft.rewrite.servlet.config.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.http.client.config.RequestConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ocpsoft.rewrite.servlet.RewriteWrappedResponse;
+
+/**
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class ProxyTest
+{
+   private ServletContext context;
+   private HttpServletRequest request;
+   private HttpServletResponse response;
+   private AsyncContext async;
+   private RewriteWrappedResponse wrapped;
+
+   @Before
+   public void setUp()
+   {
+      context = mock(ServletContext.class);
+      ProxyClient client = ProxyClient.getInstance(context);
+      when(context.getAttribute(anyString())).thenReturn(client);
+
+      request = mock(HttpServletRequest.class);
+      response = mock(HttpServletResponse.class);
+      async = mock(AsyncContext.class);
+      wrapped = mock(RewriteWrappedResponse.class);
+      when(request.isAsyncSupported()).thenReturn(true);
+      when(request.startAsync(any(HttpServletRequest.class), any(HttpServletResponse.class))).thenReturn(async);
+      when(request.getAttribute(anyString())).thenReturn(wrapped);
+      when(async.getRequest()).thenReturn(request);
+      when(async.getResponse()).thenReturn(response);
+   }
+
+   @After
+   public void tearDown()
+   {
+      ProxyClient.close(context);
+   }
+
+   @Test
+   public void testAsyncProxyReleasesContainerThread() throws Exception
+   {
+      TestServlet servlet = new TestServlet();
+      Proxy.to("http://localhost:8080/target").withAsync().proxy(servlet, context, request, response);
+
+      assertTrue(servlet.await());
+      verify(async, timeout(5000)).complete();
+      verify(request).startAsync(request, response);
+      assertNotSame(Thread.currentThread(), servlet.thread);
+   }
+
+   @Test
+   public void testAsyncProxyOfWrappedStreamIsSynchronous() throws Exception
+   {
+      when(wrapped.isResponseStreamWrapped()).thenReturn(true);
+
+      TestServlet servlet = new TestServlet();
+      Proxy.to("http://localhost:8080/target").withAsync().proxy(servlet, context, request, response);
+
+      assertEquals(0, servlet.serviced.getCount());
+      assertSame(Thread.currentThread(), servlet.thread);
+      verify(request, never()).startAsync(any(HttpServletRequest.class), any(HttpServletResponse.class));
+   }
+
+   @Test
+   public void testAsyncProxyOfInterceptedContentIsSynchronous() throws Exception
+   {
+      when(wrapped.isResponseContentIntercepted()).thenReturn(true);
+
+      TestServlet servlet = new TestServlet();
+      Proxy.to("http://localhost:8080/target").withAsync().proxy(servlet, context, request, response);
+
+      assertSame(Thread.currentThread(), servlet.thread);
+      verify(request, never()).startAsync(any(HttpServletRequest.class), any(HttpServletResponse.class));
+   }
+
+   private static class TestServlet extends ProxyServlet
+   {
+      final CountDownLatch serviced = new CountDownLatch(1);
+      volatile Thread thread;
+
+      TestServlet()
+      {
+         this.targetUriObj = URI.create("http://localhost:8080/target");
+         this.targetUri = targetUriObj.toString();
+         this.requestConfig = RequestConfig.custom().build();
+      }
+
+      @Override
+      protected void service(HttpServletRequest request, HttpServletResponse response) throws ServletException,
+               IOException
+      {
+         thread = Thread.currentThread();
+         serviced.countDown();
+      }
+
+      boolean await() throws InterruptedException
+      {
+         return serviced.await(5, TimeUnit.SECONDS);
+      }
+   }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.ocpsoft.logging.Logger;
+import org.ocpsoft.rewrite.servlet.config.Stream.Overflow;
+
+/**
+ * {@link OutputStream} that copies written bytes into a bounded ring buffer, from which a shared background thread
+ * writes them to a {@link File} in batches. Writing never waits for the disk unless the ring buffer is full and the
+ * {@link Overflow} policy is {@link Overflow#BLOCK}. The {@link File} is opened, and any previous contents discarded,
+ * when the stream is created. {@link #close()} returns immediately; the {@link File} is closed by the background thread
+ * once all captured bytes have been written.
+ * <p>
+ * The background thread writes one batch at a time and then moves on to the next stream waiting for it, so that a
+ * large or fast response cannot hold up the captures of other responses.
+ * <p>
+ * If writing the {@link File} fails, the error is logged and all further bytes are discarded, so that the response
+ * being captured is never affected.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+class AsyncFileOutputStream extends OutputStream implements Runnable
+{
+   private static final Logger log = Logger.getLogger(AsyncFileOutputStream.class);
+
+   /*
+    * A single writer keeps disk access sequential; it exits when idle so that no thread outlives the application.
+    */
+   private static final ExecutorService WRITER = new ThreadPoolExecutor(0, 1, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+               @Override
+               public Thread newThread(Runnable runnable)
+               {
+                  Thread thread = new Thread(runnable, "Rewrite Stream.to writer");
+                  thread.setDaemon(true);
+                  return thread;
+               }
+            });
+
+   private final File file;
+   private final OutputStream out;
+   private final Overflow overflow;
+   private final Executor writer;
+
+   /*
+    * Bytes [head, head + size) modulo the capacity are waiting to be written. The writer reads its snapshot of that
+    * region without holding the lock, which is safe because writers only ever fill the free region.
+    */
+   private final byte[] ring;
+   private int head = 0;
+   private int size = 0;
+
+   /*
+    * Bytes that did not fit in the ring buffer under Overflow.SPILL; always newer than the ring buffer contents.
+    */
+   private final Queue<byte[]> spilled = new ArrayDeque<byte[]>();
+
+   private long dropped = 0;
+   private boolean scheduled = false;
+   private boolean closed = false;
+   private boolean failed = false;
+
+   public AsyncFileOutputStream(File file, int capacity, Overflow overflow) throws FileNotFoundException
+   {
+      this(file, new FileOutputStream(file), capacity, overflow, WRITER);
+   }
+
+   AsyncFileOutputStream(File file, OutputStream out, int capacity, Overflow overflow, Executor writer)
+   {
+      if (capacity <= 0)
+         throw new IllegalArgumentException("Capacity must be positive, but was [" + capacity + "]");
+      if (overflow == null)
+         throw new IllegalArgumentException("Overflow policy must not be null.");
+
+      this.file = file;
+      this.out = out;
+      this.overflow = overflow;
+      this.writer = writer;
+      this.ring = new byte[capacity];
+   }
+
+   @Override
+   public void write(int b) throws IOException
+   {
+      write(new byte[] { (byte) b }, 0, 1);
+   }
+
+   @Override
+   public synchronized void write(byte[] b, int off, int len) throws IOException
+   {
+      if (closed)
+         throw new IOException("Stream closed");
+
+      while (len > 0 && !failed)
+      {
+         if (spilled.isEmpty() && size < ring.length)
+         {
+            int tail = (head + size) % ring.length;
+            int count = Math.min(len, Math.min(ring.length - size, ring.length - tail));
+            System.arraycopy(b, off, ring, tail, count);
+            size += count;
+            off += count;
+            len -= count;
+         }
+         else if (overflow == Overflow.BLOCK)
+         {
+            schedule();
+            try {
+               wait();
+            }
+            catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               throw new InterruptedIOException("Interrupted while waiting to capture response to [" + file + "]");
+            }
+         }
+         else if (overflow == Overflow.SPILL)
+         {
+            spilled.add(Arrays.copyOfRange(b, off, off + len));
+            len = 0;
+         }
+         else
+         {
+            dropped += len;
+            len = 0;
+         }
+      }
+
+      schedule();
+   }
+
+   @Override
+   public synchronized void close()
+   {
+      if (!closed)
+      {
+         closed = true;
+         schedule();
+      }
+   }
+
+   private void schedule()
+   {
+      if (!scheduled && !failed && (size > 0 || !spilled.isEmpty() || closed))
+      {
+         scheduled = true;
+         writer.execute(this);
+      }
+   }
+
+   /**
+    * Write the next batch of captured bytes to the {@link File}, then queue this stream behind any others waiting for
+    * the background thread if there is more to write.
+    */
+   @Override
+   public void run()
+   {
+      try {
+         int start;
+         int count;
+         byte[] chunk = null;
+         synchronized (this)
+         {
+            start = head;
+            count = Math.min(size, ring.length - head);
+            if (count == 0)
+            {
+               chunk = spilled.poll();
+               if (chunk == null && !closed)
+               {
+                  scheduled = false;
+                  return;
+               }
+            }
+         }
+
+         if (count > 0)
+         {
+            out.write(ring, start, count);
+            synchronized (this)
+            {
+               head = (start + count) % ring.length;
+               size -= count;
+               notifyAll();
+            }
+         }
+         else if (chunk != null)
+            out.write(chunk);
+         else
+         {
+            out.close();
+            if (dropped > 0)
+               log.warn("Dropped [" + dropped + "] bytes of the response captured to [" + file
+                        + "] because the capture buffer was full.");
+            return;
+         }
+
+         writer.execute(this);
+      }
+      catch (IOException e) {
+         log.error("Could not write captured response to [" + file + "]", e);
+         synchronized (this)
+         {
+            failed = true;
+            size = 0;
+            spilled.clear();
+            scheduled = false;
+            notifyAll();
+         }
+         try {
+            out.close();
+         }
+         catch (IOException ignored) {}
+      }
+   }
+}
@@ -24,6 +24,7 @@ import org.ocpsoft.common.pattern.WeightedComparator;
 import org.ocpsoft.common.services.ServiceLoader;
 import org.ocpsoft.common.util.Iterators;
 import org.ocpsoft.common.util.Strings;
+import org.ocpsoft.rewrite.config.CacheableCondition;
 import org.ocpsoft.rewrite.config.Condition;
 import org.ocpsoft.rewrite.context.EvaluationContext;
 import org.ocpsoft.rewrite.servlet.DispatcherType;
@@ -35,7 +36,7 @@ import org.ocpsoft.rewrite.servlet.spi.DispatcherTypeProvider;
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public class DispatchType extends HttpCondition
+public class DispatchType extends HttpCondition implements CacheableCondition
 {
    private final static String PROVIDER_KEY = DispatchType.class.getName() + "_PROVIDERS";
 
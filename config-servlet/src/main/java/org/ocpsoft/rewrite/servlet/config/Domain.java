@@ -15,29 +15,33 @@
  */
 package org.ocpsoft.rewrite.servlet.config;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
 
 import org.ocpsoft.common.util.Assert;
+import org.ocpsoft.rewrite.config.CacheableCondition;
 import org.ocpsoft.rewrite.config.Condition;
 import org.ocpsoft.rewrite.config.ConfigurationRuleParameterBuilder;
 import org.ocpsoft.rewrite.context.EvaluationContext;
 import org.ocpsoft.rewrite.param.ParameterStore;
 import org.ocpsoft.rewrite.param.Parameterized;
 import org.ocpsoft.rewrite.param.ParameterizedPattern;
+import org.ocpsoft.rewrite.param.ParameterizedPatternHolder;
 import org.ocpsoft.rewrite.param.ParameterizedPatternParser;
 import org.ocpsoft.rewrite.param.RegexParameterizedPatternParser;
-import org.ocpsoft.rewrite.servlet.http.event.HttpOutboundServletRewrite;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.servlet.util.ParsedAddress;
 import org.ocpsoft.urlbuilder.Address;
 
 /**
- * A {@link Condition} that inspects the value of {@link HttpServletRequest#getServerName()}
+ * A {@link Condition} that inspects the value of {@link HttpServletRequest#getServerName()}, in lower case
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public class Domain extends HttpCondition implements Parameterized
+public class Domain extends HttpCondition implements Parameterized, CacheableCondition, ParameterizedPatternHolder
 {
    private final ParameterizedPatternParser expression;
 
@@ -72,17 +76,7 @@ public class Domain extends HttpCondition implements Parameterized
    @Override
    public boolean evaluateHttp(final HttpServletRewrite event, final EvaluationContext context)
    {
-      String hostName = null;
-
-      if (event instanceof HttpOutboundServletRewrite)
-      {
-         hostName = event.getAddress().getDomain();
-         if (hostName == null)
-            hostName = event.getRequest().getServerName();
-      }
-      else
-         hostName = event.getRequest().getServerName();
-
+      String hostName = ParsedAddress.of(event).getHost();
       return (hostName != null && expression.parse(hostName).submit(event, context));
    }
 
@@ -100,6 +94,12 @@ public class Domain extends HttpCondition implements Parameterized
       return "Domain.matches(\"" + expression.getPattern() + "\")";
    }
 
+   @Override
+   public List<ParameterizedPatternParser> getPatternParsers()
+   {
+      return Arrays.asList(expression);
+   }
+
    @Override
    public Set<String> getRequiredParameterNames()
    {
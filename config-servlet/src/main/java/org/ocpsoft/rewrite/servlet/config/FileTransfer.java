@@ -0,0 +1,314 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.ocpsoft.logging.Logger;
+import org.ocpsoft.rewrite.exception.RewriteException;
+import org.ocpsoft.rewrite.servlet.RewriteWrappedResponse;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+
+/**
+ * Writes a {@link File} to the {@link HttpServletResponse}, with the validators, conditional request handling, and
+ * byte range support that a static file server would provide:
+ * <ul>
+ * <li>"ETag" and "Last-Modified" headers, derived from the length and modification time of the {@link File}</li>
+ * <li>"304 Not Modified" for matching "If-None-Match" or "If-Modified-Since" headers, without opening the
+ * {@link File}</li>
+ * <li>"206 Partial Content" for a single "Range" (honoring "If-Range"), or "416 Range Not Satisfiable"</li>
+ * <li>"Content-Length"</li>
+ * </ul>
+ * Content is read through a {@link FileChannel}, and handed to the container without copying when it supports it:
+ * either by {@link FileChannel#transferTo(long, long, WritableByteChannel)} if its output stream is a
+ * {@link WritableByteChannel}, or through the Tomcat "sendfile" request attributes. Byte ranges and container
+ * hand-off are disabled while response content is intercepted or wrapped, since the bytes written are then not the
+ * bytes sent.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+final class FileTransfer
+{
+   private static final Logger log = Logger.getLogger(FileTransfer.class);
+
+   private static final int BUFFER_SIZE = 64 * 1024;
+
+   private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+   private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+   private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+   private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+   /*
+    * Below this size, an ordinary write is cheaper than handing the file to the container.
+    */
+   private static final long SENDFILE_THRESHOLD = 48 * 1024;
+
+   static final long[] UNSATISFIABLE = new long[0];
+
+   private FileTransfer()
+   {}
+
+   /**
+    * Write the given {@link File} to the {@link HttpServletResponse} of the given event.
+    */
+   public static void write(HttpServletRewrite event, File file)
+   {
+      HttpServletRequest request = event.getRequest();
+      HttpServletResponse response = event.getResponse();
+
+      if (!file.isFile())
+         throw new RewriteException("Error streaming file.", new FileNotFoundException(file.getPath()));
+
+      long length = file.length();
+      long lastModified = file.lastModified() / 1000 * 1000;
+      String etag = "\"" + Long.toHexString(lastModified) + "-" + Long.toHexString(length) + "\"";
+
+      String method = request.getMethod();
+      boolean head = "HEAD".equals(method);
+      boolean direct = !response.isCommitted() && isUnwrapped(request);
+
+      long start = 0;
+      long count = length;
+
+      if (!response.isCommitted())
+      {
+         /*
+          * Content that is transformed on its way out is only weakly equivalent to the file.
+          */
+         response.setHeader("ETag", direct ? etag : "W/" + etag);
+         response.setDateHeader("Last-Modified", lastModified);
+
+         if ((head || "GET".equals(method)) && isNotModified(request, etag, lastModified))
+         {
+            log.debug("File [" + file + "] not modified.");
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+         }
+
+         if (direct)
+         {
+            response.setHeader("Accept-Ranges", "bytes");
+
+            String header = request.getHeader("Range");
+            if (header != null && "GET".equals(method) && isRangeCurrent(request, etag, lastModified))
+            {
+               long[] range = parseRange(header, length);
+               if (range == UNSATISFIABLE)
+               {
+                  response.setHeader("Content-Range", "bytes */" + length);
+                  response.setStatus(416);
+                  return;
+               }
+               else if (range != null)
+               {
+                  start = range[0];
+                  count = range[1] - range[0] + 1;
+                  response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                  response.setHeader("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + length);
+               }
+            }
+         }
+
+         if (count <= Integer.MAX_VALUE)
+            response.setContentLength((int) count);
+         else if (direct)
+            response.setHeader("Content-Length", String.valueOf(count));
+      }
+
+      if (head || count == 0)
+         return;
+
+      if (direct && count >= SENDFILE_THRESHOLD && sendfile(request, file, start, count))
+         return;
+
+      try {
+         transfer(file, start, count, response.getOutputStream());
+      }
+      catch (IOException e) {
+         throw new RewriteException("Error streaming file.", e);
+      }
+   }
+
+   private static boolean isUnwrapped(HttpServletRequest request)
+   {
+      RewriteWrappedResponse wrapped = RewriteWrappedResponse.getCurrentInstance(request);
+      return wrapped == null || (!wrapped.isResponseContentIntercepted() && !wrapped.isResponseStreamWrapped());
+   }
+
+   static boolean isNotModified(HttpServletRequest request, String etag, long lastModified)
+   {
+      String ifNoneMatch = request.getHeader("If-None-Match");
+      if (ifNoneMatch != null)
+         return matches(ifNoneMatch, etag);
+
+      long ifModifiedSince = getDateHeader(request, "If-Modified-Since");
+      return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+   }
+
+   /**
+    * Weak comparison of the given entity tag against a list of entity tags, or "*".
+    */
+   private static boolean matches(String header, String etag)
+   {
+      if ("*".equals(header.trim()))
+         return true;
+
+      for (String candidate : header.split(","))
+      {
+         candidate = candidate.trim();
+         if (candidate.startsWith("W/"))
+            candidate = candidate.substring(2);
+         if (candidate.equals(etag))
+            return true;
+      }
+      return false;
+   }
+
+   /**
+    * Return <code>true</code> if a "Range" request should be honored, because there is no "If-Range" header or it
+    * strongly matches the current representation.
+    */
+   static boolean isRangeCurrent(HttpServletRequest request, String etag, long lastModified)
+   {
+      String ifRange = request.getHeader("If-Range");
+      if (ifRange == null)
+         return true;
+
+      ifRange = ifRange.trim();
+      if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+         return ifRange.equals(etag);
+
+      return getDateHeader(request, "If-Range") == lastModified;
+   }
+
+   private static long getDateHeader(HttpServletRequest request, String name)
+   {
+      try {
+         return request.getDateHeader(name);
+      }
+      catch (IllegalArgumentException e) {
+         return -1;
+      }
+   }
+
+   /**
+    * Parse a "Range" header into the first and last byte positions of a single range. Returns <code>null</code> if
+    * the header is malformed or requests several ranges, in which case the whole {@link File} is sent, or
+    * {@link #UNSATISFIABLE} if no requested byte exists.
+    */
+   static long[] parseRange(String header, long length)
+   {
+      if (!header.regionMatches(true, 0, "bytes=", 0, 6))
+         return null;
+
+      String spec = header.substring(6).trim();
+      int dash = spec.indexOf('-');
+      if (dash < 0 || spec.indexOf(',') >= 0)
+         return null;
+
+      try {
+         String first = spec.substring(0, dash).trim();
+         String last = spec.substring(dash + 1).trim();
+
+         if (first.isEmpty())
+         {
+            long suffix = Long.parseLong(last);
+            if (suffix < 0)
+               return null;
+            if (suffix == 0 || length == 0)
+               return UNSATISFIABLE;
+            return new long[] { Math.max(0, length - suffix), length - 1 };
+         }
+
+         long start = Long.parseLong(first);
+         long end = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+         if (start < 0 || end < start)
+            return null;
+         if (start >= length)
+            return UNSATISFIABLE;
+         return new long[] { start, Math.min(end, length - 1) };
+      }
+      catch (NumberFormatException e) {
+         return null;
+      }
+   }
+
+   private static boolean sendfile(HttpServletRequest request, File file, long start, long count)
+   {
+      if (!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT)))
+         return false;
+
+      try {
+         request.setAttribute(SENDFILE_FILENAME, file.getCanonicalPath());
+      }
+      catch (IOException e) {
+         return false;
+      }
+      request.setAttribute(SENDFILE_START, start);
+      request.setAttribute(SENDFILE_END, start + count);
+      log.debug("Handed file [" + file + "] to container sendfile.");
+      return true;
+   }
+
+   private static void transfer(File file, long start, long count, OutputStream out) throws IOException
+   {
+      FileInputStream in = new FileInputStream(file);
+      try {
+         FileChannel channel = in.getChannel();
+         long position = start;
+         long end = start + count;
+
+         if (out instanceof WritableByteChannel)
+         {
+            while (position < end)
+            {
+               long transferred = channel.transferTo(position, end - position, (WritableByteChannel) out);
+               if (transferred <= 0)
+                  throw new IOException("File [" + file + "] was truncated while streaming.");
+               position += transferred;
+            }
+         }
+         else
+         {
+            byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, count)];
+            ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+            while (position < end)
+            {
+               wrapped.clear();
+               wrapped.limit((int) Math.min(buffer.length, end - position));
+               int read = channel.read(wrapped, position);
+               if (read < 0)
+                  throw new IOException("File [" + file + "] was truncated while streaming.");
+               out.write(buffer, 0, read);
+               position += read;
+            }
+         }
+      }
+      finally {
+         in.close();
+      }
+   }
+}
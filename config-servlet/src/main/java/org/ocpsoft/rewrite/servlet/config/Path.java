@@ -15,38 +15,44 @@
  */
 package org.ocpsoft.rewrite.servlet.config;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
 
 import org.ocpsoft.common.util.Assert;
+import org.ocpsoft.rewrite.config.CacheableCondition;
 import org.ocpsoft.rewrite.config.Condition;
 import org.ocpsoft.rewrite.config.ConfigurationRuleParameterBuilder;
+import org.ocpsoft.rewrite.config.IndexableCondition;
 import org.ocpsoft.rewrite.context.EvaluationContext;
 import org.ocpsoft.rewrite.param.ConfigurableParameter;
 import org.ocpsoft.rewrite.param.Parameter;
 import org.ocpsoft.rewrite.param.ParameterStore;
 import org.ocpsoft.rewrite.param.Parameterized;
 import org.ocpsoft.rewrite.param.ParameterizedPattern;
+import org.ocpsoft.rewrite.param.ParameterizedPatternHolder;
 import org.ocpsoft.rewrite.param.ParameterizedPatternParser;
 import org.ocpsoft.rewrite.param.RegexConstraint;
 import org.ocpsoft.rewrite.param.RegexParameterizedPatternParser;
 import org.ocpsoft.rewrite.servlet.config.bind.RequestBinding;
-import org.ocpsoft.rewrite.servlet.http.event.HttpOutboundServletRewrite;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
 import org.ocpsoft.rewrite.servlet.spi.RequestParameterProvider;
+import org.ocpsoft.rewrite.servlet.util.ParsedAddress;
 import org.ocpsoft.urlbuilder.Address;
-import org.ocpsoft.urlbuilder.AddressBuilder;
 
 /**
  * A {@link Condition} that inspects the value of {@link HttpServletRewrite#getRequestPath()}
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public abstract class Path extends HttpCondition implements Parameterized
+public abstract class Path extends HttpCondition implements Parameterized, CacheableCondition, IndexableCondition,
+         ParameterizedPatternHolder
 {
-   private final ParameterizedPatternParser expression;
+   private final RegexParameterizedPatternParser expression;
    private boolean withRequestBinding = false;
    private String captureIn;
 
@@ -118,21 +124,10 @@ public abstract class Path extends HttpCondition implements Parameterized
    @Override
    public boolean evaluateHttp(final HttpServletRewrite event, final EvaluationContext context)
    {
-      String url = null;
-
-      if (event instanceof HttpOutboundServletRewrite)
-      {
-         url = ((HttpOutboundServletRewrite) event).getOutboundAddress().getPath();
-         if (url == null) // e.g an external url like http://ocpsoft.org (without trailing slash) or an anchor link have
-                          // a null path
-            return false;
-      }
-      else
-         url = AddressBuilder.begin().pathDecoded(event.getInboundAddress().getPath()).buildLiteral().toString();
-
-      String contextPath = event.getContextPath();
-      if (!contextPath.equals("/") && url.startsWith(contextPath))
-         url = url.substring(contextPath.length());
+      String url = ParsedAddress.of(event).getPath();
+      if (url == null) // e.g an external url like http://ocpsoft.org (without trailing slash) or an anchor link have
+                       // a null path
+         return false;
 
       return expression.parse(url).submit(event, context);
    }
@@ -145,6 +140,24 @@ public abstract class Path extends HttpCondition implements Parameterized
       return expression;
    }
 
+   @Override
+   public List<ParameterizedPatternParser> getPatternParsers()
+   {
+      return Arrays.<ParameterizedPatternParser> asList(expression);
+   }
+
+   @Override
+   public Set<String> getInboundPathPrefixes()
+   {
+      return Collections.singleton(expression.getLiteralPrefix());
+   }
+
+   @Override
+   public Set<String> getOutboundPathPrefixes()
+   {
+      return Collections.singleton(expression.getLiteralPrefix());
+   }
+
    @Override
    public Set<String> getRequiredParameterNames()
    {
@@ -21,6 +21,7 @@ import java.util.Set;
 import javax.servlet.http.HttpServletRequest;
 
 import org.ocpsoft.common.util.Assert;
+import org.ocpsoft.rewrite.config.CacheableCondition;
 import org.ocpsoft.rewrite.config.Condition;
 import org.ocpsoft.rewrite.config.ConfigurationRuleParameterBuilder;
 import org.ocpsoft.rewrite.context.EvaluationContext;
@@ -44,7 +45,7 @@ import org.ocpsoft.urlbuilder.AddressBuilder;
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public abstract class PathAndQuery extends HttpCondition implements Parameterized
+public abstract class PathAndQuery extends HttpCondition implements Parameterized, CacheableCondition
 {
    private final ParameterizedPatternParser expression;
    private boolean withRequestBinding = false;
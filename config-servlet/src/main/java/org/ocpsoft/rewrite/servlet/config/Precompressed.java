@@ -0,0 +1,304 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.Set;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletResponse;
+
+import org.ocpsoft.common.util.Assert;
+import org.ocpsoft.logging.Logger;
+import org.ocpsoft.rewrite.config.ConfigurationRuleParameterBuilder;
+import org.ocpsoft.rewrite.config.Operation;
+import org.ocpsoft.rewrite.context.EvaluationContext;
+import org.ocpsoft.rewrite.exception.RewriteException;
+import org.ocpsoft.rewrite.param.ParameterStore;
+import org.ocpsoft.rewrite.param.Parameterized;
+import org.ocpsoft.rewrite.param.ParameterizedPattern;
+import org.ocpsoft.rewrite.param.ParameterizedPatternBuilder;
+import org.ocpsoft.rewrite.param.RegexParameterizedPatternBuilder;
+import org.ocpsoft.rewrite.servlet.config.response.AcceptEncoding;
+import org.ocpsoft.rewrite.servlet.http.event.HttpInboundServletRewrite;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.util.ParseTools.CaptureType;
+import org.ocpsoft.rewrite.util.Transpositions;
+
+/**
+ * An {@link Operation} that serves a static resource from a precompressed sidecar, such as <code>file.css.br</code> or
+ * <code>file.css.gz</code> next to <code>file.css</code>, when the client accepts the corresponding content coding
+ * (as listed in the "Accept-Encoding" request header). If several sidecars are acceptable, the one with the highest
+ * quality value is chosen, preferring Brotli over GZip. The original resource is only preferred over an acceptable
+ * sidecar if the client explicitly lists "identity" with a higher quality value. The sidecar is sent with the
+ * "Content-Encoding" header and the content type of the original resource, along with the "Content-Length", validators,
+ * and byte range support of {@link Stream#from(File)}. If no acceptable sidecar exists, the original resource is served
+ * exactly as by {@link Stream#from(File)} or {@link Forward#to(String)}.
+ * <p>
+ * Responses are always marked with "Vary: Accept-Encoding", so that shared caches store each variant separately.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public abstract class Precompressed extends HttpOperation implements Parameterized
+{
+   private static final Logger log = Logger.getLogger(Precompressed.class);
+
+   private static final String[] CODINGS = { "br", "gzip" };
+   private static final String[] EXTENSIONS = { ".br", ".gz" };
+
+   protected final ParameterizedPatternBuilder target;
+
+   private Precompressed(ParameterizedPatternBuilder target)
+   {
+      this.target = target;
+   }
+
+   /**
+    * Create an {@link Operation} that streams the given {@link File}, or its best acceptable precompressed sidecar, to
+    * the {@link HttpServletResponse#getOutputStream()}.
+    * <p>
+    * The given {@link File} path may be parameterized:
+    * <p>
+    * <code>
+    *    new File("/var/www/{file}.css") <br>
+    *    ...
+    * </code>
+    * <p>
+    * 
+    * @param file {@link ParameterizedPattern} specifying the location of the {@link File}.
+    * 
+    * @see Stream#from(File)
+    * @see {@link ConfigurationRuleParameterBuilder#where(String)}
+    */
+   public static Precompressed from(File file)
+   {
+      Assert.notNull(file, "File must not be null.");
+      return new Precompressed(new RegexParameterizedPatternBuilder(file.getAbsolutePath())) {
+
+         @Override
+         public void performHttp(HttpServletRewrite event, EvaluationContext context)
+         {
+            File file = new File(target.build(event, context, Transpositions.encodePath()));
+            int coding = select(event, file.getPath());
+            if (coding < 0)
+            {
+               Stream.write(event, context, file);
+            }
+            else
+            {
+               encode(event, file.getName(), coding);
+               Stream.write(event, context, new File(file.getPath() + EXTENSIONS[coding]));
+            }
+         }
+
+         @Override
+         protected boolean isAvailable(HttpServletRewrite event, String path)
+         {
+            return new File(path).isFile();
+         }
+
+         @Override
+         public String toString()
+         {
+            return "Precompressed.from(\"" + target.getPattern() + "\")";
+         }
+      };
+   }
+
+   /**
+    * Create an {@link Operation} that writes the best acceptable precompressed sidecar of the given
+    * {@link ServletContext} resource to the response and completes the current request; or, if there is none, forwards
+    * the current request to the resource itself, as {@link Forward#to(String)} would.
+    * <p>
+    * The given location may be parameterized:
+    * <p>
+    * <code>
+    *    /static/{file}.css <br>
+    *    ...
+    * </code>
+    * <p>
+    * 
+    * @param location {@link ParameterizedPattern} specifying the path of the {@link ServletContext} resource.
+    * 
+    * @see Forward#to(String)
+    * @see {@link ConfigurationRuleParameterBuilder#where(String)}
+    */
+   public static Precompressed forward(String location)
+   {
+      Assert.notNull(location, "Location must not be null.");
+      return new Precompressed(new RegexParameterizedPatternBuilder(CaptureType.BRACE, "[^/]+", location)) {
+
+         @Override
+         public void performHttp(HttpServletRewrite event, EvaluationContext context)
+         {
+            if (event instanceof HttpInboundServletRewrite)
+            {
+               String location = target.build(event, context, Transpositions.identity());
+               int coding = location.indexOf('?') < 0 ? select(event, location) : -1;
+               if (coding < 0)
+               {
+                  ((HttpInboundServletRewrite) event).forward(location);
+               }
+               else
+               {
+                  encode(event, location, coding);
+                  write(event, context, location + EXTENSIONS[coding]);
+                  event.abort();
+               }
+            }
+         }
+
+         @Override
+         protected boolean isAvailable(HttpServletRewrite event, String path)
+         {
+            try {
+               return event.getServletContext().getResource(path) != null;
+            }
+            catch (MalformedURLException e) {
+               return false;
+            }
+         }
+
+         @Override
+         public String toString()
+         {
+            return "Precompressed.forward(\"" + target.getPattern() + "\")";
+         }
+      };
+   }
+
+   /**
+    * Return <code>true</code> if a sidecar exists at the given path.
+    */
+   protected abstract boolean isAvailable(HttpServletRewrite event, String path);
+
+   /**
+    * Return the index of the acceptable, available sidecar of the given path with the highest quality value, or
+    * <code>-1</code> if the original resource should be served.
+    */
+   protected int select(HttpServletRewrite event, String path)
+   {
+      HttpServletResponse response = event.getResponse();
+      response.addHeader("Vary", AcceptEncoding.HEADER);
+      if (response.containsHeader("Content-Encoding"))
+         return -1;
+
+      AcceptEncoding accept = AcceptEncoding.of(event.getRequest());
+      int result = -1;
+      float best = 0f;
+      for (int i = 0; i < CODINGS.length; i++)
+      {
+         float quality = accept.getQuality(CODINGS[i]);
+         if (quality > best && isAvailable(event, path + EXTENSIONS[i]))
+         {
+            best = quality;
+            result = i;
+         }
+      }
+
+      /*
+       * An unlisted "identity" is merely acceptable, not preferred over a coding that the client asked for.
+       */
+      if (result >= 0 && accept.isListed(AcceptEncoding.IDENTITY) && accept.getQuality(AcceptEncoding.IDENTITY) > best)
+         return -1;
+      return result;
+   }
+
+   private static void encode(HttpServletRewrite event, String name, int coding)
+   {
+      HttpServletResponse response = event.getResponse();
+      if (response.getContentType() == null)
+      {
+         String contentType = event.getServletContext().getMimeType(name);
+         if (contentType != null)
+            response.setContentType(contentType);
+      }
+      response.setHeader("Content-Encoding", CODINGS[coding]);
+      log.debug("Serving [" + CODINGS[coding] + "] encoded sidecar of [" + name + "]");
+   }
+
+   /**
+    * Write the given {@link ServletContext} resource as {@link Stream#from(File)} would if it is deployed to the file
+    * system; otherwise, copy it to the response with only its "Content-Length" and "Last-Modified" headers.
+    */
+   private static void write(HttpServletRewrite event, EvaluationContext context, String path)
+   {
+      String real = event.getServletContext().getRealPath(path);
+      if (real != null && new File(real).isFile())
+      {
+         Stream.write(event, context, new File(real));
+         return;
+      }
+
+      InputStream stream;
+      try {
+         URL resource = event.getServletContext().getResource(path);
+         if (resource == null)
+            throw new RewriteException("Precompressed resource [" + path
+                     + "] disappeared before it could be served.");
+
+         URLConnection connection = resource.openConnection();
+         HttpServletResponse response = event.getResponse();
+         if (!response.isCommitted())
+         {
+            int length = connection.getContentLength();
+            if (length >= 0)
+               response.setContentLength(length);
+            long lastModified = connection.getLastModified();
+            if (lastModified > 0)
+               response.setDateHeader("Last-Modified", lastModified);
+         }
+         stream = connection.getInputStream();
+      }
+      catch (IOException e) {
+         throw new RewriteException("Error opening precompressed resource [" + path + "].", e);
+      }
+
+      try {
+         Response.write(stream).perform(event, context);
+      }
+      finally {
+         try {
+            stream.close();
+         }
+         catch (IOException e) {
+            throw new RewriteException("Error closing stream.", e);
+         }
+      }
+   }
+
+   @Override
+   public Set<String> getRequiredParameterNames()
+   {
+      return target.getRequiredParameterNames();
+   }
+
+   @Override
+   public void setParameterStore(ParameterStore store)
+   {
+      target.setParameterStore(store);
+   }
+
+   public ParameterizedPatternBuilder getTargetExpression()
+   {
+      return target;
+   }
+}
@@ -15,10 +15,12 @@
  */
 package org.ocpsoft.rewrite.servlet.config;
 
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
 import org.ocpsoft.common.util.Assert;
+import org.ocpsoft.rewrite.config.CacheableCondition;
 import org.ocpsoft.rewrite.config.Condition;
 import org.ocpsoft.rewrite.config.ConfigurationRuleParameterBuilder;
 import org.ocpsoft.rewrite.context.EvaluationContext;
@@ -33,7 +35,7 @@ import org.ocpsoft.rewrite.param.ParameterizedPatternResult;
 import org.ocpsoft.rewrite.param.RegexParameterizedPatternParser;
 import org.ocpsoft.rewrite.servlet.http.event.HttpOutboundServletRewrite;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
-import org.ocpsoft.rewrite.servlet.util.QueryStringBuilder;
+import org.ocpsoft.rewrite.servlet.util.ParsedAddress;
 import org.ocpsoft.urlbuilder.Address;
 
 /**
@@ -42,7 +44,7 @@ import org.ocpsoft.urlbuilder.Address;
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
 @SuppressWarnings("deprecation")
-public abstract class Query extends HttpCondition implements Parameterized
+public abstract class Query extends HttpCondition implements Parameterized, CacheableCondition
 {
    /**
     * Create a {@link Condition} matching the current {@link Address#getQuery()}.
@@ -143,26 +145,22 @@ public abstract class Query extends HttpCondition implements Parameterized
          @Override
          public boolean evaluateHttp(final HttpServletRewrite event, final EvaluationContext context)
          {
-            QueryStringBuilder queryString = QueryStringBuilder.createFromEncoded(event.getAddress().getQuery())
-                     .decode();
-
-            for (String name : queryString.getParameterNames()) {
-               String[] parameterValues = queryString.getParameterValues(name);
-               if (parameterName.equals(name))
+            Map<String, String[]> queryParameters = ParsedAddress.of(event).getQueryParameters();
+            if (queryParameters.containsKey(parameterName))
+            {
+               String[] parameterValues = queryParameters.get(parameterName);
+               if (parameterValues == null || (parameterValues.length == 0))
                {
-                  if (parameterValues == null || (parameterValues.length == 0))
-                  {
-                     return pattern.parse("").matches();
-                  }
-                  else
-                  {
-                     for (String value : parameterValues) {
+                  return pattern.parse("").matches();
+               }
+               else
+               {
+                  for (String value : parameterValues) {
 
-                        ParameterizedPatternResult parseResult = pattern.parse(value);
-                        if (parseResult.matches())
-                        {
-                           return parseResult.submit(event, context);
-                        }
+                     ParameterizedPatternResult parseResult = pattern.parse(value);
+                     if (parseResult.matches())
+                     {
+                        return parseResult.submit(event, context);
                      }
                   }
                }
@@ -210,12 +208,9 @@ public abstract class Query extends HttpCondition implements Parameterized
          @Override
          public boolean evaluateHttp(final HttpServletRewrite event, final EvaluationContext context)
          {
-            QueryStringBuilder queryString = QueryStringBuilder.createFromEncoded(event.getAddress().getQuery())
-                     .decode();
-
-            for (String name : queryString.getParameterNames()) {
+            for (String[] values : ParsedAddress.of(event).getQueryParameters().values()) {
 
-               for (String value : queryString.getParameterValues(name)) {
+               for (String value : values) {
                   if (value != null && pattern.parse(value).submit(event, context))
                   {
                      return true;
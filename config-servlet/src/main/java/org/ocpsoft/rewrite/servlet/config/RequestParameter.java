@@ -15,9 +15,9 @@
  */
 package org.ocpsoft.rewrite.servlet.config;
 
-import java.util.Arrays;
-import java.util.Enumeration;
 import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
@@ -173,12 +173,10 @@ public abstract class RequestParameter extends HttpCondition implements Paramete
    @Override
    public boolean evaluateHttp(final HttpServletRewrite event, final EvaluationContext context)
    {
-      HttpServletRequest request = event.getRequest();
-      Enumeration<?> parameterNames = request.getParameterNames();
-      while (parameterNames.hasMoreElements())
+      for (Entry<String, String[]> parameter : getParameters(event).entrySet())
       {
-         String parameter = parameterNames.nextElement().toString();
-         if (name.parse(parameter).submit(event, context) && matchesValue(event, context, request, parameter))
+         if (name.parse(parameter.getKey()).submit(event, context)
+                  && matchesValue(event, context, parameter.getValue()))
          {
             return true;
          }
@@ -186,10 +184,20 @@ public abstract class RequestParameter extends HttpCondition implements Paramete
       return false;
    }
 
-   private boolean matchesValue(Rewrite event, EvaluationContext context, final HttpServletRequest request,
-            final String parameterName)
+   /**
+    * Get the parameters of the current {@link HttpServletRequest}. The parameter map is read once per evaluation,
+    * rather than once per parameter name, but is not remembered between evaluations, since operations such as
+    * {@link org.ocpsoft.rewrite.servlet.config.rule.Join} may add parameters while the current event is processed.
+    */
+   @SuppressWarnings("unchecked")
+   private static Map<String, String[]> getParameters(final HttpServletRewrite event)
+   {
+      return event.getRequest().getParameterMap();
+   }
+
+   private boolean matchesValue(Rewrite event, EvaluationContext context, final String[] values)
    {
-      for (String contents : Arrays.asList(request.getParameterValues(parameterName)))
+      for (String contents : values)
       {
          if (value.parse(contents).submit(event, context))
          {
@@ -225,14 +233,11 @@ public abstract class RequestParameter extends HttpCondition implements Paramete
       @Override
       public boolean evaluateHttp(final HttpServletRewrite event, final EvaluationContext context)
       {
-         HttpServletRequest request = event.getRequest();
-         Enumeration<?> parameterNames = request.getParameterNames();
-         while (parameterNames.hasMoreElements())
+         for (Entry<String, String[]> parameter : getParameters(event).entrySet())
          {
-            String name = parameterNames.nextElement().toString();
-            if (getNameExpression().parse(name).submit(event, context))
+            if (getNameExpression().parse(parameter.getKey()).submit(event, context))
             {
-               if (matchesValues(event, context, request, name))
+               if (matchesValues(event, context, parameter.getValue()))
                {
                   return true;
                }
@@ -241,10 +246,9 @@ public abstract class RequestParameter extends HttpCondition implements Paramete
          return false;
       }
 
-      private boolean matchesValues(Rewrite event, EvaluationContext context, final HttpServletRequest request,
-               final String name)
+      private boolean matchesValues(Rewrite event, EvaluationContext context, final String[] values)
       {
-         for (String contents : Arrays.asList(request.getParameterValues(name)))
+         for (String contents : values)
          {
             if (!getValueExpression().parse(contents).submit(event, context))
             {
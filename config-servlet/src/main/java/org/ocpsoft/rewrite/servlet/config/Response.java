@@ -19,6 +19,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.zip.Deflater;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.ServletRequest;
@@ -213,49 +214,89 @@ public abstract class Response extends HttpOperation
    }
 
    /**
-    * Compress the {@link ServletOutputStream} contents written to the client.
+    * Compress the {@link ServletOutputStream} contents written to the client, if the client accepts GZip encoding.
     * <p>
     * <b>WARNING</b>: This causes response content to be buffered in memory in order to properly count the response
     * 'Content-Length'.
+    * 
+    * @see GZipResponseContentInterceptor
     */
    public static OperationBuilder gzipCompression()
    {
+      return gzipCompression(Deflater.DEFAULT_COMPRESSION);
+   }
+
+   /**
+    * Compress the {@link ServletOutputStream} contents written to the client with the given {@link Deflater}
+    * compression level, if the client accepts GZip encoding.
+    * <p>
+    * <b>WARNING</b>: This causes response content to be buffered in memory in order to properly count the response
+    * 'Content-Length'.
+    * 
+    * @see GZipResponseContentInterceptor
+    */
+   public static OperationBuilder gzipCompression(final int level)
+   {
+      final GZipResponseContentInterceptor interceptor = new GZipResponseContentInterceptor(level,
+               GZipResponseContentInterceptor.DEFAULT_MINIMUM_SIZE);
+
       return new Response() {
 
          @Override
          public void performHttp(HttpServletRewrite event, EvaluationContext context)
          {
-            withOutputInterceptedBy(new GZipResponseContentInterceptor()).perform(event, context);
+            withOutputInterceptedBy(interceptor).perform(event, context);
          }
 
          @Override
          public String toString()
          {
-            return "Response.gzipCompression()";
+            return "Response.gzipCompression(" + (level == Deflater.DEFAULT_COMPRESSION ? "" : level) + ")";
          }
 
       };
    }
 
    /**
-    * Compress the {@link ServletOutputStream} contents written to the client.
+    * Compress the {@link ServletOutputStream} contents written to the client, if the client accepts GZip encoding.
     * <p>
     * <b>WARNING</b>: This means that the HTTP response will not contain a 'Content-Length' header.
+    * 
+    * @see GZipResponseStreamWrapper
     */
    public static OperationBuilder gzipStreamCompression()
    {
+      return gzipStreamCompression(Deflater.DEFAULT_COMPRESSION, false);
+   }
+
+   /**
+    * Compress the {@link ServletOutputStream} contents written to the client with the given {@link Deflater}
+    * compression level, if the client accepts GZip encoding. If <code>syncFlush</code> is <code>true</code>, flushing
+    * the response also sends all content compressed so far to the client, which suits long-lived, incrementally
+    * rendered responses.
+    * <p>
+    * <b>WARNING</b>: This means that the HTTP response will not contain a 'Content-Length' header.
+    * 
+    * @see GZipResponseStreamWrapper
+    */
+   public static OperationBuilder gzipStreamCompression(final int level, final boolean syncFlush)
+   {
+      final GZipResponseStreamWrapper wrapper = new GZipResponseStreamWrapper(level, syncFlush,
+               GZipResponseStreamWrapper.DEFAULT_MINIMUM_SIZE);
+
       return new Response() {
 
          @Override
          public void performHttp(HttpServletRewrite event, EvaluationContext context)
          {
-            withOutputStreamWrappedBy(new GZipResponseStreamWrapper()).perform(event, context);
+            withOutputStreamWrappedBy(wrapper).perform(event, context);
          }
 
          @Override
          public String toString()
          {
-            return "Response.gzipCompression()";
+            return "Response.gzipStreamCompression("
+                     + (level == Deflater.DEFAULT_COMPRESSION && !syncFlush ? "" : level + ", " + syncFlush) + ")";
          }
 
       };
@@ -16,17 +16,11 @@
 package org.ocpsoft.rewrite.servlet.config;
 
 import java.net.MalformedURLException;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.List;
 import java.util.Set;
 
 import javax.servlet.Servlet;
 import javax.servlet.ServletContext;
 
-import org.ocpsoft.common.pattern.WeightedComparator;
-import org.ocpsoft.common.services.ServiceLoader;
-import org.ocpsoft.common.util.Iterators;
 import org.ocpsoft.logging.Logger;
 import org.ocpsoft.rewrite.config.Condition;
 import org.ocpsoft.rewrite.config.ConfigurationRuleParameterBuilder;
@@ -36,9 +30,8 @@ import org.ocpsoft.rewrite.param.Parameterized;
 import org.ocpsoft.rewrite.param.ParameterizedPattern;
 import org.ocpsoft.rewrite.param.ParameterizedPatternBuilder;
 import org.ocpsoft.rewrite.param.RegexParameterizedPatternBuilder;
-import org.ocpsoft.rewrite.servlet.ServletRegistration;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
-import org.ocpsoft.rewrite.servlet.spi.ServletRegistrationProvider;
+import org.ocpsoft.rewrite.servlet.util.ServletMappings;
 import org.ocpsoft.rewrite.util.Transpositions;
 import org.ocpsoft.urlbuilder.Address;
 
@@ -54,8 +47,6 @@ public abstract class ServletMapping extends HttpCondition implements Parameteri
 
    private final RegexParameterizedPatternBuilder resource;
 
-   private List<ServletRegistrationProvider> servletRegistrationProviders = null;
-
    private ServletMapping(final String resource)
    {
       this.resource = new RegexParameterizedPatternBuilder(resource);
@@ -99,27 +90,9 @@ public abstract class ServletMapping extends HttpCondition implements Parameteri
          String path = resource.build(event, context, Transpositions.encodePath());
          try
          {
-            for (ServletRegistration registration : getServletRegistration(event.getServletContext()))
+            if (ServletMappings.getInstance(event.getServletContext()).matches(path))
             {
-               Collection<String> mappings = registration.getMappings();
-
-               for (String mapping : mappings)
-               {
-                  if (path.startsWith("/") && !mapping.startsWith("/"))
-                  {
-                     mapping = "/" + mapping;
-                  }
-
-                  if (mapping.contains("*"))
-                  {
-                     mapping = mapping.replaceAll("\\*", ".*");
-                  }
-
-                  if (path.matches(mapping))
-                  {
-                     return true;
-                  }
-               }
+               return true;
             }
 
             return event.getServletContext().getResource(path) != null;
@@ -132,36 +105,6 @@ public abstract class ServletMapping extends HttpCondition implements Parameteri
       return false;
    }
 
-   /**
-    * Obtains the list of registered {@link Servlet} instances using the {@link ServletRegistrationProvider} SPI.
-    */
-   private List<ServletRegistration> getServletRegistration(ServletContext context)
-   {
-      for (ServletRegistrationProvider provider : getServletRegistrationProviders())
-      {
-         List<ServletRegistration> registrations = provider.getServletRegistrations(context);
-         if (registrations != null)
-         {
-            return registrations;
-         }
-      }
-      throw new IllegalStateException("Unable to find the Servlet registrations of the application");
-   }
-
-   /**
-    * Returns the list of {@link ServletRegistrationProvider} implementations.
-    */
-   private List<ServletRegistrationProvider> getServletRegistrationProviders()
-   {
-      if (servletRegistrationProviders == null)
-      {
-         servletRegistrationProviders = Iterators.asList(
-                  ServiceLoader.loadTypesafe(ServletRegistrationProvider.class).iterator());
-         Collections.sort(servletRegistrationProviders, new WeightedComparator());
-      }
-      return servletRegistrationProviders;
-   }
-
    /**
     * Return the underlying {@link ParameterizedPatternBuilder} for this {@link ServletMapping}.
     */
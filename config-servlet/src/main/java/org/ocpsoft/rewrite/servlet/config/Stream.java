@@ -1,18 +1,16 @@
 package org.ocpsoft.rewrite.servlet.config;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Set;
 
 import javax.servlet.http.HttpServletResponse;
 
+import org.ocpsoft.common.util.Assert;
 import org.ocpsoft.logging.Logger;
 import org.ocpsoft.rewrite.config.ConfigurationRuleParameterBuilder;
 import org.ocpsoft.rewrite.config.Operation;
@@ -40,6 +38,11 @@ public abstract class Stream extends HttpOperation implements Parameterized
    // TODO TEST ME!!!
    public final static String STREAM_KEY = Stream.class.getName() + "_STREAM";
 
+   /**
+    * The number of bytes buffered for each response by {@link #toAsync(File)}.
+    */
+   public final static int DEFAULT_CAPTURE_CAPACITY = 64 * 1024;
+
    protected RegexParameterizedPatternBuilder target;
 
    private Stream(File target)
@@ -50,6 +53,11 @@ public abstract class Stream extends HttpOperation implements Parameterized
    /**
     * Create an {@link Operation} that streams the given {@link File} to the
     * {@link HttpServletResponse#getOutputStream()}.
+    * <p>
+    * The response carries "ETag", "Last-Modified", and "Content-Length" headers. Conditional requests are answered
+    * with "304 Not Modified" without reading the {@link File}, and a single byte "Range" is served as
+    * "206 Partial Content". Where the container supports it, the {@link File} is sent without being copied through the
+    * Java heap.
     * 
     * <p>
     * The given {@link File} path may be parameterized:
@@ -72,26 +80,8 @@ public abstract class Stream extends HttpOperation implements Parameterized
          @Override
          public void performHttp(HttpServletRewrite event, EvaluationContext context)
          {
-            InputStream stream = null;
-            try {
-               File file = new File(target.build(event, context, Transpositions.encodePath()));
-               stream = new BufferedInputStream(new FileInputStream(file));
-               log.debug("Streaming from file [" + file + "] to response.");
-               Response.write(stream).perform(event, context);
-            }
-            catch (Exception e) {
-               throw new RewriteException("Error streaming file.", e);
-            }
-            finally
-            {
-               if (stream != null)
-                  try {
-                     stream.close();
-                  }
-                  catch (IOException e) {
-                     throw new RewriteException("Error closing stream.", e);
-                  }
-            }
+            File file = new File(target.build(event, context, Transpositions.encodePath()));
+            write(event, context, file);
          }
 
          @Override
@@ -102,11 +92,75 @@ public abstract class Stream extends HttpOperation implements Parameterized
       };
    }
 
+   /**
+    * Stream the given {@link File} to the {@link HttpServletResponse#getOutputStream()}, answering conditional and
+    * byte range requests.
+    */
+   static void write(HttpServletRewrite event, EvaluationContext context, File file)
+   {
+      log.debug("Streaming from file [" + file + "] to response.");
+      FileTransfer.write(event, file);
+   }
+
    /**
     * Create an {@link Operation} that duplicates content written to {@link HttpServletResponse#getOutputStream()} and
     * writes it to the given {@link File}.
     */
    public static Operation to(File file)
+   {
+      return capture(file, 0, null);
+   }
+
+   /**
+    * Create an {@link Operation} that duplicates content written to {@link HttpServletResponse#getOutputStream()} and
+    * writes it to the given {@link File} asynchronously, so that the speed of the disk does not add to response
+    * latency. Up to {@link #DEFAULT_CAPTURE_CAPACITY} bytes are held in memory for each response while waiting to be
+    * written; once that buffer is full, the response waits for the disk ({@link Overflow#BLOCK}).
+    */
+   public static Operation toAsync(File file)
+   {
+      return toAsync(file, DEFAULT_CAPTURE_CAPACITY, Overflow.BLOCK);
+   }
+
+   /**
+    * Create an {@link Operation} that duplicates content written to {@link HttpServletResponse#getOutputStream()} and
+    * writes it to the given {@link File} asynchronously, so that the speed of the disk does not add to response
+    * latency. Up to <code>capacity</code> bytes are held in memory for each response while waiting to be written;
+    * the given {@link Overflow} policy decides what happens to content written while that buffer is full.
+    */
+   public static Operation toAsync(File file, int capacity, Overflow overflow)
+   {
+      Assert.assertTrue(capacity > 0, "Capacity must be positive.");
+      Assert.notNull(overflow, "Overflow policy must not be null.");
+      return capture(file, capacity, overflow);
+   }
+
+   /**
+    * What an asynchronous {@link Stream#toAsync(File, int, Overflow)} capture does with response content that is
+    * written while its buffer is full.
+    */
+   public static enum Overflow
+   {
+      /**
+       * Wait until the background writer has made room. No content is lost, but the response is slowed to the speed
+       * of the disk for as long as the buffer stays full.
+       */
+      BLOCK,
+
+      /**
+       * Discard the content from the captured {@link File}. The response is never slowed, but the {@link File} will be
+       * missing content; the number of discarded bytes is logged.
+       */
+      DROP,
+
+      /**
+       * Hold the content in additional memory until the background writer catches up. Neither the response nor the
+       * {@link File} is affected, but memory use is not bounded.
+       */
+      SPILL
+   }
+
+   private static Operation capture(File file, final int capacity, final Overflow overflow)
    {
       return new Stream(file) {
          @Override
@@ -131,7 +185,9 @@ public abstract class Stream extends HttpOperation implements Parameterized
                public OutputStream wrap(HttpServletRewrite rewrite, OutputStream outputStream)
                {
                   try {
-                     BufferedOutputStream stream = new BufferedOutputStream(new FileOutputStream(file));
+                     OutputStream stream = overflow == null
+                              ? new BufferedOutputStream(new FileOutputStream(file))
+                              : new AsyncFileOutputStream(file, capacity, overflow);
                      rewrite.getRequest().setAttribute(STREAM_KEY, stream);
                      log.debug("Cloning response OutputStream to file [" + file + "]");
                      return new MultiOutputStream(stream, outputStream);
@@ -164,7 +220,9 @@ public abstract class Stream extends HttpOperation implements Parameterized
          @Override
          public String toString()
          {
-            return "Stream.to(\"" + target.getPattern() + "\")";
+            if (overflow == null)
+               return "Stream.to(\"" + target.getPattern() + "\")";
+            return "Stream.toAsync(\"" + target.getPattern() + "\", " + capacity + ", " + overflow + ")";
          }
       };
    }
@@ -18,6 +18,7 @@ package org.ocpsoft.rewrite.servlet.config;
 import java.util.Set;
 
 import org.ocpsoft.common.util.Assert;
+import org.ocpsoft.rewrite.config.CacheableOperation;
 import org.ocpsoft.rewrite.config.ConfigurationRuleParameterBuilder;
 import org.ocpsoft.rewrite.config.Operation;
 import org.ocpsoft.rewrite.context.EvaluationContext;
@@ -44,7 +45,7 @@ import org.ocpsoft.urlbuilder.AddressBuilder;
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public abstract class Substitute extends HttpOperation implements Parameterized
+public abstract class Substitute extends HttpOperation implements Parameterized, CacheableOperation
 {
    private final ParameterizedPatternParser location;
 
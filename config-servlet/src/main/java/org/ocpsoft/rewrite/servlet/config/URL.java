@@ -15,9 +15,12 @@
  */
 package org.ocpsoft.rewrite.servlet.config;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Set;
 
 import org.ocpsoft.common.util.Assert;
+import org.ocpsoft.rewrite.config.CacheableCondition;
 import org.ocpsoft.rewrite.config.Condition;
 import org.ocpsoft.rewrite.config.ConfigurationRuleParameterBuilder;
 import org.ocpsoft.rewrite.config.Rule;
@@ -29,12 +32,13 @@ import org.ocpsoft.rewrite.param.Parameter;
 import org.ocpsoft.rewrite.param.ParameterStore;
 import org.ocpsoft.rewrite.param.Parameterized;
 import org.ocpsoft.rewrite.param.ParameterizedPattern;
+import org.ocpsoft.rewrite.param.ParameterizedPatternHolder;
 import org.ocpsoft.rewrite.param.ParameterizedPatternParser;
 import org.ocpsoft.rewrite.param.RegexParameterizedPatternBuilder;
 import org.ocpsoft.rewrite.param.RegexParameterizedPatternParser;
 import org.ocpsoft.rewrite.servlet.config.bind.RequestBinding;
-import org.ocpsoft.rewrite.servlet.http.event.HttpOutboundServletRewrite;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.servlet.util.ParsedAddress;
 import org.ocpsoft.urlbuilder.Address;
 
 /**
@@ -42,7 +46,8 @@ import org.ocpsoft.urlbuilder.Address;
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public abstract class URL extends HttpCondition implements Parameterized
+public abstract class URL extends HttpCondition implements Parameterized, CacheableCondition,
+         ParameterizedPatternHolder
 {
    private final ParameterizedPatternParser expression;
    private boolean requestBinding;
@@ -123,23 +128,7 @@ public abstract class URL extends HttpCondition implements Parameterized
    @Override
    public boolean evaluateHttp(final HttpServletRewrite event, final EvaluationContext context)
    {
-      String requestURL = null;
-
-      if (event instanceof HttpOutboundServletRewrite)
-      {
-         requestURL = ((HttpOutboundServletRewrite) event).getOutboundAddress().toString();
-         String contextPath = event.getContextPath();
-         if (!contextPath.equals("/") && requestURL.startsWith(contextPath))
-         {
-            requestURL = requestURL.substring(event.getContextPath().length());
-         }
-      }
-      else
-      {
-         requestURL = event.getAddress().toString();
-      }
-
-      return expression.parse(requestURL).submit(event, context);
+      return expression.parse(ParsedAddress.of(event).getURL()).submit(event, context);
    }
 
    /**
@@ -157,6 +146,12 @@ public abstract class URL extends HttpCondition implements Parameterized
       return expression;
    }
 
+   @Override
+   public List<ParameterizedPatternParser> getPatternParsers()
+   {
+      return Arrays.asList(expression);
+   }
+
    @Override
    public Set<String> getRequiredParameterNames()
    {
@@ -36,6 +36,12 @@ import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
  */
 public abstract class UserAgent extends HttpCondition
 {
+   /**
+    * Servlet context init parameter controlling how many distinct "User-Agent" and "Accept" header combinations have
+    * their device classification cached for {@link #isMobile()}, {@link #isTablet()}, and {@link #isDesktop()}.
+    * Defaults to <code>1024</code>; a size of <code>0</code> disables the cache.
+    */
+   public static final String CACHE_SIZE = "org.ocpsoft.rewrite.config.USER_AGENT_CACHE_SIZE";
 
    /**
     * Create a {@link Condition} asserting that the user-agent matches the given pattern.
@@ -100,7 +106,7 @@ public abstract class UserAgent extends HttpCondition
       };
    }
 
-   private static enum Classification
+   static enum Classification
    {
       MOBILE, TABLET, DESKTOP
    }
@@ -118,21 +124,7 @@ public abstract class UserAgent extends HttpCondition
       @Override
       public boolean evaluateHttp(HttpServletRewrite event, EvaluationContext context)
       {
-         String userAgentStr = event.getRequest().getHeader("user-agent");
-         String httpAccept = event.getRequest().getHeader("Accept");
-         UserAgentUtil util = new UserAgentUtil(userAgentStr, httpAccept);
-
-         switch (type)
-         {
-         case DESKTOP:
-            return !util.detectMobileQuick() && !util.detectTierTablet();
-         case MOBILE:
-            return util.detectMobileQuick();
-         case TABLET:
-            return util.detectTierTablet();
-         }
-
-         return false;
+         return type == UserAgentClassifier.classify(event.getRequest(), event.getServletContext());
       }
    }
 
@@ -0,0 +1,398 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+
+import org.ocpsoft.logging.Logger;
+import org.ocpsoft.rewrite.servlet.config.UserAgent.Classification;
+import org.ocpsoft.rewrite.servlet.util.InitParameters;
+import org.ocpsoft.rewrite.util.BoundedCache;
+
+/**
+ * Classifies the "User-Agent" and "Accept" headers of a request exactly as {@link UserAgentUtil#detectMobileQuick()}
+ * and {@link UserAgentUtil#detectTierTablet()} would, but locates every device token of both headers in a single
+ * Aho-Corasick pass instead of one {@link String#indexOf(String)} scan per token.
+ * <p>
+ * The {@link Classification} is stored as a request attribute for the remainder of the request, and in a bounded,
+ * application-scoped LRU cache keyed on the raw header values. See {@link UserAgent#CACHE_SIZE}.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+class UserAgentClassifier
+{
+   private static final String REQUEST_KEY = UserAgentClassifier.class.getName() + "_classification";
+   private static final String CONTEXT_KEY = UserAgentClassifier.class.getName() + "_cache";
+   private static final int DEFAULT_CACHE_SIZE = 1024;
+
+   private static Logger log = Logger.getLogger(UserAgentClassifier.class);
+
+   /*
+    * Each token is assigned a single bit. Tokens must be registered before the automaton is built below.
+    */
+   private static final List<String> tokens = new ArrayList<String>();
+
+   private static final long WEBKIT = token(UserAgentUtil.engineWebKit);
+   private static final long IPHONE = token(UserAgentUtil.deviceIphone);
+   private static final long IPOD = token(UserAgentUtil.deviceIpod);
+   private static final long IPAD = token(UserAgentUtil.deviceIpad);
+   private static final long MAC_PPC = token(UserAgentUtil.deviceMacPpc);
+   private static final long ANDROID = token(UserAgentUtil.deviceAndroid);
+   private static final long GOOGLE_TV = token(UserAgentUtil.deviceGoogleTV);
+   private static final long HTC_FLYER = token(UserAgentUtil.deviceHtcFlyer);
+   private static final long WIN_PHONE_7 = token(UserAgentUtil.deviceWinPhone7);
+   private static final long WIN_PHONE_8 = token(UserAgentUtil.deviceWinPhone8);
+   private static final long WIN_MOB = token(UserAgentUtil.deviceWinMob);
+   private static final long WINDOWS = token(UserAgentUtil.deviceWindows);
+   private static final long IE_MOB = token(UserAgentUtil.deviceIeMob);
+   private static final long PPC = token(UserAgentUtil.devicePpc);
+   private static final long PIE = token(UserAgentUtil.enginePie);
+   private static final long BB = token(UserAgentUtil.deviceBB);
+   private static final long BB10 = token(UserAgentUtil.deviceBB10);
+   private static final long VND_RIM = token(UserAgentUtil.vndRIM);
+   private static final long BB_STORM = token(UserAgentUtil.deviceBBStorm);
+   private static final long BB_BOLD_TOUCH = token(UserAgentUtil.deviceBBBoldTouch);
+   private static final long BB_CURVE_TOUCH = token(UserAgentUtil.deviceBBCurveTouch);
+   private static final long BB_TORCH = token(UserAgentUtil.deviceBBTorch);
+   private static final long BB_PLAYBOOK = token(UserAgentUtil.deviceBBPlaybook);
+   private static final long SYMBIAN = token(UserAgentUtil.deviceSymbian);
+   private static final long S60 = token(UserAgentUtil.deviceS60);
+   private static final long S70 = token(UserAgentUtil.deviceS70);
+   private static final long S80 = token(UserAgentUtil.deviceS80);
+   private static final long S90 = token(UserAgentUtil.deviceS90);
+   private static final long PALM = token(UserAgentUtil.devicePalm);
+   private static final long WEBOS = token(UserAgentUtil.deviceWebOS);
+   private static final long WEBOS_HP = token(UserAgentUtil.deviceWebOShp);
+   private static final long BLAZER = token(UserAgentUtil.engineBlazer);
+   private static final long XIINO = token(UserAgentUtil.engineXiino);
+   private static final long BADA = token(UserAgentUtil.deviceBada);
+   private static final long TIZEN = token(UserAgentUtil.deviceTizen);
+   private static final long KINDLE = token(UserAgentUtil.deviceKindle);
+   private static final long SILK = token(UserAgentUtil.engineSilk);
+   private static final long VND_WAP = token(UserAgentUtil.vndwap);
+   private static final long WML = token(UserAgentUtil.wml);
+   private static final long TABLET = token(UserAgentUtil.deviceTablet);
+   private static final long BREW = token(UserAgentUtil.deviceBrew);
+   private static final long DANGER = token(UserAgentUtil.deviceDanger);
+   private static final long HIPTOP = token(UserAgentUtil.deviceHiptop);
+   private static final long PLAYSTATION = token(UserAgentUtil.devicePlaystation);
+   private static final long PLAYSTATION_VITA = token(UserAgentUtil.devicePlaystationVita);
+   private static final long ARCHOS = token(UserAgentUtil.deviceArchos);
+   private static final long OPERA = token(UserAgentUtil.engineOpera);
+   private static final long NETFRONT = token(UserAgentUtil.engineNetfront);
+   private static final long UP_BROWSER = token(UserAgentUtil.engineUpBrowser);
+   private static final long OPEN_WEB = token(UserAgentUtil.engineOpenWeb);
+   private static final long MIDP = token(UserAgentUtil.deviceMidp);
+   private static final long OBIGO = token(UserAgentUtil.engineObigo);
+   private static final long PDA = token(UserAgentUtil.devicePda);
+   private static final long MINI = token(UserAgentUtil.mini);
+   private static final long MOBILE = token(UserAgentUtil.mobile);
+   private static final long MOBI = token(UserAgentUtil.mobi);
+   private static final long MAEMO = token(UserAgentUtil.maemo);
+   private static final long LINUX = token(UserAgentUtil.linux);
+   private static final long HTC = token(UserAgentUtil.manuHtc);
+   private static final long UPDATE = token(UserAgentUtil.disUpdate);
+
+   private static final TokenAutomaton automaton = new TokenAutomaton(tokens);
+
+   private static long token(String token)
+   {
+      tokens.add(token);
+      return 1L << (tokens.size() - 1);
+   }
+
+   /**
+    * Return the {@link Classification} of the given {@link HttpServletRequest}.
+    */
+   public static Classification classify(HttpServletRequest request, ServletContext context)
+   {
+      Classification result = (Classification) request.getAttribute(REQUEST_KEY);
+      if (result == null)
+      {
+         String userAgent = request.getHeader("user-agent");
+         String accept = request.getHeader("Accept");
+
+         BoundedCache<CacheKey, Classification> cache = getCache(context);
+         CacheKey key = null;
+         if (cache != null)
+         {
+            key = new CacheKey(userAgent, accept);
+            result = cache.get(key);
+         }
+
+         if (result == null)
+         {
+            result = classify(userAgent, accept);
+            if (cache != null)
+               cache.put(key, result);
+         }
+
+         request.setAttribute(REQUEST_KEY, result);
+      }
+      return result;
+   }
+
+   /**
+    * Return the {@link Classification} of the given "User-Agent" and "Accept" header values, either of which may be
+    * <code>null</code>.
+    */
+   static Classification classify(String userAgent, String accept)
+   {
+      long agent = automaton.scan(userAgent);
+      long accepted = automaton.scan(accept);
+
+      boolean android = has(agent, ANDROID | GOOGLE_TV | HTC_FLYER);
+      boolean webkit = has(agent, WEBKIT);
+      boolean operaMobile = has(agent, OPERA) && has(agent, MINI | MOBI);
+      boolean webOSTablet = has(agent, WEBOS_HP) && has(agent, TABLET);
+
+      if ((has(agent, IPAD) && webkit)
+               || (android && !operaMobile && !has(agent, HTC_FLYER | MOBILE))
+               || has(agent, BB_PLAYBOOK)
+               || webOSTablet)
+         return Classification.TABLET;
+
+      boolean androidPhone = (android && has(agent, MOBILE))
+               || (has(agent, OPERA) && has(agent, ANDROID) && has(agent, MOBI))
+               || has(agent, HTC_FLYER);
+      boolean windowsPhone = has(agent, WIN_PHONE_7 | WIN_PHONE_8);
+      boolean blackBerry10Phone = has(agent, BB10) && has(agent, MOBILE);
+      boolean blackBerry = has(agent, BB) || has(accepted, VND_RIM) || blackBerry10Phone;
+      boolean blackBerryTouch = blackBerry && has(agent, BB_STORM | BB_TORCH | BB_BOLD_TOUCH | BB_CURVE_TOUCH);
+      boolean wapWml = has(accepted, VND_WAP | WML);
+
+      boolean tierIphone = has(agent, IPHONE | IPOD)
+               || androidPhone
+               || windowsPhone
+               || blackBerry10Phone
+               || (blackBerry && webkit && blackBerryTouch)
+               || has(agent, WEBOS | BADA | TIZEN)
+               || (has(agent, PLAYSTATION) && has(agent, PLAYSTATION_VITA));
+
+      boolean windowsMobile = !windowsPhone
+               && (has(agent, WIN_MOB | IE_MOB | PIE)
+                        || (has(agent, WINDOWS) && (has(agent, HTC) || wapWml))
+                        || (has(agent, PPC) && !has(agent, MAC_PPC)));
+
+      boolean smartphone = tierIphone
+               || has(agent, SYMBIAN | S60 | S70 | S80 | S90)
+               || windowsMobile
+               || blackBerry
+               || (!has(agent, WEBOS) && has(agent, PALM | BLAZER | XIINO));
+
+      if (smartphone
+               || wapWml
+               || operaMobile
+               || has(agent, BREW | OBIGO | NETFRONT | UP_BROWSER | OPEN_WEB | DANGER | HIPTOP | MIDP)
+               || has(accepted, MIDP)
+               || has(agent, MAEMO)
+               || (has(agent, LINUX) && has(agent, TABLET) && !webOSTablet && !android)
+               || has(agent, ARCHOS)
+               || (has(agent, PDA) && !has(agent, UPDATE))
+               || has(agent, MOBILE)
+               || (has(agent, KINDLE) && !android)
+               || has(agent, SILK))
+         return Classification.MOBILE;
+
+      return Classification.DESKTOP;
+   }
+
+   private static boolean has(long found, long tokens)
+   {
+      return (found & tokens) != 0;
+   }
+
+   @SuppressWarnings("unchecked")
+   private static BoundedCache<CacheKey, Classification> getCache(ServletContext context)
+   {
+      BoundedCache<CacheKey, Classification> cache = (BoundedCache<CacheKey, Classification>) context
+               .getAttribute(CONTEXT_KEY);
+      if (cache == null)
+      {
+         synchronized (context)
+         {
+            cache = (BoundedCache<CacheKey, Classification>) context.getAttribute(CONTEXT_KEY);
+            if (cache == null)
+            {
+               int size = InitParameters.getInt(context, UserAgent.CACHE_SIZE, DEFAULT_CACHE_SIZE);
+               cache = new BoundedCache<CacheKey, Classification>(size);
+               context.setAttribute(CONTEXT_KEY, cache);
+
+               if (log.isDebugEnabled())
+                  log.debug("Initialized User-Agent classification cache with size [" + size + "].");
+            }
+         }
+      }
+      return cache.isEnabled() ? cache : null;
+   }
+
+   /**
+    * Deterministic Aho-Corasick automaton over a fixed set of lower-case ASCII tokens. Input is lower-cased one
+    * character at a time as it is scanned.
+    */
+   private static class TokenAutomaton
+   {
+      private final int[] classes = new int[128];
+      private final int width;
+      private final int[] transitions;
+      private final long[] outputs;
+
+      public TokenAutomaton(List<String> tokens)
+      {
+         int width = 1;
+         int length = 1;
+         for (String token : tokens)
+         {
+            for (int i = 0; i < token.length(); i++)
+            {
+               char c = token.charAt(i);
+               if (classes[c] == 0)
+                  classes[c] = width++;
+            }
+            length += token.length();
+         }
+         this.width = width;
+
+         /*
+          * Build the trie, where state 0 is the root and -1 marks a missing edge.
+          */
+         int[] trie = new int[length * width];
+         Arrays.fill(trie, -1);
+         long[] outputs = new long[length];
+         int states = 1;
+         for (int t = 0; t < tokens.size(); t++)
+         {
+            String token = tokens.get(t);
+            int state = 0;
+            for (int i = 0; i < token.length(); i++)
+            {
+               int edge = state * width + classes[token.charAt(i)];
+               if (trie[edge] < 0)
+                  trie[edge] = states++;
+               state = trie[edge];
+            }
+            outputs[state] |= 1L << t;
+         }
+
+         /*
+          * Resolve failure links breadth-first, turning missing edges into transitions of the failure state, and
+          * merging the outputs of each failure state into the states that fall back to it.
+          */
+         int[] failure = new int[states];
+         int[] queue = new int[states];
+         int head = 0;
+         int tail = 0;
+         for (int c = 0; c < width; c++)
+         {
+            int next = trie[c];
+            if (next < 0)
+               trie[c] = 0;
+            else
+            {
+               failure[next] = 0;
+               queue[tail++] = next;
+            }
+         }
+
+         while (head < tail)
+         {
+            int state = queue[head++];
+            outputs[state] |= outputs[failure[state]];
+            for (int c = 0; c < width; c++)
+            {
+               int edge = state * width + c;
+               int next = trie[edge];
+               if (next < 0)
+                  trie[edge] = trie[failure[state] * width + c];
+               else
+               {
+                  failure[next] = trie[failure[state] * width + c];
+                  queue[tail++] = next;
+               }
+            }
+         }
+
+         this.transitions = Arrays.copyOf(trie, states * width);
+         this.outputs = Arrays.copyOf(outputs, states);
+      }
+
+      /**
+       * Return the bits of every token that occurs in the given value, ignoring case.
+       */
+      public long scan(String value)
+      {
+         long found = 0;
+         if (value != null)
+         {
+            int state = 0;
+            for (int i = 0; i < value.length(); i++)
+            {
+               char c = value.charAt(i);
+               if (c >= 'A' && c <= 'Z')
+                  c += 'a' - 'A';
+               else if (c >= 128)
+                  c = Character.toLowerCase(c);
+
+               state = transitions[state * width + (c < 128 ? classes[c] : 0)];
+               found |= outputs[state];
+            }
+         }
+         return found;
+      }
+   }
+
+   /**
+    * Cache key for a pair of raw "User-Agent" and "Accept" header values.
+    */
+   private static class CacheKey
+   {
+      private final String userAgent;
+      private final String accept;
+      private final int hash;
+
+      public CacheKey(String userAgent, String accept)
+      {
+         this.userAgent = userAgent;
+         this.accept = accept;
+         this.hash = 31 * (userAgent == null ? 0 : userAgent.hashCode()) + (accept == null ? 0 : accept.hashCode());
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return hash;
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if (this == obj)
+            return true;
+         if (!(obj instanceof CacheKey))
+            return false;
+
+         CacheKey other = (CacheKey) obj;
+         return hash == other.hash
+                  && (userAgent == null ? other.userAgent == null : userAgent.equals(other.userAgent))
+                  && (accept == null ? other.accept == null : accept.equals(other.accept));
+      }
+   }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config.response;
+
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+/**
+ * Parsed value of the HTTP "Accept-Encoding" request header, including the quality value of each listed content coding.
+ * A request without the header is treated as accepting only the "identity" coding.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public final class AcceptEncoding
+{
+   public static final String HEADER = "Accept-Encoding";
+   public static final String IDENTITY = "identity";
+
+   private static final String ANY = "*";
+
+   private final Map<String, Float> qualities = new LinkedHashMap<String, Float>();
+
+   private AcceptEncoding()
+   {}
+
+   /**
+    * Parse all "Accept-Encoding" headers of the given {@link HttpServletRequest}.
+    */
+   public static AcceptEncoding of(HttpServletRequest request)
+   {
+      AcceptEncoding result = new AcceptEncoding();
+      @SuppressWarnings("unchecked")
+      Enumeration<String> headers = request.getHeaders(HEADER);
+      if (headers != null)
+      {
+         while (headers.hasMoreElements()) {
+            result.add(headers.nextElement());
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Parse the given "Accept-Encoding" header value, which may be <code>null</code>.
+    */
+   public static AcceptEncoding parse(String header)
+   {
+      AcceptEncoding result = new AcceptEncoding();
+      result.add(header);
+      return result;
+   }
+
+   private void add(String header)
+   {
+      if (header == null)
+         return;
+
+      for (String element : header.split(","))
+      {
+         String[] parts = element.split(";");
+         String coding = parts[0].trim().toLowerCase(Locale.ENGLISH);
+         if (coding.isEmpty())
+            continue;
+
+         float quality = 1f;
+         for (int i = 1; i < parts.length; i++)
+         {
+            String parameter = parts[i].trim();
+            if (parameter.length() > 2 && Character.toLowerCase(parameter.charAt(0)) == 'q'
+                     && parameter.charAt(1) == '=')
+            {
+               try {
+                  quality = Math.max(0f, Math.min(1f, Float.parseFloat(parameter.substring(2).trim())));
+               }
+               catch (NumberFormatException e) {
+                  quality = 0f;
+               }
+            }
+         }
+
+         if ("x-gzip".equals(coding))
+            coding = "gzip";
+         else if ("x-compress".equals(coding))
+            coding = "compress";
+
+         Float existing = qualities.get(coding);
+         if (existing == null || existing < quality)
+            qualities.put(coding, quality);
+      }
+   }
+
+   /**
+    * Return the quality value, between <code>0</code> and <code>1</code>, with which the given content coding is
+    * accepted. A quality of <code>0</code> means the coding is not acceptable.
+    */
+   public float getQuality(String coding)
+   {
+      String name = coding.toLowerCase(Locale.ENGLISH);
+      Float quality = qualities.get(name);
+      if (quality == null)
+         quality = qualities.get(ANY);
+      if (quality == null)
+         quality = IDENTITY.equals(name) ? 1f : 0f;
+      return quality;
+   }
+
+   /**
+    * Return <code>true</code> if the given content coding is explicitly listed, whether or not it is acceptable.
+    * Codings that are only matched by "*", or "identity" when it is accepted by default, are not listed.
+    */
+   public boolean isListed(String coding)
+   {
+      return qualities.containsKey(coding.toLowerCase(Locale.ENGLISH));
+   }
+
+   /**
+    * Return <code>true</code> if the given content coding is acceptable.
+    */
+   public boolean accepts(String coding)
+   {
+      return getQuality(coding) > 0f;
+   }
+
+   /**
+    * Return the acceptable content coding of the given candidates with the highest quality value, preferring earlier
+    * candidates when quality values are equal, or <code>null</code> if none are acceptable.
+    */
+   public String select(String... codings)
+   {
+      String result = null;
+      float best = 0f;
+      for (String coding : codings)
+      {
+         float quality = getQuality(coding);
+         if (quality > best)
+         {
+            best = quality;
+            result = coding;
+         }
+      }
+      return result;
+   }
+
+   @Override
+   public String toString()
+   {
+      return "AcceptEncoding " + qualities;
+   }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config.response;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * Application-wide pool of raw (<code>nowrap</code>) {@link Deflater} instances, one pool per compression level. Each
+ * {@link Deflater} holds native memory until {@link Deflater#end()} is called, so re-using idle instances avoids both
+ * the allocation and the wait for finalization that creating one per response would cause.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+final class DeflaterPool
+{
+   private static final int MAX_IDLE = 32;
+
+   /*
+    * Indexed by compression level + 1, so that Deflater.DEFAULT_COMPRESSION (-1) maps to 0.
+    */
+   private static final Pool[] pools = new Pool[Deflater.BEST_COMPRESSION + 2];
+
+   static
+   {
+      for (int i = 0; i < pools.length; i++) {
+         pools[i] = new Pool();
+      }
+   }
+
+   private DeflaterPool()
+   {}
+
+   /**
+    * Return an idle {@link Deflater} for the given level, or a new one if none is available.
+    */
+   public static Deflater acquire(int level)
+   {
+      Deflater deflater = pools[level + 1].idle.poll();
+      if (deflater == null)
+         return new Deflater(level, true);
+
+      pools[level + 1].size.decrementAndGet();
+      return deflater;
+   }
+
+   /**
+    * Reset the given {@link Deflater}, previously obtained from {@link #acquire(int)} with the given level, and return
+    * it to the pool; or release its native memory if the pool is full.
+    */
+   public static void release(int level, Deflater deflater)
+   {
+      Pool pool = pools[level + 1];
+      if (pool.size.incrementAndGet() <= MAX_IDLE)
+      {
+         deflater.reset();
+         pool.idle.offer(deflater);
+      }
+      else
+      {
+         pool.size.decrementAndGet();
+         deflater.end();
+      }
+   }
+
+   /**
+    * Validate the given compression level.
+    */
+   public static int checkLevel(int level)
+   {
+      if (level != Deflater.DEFAULT_COMPRESSION
+               && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION))
+         throw new IllegalArgumentException("Compression level must be between [" + Deflater.NO_COMPRESSION
+                  + "] and [" + Deflater.BEST_COMPRESSION + "], or [" + Deflater.DEFAULT_COMPRESSION
+                  + "] for the default level, but was [" + level + "]");
+      return level;
+   }
+
+   private static class Pool
+   {
+      private final Queue<Deflater> idle = new ConcurrentLinkedQueue<Deflater>();
+      private final AtomicInteger size = new AtomicInteger();
+   }
+}
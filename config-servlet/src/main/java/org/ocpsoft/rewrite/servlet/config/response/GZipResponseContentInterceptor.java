@@ -1,22 +1,54 @@
 package org.ocpsoft.rewrite.servlet.config.response;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.Deflater;
+
+import javax.servlet.http.HttpServletResponse;
 
-import org.ocpsoft.common.util.Streams;
 import org.ocpsoft.rewrite.exception.RewriteException;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
 
 /**
  * A {@link ResponseContentInterceptor} that compresses the response output to GZip format and sets the proper response
  * headers.
- * 
+ * <p>
+ * Content is only compressed if the client accepts the "gzip" content coding, the response has not already been
+ * encoded, its content type is not an already compressed format (such as images, archives, or fonts), and it is at
+ * least {@link #DEFAULT_MINIMUM_SIZE} bytes long (or the configured minimum size).
+ *
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
 public class GZipResponseContentInterceptor implements ResponseContentInterceptor
 {
+   public final static int DEFAULT_MINIMUM_SIZE = GZipSupport.DEFAULT_MINIMUM_SIZE;
+
+   private final int level;
+   private final int minimumSize;
+
+   /**
+    * Create a new {@link GZipResponseContentInterceptor} using the default compression level.
+    */
+   public GZipResponseContentInterceptor()
+   {
+      this(Deflater.DEFAULT_COMPRESSION, DEFAULT_MINIMUM_SIZE);
+   }
+
+   /**
+    * Create a new {@link GZipResponseContentInterceptor}.
+    *
+    * @param level the {@link Deflater} compression level, from <code>0</code> to <code>9</code>, or <code>-1</code>
+    *           for the default level.
+    * @param minimumSize responses shorter than this number of bytes are not compressed.
+    */
+   public GZipResponseContentInterceptor(int level, int minimumSize)
+   {
+      if (minimumSize < 0)
+         throw new IllegalArgumentException("Minimum size must not be negative, but was [" + minimumSize + "]");
+      this.level = DeflaterPool.checkLevel(level);
+      this.minimumSize = minimumSize;
+   }
+
    @Override
    public void intercept(HttpServletRewrite event, ResponseContent buffer, ResponseContentInterceptorChain chain)
    {
@@ -25,18 +57,30 @@ public class GZipResponseContentInterceptor implements ResponseContentIntercepto
        */
       chain.proceed();
 
+      HttpServletResponse response = event.getResponse();
+      if (!GZipSupport.isCompressible(response))
+         return;
+
+      GZipSupport.addVary(response);
+
       byte[] contents = buffer.getContents();
-      ByteArrayOutputStream result = new ByteArrayOutputStream();
+      if (contents.length < minimumSize || !GZipSupport.isAccepted(event.getRequest()))
+         return;
+
+      /*
+       * Deflate straight from the buffered content; text typically compresses to well under half its size.
+       */
+      ByteArrayOutputStream result = new ByteArrayOutputStream(contents.length / 2 + 64);
       try {
-         GZIPOutputStream gzip = new GZIPOutputStream(result);
-         Streams.copy(new ByteArrayInputStream(contents), gzip);
-         gzip.close();
+         PooledGZipOutputStream gzip = new PooledGZipOutputStream(result, level, false);
+         gzip.write(contents, 0, contents.length);
+         gzip.finish();
 
          contents = result.toByteArray();
          buffer.setContents(contents);
 
-         event.getResponse().setContentLength(contents.length);
-         event.getResponse().addHeader("Content-Encoding", "gzip");
+         response.setContentLength(contents.length);
+         response.setHeader("Content-Encoding", GZipSupport.GZIP);
       }
       catch (IOException e) {
          throw new RewriteException("Failed to GZIP compress output content: ", e);
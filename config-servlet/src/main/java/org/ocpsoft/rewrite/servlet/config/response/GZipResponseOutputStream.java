@@ -0,0 +1,176 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+
+/**
+ * {@link OutputStream} that holds back up to a minimum number of bytes before deciding whether to compress the
+ * response, after which all content is streamed straight through a {@link PooledGZipOutputStream}. Content is passed
+ * through unchanged if the client does not accept "gzip", if the response has already been encoded or is of an
+ * already compressed content type, or if the complete response is smaller than the minimum size. Flushing before the
+ * minimum size has been reached sends the held back content uncompressed, since it cannot be known whether the
+ * response will grow large enough to be worth compressing.
+ * <p>
+ * The pooled {@link java.util.zip.Deflater} is returned once the response is finished or closed, or as soon as
+ * writing to the underlying {@link OutputStream} fails.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+class GZipResponseOutputStream extends OutputStream
+{
+   private final HttpServletRewrite rewrite;
+   private final OutputStream target;
+   private final int level;
+   private final boolean syncFlush;
+
+   private byte[] pending;
+   private int count = 0;
+   private OutputStream stream;
+   private boolean finished = false;
+
+   public GZipResponseOutputStream(HttpServletRewrite rewrite, OutputStream target, int level, boolean syncFlush,
+            int minimumSize)
+   {
+      this.rewrite = rewrite;
+      this.target = target;
+      this.level = level;
+      this.syncFlush = syncFlush;
+      this.pending = new byte[minimumSize];
+   }
+
+   @Override
+   public void write(int b) throws IOException
+   {
+      if (stream == null && count < pending.length - 1)
+         pending[count++] = (byte) b;
+      else
+         write(new byte[] { (byte) b }, 0, 1);
+   }
+
+   @Override
+   public void write(byte[] b, int off, int len) throws IOException
+   {
+      if (stream == null)
+      {
+         if (count + len < pending.length)
+         {
+            System.arraycopy(b, off, pending, count, len);
+            count += len;
+            return;
+         }
+         decide(true);
+      }
+
+      try {
+         stream.write(b, off, len);
+      }
+      catch (IOException e) {
+         abort();
+         throw e;
+      }
+   }
+
+   @Override
+   public void flush() throws IOException
+   {
+      if (stream == null && count > 0)
+         decide(false);
+
+      try {
+         if (stream == null)
+            target.flush();
+         else
+            stream.flush();
+      }
+      catch (IOException e) {
+         abort();
+         throw e;
+      }
+   }
+
+   /**
+    * Complete the response, writing any remaining compressed or held back content. The underlying {@link OutputStream}
+    * is not closed. Subsequent calls have no effect.
+    */
+   public void finish() throws IOException
+   {
+      if (finished)
+         return;
+      finished = true;
+
+      if (stream == null)
+         decide(false);
+
+      if (stream instanceof PooledGZipOutputStream)
+         ((PooledGZipOutputStream) stream).finish();
+      target.flush();
+   }
+
+   /**
+    * Complete the response as {@link #finish()} does, and close the underlying {@link OutputStream}.
+    */
+   @Override
+   public void close() throws IOException
+   {
+      try {
+         finish();
+      }
+      finally {
+         target.close();
+      }
+   }
+
+   private void abort()
+   {
+      if (stream instanceof PooledGZipOutputStream)
+         ((PooledGZipOutputStream) stream).abort();
+   }
+
+   private void decide(boolean compress) throws IOException
+   {
+      HttpServletResponse response = rewrite.getResponse();
+      stream = target;
+
+      if (GZipSupport.isCompressible(response))
+      {
+         GZipSupport.addVary(response);
+         if (compress && !response.isCommitted() && GZipSupport.isAccepted(rewrite.getRequest()))
+         {
+            response.setHeader("Content-Encoding", GZipSupport.GZIP);
+            stream = new PooledGZipOutputStream(target, level, syncFlush);
+         }
+      }
+
+      try {
+         if (count > 0)
+            stream.write(pending, 0, count);
+      }
+      catch (IOException e) {
+         abort();
+         throw e;
+      }
+      finally {
+         pending = null;
+         count = 0;
+      }
+   }
+}
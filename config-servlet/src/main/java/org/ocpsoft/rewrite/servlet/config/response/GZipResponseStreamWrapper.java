@@ -17,7 +17,7 @@ package org.ocpsoft.rewrite.servlet.config.response;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.zip.Deflater;
 
 import org.ocpsoft.rewrite.exception.RewriteException;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
@@ -25,36 +25,65 @@ import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
 /**
  * A {@link ResponseStreamWrapper} that compresses the response output to GZip format and sets the proper response
  * headers.
+ * <p>
+ * Content is only compressed if the client accepts the "gzip" content coding, the response has not already been
+ * encoded, its content type is not an already compressed format (such as images, archives, or fonts), and it is at
+ * least {@link #DEFAULT_MINIMUM_SIZE} bytes long (or the configured minimum size). Compressed content is streamed to
+ * the client as it is written, using {@link Deflater} instances pooled across responses.
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
 public class GZipResponseStreamWrapper implements ResponseStreamWrapper
 {
    public final static String STREAM_KEY = GZipResponseStreamWrapper.class.getName() + "_STREAM";
+   public final static int DEFAULT_MINIMUM_SIZE = GZipSupport.DEFAULT_MINIMUM_SIZE;
+
+   private final int level;
+   private final boolean syncFlush;
+   private final int minimumSize;
+
+   /**
+    * Create a new {@link GZipResponseStreamWrapper} using the default compression level.
+    */
+   public GZipResponseStreamWrapper()
+   {
+      this(Deflater.DEFAULT_COMPRESSION, false, DEFAULT_MINIMUM_SIZE);
+   }
+
+   /**
+    * Create a new {@link GZipResponseStreamWrapper}.
+    * 
+    * @param level the {@link Deflater} compression level, from <code>0</code> to <code>9</code>, or <code>-1</code>
+    *           for the default level.
+    * @param syncFlush if <code>true</code>, flushing the response also flushes all content compressed so far to the
+    *           client, at some cost in compression ratio.
+    * @param minimumSize responses shorter than this number of bytes are not compressed.
+    */
+   public GZipResponseStreamWrapper(int level, boolean syncFlush, int minimumSize)
+   {
+      if (minimumSize < 0)
+         throw new IllegalArgumentException("Minimum size must not be negative, but was [" + minimumSize + "]");
+      this.level = DeflaterPool.checkLevel(level);
+      this.syncFlush = syncFlush;
+      this.minimumSize = minimumSize;
+   }
 
    @Override
    public OutputStream wrap(final HttpServletRewrite rewrite, OutputStream outputStream)
    {
-      rewrite.getResponse().setHeader("Content-Encoding", "gzip");
-
-      try {
-         GZIPOutputStream stream = new GZIPOutputStream(outputStream);
-         rewrite.getRequest().setAttribute(STREAM_KEY, stream);
-         return stream;
-      }
-      catch (IOException e) {
-         throw new RewriteException("Could not wrap OutputStream", e);
-      }
+      GZipResponseOutputStream stream = new GZipResponseOutputStream(rewrite, outputStream, level, syncFlush,
+               minimumSize);
+      rewrite.getRequest().setAttribute(STREAM_KEY, stream);
+      return stream;
    }
 
    @Override
    public void finish(HttpServletRewrite rewrite)
    {
       try {
-         GZIPOutputStream stream = (GZIPOutputStream) rewrite.getRequest().getAttribute(STREAM_KEY);
+         GZipResponseOutputStream stream = (GZipResponseOutputStream) rewrite.getRequest().getAttribute(STREAM_KEY);
          if (stream != null)
          {
-            stream.flush();
             stream.finish();
          }
       }
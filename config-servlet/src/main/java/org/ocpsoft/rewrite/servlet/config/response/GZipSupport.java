@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config.response;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Decisions shared by {@link GZipResponseContentInterceptor} and {@link GZipResponseStreamWrapper}.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+final class GZipSupport
+{
+   public static final String GZIP = "gzip";
+   public static final int DEFAULT_MINIMUM_SIZE = 256;
+
+   /*
+    * Formats that are already compressed, and would only grow when compressed again.
+    */
+   private static final Set<String> COMPRESSED_TYPES = new HashSet<String>(Arrays.asList(
+            "application/zip", "application/gzip", "application/x-gzip", "application/x-compress",
+            "application/x-compressed", "application/x-bzip2", "application/x-xz", "application/x-7z-compressed",
+            "application/x-rar-compressed", "application/java-archive", "application/pdf", "application/font-woff",
+            "application/font-woff2", "font/woff", "font/woff2"));
+
+   private GZipSupport()
+   {}
+
+   /**
+    * Return <code>true</code> if the current request accepts the "gzip" content coding.
+    */
+   public static boolean isAccepted(HttpServletRequest request)
+   {
+      return AcceptEncoding.of(request).accepts(GZIP);
+   }
+
+   /**
+    * Return <code>true</code> if the given response has not already been encoded, and its content type is not an
+    * already compressed format.
+    */
+   public static boolean isCompressible(HttpServletResponse response)
+   {
+      if (response.containsHeader("Content-Encoding"))
+         return false;
+
+      String contentType = response.getContentType();
+      if (contentType == null)
+         return true;
+
+      int end = contentType.indexOf(';');
+      String type = (end < 0 ? contentType : contentType.substring(0, end)).trim().toLowerCase(Locale.ENGLISH);
+
+      if (type.startsWith("image/"))
+         return type.equals("image/svg+xml") || type.equals("image/bmp") || type.equals("image/x-icon")
+                  || type.equals("image/vnd.microsoft.icon");
+      if (type.startsWith("video/") || type.startsWith("audio/"))
+         return false;
+      return !COMPRESSED_TYPES.contains(type);
+   }
+
+   /**
+    * Mark the given response as varying by "Accept-Encoding", for the benefit of shared caches.
+    */
+   public static void addVary(HttpServletResponse response)
+   {
+      response.addHeader("Vary", AcceptEncoding.HEADER);
+   }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config.response;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Equivalent of {@link GZIPOutputStream} that borrows its {@link Deflater} from the {@link DeflaterPool}, and returns it
+ * once the stream is finished or aborted.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+class PooledGZipOutputStream extends DeflaterOutputStream
+{
+   private static final int BUFFER_SIZE = 8192;
+   private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+   private final int level;
+   private final CRC32 crc = new CRC32();
+   private boolean finished = false;
+
+   public PooledGZipOutputStream(OutputStream out, int level, boolean syncFlush) throws IOException
+   {
+      super(out, DeflaterPool.acquire(level), BUFFER_SIZE, syncFlush);
+      this.level = level;
+      try {
+         out.write(HEADER);
+      }
+      catch (IOException e) {
+         abort();
+         throw e;
+      }
+   }
+
+   @Override
+   public void write(byte[] b, int off, int len) throws IOException
+   {
+      if (finished)
+         throw new IOException("write beyond end of stream");
+
+      super.write(b, off, len);
+      crc.update(b, off, len);
+   }
+
+   @Override
+   public void flush() throws IOException
+   {
+      if (finished)
+         out.flush();
+      else
+         super.flush();
+   }
+
+   @Override
+   public void finish() throws IOException
+   {
+      if (!finished)
+      {
+         finished = true;
+         try {
+            super.finish();
+            writeInt((int) crc.getValue());
+            writeInt((int) def.getBytesRead());
+         }
+         finally {
+            DeflaterPool.release(level, def);
+         }
+      }
+   }
+
+   /**
+    * Discard this stream after a failure, returning its {@link Deflater} to the pool without writing any further
+    * content. Has no effect if the stream has already been finished.
+    */
+   public void abort()
+   {
+      if (!finished)
+      {
+         finished = true;
+         DeflaterPool.release(level, def);
+      }
+   }
+
+   @Override
+   public void close() throws IOException
+   {
+      try {
+         finish();
+      }
+      finally {
+         out.close();
+      }
+   }
+
+   private void writeInt(int value) throws IOException
+   {
+      out.write(value & 0xff);
+      out.write((value >> 8) & 0xff);
+      out.write((value >> 16) & 0xff);
+      out.write((value >> 24) & 0xff);
+   }
+}
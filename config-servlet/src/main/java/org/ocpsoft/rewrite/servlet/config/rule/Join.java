@@ -16,6 +16,7 @@
 package org.ocpsoft.rewrite.servlet.config.rule;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -25,9 +26,12 @@ import java.util.Set;
 import javax.servlet.http.HttpServletRequest;
 
 import org.ocpsoft.rewrite.bind.Binding;
+import org.ocpsoft.rewrite.config.CacheableCondition;
+import org.ocpsoft.rewrite.config.CacheableOperation;
 import org.ocpsoft.rewrite.config.ConditionBuilder;
 import org.ocpsoft.rewrite.config.ConditionVisit;
 import org.ocpsoft.rewrite.config.ConfigurationRuleParameterBuilder;
+import org.ocpsoft.rewrite.config.IndexableCondition;
 import org.ocpsoft.rewrite.config.ParameterizedCallback;
 import org.ocpsoft.rewrite.config.ParameterizedConditionVisitor;
 import org.ocpsoft.rewrite.config.Rule;
@@ -38,6 +42,8 @@ import org.ocpsoft.rewrite.param.Parameter;
 import org.ocpsoft.rewrite.param.ParameterStore;
 import org.ocpsoft.rewrite.param.Parameterized;
 import org.ocpsoft.rewrite.param.ParameterizedPattern;
+import org.ocpsoft.rewrite.param.ParameterizedPatternHolder;
+import org.ocpsoft.rewrite.param.ParameterizedPatternParser;
 import org.ocpsoft.rewrite.servlet.config.DispatchType;
 import org.ocpsoft.rewrite.servlet.config.Forward;
 import org.ocpsoft.rewrite.servlet.config.Path;
@@ -49,6 +55,7 @@ import org.ocpsoft.rewrite.servlet.http.event.HttpInboundServletRewrite;
 import org.ocpsoft.rewrite.servlet.http.event.HttpOutboundServletRewrite;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
 import org.ocpsoft.rewrite.servlet.spi.RequestParameterProvider;
+import org.ocpsoft.rewrite.servlet.util.ParsedAddress;
 import org.ocpsoft.urlbuilder.Address;
 import org.ocpsoft.urlbuilder.AddressBuilder;
 import org.ocpsoft.urlbuilder.AddressBuilderBase;
@@ -60,7 +67,8 @@ import org.ocpsoft.urlbuilder.AddressBuilderBase;
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public class Join implements Rule, JoinPath, Parameterized
+public class Join implements Rule, JoinPath, Parameterized, CacheableCondition, CacheableOperation,
+         IndexableCondition, ParameterizedPatternHolder
 {
    private static final String JOIN_DISABLED_KEY = Join.class.getName() + "_DISABLED";
 
@@ -306,10 +314,7 @@ public class Join implements Rule, JoinPath, Parameterized
          substitute.perform(event, context);
 
          Address rewrittenAddress = ((HttpOutboundServletRewrite) event).getOutboundAddress();
-         String rewrittenPath = rewrittenAddress.getPath();
-         String contextPath = ((HttpServletRewrite) event).getContextPath();
-         if (!contextPath.equals("/") && rewrittenPath.startsWith(contextPath))
-            rewrittenPath = rewrittenPath.substring(contextPath.length());
+         String rewrittenPath = ParsedAddress.of((HttpServletRewrite) event).getPath();
 
          if (!outboundAddress.equals(rewrittenAddress)
                   && !requestPath.getExpression().parse(rewrittenPath).submit(event, context))
@@ -352,6 +357,31 @@ public class Join implements Rule, JoinPath, Parameterized
       return result;
    }
 
+   @Override
+   public List<ParameterizedPatternParser> getPatternParsers()
+   {
+      if (resourcePath == null)
+         return Arrays.asList(requestPath.getExpression());
+      return Arrays.asList(requestPath.getExpression(), resourcePath.getExpression());
+   }
+
+   @Override
+   public Set<String> getInboundPathPrefixes()
+   {
+      Set<String> result = new LinkedHashSet<String>(requestPath.getInboundPathPrefixes());
+      if (inboundCorrection && resourcePath != null)
+         result.addAll(resourcePath.getInboundPathPrefixes());
+      return result;
+   }
+
+   @Override
+   public Set<String> getOutboundPathPrefixes()
+   {
+      if (resourcePath == null)
+         return null;
+      return resourcePath.getOutboundPathPrefixes();
+   }
+
    @Override
    public Set<String> getRequiredParameterNames()
    {
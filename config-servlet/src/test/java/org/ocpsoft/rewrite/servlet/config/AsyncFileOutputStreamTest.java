@@ -0,0 +1,295 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ocpsoft.rewrite.servlet.config.Stream.Overflow;
+
+public class AsyncFileOutputStreamTest
+{
+   private static final File FILE = new File("capture.out");
+
+   /*
+    * Stands in for the shared background thread, so that each test decides exactly when batches are written.
+    */
+   private final BlockingQueue<Runnable> tasks = new LinkedBlockingQueue<Runnable>();
+   private final Executor writer = new Executor() {
+      @Override
+      public void execute(Runnable task)
+      {
+         tasks.add(task);
+      }
+   };
+
+   private RecordingOutputStream out;
+
+   @Before
+   public void setUp()
+   {
+      tasks.clear();
+      out = new RecordingOutputStream();
+   }
+
+   private AsyncFileOutputStream stream(int capacity, Overflow overflow)
+   {
+      return new AsyncFileOutputStream(FILE, out, capacity, overflow, writer);
+   }
+
+   private void runAll()
+   {
+      Runnable task;
+      while ((task = tasks.poll()) != null)
+         task.run();
+   }
+
+   @Test
+   public void testWritesInOrder() throws IOException
+   {
+      AsyncFileOutputStream stream = stream(16, Overflow.BLOCK);
+      stream.write("hello ".getBytes());
+      stream.write('w');
+      stream.write("xorldx".getBytes(), 1, 4);
+      runAll();
+      assertEquals("hello world", out.toString());
+   }
+
+   @Test
+   public void testWrapAround() throws IOException
+   {
+      AsyncFileOutputStream stream = stream(4, Overflow.BLOCK);
+      stream.write("abc".getBytes());
+      runAll();
+      stream.write("defg".getBytes());
+      runAll();
+      stream.write("hij".getBytes());
+      stream.close();
+      runAll();
+      assertEquals("abcdefghij", out.toString());
+      assertTrue(out.closed);
+   }
+
+   @Test
+   public void testDropDiscardsOverflow() throws IOException
+   {
+      AsyncFileOutputStream stream = stream(4, Overflow.DROP);
+      stream.write("abcdef".getBytes());
+      stream.write("gh".getBytes());
+      runAll();
+      stream.write("ij".getBytes());
+      stream.close();
+      runAll();
+      assertEquals("abcdij", out.toString());
+   }
+
+   @Test
+   public void testSpillKeepsOrder() throws IOException
+   {
+      AsyncFileOutputStream stream = stream(4, Overflow.SPILL);
+      stream.write("abcdef".getBytes());
+      stream.write("gh".getBytes());
+
+      /*
+       * Writes the ring buffer only; later bytes must still queue behind the spilled ones.
+       */
+      tasks.poll().run();
+      assertEquals("abcd", out.toString());
+      stream.write("ij".getBytes());
+
+      stream.close();
+      runAll();
+      assertEquals("abcdefghij", out.toString());
+   }
+
+   @Test
+   public void testBlockWaitsForWriter() throws Exception
+   {
+      final AsyncFileOutputStream stream = stream(4, Overflow.BLOCK);
+      final IOException[] error = new IOException[1];
+      Thread producer = new Thread() {
+         @Override
+         public void run()
+         {
+            try {
+               stream.write("abcdefghijklmnop".getBytes());
+               stream.close();
+            }
+            catch (IOException e) {
+               error[0] = e;
+            }
+         }
+      };
+      producer.start();
+
+      while (producer.isAlive() || !tasks.isEmpty())
+      {
+         Runnable task = tasks.poll(10, TimeUnit.MILLISECONDS);
+         if (task != null)
+            task.run();
+      }
+      producer.join();
+
+      assertNull(error[0]);
+      assertEquals("abcdefghijklmnop", out.toString());
+      assertTrue(out.closed);
+   }
+
+   @Test
+   public void testCloseReturnsBeforeDrain() throws IOException
+   {
+      AsyncFileOutputStream stream = stream(8, Overflow.BLOCK);
+      stream.write("abcdefgh".getBytes());
+      stream.close();
+      stream.close();
+
+      assertEquals("", out.toString());
+      assertFalse(out.closed);
+
+      runAll();
+      assertEquals("abcdefgh", out.toString());
+      assertTrue(out.closed);
+   }
+
+   @Test(expected = IOException.class)
+   public void testWriteAfterClose() throws IOException
+   {
+      AsyncFileOutputStream stream = stream(8, Overflow.BLOCK);
+      stream.close();
+      stream.write('a');
+   }
+
+   @Test
+   public void testBatchesAreInterleaved() throws IOException
+   {
+      RecordingOutputStream first = out;
+      AsyncFileOutputStream large = stream(2, Overflow.SPILL);
+      large.write("aaaaaaaa".getBytes());
+
+      RecordingOutputStream second = out = new RecordingOutputStream();
+      AsyncFileOutputStream small = stream(2, Overflow.SPILL);
+      small.write("bb".getBytes());
+
+      tasks.poll().run();
+      assertEquals("aa", first.toString());
+
+      Runnable next = tasks.poll();
+      assertSame(small, next);
+      next.run();
+      assertEquals("bb", second.toString());
+      assertEquals("aa", first.toString());
+
+      runAll();
+      assertEquals("aaaaaaaa", first.toString());
+   }
+
+   @Test
+   public void testWriteFailureDiscardsAndReleases() throws Exception
+   {
+      out.fail = true;
+      final AsyncFileOutputStream stream = stream(4, Overflow.BLOCK);
+      stream.write("abcd".getBytes());
+
+      Thread producer = new Thread() {
+         @Override
+         public void run()
+         {
+            try {
+               stream.write("efgh".getBytes());
+            }
+            catch (IOException e) {
+               throw new RuntimeException(e);
+            }
+         }
+      };
+      producer.start();
+
+      /*
+       * The blocked producer must be released by the failure rather than wait for room forever.
+       */
+      tasks.take().run();
+      producer.join(5000);
+      assertFalse(producer.isAlive());
+      assertTrue(out.closed);
+
+      stream.write("ijkl".getBytes());
+      stream.close();
+      assertTrue(tasks.isEmpty());
+      assertEquals("", out.toString());
+   }
+
+   @Test
+   public void testFileIsTruncatedWhenCreated() throws IOException
+   {
+      File file = File.createTempFile("rewrite-capture", ".out");
+      file.deleteOnExit();
+      FileOutputStream stale = new FileOutputStream(file);
+      stale.write("stale contents".getBytes());
+      stale.close();
+
+      AsyncFileOutputStream stream = new AsyncFileOutputStream(file, 8, Overflow.BLOCK);
+      assertEquals(0, file.length());
+      stream.close();
+   }
+
+   private static class RecordingOutputStream extends OutputStream
+   {
+      private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      private boolean fail = false;
+      private boolean closed = false;
+
+      @Override
+      public void write(int b) throws IOException
+      {
+         write(new byte[] { (byte) b }, 0, 1);
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException
+      {
+         if (fail)
+            throw new IOException("Disk full");
+         bytes.write(b, off, len);
+      }
+
+      @Override
+      public void close()
+      {
+         closed = true;
+      }
+
+      @Override
+      public String toString()
+      {
+         return bytes.toString();
+      }
+   }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class FileTransferTest
+{
+   private static final String ETAG = "\"15e3c4a0b18-400\"";
+   private static final long LAST_MODIFIED = 1500000000000L;
+
+   private HttpServletRequest request;
+
+   @Before
+   public void setUp()
+   {
+      request = mock(HttpServletRequest.class);
+      when(request.getDateHeader("If-Modified-Since")).thenReturn(-1L);
+      when(request.getDateHeader("If-Range")).thenReturn(-1L);
+   }
+
+   @Test
+   public void testClosedRange()
+   {
+      assertArrayEquals(new long[] { 0, 99 }, FileTransfer.parseRange("bytes=0-99", 1024));
+      assertArrayEquals(new long[] { 100, 199 }, FileTransfer.parseRange("Bytes=100 - 199", 1024));
+      assertArrayEquals(new long[] { 5, 5 }, FileTransfer.parseRange("bytes=5-5", 1024));
+   }
+
+   @Test
+   public void testOpenEndedRange()
+   {
+      assertArrayEquals(new long[] { 1000, 1023 }, FileTransfer.parseRange("bytes=1000-", 1024));
+      assertArrayEquals(new long[] { 0, 1023 }, FileTransfer.parseRange("bytes=0-", 1024));
+   }
+
+   @Test
+   public void testSuffixRange()
+   {
+      assertArrayEquals(new long[] { 924, 1023 }, FileTransfer.parseRange("bytes=-100", 1024));
+      assertArrayEquals(new long[] { 0, 1023 }, FileTransfer.parseRange("bytes=-5000", 1024));
+      assertSame(FileTransfer.UNSATISFIABLE, FileTransfer.parseRange("bytes=-0", 1024));
+      assertSame(FileTransfer.UNSATISFIABLE, FileTransfer.parseRange("bytes=-10", 0));
+   }
+
+   @Test
+   public void testEndBeyondLengthIsClamped()
+   {
+      assertArrayEquals(new long[] { 1000, 1023 }, FileTransfer.parseRange("bytes=1000-5000", 1024));
+   }
+
+   @Test
+   public void testOutOfBoundsRange()
+   {
+      assertSame(FileTransfer.UNSATISFIABLE, FileTransfer.parseRange("bytes=1024-", 1024));
+      assertSame(FileTransfer.UNSATISFIABLE, FileTransfer.parseRange("bytes=2000-3000", 1024));
+      assertSame(FileTransfer.UNSATISFIABLE, FileTransfer.parseRange("bytes=0-10", 0));
+   }
+
+   @Test
+   public void testMultipleRangesSendWholeFile()
+   {
+      assertNull(FileTransfer.parseRange("bytes=0-9,20-29", 1024));
+      assertNull(FileTransfer.parseRange("bytes=-10, 0-", 1024));
+   }
+
+   @Test
+   public void testMalformedRanges()
+   {
+      assertNull(FileTransfer.parseRange("items=0-9", 1024));
+      assertNull(FileTransfer.parseRange("bytes=10", 1024));
+      assertNull(FileTransfer.parseRange("bytes=20-10", 1024));
+      assertNull(FileTransfer.parseRange("bytes=a-b", 1024));
+      assertNull(FileTransfer.parseRange("bytes=-", 1024));
+      assertNull(FileTransfer.parseRange("bytes=--5", 1024));
+   }
+
+   @Test
+   public void testNotModifiedWithoutConditionalHeaders()
+   {
+      assertFalse(FileTransfer.isNotModified(request, ETAG, LAST_MODIFIED));
+   }
+
+   @Test
+   public void testNotModifiedByEntityTag()
+   {
+      when(request.getHeader("If-None-Match")).thenReturn("\"other\", " + ETAG);
+      assertTrue(FileTransfer.isNotModified(request, ETAG, LAST_MODIFIED));
+
+      when(request.getHeader("If-None-Match")).thenReturn("W/" + ETAG);
+      assertTrue(FileTransfer.isNotModified(request, ETAG, LAST_MODIFIED));
+
+      when(request.getHeader("If-None-Match")).thenReturn(" * ");
+      assertTrue(FileTransfer.isNotModified(request, ETAG, LAST_MODIFIED));
+
+      when(request.getHeader("If-None-Match")).thenReturn("\"other\"");
+      assertFalse(FileTransfer.isNotModified(request, ETAG, LAST_MODIFIED));
+   }
+
+   @Test
+   public void testEntityTagTakesPrecedenceOverDate()
+   {
+      when(request.getHeader("If-None-Match")).thenReturn("\"other\"");
+      when(request.getDateHeader("If-Modified-Since")).thenReturn(LAST_MODIFIED);
+      assertFalse(FileTransfer.isNotModified(request, ETAG, LAST_MODIFIED));
+   }
+
+   @Test
+   public void testNotModifiedByDate()
+   {
+      when(request.getDateHeader("If-Modified-Since")).thenReturn(LAST_MODIFIED);
+      assertTrue(FileTransfer.isNotModified(request, ETAG, LAST_MODIFIED));
+
+      when(request.getDateHeader("If-Modified-Since")).thenReturn(LAST_MODIFIED + 1000);
+      assertTrue(FileTransfer.isNotModified(request, ETAG, LAST_MODIFIED));
+
+      when(request.getDateHeader("If-Modified-Since")).thenReturn(LAST_MODIFIED - 1000);
+      assertFalse(FileTransfer.isNotModified(request, ETAG, LAST_MODIFIED));
+   }
+
+   @Test
+   public void testMalformedDateIsIgnored()
+   {
+      when(request.getDateHeader("If-Modified-Since")).thenThrow(new IllegalArgumentException());
+      assertFalse(FileTransfer.isNotModified(request, ETAG, LAST_MODIFIED));
+   }
+
+   @Test
+   public void testRangeCurrentWithoutIfRange()
+   {
+      assertTrue(FileTransfer.isRangeCurrent(request, ETAG, LAST_MODIFIED));
+   }
+
+   @Test
+   public void testIfRangeEntityTag()
+   {
+      when(request.getHeader("If-Range")).thenReturn(ETAG);
+      assertTrue(FileTransfer.isRangeCurrent(request, ETAG, LAST_MODIFIED));
+
+      when(request.getHeader("If-Range")).thenReturn("\"other\"");
+      assertFalse(FileTransfer.isRangeCurrent(request, ETAG, LAST_MODIFIED));
+   }
+
+   @Test
+   public void testIfRangeWeakEntityTagNeverMatches()
+   {
+      when(request.getHeader("If-Range")).thenReturn("W/" + ETAG);
+      assertFalse(FileTransfer.isRangeCurrent(request, ETAG, LAST_MODIFIED));
+   }
+
+   @Test
+   public void testIfRangeDate()
+   {
+      when(request.getHeader("If-Range")).thenReturn("Fri, 14 Jul 2017 02:40:00 GMT");
+      when(request.getDateHeader("If-Range")).thenReturn(LAST_MODIFIED);
+      assertTrue(FileTransfer.isRangeCurrent(request, ETAG, LAST_MODIFIED));
+
+      when(request.getDateHeader("If-Range")).thenReturn(LAST_MODIFIED - 1000);
+      assertFalse(FileTransfer.isRangeCurrent(request, ETAG, LAST_MODIFIED));
+   }
+
+   @Test
+   public void testIfRangeMalformedDate()
+   {
+      when(request.getHeader("If-Range")).thenReturn("yesterday");
+      when(request.getDateHeader("If-Range")).thenThrow(new IllegalArgumentException());
+      assertFalse(FileTransfer.isRangeCurrent(request, ETAG, LAST_MODIFIED));
+   }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.ocpsoft.rewrite.servlet.config.response.AcceptEncoding;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+
+public class PrecompressedTest
+{
+   private static final int ORIGINAL = -1;
+   private static final int BROTLI = 0;
+   private static final int GZIP = 1;
+
+   private File file;
+   private File brotli;
+   private File gzip;
+
+   private HttpServletRequest request;
+   private HttpServletResponse response;
+   private HttpServletRewrite event;
+
+   @Before
+   public void setUp() throws IOException
+   {
+      file = File.createTempFile("precompressed", ".css");
+      brotli = new File(file.getPath() + ".br");
+      gzip = new File(file.getPath() + ".gz");
+      brotli.createNewFile();
+      gzip.createNewFile();
+
+      request = mock(HttpServletRequest.class);
+      response = mock(HttpServletResponse.class);
+      event = mock(HttpServletRewrite.class);
+      when(event.getRequest()).thenReturn(request);
+      when(event.getResponse()).thenReturn(response);
+   }
+
+   @After
+   public void tearDown()
+   {
+      file.delete();
+      brotli.delete();
+      gzip.delete();
+   }
+
+   @Test
+   public void testNoAcceptEncodingServesOriginal()
+   {
+      assertEquals(ORIGINAL, select((String) null));
+   }
+
+   @Test
+   public void testPrefersBrotliAtEqualQuality()
+   {
+      assertEquals(BROTLI, select("gzip, deflate, br"));
+      assertEquals(BROTLI, select("*"));
+   }
+
+   @Test
+   public void testHighestQualityWins()
+   {
+      assertEquals(GZIP, select("br;q=0.5, gzip"));
+      assertEquals(BROTLI, select("br, gzip;q=0.8"));
+   }
+
+   @Test
+   public void testUnlistedIdentityDoesNotOutrankCoding()
+   {
+      assertEquals(GZIP, select("gzip;q=0.5"));
+   }
+
+   @Test
+   public void testListedIdentityOutranksCoding()
+   {
+      assertEquals(ORIGINAL, select("gzip;q=0.5, identity"));
+      assertEquals(GZIP, select("gzip, identity;q=0.5"));
+   }
+
+   @Test
+   public void testRefusedCodingNotServed()
+   {
+      assertEquals(ORIGINAL, select("gzip;q=0, br;q=0"));
+      assertEquals(GZIP, select("*, br;q=0"));
+   }
+
+   @Test
+   public void testMissingSidecarNotServed()
+   {
+      brotli.delete();
+      assertEquals(GZIP, select("br, gzip;q=0.5"));
+
+      gzip.delete();
+      assertEquals(ORIGINAL, select("br, gzip"));
+   }
+
+   @Test
+   public void testMultipleHeaders()
+   {
+      assertEquals(GZIP, select("br;q=0.1", "gzip"));
+   }
+
+   @Test
+   public void testAlreadyEncodedResponseServesOriginal()
+   {
+      when(response.containsHeader("Content-Encoding")).thenReturn(true);
+      assertEquals(ORIGINAL, select("gzip, br"));
+   }
+
+   private int select(String... headers)
+   {
+      when(request.getHeaders(AcceptEncoding.HEADER)).thenReturn(
+               headers[0] == null ? null : Collections.enumeration(Arrays.asList(headers)));
+      return Precompressed.from(file).select(event, file.getPath());
+   }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.ocpsoft.rewrite.servlet.config.UserAgent.Classification;
+
+public class UserAgentClassifierTest
+{
+   private static final String HTML = "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8";
+
+   private static final String[] USER_AGENTS = {
+            null,
+            "",
+            // desktop
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/58.0.3029.110 Safari/537.36",
+            "Mozilla/5.0 (Windows NT 6.1; WOW64; Trident/7.0; rv:11.0) like Gecko",
+            "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_12_5) AppleWebKit/603.2.4 (KHTML, like Gecko) Version/10.1.1 Safari/603.2.4",
+            "Mozilla/5.0 (Macintosh; PPC Mac OS X 10_5_8) AppleWebKit/534.50.2 (KHTML, like Gecko) Version/5.0.6 Safari/533.22.3",
+            "Mozilla/5.0 (X11; Ubuntu; Linux x86_64; rv:54.0) Gecko/20100101 Firefox/54.0",
+            "Opera/9.80 (Windows NT 6.1; WOW64) Presto/2.12.388 Version/12.18",
+            "Mozilla/5.0 (compatible; Googlebot/2.1; +http://www.google.com/bot.html)",
+            "curl/7.54.0",
+            // tablets
+            "Mozilla/5.0 (iPad; CPU OS 10_3_2 like Mac OS X) AppleWebKit/603.2.4 (KHTML, like Gecko) Version/10.0 Mobile/14F89 Safari/602.1",
+            "Mozilla/5.0 (Linux; Android 7.0; SM-T810 Build/NRD90M) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/58.0.3029.83 Safari/537.36",
+            "Mozilla/5.0 (Linux; U; Android 2.2; en-us; GoogleTV Build/FRF91) AppleWebKit/533.1 (KHTML, like Gecko) Version/4.0 Safari/533.1",
+            "Mozilla/5.0 (PlayBook; U; RIM Tablet OS 2.1.0; en-US) AppleWebKit/536.2+ (KHTML, like Gecko) Version/7.2.1.0 Safari/536.2+",
+            "Mozilla/5.0 (hp-tablet; Linux; hpwOS/3.0.5; U; en-US) AppleWebKit/534.6 (KHTML, like Gecko) wOSBrowser/234.83 Safari/534.6 TouchPad/1.0",
+            "Mozilla/5.0 (Linux; U; Android 3.0; en-us; Xoom Build/HRI39) AppleWebKit/534.13 (KHTML, like Gecko) Version/4.0 Safari/534.13",
+            "Mozilla/5.0 (Linux; U; en-us; KFAPWI Build/JDQ39) AppleWebKit/535.19 (KHTML, like Gecko) Silk/3.13 Safari/535.19 Silk-Accelerated=true",
+            // phones
+            "Mozilla/5.0 (iPhone; CPU iPhone OS 10_3_2 like Mac OS X) AppleWebKit/603.2.4 (KHTML, like Gecko) Version/10.0 Mobile/14F89 Safari/602.1",
+            "Mozilla/5.0 (iPod touch; CPU iPhone OS 9_3_5 like Mac OS X) AppleWebKit/601.1.46 (KHTML, like Gecko) Version/9.0 Mobile/13G36 Safari/601.1",
+            "Mozilla/5.0 (Linux; Android 7.0; SM-G930V Build/NRD90M) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/59.0.3071.125 Mobile Safari/537.36",
+            "Opera/9.80 (Android; Opera Mini/7.5.33361/31.1448; U; en) Presto/2.8.119 Version/11.1010",
+            "Opera/9.80 (Android 2.3.3; Linux; Opera Mobi/ADR-1111101157; U; es-ES) Presto/2.9.201 Version/11.50",
+            "Mozilla/5.0 (Linux; U; Android 2.3.4; en-us; HTC_Flyer_P512 Build/GRJ22) AppleWebKit/533.1 (KHTML, like Gecko) Version/4.0 Mobile Safari/533.1",
+            "Mozilla/5.0 (compatible; MSIE 9.0; Windows Phone OS 7.5; Trident/5.0; IEMobile/9.0; NOKIA; Lumia 800)",
+            "Mozilla/5.0 (compatible; MSIE 10.0; Windows Phone 8.0; Trident/6.0; IEMobile/10.0; ARM; Touch; NOKIA; Lumia 920)",
+            "Mozilla/4.0 (compatible; MSIE 6.0; Windows CE; IEMobile 7.11)",
+            "HTC_Touch_Diamond2_T5353 Mozilla/4.0 (compatible; MSIE 6.0; Windows CE; IEMobile 7.11)",
+            "Mozilla/4.0 (compatible; MSIE 4.01; Windows CE; PPC; 240x320)",
+            "Mozilla/5.0 (BB10; Touch) AppleWebKit/537.10+ (KHTML, like Gecko) Version/10.0.9.2372 Mobile Safari/537.10+",
+            "Mozilla/5.0 (BlackBerry; U; BlackBerry 9800; en-US) AppleWebKit/534.1+ (KHTML, like Gecko) Version/6.0.0.246 Mobile Safari/534.1+",
+            "BlackBerry9700/5.0.0.351 Profile/MIDP-2.1 Configuration/CLDC-1.1 VendorID/123",
+            "Mozilla/5.0 (SymbianOS/9.4; Series60/5.0 NokiaN97-1/12.0.024; Profile/MIDP-2.1 Configuration/CLDC-1.1; en-us) AppleWebKit/525 (KHTML, like Gecko) BrowserNG/7.1.18124",
+            "Mozilla/5.0 (webOS/1.4.0; U; en-US) AppleWebKit/532.2 (KHTML, like Gecko) Version/1.0 Safari/532.2 Pre/1.1",
+            "Mozilla/4.0 (compatible; MSIE 6.0; Windows 98; PalmSource/hspr-H102; Blazer/4.0) 16;320x320",
+            "Mozilla/5.0 (SAMSUNG; SAMSUNG-GT-S8500/S8500XXJL2; U; Bada/1.0; en-us) AppleWebKit/533.1 (KHTML, like Gecko) Dolfin/2.0 Mobile WVGA SMM-MMS/1.2.0 OPN-B",
+            "Mozilla/5.0 (Linux; Tizen 2.3; SAMSUNG SM-Z130H) AppleWebKit/537.3 (KHTML, like Gecko) Version/2.3 Mobile Safari/537.3",
+            "Mozilla/5.0 (PlayStation Vita 3.61) AppleWebKit/537.73 (KHTML, like Gecko) Silk/3.2",
+            "Mozilla/5.0 (X11; U; Linux armv7l; en-GB; rv:1.9.2.3pre) Gecko/20100723 Firefox/3.5 Maemo Browser 1.7.4.8 RX-51 N900",
+            "Mozilla/5.0 (Linux; U; en-US) AppleWebKit/528.5+ (KHTML, like Gecko, Safari/528.5+) Version/4.0 Kindle/3.0 (screen 600x800; rotate)",
+            "Mozilla/4.0 (compatible; MSIE 6.0; Windows 95; PalmSource; Blazer 3.0) 16; 160x160",
+            "SAMSUNG-SGH-E250/1.0 Profile/MIDP-2.0 Configuration/CLDC-1.1 UP.Browser/6.2.3.3.c.1.101 (GUI) MMP/2.0",
+            "NetFront/3.5 (Linux; Archos 5) Mozilla/5.0",
+            "Nokia6230i/2.0 (03.25) Profile/MIDP-2.0 Configuration/CLDC-1.1 Obigo/Q03C",
+            "Mozilla/4.0 (PDA; PalmOS/sony/model prmr/Revision:1.1.54 (en)) NetFront/3.0",
+            "Mozilla/4.0 (PDA; Windows CE/1.0.1) NetFront/3.0 Update",
+            "Mozilla/5.0 (X11; Linux x86_64) Tablet AppleWebKit/537.36",
+            "Mozilla/5.0 (Mobile; rv:26.0) Gecko/26.0 Firefox/26.0",
+            "Mozilla/5.0 (Linux; Android 4.4.2; Nexus 5 Build/KOT49H) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/34.0.1847.114 Mobile Safari/537.36",
+            "Mozilla/5.0 (Android; Mobile; rv:40.0) Gecko/40.0 Firefox/40.0",
+            "WAP-Browser/1.0",
+            "DoCoMo/2.0 N905i(c100;TB;W24H16)",
+            "Mozilla/5.0 (Danger hiptop 3.4; U; AvantGo 3.2)",
+            "BREW-Applet/0x20068888 (BREW/3.1.5.20; DeviceId: 40111; Lang: en)",
+            "Mozilla/5.0 (ＩＰＨＯＮＥ; CPU iPhone OS 10_3 like Mac OS X) AppleWebKit/603.1.30"
+   };
+
+   private static final String[] ACCEPTS = {
+            null,
+            HTML,
+            "application/vnd.rim.html,text/html,*/*",
+            "text/vnd.wap.wml,application/vnd.wap.xhtml+xml,*/*",
+            "text/x-midp,text/html",
+            "TEXT/VND.WAP.WML"
+   };
+
+   @Test
+   public void testClassificationMatchesUserAgentUtil()
+   {
+      for (String userAgent : USER_AGENTS) {
+         for (String accept : ACCEPTS) {
+            assertEquals("User-Agent [" + userAgent + "], Accept [" + accept + "]",
+                     expected(userAgent, accept), UserAgentClassifier.classify(userAgent, accept));
+         }
+      }
+   }
+
+   @Test
+   public void testRepresentativeClassifications()
+   {
+      assertEquals(Classification.DESKTOP, UserAgentClassifier.classify(USER_AGENTS[2], HTML));
+      assertEquals(Classification.TABLET, UserAgentClassifier.classify(USER_AGENTS[10], HTML));
+      assertEquals(Classification.TABLET, UserAgentClassifier.classify(USER_AGENTS[11], HTML));
+      assertEquals(Classification.MOBILE, UserAgentClassifier.classify(USER_AGENTS[17], HTML));
+      assertEquals(Classification.MOBILE, UserAgentClassifier.classify(USER_AGENTS[19], HTML));
+      assertEquals(Classification.DESKTOP, UserAgentClassifier.classify((String) null, null));
+   }
+
+   @Test
+   public void testAcceptHeaderAloneClassifiesMobile()
+   {
+      assertEquals(Classification.MOBILE, UserAgentClassifier.classify(USER_AGENTS[2], ACCEPTS[2]));
+      assertEquals(Classification.MOBILE, UserAgentClassifier.classify(USER_AGENTS[2], ACCEPTS[3]));
+   }
+
+   private static Classification expected(String userAgent, String accept)
+   {
+      UserAgentUtil util = new UserAgentUtil(userAgent, accept);
+      if (util.detectTierTablet())
+         return Classification.TABLET;
+      if (util.detectMobileQuick())
+         return Classification.MOBILE;
+      return Classification.DESKTOP;
+   }
+}
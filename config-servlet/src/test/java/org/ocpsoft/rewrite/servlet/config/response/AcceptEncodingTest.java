@@ -0,0 +1,148 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config.response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+
+public class AcceptEncodingTest
+{
+   private static final float DELTA = 0.0001f;
+
+   @Test
+   public void testMissingHeaderAcceptsOnlyIdentity()
+   {
+      AcceptEncoding accept = AcceptEncoding.parse(null);
+      assertEquals(1f, accept.getQuality(AcceptEncoding.IDENTITY), DELTA);
+      assertFalse(accept.accepts("gzip"));
+      assertTrue(accept.accepts("identity"));
+   }
+
+   @Test
+   public void testQualityValues()
+   {
+      AcceptEncoding accept = AcceptEncoding.parse("gzip;q=0.8, br; q=1.0, deflate;Q=0.5, compress;q=0");
+      assertEquals(0.8f, accept.getQuality("gzip"), DELTA);
+      assertEquals(1f, accept.getQuality("br"), DELTA);
+      assertEquals(0.5f, accept.getQuality("deflate"), DELTA);
+      assertFalse(accept.accepts("compress"));
+      assertFalse(accept.accepts("zstd"));
+   }
+
+   @Test
+   public void testCodingNamesAreCaseInsensitive()
+   {
+      AcceptEncoding accept = AcceptEncoding.parse("GZip");
+      assertTrue(accept.accepts("gzip"));
+      assertTrue(accept.accepts("GZIP"));
+   }
+
+   @Test
+   public void testInvalidAndOutOfRangeQualities()
+   {
+      AcceptEncoding accept = AcceptEncoding.parse("gzip;q=abc, br;q=2, deflate;q=-1");
+      assertFalse(accept.accepts("gzip"));
+      assertEquals(1f, accept.getQuality("br"), DELTA);
+      assertFalse(accept.accepts("deflate"));
+   }
+
+   @Test
+   public void testLegacyAliases()
+   {
+      AcceptEncoding accept = AcceptEncoding.parse("x-gzip, x-compress;q=0.5");
+      assertTrue(accept.accepts("gzip"));
+      assertEquals(0.5f, accept.getQuality("compress"), DELTA);
+   }
+
+   @Test
+   public void testWildcard()
+   {
+      AcceptEncoding accept = AcceptEncoding.parse("*;q=0.3, gzip;q=0");
+      assertEquals(0.3f, accept.getQuality("br"), DELTA);
+      assertEquals(0.3f, accept.getQuality(AcceptEncoding.IDENTITY), DELTA);
+      assertFalse(accept.accepts("gzip"));
+   }
+
+   @Test
+   public void testIdentityMayBeRefused()
+   {
+      AcceptEncoding accept = AcceptEncoding.parse("gzip, identity;q=0");
+      assertFalse(accept.accepts(AcceptEncoding.IDENTITY));
+      assertTrue(accept.accepts("gzip"));
+   }
+
+   @Test
+   public void testIsListed()
+   {
+      AcceptEncoding accept = AcceptEncoding.parse("GZIP;q=0, *");
+      assertTrue(accept.isListed("gzip"));
+      assertFalse(accept.isListed("br"));
+      assertFalse(accept.isListed(AcceptEncoding.IDENTITY));
+      assertTrue(AcceptEncoding.parse("identity;q=0.5").isListed(AcceptEncoding.IDENTITY));
+   }
+
+   @Test
+   public void testDuplicateCodingKeepsHighestQuality()
+   {
+      AcceptEncoding accept = AcceptEncoding.parse("gzip;q=0.2, gzip;q=0.9, gzip;q=0.4");
+      assertEquals(0.9f, accept.getQuality("gzip"), DELTA);
+   }
+
+   @Test
+   public void testEmptyElementsIgnored()
+   {
+      AcceptEncoding accept = AcceptEncoding.parse(" , ,gzip,,");
+      assertTrue(accept.accepts("gzip"));
+   }
+
+   @Test
+   public void testSelect()
+   {
+      assertEquals("br", AcceptEncoding.parse("gzip;q=0.5, br").select("gzip", "br"));
+      assertEquals("gzip", AcceptEncoding.parse("gzip, br").select("gzip", "br"));
+      assertNull(AcceptEncoding.parse("deflate").select("gzip", "br"));
+   }
+
+   @Test
+   public void testMultipleHeaders()
+   {
+      HttpServletRequest request = mock(HttpServletRequest.class);
+      when(request.getHeaders(AcceptEncoding.HEADER)).thenReturn(
+               Collections.enumeration(Arrays.asList("gzip;q=0.5", "br")));
+
+      AcceptEncoding accept = AcceptEncoding.of(request);
+      assertEquals(0.5f, accept.getQuality("gzip"), DELTA);
+      assertEquals(1f, accept.getQuality("br"), DELTA);
+   }
+
+   @Test
+   public void testNoHeaders()
+   {
+      HttpServletRequest request = mock(HttpServletRequest.class);
+      assertFalse(AcceptEncoding.of(request).accepts("gzip"));
+   }
+}
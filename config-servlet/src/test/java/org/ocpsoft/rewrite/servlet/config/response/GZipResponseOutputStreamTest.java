@@ -0,0 +1,204 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.config.response;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+
+public class GZipResponseOutputStreamTest
+{
+   private static final int MINIMUM_SIZE = 16;
+
+   private HttpServletRewrite rewrite;
+   private HttpServletResponse response;
+
+   @Before
+   public void setUp()
+   {
+      HttpServletRequest request = mock(HttpServletRequest.class);
+      when(request.getHeaders(AcceptEncoding.HEADER)).thenReturn(Collections.enumeration(Arrays.asList("gzip")));
+      response = mock(HttpServletResponse.class);
+      rewrite = mock(HttpServletRewrite.class);
+      when(rewrite.getRequest()).thenReturn(request);
+      when(rewrite.getResponse()).thenReturn(response);
+   }
+
+   @Test
+   public void testSmallResponseNotCompressed() throws IOException
+   {
+      ByteArrayOutputStream target = new ByteArrayOutputStream();
+      GZipResponseOutputStream stream = create(target, Deflater.DEFAULT_COMPRESSION);
+      stream.write(bytes(10));
+      stream.finish();
+
+      assertArrayEquals(bytes(10), target.toByteArray());
+      verify(response, never()).setHeader("Content-Encoding", GZipSupport.GZIP);
+   }
+
+   @Test
+   public void testLargeResponseCompressed() throws IOException
+   {
+      ByteArrayOutputStream target = new ByteArrayOutputStream();
+      GZipResponseOutputStream stream = create(target, Deflater.DEFAULT_COMPRESSION);
+      stream.write(bytes(5));
+      stream.write(bytes(1000));
+      stream.finish();
+
+      verify(response).setHeader("Content-Encoding", GZipSupport.GZIP);
+      ByteArrayOutputStream expected = new ByteArrayOutputStream();
+      expected.write(bytes(5));
+      expected.write(bytes(1000));
+      assertArrayEquals(expected.toByteArray(), gunzip(target.toByteArray()));
+   }
+
+   @Test
+   public void testFlushBeforeMinimumSizeSendsContentUncompressed() throws IOException
+   {
+      ByteArrayOutputStream target = new ByteArrayOutputStream();
+      GZipResponseOutputStream stream = create(target, Deflater.DEFAULT_COMPRESSION);
+      stream.write(bytes(4));
+      stream.flush();
+      assertArrayEquals(bytes(4), target.toByteArray());
+
+      stream.write(bytes(1000));
+      stream.finish();
+
+      verify(response, never()).setHeader("Content-Encoding", GZipSupport.GZIP);
+      assertEquals(1004, target.size());
+   }
+
+   @Test
+   public void testFlushWithoutContentDefersDecision() throws IOException
+   {
+      ByteArrayOutputStream target = new ByteArrayOutputStream();
+      GZipResponseOutputStream stream = create(target, Deflater.DEFAULT_COMPRESSION);
+      stream.flush();
+      stream.write(bytes(1000));
+      stream.finish();
+
+      verify(response).setHeader("Content-Encoding", GZipSupport.GZIP);
+      assertArrayEquals(bytes(1000), gunzip(target.toByteArray()));
+   }
+
+   @Test
+   public void testFinishIsIdempotent() throws IOException
+   {
+      ByteArrayOutputStream target = new ByteArrayOutputStream();
+      GZipResponseOutputStream stream = create(target, Deflater.DEFAULT_COMPRESSION);
+      stream.write(bytes(1000));
+      stream.close();
+      stream.finish();
+
+      assertArrayEquals(bytes(1000), gunzip(target.toByteArray()));
+   }
+
+   @Test
+   public void testDeflaterReleasedOnWriteFailure() throws IOException
+   {
+      /*
+       * Prime the pool of an otherwise unused level with a known Deflater, which the stream will then borrow.
+       */
+      int level = 7;
+      Deflater deflater = DeflaterPool.acquire(level);
+      DeflaterPool.release(level, deflater);
+
+      OutputStream target = new OutputStream() {
+         private int written = 0;
+
+         @Override
+         public void write(int b) throws IOException
+         {
+            if (++written > 10)
+               throw new IOException("Connection reset");
+         }
+      };
+
+      GZipResponseOutputStream stream = create(target, level);
+      try {
+         stream.write(bytes(100000));
+         stream.finish();
+         fail("Expected an IOException");
+      }
+      catch (IOException e) {
+         assertEquals("Connection reset", e.getMessage());
+      }
+
+      Deflater released = DeflaterPool.acquire(level);
+      assertSame(deflater, released);
+      DeflaterPool.release(level, released);
+   }
+
+   @Test
+   public void testUncompressibleResponseNotCompressed() throws IOException
+   {
+      when(response.containsHeader(anyString())).thenReturn(true);
+      ByteArrayOutputStream target = new ByteArrayOutputStream();
+      GZipResponseOutputStream stream = create(target, Deflater.DEFAULT_COMPRESSION);
+      stream.write(bytes(1000));
+      stream.finish();
+
+      assertArrayEquals(bytes(1000), target.toByteArray());
+   }
+
+   private GZipResponseOutputStream create(OutputStream target, int level)
+   {
+      return new GZipResponseOutputStream(rewrite, target, level, false, MINIMUM_SIZE);
+   }
+
+   private static byte[] bytes(int length)
+   {
+      byte[] result = new byte[length];
+      for (int i = 0; i < length; i++) {
+         result[i] = (byte) ('a' + i % 26);
+      }
+      return result;
+   }
+
+   private static byte[] gunzip(byte[] compressed) throws IOException
+   {
+      GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed));
+      ByteArrayOutputStream result = new ByteArrayOutputStream();
+      byte[] buffer = new byte[1024];
+      int read;
+      while ((read = in.read(buffer)) > 0) {
+         result.write(buffer, 0, read);
+      }
+      return result.toByteArray();
+   }
+}
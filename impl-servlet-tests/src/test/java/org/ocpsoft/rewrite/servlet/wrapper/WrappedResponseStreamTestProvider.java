@@ -15,6 +15,8 @@
  */
 package org.ocpsoft.rewrite.servlet.wrapper;
 
+import java.util.zip.Deflater;
+
 import javax.servlet.ServletContext;
 
 import org.ocpsoft.rewrite.config.Configuration;
@@ -51,7 +53,7 @@ public class WrappedResponseStreamTestProvider extends HttpConfigurationProvider
                
                .addRule()
                .when(Path.matches("/gzip.html"))
-               .perform(Response.withOutputStreamWrappedBy(new GZipResponseStreamWrapper()));
+               .perform(Response.withOutputStreamWrappedBy(new GZipResponseStreamWrapper(Deflater.DEFAULT_COMPRESSION, false, 0)));
 
       return config;
    }
@@ -53,6 +53,7 @@ import org.ocpsoft.rewrite.servlet.spi.RewriteResultHandler;
 import org.ocpsoft.rewrite.spi.ConfigurationCacheProvider;
 import org.ocpsoft.rewrite.spi.InvocationResultHandler;
 import org.ocpsoft.rewrite.spi.RewriteProvider;
+import org.ocpsoft.rewrite.spi.ServiceRegistry;
 import org.ocpsoft.rewrite.util.ServiceLogger;
 
 /**
@@ -75,6 +76,11 @@ public class RewriteFilter implements Filter
 
    private ServletContext servletContext;
 
+   /*
+    * Keeps the services of this application loaded for as long as the filter is in service.
+    */
+   private ServiceRegistry services;
+
    @Override
    @SuppressWarnings("unchecked")
    public void init(final FilterConfig filterConfig) throws ServletException
@@ -83,6 +89,7 @@ public class RewriteFilter implements Filter
          log.info("RewriteFilter starting up...");
 
       servletContext = filterConfig.getServletContext();
+      services = ServiceRegistry.getInstance();
 
       listeners = Iterators.asList(ServiceLoader.load(RewriteLifecycleListener.class));
       wrappers = Iterators.asList(ServiceLoader.load(RequestCycleWrapper.class));
@@ -308,6 +315,7 @@ public class RewriteFilter implements Filter
             ((ServletRewriteProvider<?>) provider).shutdown(servletContext);
       }
 
+      services = null;
       log.info("RewriteFilter deactivated.");
    }
 
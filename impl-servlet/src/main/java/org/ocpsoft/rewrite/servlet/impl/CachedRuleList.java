@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.impl;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+import org.ocpsoft.rewrite.config.Configuration;
+import org.ocpsoft.rewrite.config.Rule;
+import org.ocpsoft.rewrite.spi.RuleCacheProvider;
+
+/**
+ * Immutable, compact view of the {@link Rule} instances of a {@link Configuration} that remain candidates for a given
+ * {@link RuleCacheProvider} key. Candidates are stored as ranges of indices into the original {@link Rule} list, since
+ * in practice only a handful of contiguous runs survive.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class CachedRuleList extends AbstractList<Rule> implements RandomAccess
+{
+   private final Configuration configuration;
+   private final List<Rule> rules;
+
+   /*
+    * Range i covers rules.get(starts[i]) through rules.get(starts[i] + (offsets[i + 1] - offsets[i]) - 1).
+    */
+   private final int[] starts;
+   private final int[] offsets;
+
+   /**
+    * Create a new {@link CachedRuleList} containing every {@link Rule} of the given {@link Configuration} for which
+    * the corresponding <code>excluded</code> flag is <code>false</code>, in original order.
+    */
+   public CachedRuleList(Configuration configuration, List<Rule> rules, boolean[] excluded)
+   {
+      this.configuration = configuration;
+      this.rules = rules;
+
+      int[] starts = new int[4];
+      int[] offsets = new int[5];
+      int ranges = 0;
+      int size = 0;
+
+      for (int i = 0; i < rules.size(); i++)
+      {
+         if (!excluded[i])
+         {
+            if (i == 0 || excluded[i - 1])
+            {
+               if (ranges == starts.length)
+               {
+                  starts = Arrays.copyOf(starts, ranges * 2);
+                  offsets = Arrays.copyOf(offsets, ranges * 2 + 1);
+               }
+               starts[ranges] = i;
+               offsets[ranges] = size;
+               ranges++;
+            }
+            size++;
+         }
+      }
+
+      offsets[ranges] = size;
+      this.starts = Arrays.copyOf(starts, ranges);
+      this.offsets = Arrays.copyOf(offsets, ranges + 1);
+   }
+
+   /**
+    * Return <code>true</code> if this list was built from the given {@link Configuration} instance.
+    */
+   public boolean isCompiledFrom(Configuration configuration)
+   {
+      return this.configuration == configuration;
+   }
+
+   @Override
+   public Rule get(int index)
+   {
+      if (index < 0 || index >= size())
+         throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+
+      int range = Arrays.binarySearch(offsets, 0, starts.length, index);
+      if (range < 0)
+         range = -range - 2;
+
+      return rules.get(starts[range] + index - offsets[range]);
+   }
+
+   @Override
+   public int size()
+   {
+      return offsets[starts.length];
+   }
+}
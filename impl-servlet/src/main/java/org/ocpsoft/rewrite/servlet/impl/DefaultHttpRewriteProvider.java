@@ -15,9 +15,12 @@
  */
 package org.ocpsoft.rewrite.servlet.impl;
 
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import javax.servlet.ServletContext;
 
@@ -25,21 +28,37 @@ import org.ocpsoft.common.services.NonEnriching;
 import org.ocpsoft.common.services.ServiceLoader;
 import org.ocpsoft.common.util.Iterators;
 import org.ocpsoft.logging.Logger;
+import org.ocpsoft.rewrite.bind.Binding;
+import org.ocpsoft.rewrite.bind.Evaluation;
+import org.ocpsoft.rewrite.config.CacheableCondition;
+import org.ocpsoft.rewrite.config.CacheableConditionVisitor;
+import org.ocpsoft.rewrite.config.CacheableOperation;
+import org.ocpsoft.rewrite.config.CacheableOperationVisitor;
+import org.ocpsoft.rewrite.config.CompiledConfiguration;
+import org.ocpsoft.rewrite.config.ConditionVisit;
 import org.ocpsoft.rewrite.config.Configuration;
 import org.ocpsoft.rewrite.config.ConfigurationLoader;
 import org.ocpsoft.rewrite.config.Operation;
+import org.ocpsoft.rewrite.config.OperationVisit;
 import org.ocpsoft.rewrite.config.Rule;
+import org.ocpsoft.rewrite.config.RuleIndex;
 import org.ocpsoft.rewrite.context.RewriteState;
 import org.ocpsoft.rewrite.event.InboundRewrite;
 import org.ocpsoft.rewrite.event.OutboundRewrite;
 import org.ocpsoft.rewrite.exception.RewriteException;
+import org.ocpsoft.rewrite.param.Constraint;
 import org.ocpsoft.rewrite.param.DefaultParameterValueStore;
 import org.ocpsoft.rewrite.param.Parameter;
+import org.ocpsoft.rewrite.param.ParameterLayout;
 import org.ocpsoft.rewrite.param.ParameterStore;
 import org.ocpsoft.rewrite.param.ParameterValueStore;
+import org.ocpsoft.rewrite.param.ParameterizedRule;
+import org.ocpsoft.rewrite.param.RegexConstraint;
 import org.ocpsoft.rewrite.servlet.event.BaseRewrite.ServletRewriteFlow;
 import org.ocpsoft.rewrite.servlet.http.HttpRewriteProvider;
+import org.ocpsoft.rewrite.servlet.http.event.HttpOutboundServletRewrite;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.servlet.util.ParsedAddress;
 import org.ocpsoft.rewrite.spi.RuleCacheProvider;
 import org.ocpsoft.rewrite.util.ParameterUtils;
 import org.ocpsoft.rewrite.util.ServiceLogger;
@@ -57,6 +76,7 @@ public class DefaultHttpRewriteProvider extends HttpRewriteProvider implements N
    private static Logger log = Logger.getLogger(DefaultHttpRewriteProvider.class);
    private volatile ConfigurationLoader loader;
    private volatile List<RuleCacheProvider> ruleCacheProviders;
+   private volatile CacheableRules cacheableRules;
 
    @Override
    @SuppressWarnings("unchecked")
@@ -110,95 +130,54 @@ public class DefaultHttpRewriteProvider extends HttpRewriteProvider implements N
       }
 
       Configuration compiledConfiguration = loader.loadConfiguration(servletContext);
-      List<Rule> rules = compiledConfiguration.getRules();
-
+      OutboundRewriteCache.getInstance(servletContext).validate(compiledConfiguration);
       final EvaluationContextImpl context = new EvaluationContextImpl();
+      final DefaultParameterValueStore values = new DefaultParameterValueStore();
 
-      Object cacheKey = null;
-      for (int i = 0; i < ruleCacheProviders.size(); i++)
+      Object[] cacheKeys = createCacheKeys(event, context);
+      List<Rule> rules = getCachedRules(event, compiledConfiguration, cacheKeys);
+
+      boolean[] excluded = null;
+      boolean[] cacheable = null;
+      boolean performed = false;
+      int[] candidates = null;
+      if (rules == null)
       {
-         RuleCacheProvider provider = ruleCacheProviders.get(i);
+         rules = compiledConfiguration.getRules();
+         RuleIndex index = getRuleIndex(compiledConfiguration);
+         if (index != null)
+            candidates = index.getInboundCandidates(ParsedAddress.of(event).getPath());
 
-         cacheKey = provider.createKey(event, context);
-         final List<Rule> list = provider.get(cacheKey);
-         if (list != null && !list.isEmpty())
+         if (cacheKeys != null)
          {
-            if (log.isDebugEnabled())
-               log.debug("Using cached ruleset for event [" + event + "] from provider [" + provider + "].");
-            for (int j = 0; j < list.size(); j++)
-            {
-               Rule rule = list.get(j);
-               try {
-                  event.getEvaluatedRules().add(rule);
-
-                  context.clear();
-                  DefaultParameterValueStore values = new DefaultParameterValueStore();
-                  context.put(ParameterValueStore.class, values);
-                  context.setState(RewriteState.EVALUATING);
-
-                  if (rule.evaluate(event, context))
-                  {
-                     if (handleBindings(event, context, values))
-                     {
-                        context.setState(RewriteState.PERFORMING);
-                        if (log.isDebugEnabled())
-                           log.debug("Rule [" + rule + "] matched and will be performed.");
-
-                        List<Operation> preOperations = context.getPreOperations();
-                        for (int k = 0; k < preOperations.size(); k++)
-                        {
-                           preOperations.get(k).perform(event, context);
-                        }
-
-                        if (event.getFlow().is(ServletRewriteFlow.HANDLED))
-                        {
-                           return;
-                        }
-
-                        rule.perform(event, context);
-
-                        if (event.getFlow().is(ServletRewriteFlow.HANDLED))
-                        {
-                           return;
-                        }
-
-                        List<Operation> postOperations = context.getPostOperations();
-                        for (int k = 0; k < postOperations.size(); k++)
-                        {
-                           postOperations.get(k).perform(event, context);
-                        }
-
-                        if (event.getFlow().is(ServletRewriteFlow.HANDLED))
-                        {
-                           return;
-                        }
-                     }
-                  }
-                  else
-                  {
-                     event.getEvaluatedRules().remove(rule);
-                     break;
-                  }
-               }
-               catch (Exception e) {
-                  throw new RewriteException("Error during [" + event + "] while executing rule [" + rule + "]", e);
-               }
-            }
+            excluded = new boolean[rules.size()];
+            cacheable = getCacheableRules(compiledConfiguration).cacheable;
          }
       }
 
       /*
-       * Highly optimized loop - for performance reasons. Think before you change this!
+       * Highly optimized loop - for performance reasons. Think before you change this! The inbound address never
+       * changes during an inbound event, so the candidates from the RuleIndex remain valid throughout.
        */
-      List<Rule> cacheable = new ArrayList<Rule>();
+      int next = 0;
       for (int i = 0; i < rules.size(); i++)
       {
+         if (candidates != null)
+         {
+            int candidate = next < candidates.length ? candidates[next++] : rules.size();
+            if (excluded != null && !performed)
+               Arrays.fill(excluded, i, candidate, true);
+            i = candidate;
+            if (i == rules.size())
+               break;
+         }
+
          Rule rule = rules.get(i);
          try {
             event.getEvaluatedRules().add(rule);
 
             context.clear();
-            DefaultParameterValueStore values = new DefaultParameterValueStore();
+            values.reset(getParameterLayout(compiledConfiguration, rule));
             context.put(ParameterValueStore.class, values);
 
             context.setState(RewriteState.EVALUATING);
@@ -209,7 +188,7 @@ public class DefaultHttpRewriteProvider extends HttpRewriteProvider implements N
                   context.setState(RewriteState.PERFORMING);
                   if (log.isDebugEnabled())
                      log.debug("Rule [" + rule + "] matched and will be performed.");
-                  cacheable.add(rule);
+                  performed = true;
                   List<Operation> preOperations = context.getPreOperations();
                   for (int k = 0; k < preOperations.size(); k++)
                   {
@@ -243,6 +222,8 @@ public class DefaultHttpRewriteProvider extends HttpRewriteProvider implements N
             else
             {
                event.getEvaluatedRules().remove(rule);
+               if (excluded != null && !performed && cacheable[i])
+                  excluded[i] = true;
             }
          }
          catch (Exception e) {
@@ -250,12 +231,9 @@ public class DefaultHttpRewriteProvider extends HttpRewriteProvider implements N
          }
       }
 
-      if (!cacheable.isEmpty())
+      if (excluded != null)
       {
-         for (int i = 0; i < ruleCacheProviders.size(); i++)
-         {
-            ruleCacheProviders.get(i).put(cacheKey, cacheable);
-         }
+         cacheRules(compiledConfiguration, rules, excluded, cacheKeys);
       }
    }
 
@@ -272,95 +250,78 @@ public class DefaultHttpRewriteProvider extends HttpRewriteProvider implements N
       }
 
       Configuration compiledConfiguration = loader.loadConfiguration(servletContext);
-      List<Rule> rules = compiledConfiguration.getRules();
-
       final EvaluationContextImpl context = new EvaluationContextImpl();
+      final DefaultParameterValueStore values = new DefaultParameterValueStore();
 
-      Object cacheKey = null;
-      for (int i = ruleCacheProviders.size() - 1; i >= 0; i--)
-      {
-         RuleCacheProvider provider = ruleCacheProviders.get(i);
+      Object[] cacheKeys = createCacheKeys(event, context);
+      List<Rule> rules = getCachedRules(event, compiledConfiguration, cacheKeys);
 
-         cacheKey = provider.createKey(event, context);
-         final List<Rule> list = provider.get(cacheKey);
-         if (list != null && !list.isEmpty())
-         {
-            if (log.isDebugEnabled())
-               log.debug("Using cached ruleset for event [" + event + "] from provider [" + provider + "].");
-            for (int j = list.size() - 1; j >= 0; j--)
-            {
-               Rule rule = list.get(j);
-               try {
-                  event.getEvaluatedRules().add(rule);
+      boolean[] excluded = null;
+      boolean[] cacheable = null;
+      boolean performed = false;
+      RuleIndex index = null;
 
-                  context.clear();
-                  DefaultParameterValueStore values = new DefaultParameterValueStore();
-                  context.put(ParameterValueStore.class, values);
-                  context.setState(RewriteState.EVALUATING);
+      /*
+       * Outbound results may be cached by the HttpRewriteWrappedResponse unless a request-dependent rule is evaluated,
+       * or a rule with request-dependent operations is performed.
+       */
+      HttpOutboundRewriteImpl outbound = null;
+      Set<Rule> uncacheable = null;
+      Set<Rule> unperformable = null;
+      if (event instanceof HttpOutboundRewriteImpl && !((HttpOutboundRewriteImpl) event).isRequestDependent())
+      {
+         outbound = (HttpOutboundRewriteImpl) event;
+         uncacheable = getCacheableRules(compiledConfiguration).uncacheable;
+         unperformable = getCacheableRules(compiledConfiguration).unperformable;
+      }
+      int[] candidates = null;
+      String path = null;
+      if (rules == null)
+      {
+         rules = compiledConfiguration.getRules();
+         index = getRuleIndex(compiledConfiguration);
+         if (index != null && event instanceof HttpOutboundServletRewrite)
+         {
+            path = ParsedAddress.of(event).getPath();
+            candidates = index.getOutboundCandidates(path);
+         }
 
-                  if (rule.evaluate(event, context))
-                  {
-                     if (handleBindings(event, context, values))
-                     {
-                        context.setState(RewriteState.PERFORMING);
-                        if (log.isDebugEnabled())
-                           log.debug("Rule [" + rule + "] matched and will be performed.");
-
-                        List<Operation> preOperations = context.getPreOperations();
-                        for (int k = 0; k < preOperations.size(); k++)
-                        {
-                           preOperations.get(k).perform(event, context);
-                        }
-
-                        if (event.getFlow().is(ServletRewriteFlow.HANDLED))
-                        {
-                           return;
-                        }
-
-                        rule.perform(event, context);
-
-                        if (event.getFlow().is(ServletRewriteFlow.HANDLED))
-                        {
-                           return;
-                        }
-
-                        List<Operation> postOperations = context.getPostOperations();
-                        for (int k = 0; k < postOperations.size(); k++)
-                        {
-                           postOperations.get(k).perform(event, context);
-                        }
-
-                        if (event.getFlow().is(ServletRewriteFlow.HANDLED))
-                        {
-                           return;
-                        }
-                     }
-                  }
-                  else
-                  {
-                     event.getEvaluatedRules().remove(rule);
-                     break;
-                  }
-               }
-               catch (Exception e) {
-                  throw new RewriteException("Error during [" + event + "] while executing rule [" + rule + "]", e);
-               }
-            }
+         if (cacheKeys != null)
+         {
+            excluded = new boolean[rules.size()];
+            cacheable = getCacheableRules(compiledConfiguration).cacheable;
          }
       }
 
       /*
        * Highly optimized loop - for performance reasons. Think before you change this!
        */
-      List<Rule> cacheable = new ArrayList<Rule>();
+      int next = candidates == null ? -1 : candidates.length - 1;
       for (int i = rules.size() - 1; i >= 0; i--)
       {
+         if (candidates != null)
+         {
+            int candidate = next >= 0 ? candidates[next--] : -1;
+            if (excluded != null && !performed)
+               Arrays.fill(excluded, candidate + 1, i + 1, true);
+            i = candidate;
+            if (i < 0)
+               break;
+         }
+
          Rule rule = rules.get(i);
+         if (uncacheable != null && uncacheable.contains(rule))
+         {
+            outbound.setRequestDependent();
+            uncacheable = null;
+            unperformable = null;
+         }
+
          try {
             event.getEvaluatedRules().add(rule);
 
             context.clear();
-            DefaultParameterValueStore values = new DefaultParameterValueStore();
+            values.reset(getParameterLayout(compiledConfiguration, rule));
             context.put(ParameterValueStore.class, values);
 
             context.setState(RewriteState.EVALUATING);
@@ -371,7 +332,14 @@ public class DefaultHttpRewriteProvider extends HttpRewriteProvider implements N
                   context.setState(RewriteState.PERFORMING);
                   if (log.isDebugEnabled())
                      log.debug("Rule [" + rule + "] matched and will be performed.");
-                  cacheable.add(rule);
+                  performed = true;
+                  if (unperformable != null && unperformable.contains(rule))
+                  {
+                     outbound.setRequestDependent();
+                     uncacheable = null;
+                     unperformable = null;
+                  }
+
                   List<Operation> preOperations = context.getPreOperations();
                   for (int k = 0; k < preOperations.size(); k++)
                   {
@@ -400,10 +368,27 @@ public class DefaultHttpRewriteProvider extends HttpRewriteProvider implements N
                   {
                      break;
                   }
+
+                  /*
+                   * Performed rules may rewrite the outbound address, so remaining candidates must be found again.
+                   */
+                  if (candidates != null)
+                  {
+                     String current = ParsedAddress.of(event).getPath();
+                     if (current == null ? path != null : !current.equals(path))
+                     {
+                        path = current;
+                        candidates = index.getOutboundCandidates(path);
+                        int position = Arrays.binarySearch(candidates, i);
+                        next = (position >= 0 ? position : -position - 1) - 1;
+                     }
+                  }
                }
             }
             else {
                event.getEvaluatedRules().remove(rule);
+               if (excluded != null && !performed && cacheable[i])
+                  excluded[i] = true;
             }
          }
          catch (Exception e) {
@@ -411,13 +396,189 @@ public class DefaultHttpRewriteProvider extends HttpRewriteProvider implements N
          }
       }
 
-      if (!cacheable.isEmpty())
+      if (excluded != null)
+      {
+         cacheRules(compiledConfiguration, rules, excluded, cacheKeys);
+      }
+   }
+
+   private static ParameterLayout getParameterLayout(final Configuration configuration, final Rule rule)
+   {
+      if (configuration instanceof CompiledConfiguration)
+         return ((CompiledConfiguration) configuration).getParameterLayout(rule);
+      return null;
+   }
+
+   private static RuleIndex getRuleIndex(final Configuration configuration)
+   {
+      if (configuration instanceof CompiledConfiguration)
+         return ((CompiledConfiguration) configuration).getRuleIndex();
+      return null;
+   }
+
+   /**
+    * Create a cache key for each registered {@link RuleCacheProvider}. Return <code>null</code> if no provider is
+    * able to cache the given event.
+    */
+   private Object[] createCacheKeys(final HttpServletRewrite event, final EvaluationContextImpl context)
+   {
+      Object[] result = null;
+      for (int i = 0; i < ruleCacheProviders.size(); i++)
+      {
+         Object key = ruleCacheProviders.get(i).createKey(event, context);
+         if (key != null)
+         {
+            if (result == null)
+               result = new Object[ruleCacheProviders.size()];
+            result[i] = key;
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Return the first cached {@link Rule} list that is still valid for the given {@link Configuration}, or
+    * <code>null</code> if no {@link RuleCacheProvider} holds an entry for the given keys.
+    */
+   private List<Rule> getCachedRules(final HttpServletRewrite event, final Configuration configuration,
+            final Object[] cacheKeys)
+   {
+      if (cacheKeys != null)
+      {
+         for (int i = 0; i < ruleCacheProviders.size(); i++)
+         {
+            if (cacheKeys[i] != null)
+            {
+               RuleCacheProvider provider = ruleCacheProviders.get(i);
+               List<Rule> list = provider.get(cacheKeys[i]);
+               if (list != null
+                        && !(list instanceof CachedRuleList && !((CachedRuleList) list).isCompiledFrom(configuration)))
+               {
+                  if (log.isDebugEnabled())
+                     log.debug("Using cached ruleset for event [" + event + "] from provider [" + provider + "].");
+                  return list;
+               }
+            }
+         }
+      }
+      return null;
+   }
+
+   private void cacheRules(final Configuration configuration, final List<Rule> rules, final boolean[] excluded,
+            final Object[] cacheKeys)
+   {
+      CachedRuleList list = new CachedRuleList(configuration, rules, excluded);
+      for (int i = 0; i < ruleCacheProviders.size(); i++)
+      {
+         if (cacheKeys[i] != null)
+            ruleCacheProviders.get(i).put(cacheKeys[i], list);
+      }
+   }
+
+   /**
+    * Determine which {@link Rule} instances of the given {@link Configuration} may be omitted from a cached rule list
+    * when they do not match, and which prevent outbound results from being cached when they are evaluated or
+    * performed; this is computed once per {@link Configuration} instance.
+    */
+   private CacheableRules getCacheableRules(final Configuration configuration)
+   {
+      CacheableRules result = cacheableRules;
+      if (result == null || result.configuration != configuration)
+      {
+         List<Rule> rules = configuration.getRules();
+         boolean[] cacheable = new boolean[rules.size()];
+         Set<Rule> uncacheable = Collections.newSetFromMap(new IdentityHashMap<Rule, Boolean>());
+         Set<Rule> unperformable = Collections.newSetFromMap(new IdentityHashMap<Rule, Boolean>());
+         for (int i = 0; i < rules.size(); i++)
+         {
+            cacheable[i] = isCacheable(rules.get(i));
+            if (!cacheable[i] || hasExternalBindings(rules.get(i)))
+               uncacheable.add(rules.get(i));
+            else if (!hasCacheableOperations(rules.get(i)))
+               unperformable.add(rules.get(i));
+         }
+         result = new CacheableRules(configuration, cacheable, uncacheable, unperformable);
+         cacheableRules = result;
+      }
+      return result;
+   }
+
+   /**
+    * A {@link Rule} is cacheable if all of its conditions are {@link CacheableCondition} instances, and if its
+    * {@link Parameter} values are only ever constrained by regular expressions.
+    */
+   private static boolean isCacheable(final Rule rule)
+   {
+      CacheableConditionVisitor visitor = new CacheableConditionVisitor();
+      new ConditionVisit(rule).accept(visitor);
+      if (!visitor.isCacheable())
+         return false;
+
+      if (rule instanceof ParameterizedRule)
+      {
+         for (Entry<String, Parameter<?>> entry : ((ParameterizedRule) rule).getParameterStore())
+         {
+            Parameter<?> parameter = entry.getValue();
+            if (!parameter.getTranspositions().isEmpty())
+               return false;
+
+            for (Constraint<String> constraint : parameter.getConstraints())
+            {
+               if (!(constraint instanceof RegexConstraint))
+                  return false;
+            }
+         }
+      }
+      return true;
+   }
+
+   /**
+    * Return <code>true</code> if all operations of the given {@link Rule} are {@link CacheableOperation} instances, and
+    * may therefore be omitted when an outbound result is served from a cache.
+    */
+   private static boolean hasCacheableOperations(final Rule rule)
+   {
+      CacheableOperationVisitor visitor = new CacheableOperationVisitor();
+      new OperationVisit(rule).accept(visitor);
+      return visitor.isCacheable();
+   }
+
+   /**
+    * Return <code>true</code> if any {@link Parameter} of the given {@link Rule} is bound to anything other than the
+    * current {@link Evaluation}, such as a request parameter or an EL expression. Values of such parameters may be
+    * retrieved from request state when operations are performed.
+    */
+   private static boolean hasExternalBindings(final Rule rule)
+   {
+      if (rule instanceof ParameterizedRule)
       {
-         for (int i = ruleCacheProviders.size() - 1; i >= 0; i--)
+         for (Entry<String, Parameter<?>> entry : ((ParameterizedRule) rule).getParameterStore())
          {
-            ruleCacheProviders.get(i).put(cacheKey, cacheable);
+            for (Binding binding : entry.getValue().getBindings())
+            {
+               if (!(binding instanceof Evaluation))
+                  return true;
+            }
          }
       }
+      return false;
+   }
+
+   private static class CacheableRules
+   {
+      private final Configuration configuration;
+      private final boolean[] cacheable;
+      private final Set<Rule> uncacheable;
+      private final Set<Rule> unperformable;
+
+      public CacheableRules(Configuration configuration, boolean[] cacheable, Set<Rule> uncacheable,
+               Set<Rule> unperformable)
+      {
+         this.configuration = configuration;
+         this.cacheable = cacheable;
+         this.uncacheable = uncacheable;
+         this.unperformable = unperformable;
+      }
    }
 
    private boolean handleBindings(final HttpServletRewrite event, final EvaluationContextImpl context,
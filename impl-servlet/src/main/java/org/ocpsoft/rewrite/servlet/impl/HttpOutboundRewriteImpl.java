@@ -31,6 +31,11 @@ public class HttpOutboundRewriteImpl extends BaseHttpRewrite implements HttpOutb
    private Address address;
    private final Address originalAddress;
 
+   /*
+    * Set when the result of this event may depend on more than the outbound address.
+    */
+   private boolean requestDependent;
+
    public HttpOutboundRewriteImpl(final HttpServletRequest request,
             final HttpServletResponse response, ServletContext servletContext,
             final Address address)
@@ -70,4 +75,21 @@ public class HttpOutboundRewriteImpl extends BaseHttpRewrite implements HttpOutb
    {
       return originalAddress;
    }
+
+   /**
+    * Return <code>true</code> if the result of this event may depend on request state other than the outbound
+    * {@link Address}, and must therefore not be cached.
+    */
+   boolean isRequestDependent()
+   {
+      return requestDependent;
+   }
+
+   /**
+    * Mark the result of this event as dependent on request state other than the outbound {@link Address}.
+    */
+   void setRequestDependent()
+   {
+      this.requestDependent = true;
+   }
 }
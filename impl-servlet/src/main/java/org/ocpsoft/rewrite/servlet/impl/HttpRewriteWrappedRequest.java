@@ -16,15 +16,21 @@
 
 package org.ocpsoft.rewrite.servlet.impl;
 
+import java.util.AbstractMap;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.AbstractSet;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.TreeMap;
 
 import javax.servlet.http.HttpServletRequest;
 
 import org.ocpsoft.rewrite.servlet.RewriteWrappedRequest;
-import org.ocpsoft.rewrite.util.CompositeMap;
 
 /**
  * @author Lincoln Baxter, III <lincoln@ocpsoft.com>
@@ -32,7 +38,7 @@ import org.ocpsoft.rewrite.util.CompositeMap;
 public class HttpRewriteWrappedRequest extends RewriteWrappedRequest
 {
    private final Map<String, String[]> modifiableParameters;
-   private CompositeMap<String, String[]> allParameters;
+   private final Map<String, String[]> allParameters = new ParameterMap();
 
    /**
     * Create a new request wrapper that will merge additional parameters into the request object without prematurely
@@ -54,14 +60,14 @@ public class HttpRewriteWrappedRequest extends RewriteWrappedRequest
       return super.getParameterMap();
    }
 
+   /**
+    * Return an unmodifiable, live view of the {@link #getModifiableParameters()} merged over the
+    * {@link #getNativeParameters()}. The same instance is returned for the lifetime of this request.
+    */
    @Override
-   @SuppressWarnings("unchecked")
    public Map<String, String[]> getParameterMap()
    {
-      allParameters = new CompositeMap<String, String[]>()
-               .addDelegate(modifiableParameters)
-               .addDelegate(super.getParameterMap());
-      return Collections.unmodifiableMap(allParameters);
+      return allParameters;
    }
 
    @Override
@@ -77,7 +83,7 @@ public class HttpRewriteWrappedRequest extends RewriteWrappedRequest
    @Override
    public String getParameter(final String name)
    {
-      String[] strings = getParameterMap().get(name);
+      String[] strings = modifiableParameters.get(name);
       if (strings != null && strings.length > 0)
       {
          return strings[0];
@@ -88,13 +94,115 @@ public class HttpRewriteWrappedRequest extends RewriteWrappedRequest
    @Override
    public Enumeration<String> getParameterNames()
    {
-      return Collections.enumeration(getParameterMap().keySet());
+      return Collections.enumeration(allParameters.keySet());
    }
 
    @Override
    public String[] getParameterValues(final String name)
    {
-      return getParameterMap().get(name);
+      return allParameters.get(name);
+   }
+
+   /**
+    * Read-only view of the modifiable parameters followed by any native parameters they do not override. Nothing is
+    * copied, so changes to either underlying {@link Map} are visible immediately.
+    */
+   private class ParameterMap extends AbstractMap<String, String[]>
+   {
+      private final Set<Entry<String, String[]>> entries = new AbstractSet<Entry<String, String[]>>() {
+
+         @Override
+         public Iterator<Entry<String, String[]>> iterator()
+         {
+            return new ParameterIterator();
+         }
+
+         @Override
+         public int size()
+         {
+            int size = modifiableParameters.size();
+            for (String name : getNativeParameters().keySet()) {
+               if (!modifiableParameters.containsKey(name))
+                  size++;
+            }
+            return size;
+         }
+      };
+
+      @Override
+      public String[] get(Object key)
+      {
+         String[] result = null;
+         if (key instanceof String)
+            result = modifiableParameters.get(key);
+         if (result == null)
+            result = getNativeParameters().get(key);
+         return result;
+      }
+
+      @Override
+      public boolean containsKey(Object key)
+      {
+         return (key instanceof String && modifiableParameters.containsKey(key))
+                  || getNativeParameters().containsKey(key);
+      }
+
+      @Override
+      public Set<Entry<String, String[]>> entrySet()
+      {
+         return entries;
+      }
+   }
+
+   private class ParameterIterator implements Iterator<Entry<String, String[]>>
+   {
+      private final Iterator<Entry<String, String[]>> modifiable = modifiableParameters.entrySet().iterator();
+      private Iterator<Entry<String, String[]>> natives;
+      private Entry<String, String[]> next;
+
+      @Override
+      public boolean hasNext()
+      {
+         if (next != null)
+            return true;
+
+         if (modifiable.hasNext())
+         {
+            next = modifiable.next();
+            return true;
+         }
+
+         if (natives == null)
+            natives = getNativeParameters().entrySet().iterator();
+
+         while (natives.hasNext())
+         {
+            Entry<String, String[]> entry = natives.next();
+            if (!modifiableParameters.containsKey(entry.getKey()))
+            {
+               next = entry;
+               return true;
+            }
+         }
+         return false;
+      }
+
+      @Override
+      public Entry<String, String[]> next()
+      {
+         if (!hasNext())
+            throw new NoSuchElementException();
+
+         Entry<String, String[]> result = new SimpleImmutableEntry<String, String[]>(next);
+         next = null;
+         return result;
+      }
+
+      @Override
+      public void remove()
+      {
+         throw new UnsupportedOperationException("Cannot remove values from the request parameter map.");
+      }
    }
 
    @Override
@@ -24,7 +24,9 @@ import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.ServletContext;
 import javax.servlet.ServletOutputStream;
@@ -46,6 +48,8 @@ import org.ocpsoft.rewrite.servlet.config.response.ResponseContentInterceptor;
 import org.ocpsoft.rewrite.servlet.config.response.ResponseStreamWrapper;
 import org.ocpsoft.rewrite.servlet.event.BaseRewrite.ServletRewriteFlow;
 import org.ocpsoft.rewrite.servlet.event.OutboundServletRewrite;
+import org.ocpsoft.rewrite.servlet.impl.OutboundRewriteCache.CacheKey;
+import org.ocpsoft.rewrite.servlet.impl.OutboundRewriteCache.CachedResult;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
 import org.ocpsoft.rewrite.servlet.spi.OutboundRewriteProducer;
 import org.ocpsoft.rewrite.servlet.spi.RewriteLifecycleListener;
@@ -90,6 +94,11 @@ public class HttpRewriteWrappedResponse extends RewriteWrappedResponse
    private ServletOutputStream outputStream = null;
    private ServletOutputStream wrappedOutputStream = null;
 
+   /*
+    * Outbound results remembered for the remainder of the current request, if enabled.
+    */
+   private Map<CacheKey, CachedResult> outboundResults;
+
    @Override
    public boolean isResponseContentIntercepted()
    {
@@ -176,8 +185,12 @@ public class HttpRewriteWrappedResponse extends RewriteWrappedResponse
       if (isResponseStreamWrapped())
       {
          HttpServletRewrite event = new HttpBufferRewriteImpl(request, this, servletContext);
-         for (ResponseStreamWrapper wrapper : responseStreamWrappers) {
-            wrapper.finish(event);
+
+         /*
+          * Wrappers added later wrap the streams of earlier ones, so they must be finished first
+          */
+         for (int i = responseStreamWrappers.size() - 1; i >= 0; i--) {
+            responseStreamWrappers.get(i).finish(event);
          }
       }
    }
@@ -376,43 +389,106 @@ public class HttpRewriteWrappedResponse extends RewriteWrappedResponse
    @Override
    public String encodeRedirectURL(final String url)
    {
-      Address address = AddressBuilder.create(url);
-      OutboundServletRewrite<ServletRequest, ServletResponse, Address> event = rewrite(address);
+      OutboundRewriteCache cache = OutboundRewriteCache.getInstance(servletContext);
+      CacheKey key = createCacheKey(cache, true, url);
+      CachedResult result = getCachedResult(cache, key);
+
+      if (result == null)
+      {
+         Address address = AddressBuilder.create(url);
+         result = rewrite(cache, key, address);
+      }
 
-      if (event.getFlow().is(ServletRewriteFlow.ABORT_REQUEST))
+      if (result.aborted)
       {
-         return event.getOutboundAddress().toString();
+         return result.url;
       }
-      return super.encodeRedirectURL(event.getOutboundAddress().toString());
+      return super.encodeRedirectURL(result.url);
    }
 
    @Override
    public String encodeURL(final String url)
    {
+      OutboundRewriteCache cache = OutboundRewriteCache.getInstance(servletContext);
+      CacheKey key = createCacheKey(cache, false, url);
+      CachedResult result = getCachedResult(cache, key);
 
-      /*
-       * In some situations "url" may be not valid according to the rules defined in the RFC.
-       * In this case AddressBuilder.create() will fail. In these situations we basically
-       * skip outbound rewriting and just return the result of the super class.
-       */
-      Address address;
-      try
+      if (result == null)
       {
-         address = AddressBuilder.create(url);
+         /*
+          * In some situations "url" may be not valid according to the rules defined in the RFC.
+          * In this case AddressBuilder.create() will fail. In these situations we basically
+          * skip outbound rewriting and just return the result of the super class.
+          */
+         Address address;
+         try
+         {
+            address = AddressBuilder.create(url);
+         }
+         catch (IllegalArgumentException e) {
+            log.warn("Skipping outbound rewriting of invalid URL: " + url);
+            return super.encodeURL(url);
+         }
+
+         result = rewrite(cache, key, address);
       }
-      catch (IllegalArgumentException e) {
-         log.warn("Skipping outbound rewriting of invalid URL: " + url);
-         return super.encodeURL(url);
+
+      if (result.aborted)
+      {
+         return result.url;
       }
+      return super.encodeURL(result.url);
 
+   }
+
+   /*
+    * Outbound Caching
+    */
+   private CacheKey createCacheKey(OutboundRewriteCache cache, boolean redirect, String url)
+   {
+      if (!cache.isEnabled() && !cache.isRequestCacheEnabled())
+         return null;
+      return cache.createKey(request, servletContext, redirect, url);
+   }
+
+   private CachedResult getCachedResult(OutboundRewriteCache cache, CacheKey key)
+   {
+      if (key == null)
+         return null;
+
+      CachedResult result = null;
+      if (outboundResults != null)
+         result = outboundResults.get(key);
+      if (result == null)
+         result = cache.get(key);
+      return result;
+   }
+
+   private CachedResult rewrite(OutboundRewriteCache cache, CacheKey key, Address address)
+   {
       OutboundServletRewrite<ServletRequest, ServletResponse, Address> event = rewrite(address);
+      CachedResult result = new CachedResult(event.getOutboundAddress().toString(),
+               event.getFlow().is(ServletRewriteFlow.ABORT_REQUEST));
 
-      if (event.getFlow().is(ServletRewriteFlow.ABORT_REQUEST))
+      HttpOutboundRewriteImpl outbound = getOutboundRewriteImpl(event);
+      if (key != null && outbound != null && !outbound.isRequestDependent())
       {
-         return event.getOutboundAddress().toString();
+         if (cache.isRequestCacheEnabled())
+         {
+            if (outboundResults == null)
+               outboundResults = new HashMap<CacheKey, CachedResult>();
+            outboundResults.put(key, result);
+         }
+         cache.put(key, result);
       }
-      return super.encodeURL(event.getOutboundAddress().toString());
+      return result;
+   }
 
+   private static HttpOutboundRewriteImpl getOutboundRewriteImpl(Object event)
+   {
+      if (event instanceof HttpOutboundRewriteImpl)
+         return (HttpOutboundRewriteImpl) event;
+      return null;
    }
 
    @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -447,6 +523,12 @@ public class HttpRewriteWrappedResponse extends RewriteWrappedResponse
             {
                if (p.handles(event))
                {
+                  /*
+                   * Only the results of the DefaultHttpRewriteProvider are known to depend on the address alone.
+                   */
+                  if (!(p instanceof DefaultHttpRewriteProvider) && getOutboundRewriteImpl(event) != null)
+                     getOutboundRewriteImpl(event).setRequestDependent();
+
                   p.rewrite(event);
                   if (event.getFlow().is(ServletRewriteFlow.HANDLED))
                   {
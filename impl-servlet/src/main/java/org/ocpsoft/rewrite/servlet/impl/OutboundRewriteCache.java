@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.impl;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+
+import org.ocpsoft.common.pattern.WeightedComparator;
+import org.ocpsoft.common.services.ServiceLoader;
+import org.ocpsoft.common.util.Iterators;
+import org.ocpsoft.logging.Logger;
+import org.ocpsoft.rewrite.config.CacheableCondition;
+import org.ocpsoft.rewrite.config.CacheableOperation;
+import org.ocpsoft.rewrite.config.Configuration;
+import org.ocpsoft.rewrite.servlet.DispatcherType;
+import org.ocpsoft.rewrite.servlet.spi.DispatcherTypeProvider;
+import org.ocpsoft.rewrite.servlet.util.InitParameters;
+import org.ocpsoft.rewrite.util.BoundedCache;
+
+/**
+ * Application-scoped cache of outbound rewriting results, as produced by
+ * {@link HttpRewriteWrappedResponse#encodeURL(String)} and {@link HttpRewriteWrappedResponse#encodeRedirectURL(String)}.
+ * Results are keyed on the URL being encoded, the context path, and the scheme, host, and {@link DispatcherType} of the
+ * current request, and are evicted in least-recently-used order once the cache is full. A result is only ever cached
+ * if every {@link org.ocpsoft.rewrite.config.Rule} evaluated to produce it consists entirely of
+ * {@link CacheableCondition} instances, and every rule performed to produce it consists entirely of
+ * {@link CacheableOperation} instances; rules that inspect headers, sessions, locale, EL, or any other request state
+ * are treated as request-dependent, and bypass the cache. Custom {@link org.ocpsoft.rewrite.config.Operation}
+ * implementations are request-dependent unless they implement {@link CacheableOperation}.
+ * <p>
+ * Both caches are disabled by default. To enable them, add the following servlet context init parameters to
+ * <code>web.xml</code>. The first enables the application-scoped cache with the given size; the second remembers
+ * results for the remainder of the current request only, so that identical links on the same page are rewritten once:
+ *
+ * <pre>
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.OUTBOUND_CACHE_SIZE&lt;/param-name&gt;
+ *   &lt;param-value&gt;4096&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.OUTBOUND_REQUEST_CACHE&lt;/param-name&gt;
+ *   &lt;param-value&gt;true&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ *
+ * Operations of cached rules are not performed again when a result is served from either cache.
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+final class OutboundRewriteCache
+{
+   public static final String CACHE_SIZE = "org.ocpsoft.rewrite.config.OUTBOUND_CACHE_SIZE";
+   public static final String REQUEST_CACHE = "org.ocpsoft.rewrite.config.OUTBOUND_REQUEST_CACHE";
+
+   private static final String KEY = OutboundRewriteCache.class.getName() + "_outboundCache";
+
+   private static Logger log = Logger.getLogger(OutboundRewriteCache.class);
+
+   private static volatile List<DispatcherTypeProvider> dispatcherProviders;
+
+   private final BoundedCache<CacheKey, CachedResult> results;
+   private final boolean requestCache;
+   private volatile Configuration configuration;
+
+   OutboundRewriteCache(int size, boolean requestCache)
+   {
+      this.results = new BoundedCache<CacheKey, CachedResult>(size);
+      this.requestCache = requestCache;
+   }
+
+   /**
+    * Get the {@link OutboundRewriteCache} of the given {@link ServletContext}.
+    */
+   public static OutboundRewriteCache getInstance(ServletContext context)
+   {
+      OutboundRewriteCache cache = (OutboundRewriteCache) context.getAttribute(KEY);
+      if (cache == null)
+      {
+         synchronized (context)
+         {
+            cache = (OutboundRewriteCache) context.getAttribute(KEY);
+            if (cache == null)
+            {
+               int size = InitParameters.getInt(context, CACHE_SIZE, 0);
+               boolean requestCache = "true".equalsIgnoreCase(context.getInitParameter(REQUEST_CACHE));
+               cache = new OutboundRewriteCache(size, requestCache);
+               context.setAttribute(KEY, cache);
+
+               if (log.isDebugEnabled())
+                  log.debug("Initialized outbound rewrite cache with size [" + size + "], request cache ["
+                           + requestCache + "].");
+            }
+         }
+      }
+      return cache;
+   }
+
+   /**
+    * Return <code>true</code> if results are cached for the entire application.
+    */
+   public boolean isEnabled()
+   {
+      return results.isEnabled();
+   }
+
+   /**
+    * Return <code>true</code> if results are remembered for the remainder of the current request.
+    */
+   public boolean isRequestCacheEnabled()
+   {
+      return requestCache;
+   }
+
+   /**
+    * Discard all cached results if they were produced by a {@link Configuration} other than the given instance.
+    */
+   public void validate(Configuration configuration)
+   {
+      if (this.configuration != configuration)
+      {
+         synchronized (this)
+         {
+            if (this.configuration != configuration)
+            {
+               results.clear();
+               this.configuration = configuration;
+            }
+         }
+      }
+   }
+
+   /**
+    * Create the cache key for the given URL, as encoded for the given {@link HttpServletRequest}. Return
+    * <code>null</code> if the {@link DispatcherType} of the request cannot be determined.
+    */
+   public CacheKey createKey(HttpServletRequest request, ServletContext context, boolean redirect, String url)
+   {
+      DispatcherType dispatcherType = getDispatcherType(request, context);
+      if (dispatcherType == null || url == null)
+         return null;
+
+      return new CacheKey(redirect, dispatcherType, request.getScheme(), request.getServerName(),
+               request.getContextPath(), url);
+   }
+
+   public CachedResult get(CacheKey key)
+   {
+      return results.get(key);
+   }
+
+   public void put(CacheKey key, CachedResult result)
+   {
+      results.put(key, result);
+   }
+
+   /**
+    * Determines the {@link DispatcherType} of the current request using the {@link DispatcherTypeProvider} SPI.
+    */
+   @SuppressWarnings("unchecked")
+   private static DispatcherType getDispatcherType(HttpServletRequest request, ServletContext context)
+   {
+      if (dispatcherProviders == null)
+      {
+         List<DispatcherTypeProvider> providers = Iterators.asList(
+                  ServiceLoader.loadTypesafe(DispatcherTypeProvider.class).iterator());
+         Collections.sort(providers, new WeightedComparator());
+         dispatcherProviders = providers;
+      }
+
+      for (DispatcherTypeProvider provider : dispatcherProviders) {
+         DispatcherType dispatcherType = provider.getDispatcherType(request, context);
+         if (dispatcherType != null) {
+            return dispatcherType;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Cache key for a single encoded URL.
+    */
+   static final class CacheKey
+   {
+      private final boolean redirect;
+      private final DispatcherType dispatcherType;
+      private final String scheme;
+      private final String host;
+      private final String contextPath;
+      private final String url;
+      private final int hash;
+
+      CacheKey(boolean redirect, DispatcherType dispatcherType, String scheme, String host, String contextPath,
+               String url)
+      {
+         this.redirect = redirect;
+         this.dispatcherType = dispatcherType;
+         this.scheme = scheme;
+         this.host = host;
+         this.contextPath = contextPath;
+         this.url = url;
+
+         int result = url.hashCode();
+         result = 31 * result + (redirect ? 1 : 0);
+         result = 31 * result + dispatcherType.hashCode();
+         result = 31 * result + (scheme == null ? 0 : scheme.hashCode());
+         result = 31 * result + (host == null ? 0 : host.hashCode());
+         result = 31 * result + (contextPath == null ? 0 : contextPath.hashCode());
+         this.hash = result;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return hash;
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if (this == obj)
+            return true;
+         if (!(obj instanceof CacheKey))
+            return false;
+
+         CacheKey other = (CacheKey) obj;
+         return hash == other.hash
+                  && redirect == other.redirect
+                  && dispatcherType == other.dispatcherType
+                  && url.equals(other.url)
+                  && (scheme == null ? other.scheme == null : scheme.equals(other.scheme))
+                  && (host == null ? other.host == null : host.equals(other.host))
+                  && (contextPath == null ? other.contextPath == null : contextPath.equals(other.contextPath));
+      }
+
+      @Override
+      public String toString()
+      {
+         return "CacheKey [" + (redirect ? "redirect" : "url") + ", " + dispatcherType + ", " + url + "]";
+      }
+   }
+
+   /**
+    * The rewritten URL, before it is passed to the wrapped response, and whether rewriting aborted the event.
+    */
+   static final class CachedResult
+   {
+      final String url;
+      final boolean aborted;
+
+      CachedResult(String url, boolean aborted)
+      {
+         this.url = url;
+         this.aborted = aborted;
+      }
+   }
+}
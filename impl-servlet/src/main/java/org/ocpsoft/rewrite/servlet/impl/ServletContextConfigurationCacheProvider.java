@@ -15,19 +15,33 @@
  */
 package org.ocpsoft.rewrite.servlet.impl;
 
+import java.io.File;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
 import javax.servlet.ServletContext;
 
+import org.ocpsoft.logging.Logger;
 import org.ocpsoft.rewrite.config.Configuration;
+import org.ocpsoft.rewrite.config.ConfigurationLoader;
 import org.ocpsoft.rewrite.servlet.config.HttpConfigurationCacheProvider;
+import org.ocpsoft.rewrite.servlet.util.InitParameters;
 import org.ocpsoft.rewrite.spi.ConfigurationCacheProvider;
+import org.ocpsoft.rewrite.spi.ServiceRegistry;
 
 /**
  * Default implementation of {@link ConfigurationCacheProvider} that uses the {@link ServletContext} as an
  * application-scoped storage medium. By default, the {@link Configuration} will be loaded once upon application
  * startup, and never again.
  * <p>
- * To disable the default caching mechanism, and enable {@link Configuration} reloading on each request, add the
- * following servlet context init parameter to <code>web.xml</code>:
+ * To enable {@link Configuration} reloading, add the following servlet context init parameter to <code>web.xml</code>.
+ * Requests continue to be served with the previous {@link Configuration} while the {@link ConfigurationLoader}
+ * rebuilds it in the background, which also discards the services held by the {@link ServiceRegistry}:
  * 
  * <pre>
  * &lt;context-param&gt;
@@ -36,27 +50,55 @@ import org.ocpsoft.rewrite.spi.ConfigurationCacheProvider;
  * &lt;/context-param&gt;
  * </pre>
  * 
+ * By default, a rebuild is only started when a file under <code>/WEB-INF</code> has changed; the tree is scanned on a
+ * background thread at most once a second. If the application is not deployed to the file system, a rebuild is started at most once a
+ * second instead. Rebuilds may be further limited to at most one per given number of seconds, and change detection
+ * may be disabled so that the configuration is rebuilt once per interval:
+ * 
+ * <pre>
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.CONFIG_RELOAD_INTERVAL&lt;/param-name&gt;
+ *   &lt;param-value&gt;5&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.CONFIG_RELOAD_ON_CHANGE&lt;/param-name&gt;
+ *   &lt;param-value&gt;false&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  * 
  */
 public class ServletContextConfigurationCacheProvider extends HttpConfigurationCacheProvider
 {
+   public static final String RELOAD_INTERVAL = "org.ocpsoft.rewrite.config.CONFIG_RELOAD_INTERVAL";
+   public static final String RELOAD_ON_CHANGE = "org.ocpsoft.rewrite.config.CONFIG_RELOAD_ON_CHANGE";
+
    private static final String KEY = ServletContextConfigurationCacheProvider.class.getName() + "_cachedConfig";
+   private static final String POLICY_KEY = ServletContextConfigurationCacheProvider.class.getName() + "_reloadPolicy";
    private static final String RELOAD_CONFIGURATION = "org.ocpsoft.rewrite.config.CONFIG_RELOADING";
 
+   /*
+    * Minimum time between scans of /WEB-INF for changes, and between rebuilds, in milliseconds.
+    */
+   private static final long SCAN_INTERVAL = 1000;
+
+   private static Logger log = Logger.getLogger(ServletContextConfigurationCacheProvider.class);
+
    @Override
    public Configuration getConfiguration(ServletContext context)
    {
-      String reload = context.getInitParameter(RELOAD_CONFIGURATION);
-      if (reload != null && "true".equalsIgnoreCase(reload.trim())) {
+      Configuration configuration = (Configuration) context.getAttribute(KEY);
+      if (configuration != null && getPolicy(context).isStale(context)) {
          return null;
       }
-      return (Configuration) context.getAttribute(KEY);
+      return configuration;
    }
 
    @Override
    public void setConfiguration(ServletContext context, Configuration configuration)
    {
+      getPolicy(context).loaded(context);
       context.setAttribute(KEY, configuration);
    }
 
@@ -65,4 +107,177 @@ public class ServletContextConfigurationCacheProvider extends HttpConfigurationC
    {
       return 0;
    }
+
+   private ReloadPolicy getPolicy(ServletContext context)
+   {
+      ReloadPolicy policy = (ReloadPolicy) context.getAttribute(POLICY_KEY);
+      if (policy == null)
+      {
+         synchronized (context)
+         {
+            policy = (ReloadPolicy) context.getAttribute(POLICY_KEY);
+            if (policy == null)
+            {
+               String reload = context.getInitParameter(RELOAD_CONFIGURATION);
+               String onChange = context.getInitParameter(RELOAD_ON_CHANGE);
+               policy = new ReloadPolicy(reload != null && "true".equalsIgnoreCase(reload.trim()),
+                        Math.max(SCAN_INTERVAL, InitParameters.getInt(context, RELOAD_INTERVAL, 0) * 1000L),
+                        onChange == null || !"false".equalsIgnoreCase(onChange.trim()));
+               context.setAttribute(POLICY_KEY, policy);
+            }
+         }
+      }
+      return policy;
+   }
+
+   /**
+    * Decides when a cached {@link Configuration} should be rebuilt.
+    */
+   private static class ReloadPolicy
+   {
+      private final boolean enabled;
+      private final long interval;
+      private final boolean onChange;
+
+      /*
+       * Scans /WEB-INF on a background thread, so that requests only ever compare timestamps; the thread exits when
+       * no scan has been requested for a while.
+       */
+      private final ThreadPoolExecutor scanner;
+      private final AtomicBoolean scanning = new AtomicBoolean();
+
+      private volatile long loaded;
+      private volatile long lastScan;
+      private volatile long modified;
+      private volatile long lastModified;
+
+      /*
+       * The modification time that made the configuration stale; kept until the rebuild it started is stored.
+       */
+      private final AtomicLong trigger = new AtomicLong();
+
+      public ReloadPolicy(boolean enabled, long interval, boolean onChange)
+      {
+         this.enabled = enabled;
+         this.interval = interval;
+         this.onChange = onChange;
+
+         if (enabled && onChange)
+         {
+            scanner = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                     new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runnable)
+                        {
+                           Thread thread = new Thread(runnable, "Rewrite configuration scan");
+                           thread.setDaemon(true);
+                           return thread;
+                        }
+                     });
+            scanner.allowCoreThreadTimeOut(true);
+         }
+         else
+            scanner = null;
+      }
+
+      public void loaded(ServletContext context)
+      {
+         if (enabled)
+         {
+            if (onChange)
+            {
+               /*
+                * Record the modification time that started the rebuild rather than the newest one, so that a change
+                * made while the rebuild was running makes the new configuration stale in turn. The first
+                * configuration is built before anything has been scanned, so its baseline is scanned here.
+                */
+               long modification = trigger.getAndSet(0);
+               if (modification == 0)
+               {
+                  modification = getLastModified(context);
+                  modified = modification;
+               }
+               lastModified = modification;
+            }
+            loaded = System.currentTimeMillis();
+         }
+      }
+
+      public boolean isStale(ServletContext context)
+      {
+         if (!enabled)
+            return false;
+
+         long now = System.currentTimeMillis();
+         if (now - loaded < interval)
+            return false;
+
+         if (!onChange)
+            return true;
+
+         scan(context, now);
+         long current = modified;
+         if (current == Long.MAX_VALUE || current > lastModified)
+         {
+            trigger.compareAndSet(0, current);
+            return true;
+         }
+         return false;
+      }
+
+      /**
+       * Update the most recent modification time on the background thread, at most once per
+       * {@link ServletContextConfigurationCacheProvider#SCAN_INTERVAL}.
+       */
+      private void scan(final ServletContext context, long now)
+      {
+         if (now - lastScan < SCAN_INTERVAL || !scanning.compareAndSet(false, true))
+            return;
+
+         lastScan = now;
+         try {
+            scanner.execute(new Runnable() {
+               @Override
+               public void run()
+               {
+                  try {
+                     modified = getLastModified(context);
+                  }
+                  finally {
+                     scanning.set(false);
+                  }
+               }
+            });
+         }
+         catch (RejectedExecutionException e) {
+            scanning.set(false);
+         }
+      }
+
+      /**
+       * Return the most recent modification time of any file under <code>/WEB-INF</code>, or
+       * {@link Long#MAX_VALUE} if the application is not deployed to the file system, in which case only the reload
+       * interval applies.
+       */
+      private long getLastModified(ServletContext context)
+      {
+         String path = context.getRealPath("/WEB-INF");
+         if (path == null)
+            return Long.MAX_VALUE;
+         return getLastModified(new File(path));
+      }
+
+      private long getLastModified(File file)
+      {
+         long result = file.lastModified();
+         File[] children = file.listFiles();
+         if (children != null)
+         {
+            for (File child : children) {
+               result = Math.max(result, getLastModified(child));
+            }
+         }
+         return result;
+      }
+   }
 }
@@ -0,0 +1,292 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.impl;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+
+import org.ocpsoft.common.pattern.WeightedComparator;
+import org.ocpsoft.common.services.ServiceLoader;
+import org.ocpsoft.common.util.Iterators;
+import org.ocpsoft.logging.Logger;
+import org.ocpsoft.rewrite.config.CacheableCondition;
+import org.ocpsoft.rewrite.config.Rule;
+import org.ocpsoft.rewrite.context.EvaluationContext;
+import org.ocpsoft.rewrite.event.Rewrite;
+import org.ocpsoft.rewrite.servlet.DispatcherType;
+import org.ocpsoft.rewrite.servlet.http.event.HttpInboundServletRewrite;
+import org.ocpsoft.rewrite.servlet.http.event.HttpOutboundServletRewrite;
+import org.ocpsoft.rewrite.servlet.spi.DispatcherTypeProvider;
+import org.ocpsoft.rewrite.servlet.util.InitParameters;
+import org.ocpsoft.rewrite.spi.RuleCacheProvider;
+import org.ocpsoft.rewrite.util.BoundedCache;
+import org.ocpsoft.urlbuilder.Address;
+
+/**
+ * Default implementation of {@link RuleCacheProvider} that uses the {@link ServletContext} as an application-scoped
+ * storage medium. Cached {@link Rule} lists are keyed on the direction, {@link DispatcherType}, and {@link Address} of
+ * the current event, and are evicted in least-recently-used order once the cache is full. Only {@link Rule} instances
+ * that consist entirely of {@link CacheableCondition} instances are ever excluded from a cached list.
+ * <p>
+ * Rule caching is disabled by default. To enable it, add the following servlet context init parameters to
+ * <code>web.xml</code>; entries never expire unless a TTL is given (a size of <code>0</code> disables rule caching):
+ *
+ * <pre>
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.RULE_CACHE_SIZE&lt;/param-name&gt;
+ *   &lt;param-value&gt;4096&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.RULE_CACHE_TTL&lt;/param-name&gt;
+ *   &lt;param-value&gt;600&lt;/param-value&gt; &lt;!-- seconds --&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ *
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public class ServletContextRuleCacheProvider implements RuleCacheProvider
+{
+   public static final String CACHE_SIZE = "org.ocpsoft.rewrite.config.RULE_CACHE_SIZE";
+   public static final String CACHE_TTL = "org.ocpsoft.rewrite.config.RULE_CACHE_TTL";
+
+   private static final String KEY = ServletContextRuleCacheProvider.class.getName() + "_ruleCache";
+   private static final int DEFAULT_CACHE_SIZE = 0;
+
+   private static Logger log = Logger.getLogger(ServletContextRuleCacheProvider.class);
+
+   private volatile List<DispatcherTypeProvider> dispatcherProviders;
+
+   @Override
+   public List<Rule> get(Object key)
+   {
+      if (key instanceof RuleCacheKey)
+         return ((RuleCacheKey) key).cache.get((RuleCacheKey) key);
+      return null;
+   }
+
+   @Override
+   public void put(Object key, List<Rule> rules)
+   {
+      if (key instanceof RuleCacheKey)
+         ((RuleCacheKey) key).cache.put((RuleCacheKey) key, rules);
+   }
+
+   @Override
+   public Object createKey(Rewrite event, EvaluationContext context)
+   {
+      if (event instanceof HttpInboundServletRewrite)
+      {
+         HttpInboundServletRewrite inbound = (HttpInboundServletRewrite) event;
+         RuleCache cache = getCache(inbound.getServletContext());
+         if (cache == null)
+            return null;
+
+         DispatcherType dispatcherType = getDispatcherType(inbound.getRequest(), inbound.getServletContext());
+
+         /*
+          * Forwarded requests may be evaluated against state left behind by the rule that issued the forward, such as
+          * Join chaining, which is not part of the cache key.
+          */
+         if (dispatcherType == null || DispatcherType.FORWARD.equals(dispatcherType))
+            return null;
+
+         return new RuleCacheKey(cache, true, dispatcherType, null, null, inbound.getInboundAddress().toString());
+      }
+
+      else if (event instanceof HttpOutboundServletRewrite)
+      {
+         HttpOutboundServletRewrite outbound = (HttpOutboundServletRewrite) event;
+         RuleCache cache = getCache(outbound.getServletContext());
+         if (cache == null)
+            return null;
+
+         HttpServletRequest request = outbound.getRequest();
+         DispatcherType dispatcherType = getDispatcherType(request, outbound.getServletContext());
+         if (dispatcherType == null)
+            return null;
+
+         /*
+          * Outbound conditions fall back to the scheme and host of the current request when the outbound address
+          * does not specify its own.
+          */
+         return new RuleCacheKey(cache, false, dispatcherType, request.getScheme(), request.getServerName(),
+                  outbound.getOutboundAddress().toString());
+      }
+
+      return null;
+   }
+
+   private RuleCache getCache(ServletContext context)
+   {
+      RuleCache cache = (RuleCache) context.getAttribute(KEY);
+      if (cache == null)
+      {
+         synchronized (context)
+         {
+            cache = (RuleCache) context.getAttribute(KEY);
+            if (cache == null)
+            {
+               int size = InitParameters.getInt(context, CACHE_SIZE, DEFAULT_CACHE_SIZE);
+               int ttl = InitParameters.getInt(context, CACHE_TTL, 0);
+               cache = new RuleCache(size, ttl * 1000L);
+               context.setAttribute(KEY, cache);
+
+               if (log.isDebugEnabled())
+                  log.debug("Initialized Rule cache with size [" + size + "] and TTL [" + ttl + "] seconds.");
+            }
+         }
+      }
+      return cache.isEnabled() ? cache : null;
+   }
+
+   /**
+    * Determines the {@link DispatcherType} of the current request using the {@link DispatcherTypeProvider} SPI.
+    */
+   @SuppressWarnings("unchecked")
+   private DispatcherType getDispatcherType(HttpServletRequest request, ServletContext context)
+   {
+      if (dispatcherProviders == null)
+      {
+         List<DispatcherTypeProvider> providers = Iterators.asList(
+                  ServiceLoader.loadTypesafe(DispatcherTypeProvider.class).iterator());
+         Collections.sort(providers, new WeightedComparator());
+         dispatcherProviders = providers;
+      }
+
+      for (DispatcherTypeProvider provider : dispatcherProviders) {
+         DispatcherType dispatcherType = provider.getDispatcherType(request, context);
+         if (dispatcherType != null) {
+            return dispatcherType;
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Cache key for a single inbound or outbound address.
+    */
+   private static class RuleCacheKey
+   {
+      private final RuleCache cache;
+      private final boolean inbound;
+      private final DispatcherType dispatcherType;
+      private final String scheme;
+      private final String host;
+      private final String address;
+      private final int hash;
+
+      public RuleCacheKey(RuleCache cache, boolean inbound, DispatcherType dispatcherType, String scheme,
+               String host, String address)
+      {
+         this.cache = cache;
+         this.inbound = inbound;
+         this.dispatcherType = dispatcherType;
+         this.scheme = scheme;
+         this.host = host;
+         this.address = address;
+
+         int result = address.hashCode();
+         result = 31 * result + (inbound ? 1 : 0);
+         result = 31 * result + dispatcherType.hashCode();
+         result = 31 * result + (scheme == null ? 0 : scheme.hashCode());
+         result = 31 * result + (host == null ? 0 : host.hashCode());
+         this.hash = result;
+      }
+
+      @Override
+      public int hashCode()
+      {
+         return hash;
+      }
+
+      @Override
+      public boolean equals(Object obj)
+      {
+         if (this == obj)
+            return true;
+         if (!(obj instanceof RuleCacheKey))
+            return false;
+
+         RuleCacheKey other = (RuleCacheKey) obj;
+         return hash == other.hash
+                  && inbound == other.inbound
+                  && dispatcherType == other.dispatcherType
+                  && address.equals(other.address)
+                  && (scheme == null ? other.scheme == null : scheme.equals(other.scheme))
+                  && (host == null ? other.host == null : host.equals(other.host));
+      }
+
+      @Override
+      public String toString()
+      {
+         return "RuleCacheKey [" + (inbound ? "inbound" : "outbound") + ", " + dispatcherType + ", " + address + "]";
+      }
+   }
+
+   /**
+    * Bounded LRU cache of {@link Rule} lists, whose entries optionally expire after a fixed TTL.
+    */
+   private static class RuleCache
+   {
+      private final BoundedCache<RuleCacheKey, CacheEntry> entries;
+      private final long ttl;
+
+      public RuleCache(int size, long ttl)
+      {
+         this.entries = new BoundedCache<RuleCacheKey, CacheEntry>(size);
+         this.ttl = ttl;
+      }
+
+      public boolean isEnabled()
+      {
+         return entries.isEnabled();
+      }
+
+      public List<Rule> get(RuleCacheKey key)
+      {
+         CacheEntry entry = entries.get(key);
+         if (entry == null)
+            return null;
+
+         if (ttl > 0 && System.currentTimeMillis() - entry.created > ttl)
+         {
+            entries.remove(key, entry);
+            return null;
+         }
+         return entry.rules;
+      }
+
+      public void put(RuleCacheKey key, List<Rule> rules)
+      {
+         entries.put(key, new CacheEntry(rules, System.currentTimeMillis()));
+      }
+   }
+
+   private static class CacheEntry
+   {
+      private final List<Rule> rules;
+      private final long created;
+
+      public CacheEntry(List<Rule> rules, long created)
+      {
+         this.rules = rules;
+         this.created = created;
+      }
+   }
+}
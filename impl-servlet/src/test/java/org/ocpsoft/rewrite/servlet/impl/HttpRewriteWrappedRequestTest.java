@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HttpRewriteWrappedRequestTest
+{
+   private Map<String, String[]> nativeParameters;
+   private HttpRewriteWrappedRequest request;
+
+   @Before
+   public void setUp()
+   {
+      nativeParameters = new LinkedHashMap<String, String[]>();
+      nativeParameters.put("a", new String[] { "native-a" });
+      nativeParameters.put("b", new String[] { "native-b1", "native-b2" });
+
+      Map<String, String[]> additional = new HashMap<String, String[]>();
+      additional.put("b", new String[] { "added-b" });
+      additional.put("c", new String[] { "added-c" });
+
+      request = new HttpRewriteWrappedRequest(request(nativeParameters), additional);
+   }
+
+   @Test
+   public void testModifiableParametersOverrideNative()
+   {
+      Map<String, String[]> parameters = request.getParameterMap();
+      Assert.assertArrayEquals(new String[] { "native-a" }, parameters.get("a"));
+      Assert.assertArrayEquals(new String[] { "added-b" }, parameters.get("b"));
+      Assert.assertArrayEquals(new String[] { "added-c" }, parameters.get("c"));
+      Assert.assertNull(parameters.get("d"));
+      Assert.assertNull(parameters.get(1));
+
+      Assert.assertEquals("added-b", request.getParameter("b"));
+      Assert.assertArrayEquals(new String[] { "added-b" }, request.getParameterValues("b"));
+      Assert.assertEquals("native-a", request.getParameter("a"));
+   }
+
+   @Test
+   public void testSizeAndIterationWithoutDuplicates()
+   {
+      Map<String, String[]> parameters = request.getParameterMap();
+      Assert.assertEquals(3, parameters.size());
+      Assert.assertEquals(3, parameters.entrySet().size());
+
+      List<String> names = new ArrayList<String>();
+      for (Entry<String, String[]> entry : parameters.entrySet()) {
+         names.add(entry.getKey());
+         Assert.assertSame(parameters.get(entry.getKey()), entry.getValue());
+      }
+      Assert.assertEquals(3, names.size());
+      Assert.assertTrue(names.containsAll(Arrays.asList("a", "b", "c")));
+
+      Assert.assertEquals(names, Collections.list(request.getParameterNames()));
+   }
+
+   @Test
+   public void testModificationsVisibleImmediately()
+   {
+      Map<String, String[]> parameters = request.getParameterMap();
+      Assert.assertSame(parameters, request.getParameterMap());
+
+      request.getModifiableParameters().put("a", new String[] { "added-a" });
+      request.getModifiableParameters().put("d", new String[] { "added-d" });
+      request.getModifiableParameters().remove("c");
+
+      Assert.assertArrayEquals(new String[] { "added-a" }, parameters.get("a"));
+      Assert.assertArrayEquals(new String[] { "added-d" }, parameters.get("d"));
+      Assert.assertFalse(parameters.containsKey("c"));
+      Assert.assertEquals(3, parameters.size());
+      Assert.assertEquals("added-a", request.getParameter("a"));
+
+      request.getModifiableParameters().remove("b");
+      Assert.assertArrayEquals(new String[] { "native-b1", "native-b2" }, parameters.get("b"));
+      Assert.assertEquals(3, parameters.size());
+   }
+
+   @Test(expected = UnsupportedOperationException.class)
+   public void testParameterMapIsUnmodifiable()
+   {
+      request.getParameterMap().put("e", new String[] { "e" });
+   }
+
+   @Test(expected = UnsupportedOperationException.class)
+   public void testParameterMapIteratorIsUnmodifiable()
+   {
+      request.getParameterMap().entrySet().iterator().next().setValue(new String[] { "x" });
+   }
+
+   private static HttpServletRequest request(final Map<String, String[]> parameters)
+   {
+      return (HttpServletRequest) Proxy.newProxyInstance(HttpRewriteWrappedRequestTest.class.getClassLoader(),
+               new Class<?>[] { HttpServletRequest.class }, new InvocationHandler() {
+                  @Override
+                  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+                  {
+                     if ("getParameterMap".equals(method.getName()))
+                        return parameters;
+                     if ("getParameter".equals(method.getName()))
+                     {
+                        String[] values = parameters.get(args[0]);
+                        return values == null ? null : values[0];
+                     }
+                     if ("setAttribute".equals(method.getName()))
+                        return null;
+                     throw new UnsupportedOperationException(method.getName());
+                  }
+               });
+   }
+}
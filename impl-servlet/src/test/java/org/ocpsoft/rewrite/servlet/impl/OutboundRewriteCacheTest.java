@@ -0,0 +1,232 @@
+/*
+ * Copyright 2016 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.servlet.impl;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.ocpsoft.rewrite.config.ConfigurationBuilder;
+import org.ocpsoft.rewrite.event.Rewrite;
+import org.ocpsoft.rewrite.servlet.DispatcherType;
+import org.ocpsoft.rewrite.servlet.RewriteLifecycleContext;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.servlet.spi.DispatcherTypeProvider;
+import org.ocpsoft.rewrite.servlet.spi.OutboundRewriteProducer;
+import org.ocpsoft.rewrite.servlet.spi.RewriteLifecycleListener;
+import org.ocpsoft.rewrite.spi.RewriteProvider;
+import org.ocpsoft.urlbuilder.AddressBuilder;
+
+public class OutboundRewriteCacheTest
+{
+   private ServletContext servletContext;
+   private HttpServletRequest request;
+   private CountingRewriteProvider provider;
+
+   @Before
+   public void setUp()
+   {
+      Map<String, String> parameters = new HashMap<String, String>();
+      parameters.put(OutboundRewriteCache.CACHE_SIZE, "16");
+      servletContext = stub(ServletContext.class, parameters, new HashMap<String, Object>());
+
+      provider = new CountingRewriteProvider();
+      request = request(provider);
+   }
+
+   @Test
+   public void testRepeatedUrlIsServedFromCache()
+   {
+      Assert.assertEquals("/rewritten/page", response().encodeURL("/page"));
+      Assert.assertEquals("/rewritten/page", response().encodeURL("/page"));
+      Assert.assertEquals(1, provider.count);
+
+      Assert.assertEquals("/rewritten/other", response().encodeURL("/other"));
+      Assert.assertEquals("/rewritten/page", response().encodeRedirectURL("/page"));
+      Assert.assertEquals(3, provider.count);
+   }
+
+   @Test
+   public void testRequestDependentResultBypassesCache()
+   {
+      provider.requestDependent = true;
+      Assert.assertEquals("/rewritten/page", response().encodeURL("/page"));
+      Assert.assertEquals("/rewritten/page", response().encodeURL("/page"));
+      Assert.assertEquals(2, provider.count);
+
+      provider.requestDependent = false;
+      response().encodeURL("/page");
+      response().encodeURL("/page");
+      Assert.assertEquals(3, provider.count);
+   }
+
+   @Test
+   public void testResultOfOtherProviderBypassesCache()
+   {
+      final List<Rewrite> events = new ArrayList<Rewrite>();
+      RewriteProvider<ServletContext, Rewrite> other = new RewriteProvider<ServletContext, Rewrite>() {
+         @Override
+         public int priority()
+         {
+            return 0;
+         }
+
+         @Override
+         public void init(ServletContext context)
+         {}
+
+         @Override
+         public void shutdown(ServletContext context)
+         {}
+
+         @Override
+         public boolean handles(Rewrite event)
+         {
+            return true;
+         }
+
+         @Override
+         public void rewrite(Rewrite event)
+         {
+            events.add(event);
+         }
+      };
+
+      request = request(provider, other);
+      response().encodeURL("/page");
+      response().encodeURL("/page");
+      Assert.assertEquals(2, provider.count);
+      Assert.assertEquals(2, events.size());
+   }
+
+   @Test
+   public void testConfigurationChangeInvalidatesCache()
+   {
+      OutboundRewriteCache cache = OutboundRewriteCache.getInstance(servletContext);
+      cache.validate(ConfigurationBuilder.begin());
+
+      response().encodeURL("/page");
+      response().encodeURL("/page");
+      Assert.assertEquals(1, provider.count);
+
+      cache.validate(ConfigurationBuilder.begin());
+      response().encodeURL("/page");
+      Assert.assertEquals(2, provider.count);
+   }
+
+   private HttpRewriteWrappedResponse response()
+   {
+      HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+               new Class<?>[] { HttpServletResponse.class }, new InvocationHandler() {
+                  @Override
+                  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+                  {
+                     if (method.getName().startsWith("encode"))
+                        return args[0];
+                     throw new UnsupportedOperationException(method.getName());
+                  }
+               });
+      return new HttpRewriteWrappedResponse(request, response, servletContext);
+   }
+
+   @SuppressWarnings({ "unchecked", "rawtypes" })
+   private static HttpServletRequest request(RewriteProvider<ServletContext, Rewrite>... providers)
+   {
+      List producers = Arrays.asList(new HttpOutboundRewriteProducer());
+      RewriteLifecycleContext<ServletContext> context = new HttpRewriteContextImpl(null,
+               (List<OutboundRewriteProducer<ServletRequest, ServletResponse, Object>>) producers,
+               new ArrayList<RewriteLifecycleListener<Rewrite>>(), null, null, Arrays.asList(providers));
+
+      Map<String, Object> attributes = new HashMap<String, Object>();
+      attributes.put(RewriteLifecycleContext.LIFECYCLE_CONTEXT_KEY, context);
+
+      Map<String, String> properties = new HashMap<String, String>();
+      properties.put("getScheme", "http");
+      properties.put("getServerName", "example.com");
+      properties.put("getContextPath", "");
+      return stub(HttpServletRequest.class, properties, attributes);
+   }
+
+   private static <T> T stub(Class<T> type, final Map<String, String> values, final Map<String, Object> attributes)
+   {
+      return type.cast(Proxy.newProxyInstance(OutboundRewriteCacheTest.class.getClassLoader(),
+               new Class<?>[] { type }, new InvocationHandler() {
+                  @Override
+                  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+                  {
+                     String name = method.getName();
+                     if ("getAttribute".equals(name))
+                        return attributes.get(args[0]);
+                     if ("setAttribute".equals(name))
+                        return attributes.put((String) args[0], args[1]);
+                     if ("getInitParameter".equals(name))
+                        return values.get(args[0]);
+                     if (values.containsKey(name))
+                        return values.get(name);
+                     throw new UnsupportedOperationException(name);
+                  }
+               }));
+   }
+
+   /**
+    * Stands in for the rules of a {@link org.ocpsoft.rewrite.config.Configuration}, counting every outbound event it
+    * is asked to rewrite.
+    */
+   private static class CountingRewriteProvider extends DefaultHttpRewriteProvider
+   {
+      private int count;
+      private boolean requestDependent;
+
+      @Override
+      public void rewriteHttp(HttpServletRewrite event)
+      {
+         count++;
+         HttpOutboundRewriteImpl outbound = (HttpOutboundRewriteImpl) event;
+         outbound.setOutboundAddress(AddressBuilder.create("/rewritten" + outbound.getOutboundAddress().getPath()));
+         if (requestDependent)
+            outbound.setRequestDependent();
+      }
+   }
+
+   public static class RequestDispatcherTypeProvider implements DispatcherTypeProvider
+   {
+      @Override
+      public int priority()
+      {
+         return 0;
+      }
+
+      @Override
+      public DispatcherType getDispatcherType(ServletRequest request, ServletContext context)
+      {
+         return DispatcherType.REQUEST;
+      }
+   }
+}
@@ -1,10 +1,11 @@
 package org.ocpsoft.rewrite.faces.config;
 
+import java.util.List;
+
 import javax.faces.context.FacesContext;
 import javax.faces.event.PhaseId;
 
 import org.ocpsoft.common.pattern.Weighted;
-import org.ocpsoft.common.services.ServiceLoader;
 import org.ocpsoft.logging.Logger;
 import org.ocpsoft.rewrite.bind.Retrieval;
 import org.ocpsoft.rewrite.bind.Submission;
@@ -18,6 +19,7 @@ import org.ocpsoft.rewrite.servlet.event.SubflowTask;
 import org.ocpsoft.rewrite.servlet.http.event.HttpInboundServletRewrite;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
 import org.ocpsoft.rewrite.spi.InvocationResultHandler;
+import org.ocpsoft.rewrite.spi.ServiceRegistry;
 
 /**
  * An {@link Operation} that invokes an action before or after a given JavaServer Faces {@link PhaseId}. Has a
@@ -114,8 +116,8 @@ public abstract class PhaseAction extends PhaseOperation<PhaseAction>
             }
             else if (result != null)
             {
-               ServiceLoader<InvocationResultHandler> providers = ServiceLoader.load(InvocationResultHandler.class);
-               if (!providers.iterator().hasNext())
+               List<InvocationResultHandler> providers = ServiceRegistry.getServices(InvocationResultHandler.class);
+               if (providers.isEmpty())
                {
                   log.debug("No instances of [" + InvocationResultHandler.class.getName()
                            + "] were registered to handing binding invocation result [" + result + "]");
@@ -18,10 +18,10 @@ package org.ocpsoft.rewrite.faces.navigate;
 import java.util.List;
 import java.util.Map.Entry;
 
-import org.ocpsoft.common.services.ServiceLoader;
 import org.ocpsoft.common.util.Assert;
 import org.ocpsoft.rewrite.faces.RewriteNavigationHandler;
 import org.ocpsoft.rewrite.servlet.spi.ResourcePathResolver;
+import org.ocpsoft.rewrite.spi.ServiceRegistry;
 import org.ocpsoft.urlbuilder.Address;
 import org.ocpsoft.urlbuilder.AddressBuilder;
 import org.ocpsoft.urlbuilder.AddressBuilderPath;
@@ -71,8 +71,7 @@ public class Navigate
 
       Assert.notNull(clazz, "clazz must not be null");
 
-      @SuppressWarnings("unchecked")
-      Iterable<ResourcePathResolver> resolvers = ServiceLoader.load(ResourcePathResolver.class);
+      Iterable<ResourcePathResolver> resolvers = ServiceRegistry.getServices(ResourcePathResolver.class);
 
       for (ResourcePathResolver resolver : resolvers) {
          String viewId = resolver.resolveFrom(clazz);
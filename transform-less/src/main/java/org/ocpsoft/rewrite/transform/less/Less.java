@@ -18,24 +18,47 @@ package org.ocpsoft.rewrite.transform.less;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.mozilla.javascript.Context;
+import org.mozilla.javascript.EvaluatorException;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
 import org.ocpsoft.common.util.Streams;
+import org.ocpsoft.logging.Logger;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.transform.CacheableTransformer;
 import org.ocpsoft.rewrite.transform.StringTransformer;
 import org.ocpsoft.rewrite.transform.Transformer;
 
 /**
  * A {@link Transformer} that compiles LESS files into CSS. This implementation is based on Mozilla Rhino and LESS
  * 1.3.0.
+ * <p>
+ * The LESS compiler itself is loaded only once, into a sealed scope that is shared by all {@link Less} instances.
+ * Compiled CSS is cached by a hash of the LESS source, up to a total of 1048576 characters by default. Use
+ * {@link #withCacheLimit(int)} to change this limit.
  * 
  * @author Christian Kaltepoth
  */
-public class Less extends StringTransformer
+public class Less extends StringTransformer implements CacheableTransformer
 {
 
-   private final String baseScript;
+   private static final Logger log = Logger.getLogger(Less.class);
+
+   private static final Charset UTF8 = Charset.forName("UTF-8");
+
+   private static final int DEFAULT_CACHE_LIMIT = 1024 * 1024;
+
+   private static volatile ScriptableObject sharedScope;
+
+   private final CssCache cache = new CssCache(DEFAULT_CACHE_LIMIT);
 
    /**
     * Create a {@link Transformer} that compiles LESS files into CSS.
@@ -46,38 +69,63 @@ public class Less extends StringTransformer
    }
 
    private Less()
+   {}
+
+   /**
+    * Limit the memory used to cache compiled CSS to approximately the given number of characters. A limit of
+    * <code>0</code> disables caching.
+    */
+   public Less withCacheLimit(int characters)
    {
-      StringBuilder scriptBuilder = new StringBuilder();
-      scriptBuilder.append("function print(s) {}"); // required by env.rhino
-      scriptBuilder.append(getClasspathResourceAsString("org/ocpsoft/rewrite/transform/js/" + "env.rhino.1.2.js"));
-      scriptBuilder.append(getClasspathResourceAsString("org/ocpsoft/rewrite/transform/js/" + "less-1.3.0.min.js"));
-      scriptBuilder.append(getClasspathResourceAsString("org/ocpsoft/rewrite/transform/js/" + "api.js"));
-      baseScript = scriptBuilder.toString();
+      cache.setLimit(characters);
+      return this;
+   }
+
+   /**
+    * Identifies the version of the LESS compiler, since the compiled CSS does not depend on any configuration.
+    */
+   @Override
+   public String getCacheKey()
+   {
+      return "1.3.0";
    }
 
    @Override
    public String transform(HttpServletRewrite event, String less)
    {
 
+      String key = cache.isEnabled() ? hash(less) : null;
+      if (key != null) {
+         String cached = cache.get(key);
+         if (cached != null) {
+            return cached;
+         }
+      }
+
       Context context = Context.enter();
 
       try {
 
-         context.setOptimizationLevel(-1);
          context.setLanguageVersion(Context.VERSION_1_6);
 
-         Scriptable scope = context.initStandardObjects();
+         ScriptableObject shared = getSharedScope(context);
 
-         String script = new StringBuilder(baseScript)
-                  .append("lessToCss('")
-                  .append(escape(less))
-                  .append("');")
-                  .toString();
+         /*
+          * Globals created while compiling are kept in a throw-away scope, since the shared scope is sealed
+          */
+         Scriptable scope = context.newObject(shared);
+         scope.setPrototype(shared);
+         scope.setParentScope(null);
 
-         Object result = context.evaluateString(scope, script, this.getClass().getSimpleName(), 1, null);
+         Function lessToCss = (Function) ScriptableObject.getProperty(shared, "lessToCss");
+         Object result = lessToCss.call(context, scope, scope, new Object[] { less.replace("\r", "") });
 
          if (result != null) {
-            return result.toString();
+            String css = Context.toString(result);
+            if (key != null) {
+               cache.put(key, css);
+            }
+            return css;
          }
 
       }
@@ -88,20 +136,125 @@ public class Less extends StringTransformer
 
    }
 
-   private static String getClasspathResourceAsString(String resource)
+   /**
+    * Get the sealed scope containing the LESS compiler, evaluating the base scripts on first access.
+    */
+   private static ScriptableObject getSharedScope(Context context)
+   {
+      ScriptableObject result = sharedScope;
+      if (result == null) {
+         synchronized (Less.class) {
+            result = sharedScope;
+            if (result == null) {
+               result = context.initStandardObjects();
+               evaluate(context, result, "function print(s) {}", "print"); // required by env.rhino
+               evaluate(context, result, getClasspathResourceAsString("env.rhino.1.2.js"), "env.rhino.1.2.js");
+               evaluate(context, result, getClasspathResourceAsString("less-1.3.0.min.js"), "less-1.3.0.min.js");
+               evaluate(context, result, getClasspathResourceAsString("api.js"), "api.js");
+               result.sealObject();
+               sharedScope = result;
+            }
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Compile the given script with full optimization, falling back to the interpreter if the script is too large to
+    * be compiled to bytecode.
+    */
+   private static void evaluate(Context context, Scriptable scope, String source, String name)
+   {
+      Script script;
+      try {
+         context.setOptimizationLevel(9);
+         script = context.compileString(source, name, 1, null);
+      }
+      catch (EvaluatorException e) {
+         log.debug("Could not compile [" + name + "] to bytecode, falling back to interpreted mode: " + e.getMessage());
+         context.setOptimizationLevel(-1);
+         script = context.compileString(source, name, 1, null);
+      }
+      script.exec(context, scope);
+   }
+
+   private static String getClasspathResourceAsString(String name)
    {
+      String resource = "org/ocpsoft/rewrite/transform/js/" + name;
       InputStream input = Thread.currentThread().getContextClassLoader().getResourceAsStream(resource);
       if (input == null) {
          throw new IllegalStateException("Could not find resource on the classpath: " + resource);
       }
       ByteArrayOutputStream output = new ByteArrayOutputStream();
       Streams.copy(input, output);
-      return new String(output.toByteArray(), Charset.forName("UTF-8"));
+      return new String(output.toByteArray(), UTF8);
+   }
+
+   private static String hash(String s)
+   {
+      try {
+         byte[] digest = MessageDigest.getInstance("SHA-1").digest(s.getBytes(UTF8));
+         StringBuilder result = new StringBuilder(digest.length * 2);
+         for (byte b : digest) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+         }
+         return result.toString();
+      }
+      catch (NoSuchAlgorithmException e) {
+         throw new IllegalStateException(e);
+      }
    }
 
-   private String escape(String s)
+   /**
+    * LRU cache of compiled CSS, bounded by the total number of cached characters.
+    */
+   private static class CssCache
    {
-      return s.replace("\r", "").replace("\n", "\\n");
+      private final Map<String, String> entries = new LinkedHashMap<String, String>(16, 0.75f, true);
+      private volatile int limit;
+      private int size;
+
+      public CssCache(int limit)
+      {
+         this.limit = limit;
+      }
+
+      public boolean isEnabled()
+      {
+         return limit > 0;
+      }
+
+      public synchronized void setLimit(int limit)
+      {
+         this.limit = Math.max(0, limit);
+         evict();
+      }
+
+      public synchronized String get(String key)
+      {
+         return entries.get(key);
+      }
+
+      public synchronized void put(String key, String css)
+      {
+         if (css.length() > limit)
+            return;
+
+         String previous = entries.put(key, css);
+         if (previous != null)
+            size -= previous.length();
+         size += css.length();
+         evict();
+      }
+
+      private void evict()
+      {
+         Iterator<String> iterator = entries.values().iterator();
+         while (size > limit && iterator.hasNext()) {
+            size -= iterator.next().length();
+            iterator.remove();
+         }
+      }
    }
 
 }
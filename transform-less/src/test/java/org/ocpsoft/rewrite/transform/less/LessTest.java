@@ -17,6 +17,10 @@ package org.ocpsoft.rewrite.transform.less;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import org.junit.Test;
 import org.ocpsoft.rewrite.transform.less.Less;
 
@@ -47,6 +51,53 @@ public class LessTest
       assertSameCSS(".bordered{ border: 1px solid red; }\n.navigation{ border: 1px solid red; }\n", output);
    }
 
+   @Test
+   public void testQuotedStrings()
+   {
+      String input = ".icon { background: url('icon.png'); font-family: \"Open Sans\"; }";
+      String output = Less.compiler().transform(null, input);
+      assertSameCSS(".icon { background: url('icon.png'); font-family: \"open sans\"; }", output);
+   }
+
+   @Test
+   public void testRepeatedCompilation()
+   {
+      Less less = Less.compiler();
+      String input = "@width: 10px;\n.box { width: @width * 2; }";
+      String first = less.transform(null, input);
+      assertSameCSS(".box { width: 20px; }", first);
+      assertEquals(first, less.transform(null, input));
+      assertSameCSS(".box { width: 20px; }", Less.compiler().withCacheLimit(0).transform(null, input));
+   }
+
+   @Test
+   public void testConcurrentCompilation() throws Exception
+   {
+      final Less less = Less.compiler().withCacheLimit(0);
+      final List<String> failures = Collections.synchronizedList(new ArrayList<String>());
+      List<Thread> threads = new ArrayList<Thread>();
+      for (int i = 0; i < 4; i++) {
+         final int value = i;
+         Thread thread = new Thread() {
+            @Override
+            public void run()
+            {
+               for (int j = 0; j < 5; j++) {
+                  String output = less.transform(null, "@v: " + value + "px;\n.c" + j + " { width: @v + " + j + "; }");
+                  if (!normalize(output).equals(".c" + j + "{width:" + (value + j) + "px;}"))
+                     failures.add(output);
+               }
+            }
+         };
+         threads.add(thread);
+         thread.start();
+      }
+      for (Thread thread : threads) {
+         thread.join();
+      }
+      assertEquals(Collections.emptyList(), failures);
+   }
+
    private static void assertSameCSS(String expected, String actual)
    {
       assertEquals(normalize(expected), normalize(actual));
@@ -30,8 +30,9 @@ import org.ocpsoft.rewrite.transform.markup.impl.JRubyTransformer;
 public class Asciidoc extends JRubyTransformer<Asciidoc>
 {
 
-   private final static String SCRIPT = "require 'asciidoctor'\n" +
-            "Asciidoctor.render(input)\n";
+   private final static String REQUIRE = "require 'asciidoctor'";
+
+   private final static String SCRIPT = "Asciidoctor.render(input)\n";
 
    private final boolean fullDocument;
 
@@ -85,11 +86,17 @@ public class Asciidoc extends JRubyTransformer<Asciidoc>
       return Arrays.asList("ruby/asciidoctor/lib");
    }
 
+   @Override
+   protected List<String> getScripts()
+   {
+      return Arrays.asList(SCRIPT);
+   }
+
    @Override
    public Object runScript(ScriptingContainer container)
    {
 
-      Object fragment = container.runScriptlet(SCRIPT);
+      Object fragment = evaluate(container, SCRIPT);
 
       if (fragment != null) {
 
@@ -107,6 +114,12 @@ public class Asciidoc extends JRubyTransformer<Asciidoc>
 
    }
 
+   @Override
+   public String getCacheKey()
+   {
+      return super.getCacheKey() + ";" + (fullDocument ? documentBuilder.getCacheKey() : "partial");
+   }
+
    @Override
    public Asciidoc self()
    {
@@ -115,7 +128,9 @@ public class Asciidoc extends JRubyTransformer<Asciidoc>
 
    @Override
    protected void prepareContainer(ScriptingContainer container)
-   {}
+   {
+      container.runScriptlet(REQUIRE);
+   }
 
    @Override
    protected Class<Asciidoc> getTransformerType()
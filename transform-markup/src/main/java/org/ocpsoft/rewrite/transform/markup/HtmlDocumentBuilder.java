@@ -37,6 +37,14 @@ class HtmlDocumentBuilder
       return this;
    }
 
+   /**
+    * Identifies everything added to the rendered document besides its body.
+    */
+   public String getCacheKey()
+   {
+      return title + ";" + stylesheets + ";" + headerInjections;
+   }
+
    public String build(String body)
    {
 
@@ -30,8 +30,9 @@ import org.ocpsoft.rewrite.transform.markup.impl.JRubyTransformer;
 public class Markdown extends JRubyTransformer<Markdown>
 {
 
-   private final static String SCRIPT = "require 'maruku'\n" +
-            "Maruku.new(input).to_html";
+   private final static String REQUIRE = "require 'maruku'";
+
+   private final static String SCRIPT = "Maruku.new(input).to_html";
 
    private final boolean fullDocument;
 
@@ -85,11 +86,17 @@ public class Markdown extends JRubyTransformer<Markdown>
       return Arrays.asList("ruby/maruku/lib");
    }
 
+   @Override
+   protected List<String> getScripts()
+   {
+      return Arrays.asList(SCRIPT);
+   }
+
    @Override
    public Object runScript(ScriptingContainer container)
    {
 
-      Object fragment = container.runScriptlet(SCRIPT);
+      Object fragment = evaluate(container, SCRIPT);
 
       if (fragment != null) {
 
@@ -107,6 +114,12 @@ public class Markdown extends JRubyTransformer<Markdown>
 
    }
 
+   @Override
+   public String getCacheKey()
+   {
+      return super.getCacheKey() + ";" + (fullDocument ? documentBuilder.getCacheKey() : "partial");
+   }
+
    @Override
    public Markdown self()
    {
@@ -115,7 +128,9 @@ public class Markdown extends JRubyTransformer<Markdown>
 
    @Override
    protected void prepareContainer(ScriptingContainer container)
-   {}
+   {
+      container.runScriptlet(REQUIRE);
+   }
 
    @Override
    protected Class<Markdown> getTransformerType()
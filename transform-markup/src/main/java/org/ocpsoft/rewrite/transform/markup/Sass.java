@@ -30,8 +30,9 @@ import org.ocpsoft.rewrite.transform.markup.impl.JRubyTransformer;
 public class Sass extends JRubyTransformer<Sass>
 {
 
-   private static final String SCRIPT = "require 'sass'\n" +
-            "engine = Sass::Engine.new(input, :syntax => :scss, :cache => false)\n" +
+   private static final String REQUIRE = "require 'sass'";
+
+   private static final String SCRIPT = "engine = Sass::Engine.new(input, :syntax => :scss, :cache => false)\n" +
             "engine.render\n";
 
    /**
@@ -51,10 +52,16 @@ public class Sass extends JRubyTransformer<Sass>
       return Arrays.asList("ruby/sass/lib");
    }
 
+   @Override
+   protected List<String> getScripts()
+   {
+      return Arrays.asList(SCRIPT);
+   }
+
    @Override
    public Object runScript(ScriptingContainer container)
    {
-      return container.runScriptlet(SCRIPT);
+      return evaluate(container, SCRIPT);
    }
 
    @Override
@@ -65,7 +72,9 @@ public class Sass extends JRubyTransformer<Sass>
 
    @Override
    protected void prepareContainer(ScriptingContainer container)
-   {}
+   {
+      container.runScriptlet(REQUIRE);
+   }
 
    @Override
    protected Class<Sass> getTransformerType()
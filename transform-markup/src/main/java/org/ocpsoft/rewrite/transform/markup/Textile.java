@@ -30,8 +30,9 @@ import org.ocpsoft.rewrite.transform.markup.impl.JRubyTransformer;
 public class Textile extends JRubyTransformer<Textile>
 {
 
-   private static final String SCRIPT = "require 'redcloth'\n" +
-            "RedCloth.new(input).to_html\n";
+   private static final String REQUIRE = "require 'redcloth'";
+
+   private static final String SCRIPT = "RedCloth.new(input).to_html\n";
 
    private final boolean fullDocument;
 
@@ -82,11 +83,17 @@ public class Textile extends JRubyTransformer<Textile>
       return Arrays.asList("ruby/redcloth/lib");
    }
 
+   @Override
+   protected List<String> getScripts()
+   {
+      return Arrays.asList(SCRIPT);
+   }
+
    @Override
    public Object runScript(ScriptingContainer container)
    {
 
-      Object fragment = container.runScriptlet(SCRIPT);
+      Object fragment = evaluate(container, SCRIPT);
 
       if (fragment != null) {
 
@@ -104,6 +111,12 @@ public class Textile extends JRubyTransformer<Textile>
 
    }
 
+   @Override
+   public String getCacheKey()
+   {
+      return super.getCacheKey() + ";" + (fullDocument ? documentBuilder.getCacheKey() : "partial");
+   }
+
    @Override
    public Textile self()
    {
@@ -112,7 +125,9 @@ public class Textile extends JRubyTransformer<Textile>
 
    @Override
    protected void prepareContainer(ScriptingContainer container)
-   {}
+   {
+      container.runScriptlet(REQUIRE);
+   }
 
    @Override
    protected Class<Textile> getTransformerType()
@@ -0,0 +1,181 @@
+package org.ocpsoft.rewrite.transform.markup.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jruby.embed.EmbedEvalUnit;
+import org.jruby.embed.LocalContextScope;
+import org.jruby.embed.LocalVariableBehavior;
+import org.jruby.embed.ScriptingContainer;
+import org.ocpsoft.logging.Logger;
+
+/**
+ * Bounded pool of JRuby runtimes for a single {@link JRubyTransformer} type and runtime configuration. Each runtime is used by only one thread at
+ * a time, so concurrent transformations run in parallel instead of sharing a single runtime. Runtimes are created on
+ * demand, up to the size of the pool, or ahead of time by {@link #warmUp()}.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+class JRubyRuntimePool
+{
+   private static final Logger log = Logger.getLogger(JRubyRuntimePool.class);
+
+   private final JRubyTransformer<?> transformer;
+   private final int size;
+   private final BlockingQueue<PooledContainer> idle = new LinkedBlockingQueue<PooledContainer>();
+   private final AtomicInteger created = new AtomicInteger();
+   private volatile boolean terminated;
+
+   public JRubyRuntimePool(JRubyTransformer<?> transformer, int size)
+   {
+      this.transformer = transformer;
+      this.size = Math.max(1, size);
+   }
+
+   /**
+    * Obtain exclusive use of a runtime, creating one if the pool has not reached its size, or waiting for another
+    * thread to release one.
+    */
+   public ScriptingContainer borrow()
+   {
+      PooledContainer container = idle.poll();
+      if (container == null)
+      {
+         container = create();
+         if (container == null)
+         {
+            try {
+               container = idle.take();
+            }
+            catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               throw new IllegalStateException("Interrupted while waiting for a JRuby runtime", e);
+            }
+         }
+      }
+      return container;
+   }
+
+   /**
+    * Return a runtime obtained from {@link #borrow()} to the pool.
+    */
+   public void release(ScriptingContainer container)
+   {
+      if (terminated)
+         container.terminate();
+      else
+         idle.offer((PooledContainer) container);
+   }
+
+   /**
+    * Create all runtimes of this pool in a background thread, so that they are ready when the first requests arrive.
+    */
+   public void warmUp()
+   {
+      Thread thread = new Thread(new Runnable() {
+         @Override
+         public void run()
+         {
+            try {
+               PooledContainer container;
+               while (!terminated && (container = create()) != null) {
+                  release(container);
+               }
+            }
+            catch (RuntimeException e) {
+               log.warn("Failed to warm up JRuby runtimes for " + transformer.getTransformerType().getName(), e);
+            }
+         }
+      }, "rewrite-jruby-warmup-" + transformer.getTransformerType().getSimpleName());
+      thread.setDaemon(true);
+      thread.start();
+   }
+
+   int getIdleCount()
+   {
+      return idle.size();
+   }
+
+   /**
+    * Terminate all idle runtimes. Runtimes that are currently in use are terminated when they are released.
+    */
+   public void terminate()
+   {
+      terminated = true;
+      PooledContainer container;
+      while ((container = idle.poll()) != null) {
+         container.terminate();
+      }
+   }
+
+   private PooledContainer create()
+   {
+      if (created.incrementAndGet() > size)
+      {
+         created.decrementAndGet();
+         return null;
+      }
+
+      try {
+         PooledContainer container = new PooledContainer();
+         transformer.initializeContainer(container);
+         return container;
+      }
+      catch (RuntimeException e) {
+         created.decrementAndGet();
+         throw e;
+      }
+   }
+
+   /**
+    * A {@link ScriptingContainer} with its own runtime, which keeps the scripts it has evaluated in parsed form.
+    */
+   static class PooledContainer extends ScriptingContainer
+   {
+      private final Map<String, EmbedEvalUnit> units = new HashMap<String, EmbedEvalUnit>();
+
+      public PooledContainer()
+      {
+         super(LocalContextScope.SINGLETHREAD, LocalVariableBehavior.TRANSIENT);
+      }
+
+      /**
+       * Parse the given script ahead of its first evaluation.
+       */
+      public void prepare(String script)
+      {
+         if (!units.containsKey(script))
+         {
+            /*
+             * Declare 'input' while parsing, as it is when the script is evaluated
+             */
+            put("input", "");
+            try {
+               units.put(script, parse(script));
+            }
+            finally {
+               clear();
+            }
+         }
+      }
+
+      boolean isPrepared(String script)
+      {
+         return units.containsKey(script);
+      }
+
+      public Object evaluate(String script)
+      {
+         EmbedEvalUnit unit = units.get(script);
+         if (unit == null)
+         {
+            unit = parse(script);
+            units.put(script, unit);
+         }
+         return unit.run();
+      }
+   }
+}
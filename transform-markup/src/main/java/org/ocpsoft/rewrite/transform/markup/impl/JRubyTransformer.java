@@ -1,5 +1,6 @@
 package org.ocpsoft.rewrite.transform.markup.impl;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -8,19 +9,29 @@ import javax.servlet.ServletContext;
 
 import org.jruby.CompatVersion;
 import org.jruby.RubyInstanceConfig.CompileMode;
-import org.jruby.embed.LocalContextScope;
-import org.jruby.embed.LocalVariableBehavior;
 import org.jruby.embed.ScriptingContainer;
+import org.ocpsoft.rewrite.config.ConfigurationProvider;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.transform.CacheableTransformer;
 import org.ocpsoft.rewrite.transform.StringTransformer;
 import org.ocpsoft.rewrite.transform.Transformer;
 
 /**
  * Base class for {@link Transformer} implementations that use JRuby scripts.
+ * <p>
+ * Each {@link ServletContext} keeps a pool of JRuby runtimes per {@link Transformer} type and runtime configuration
+ * ({@link #compileMode(CompileMode)}, {@link #compatVersion(CompatVersion)}, {@link #getLoadPaths()}, and
+ * {@link #poolSize(int)}), so that concurrent transformations do not compete for a single runtime, and instances
+ * configured differently never share one. By default, the pool holds one runtime per available processor,
+ * up to four; use {@link #poolSize(int)} to change this. Runtimes are created when first needed, which may take a few
+ * seconds each. To create them in the background when the application starts, list the transformer types in the
+ * {@link MarkupContextListener#WARM_UP} servlet context init parameter, or call {@link #warmUp(ServletContext)} from a
+ * {@link ConfigurationProvider}. Each runtime parses the scripts returned by {@link #getScripts()} when it is created.
  * 
  * @author Christian Kaltepoth
  */
-public abstract class JRubyTransformer<T extends JRubyTransformer<T>> extends StringTransformer
+public abstract class JRubyTransformer<T extends JRubyTransformer<T>> extends StringTransformer implements
+         CacheableTransformer
 {
    static final String CONTAINER_STORE_KEY = JRubyTransformer.class.getName() + "_CONTAINER_INSTANCE";
 
@@ -28,6 +39,8 @@ public abstract class JRubyTransformer<T extends JRubyTransformer<T>> extends St
 
    private CompatVersion compatVersion = CompatVersion.RUBY2_0;
 
+   private int poolSize = Math.min(4, Runtime.getRuntime().availableProcessors());
+
    /**
     * Return the load paths to use for {@link ScriptingContainer#setLoadPaths(List)}.
     */
@@ -36,9 +49,20 @@ public abstract class JRubyTransformer<T extends JRubyTransformer<T>> extends St
    /**
     * This method must perform the transformation using the supplied {@link ScriptingContainer}. The container is pre
     * initialized with a variable <code>input</code> which should be used by the script to perform the transformation.
+    * Scripts should be run with {@link #evaluate(ScriptingContainer, String)}, so that they are only parsed once.
     */
    public abstract Object runScript(ScriptingContainer container);
 
+   /**
+    * Return the scripts that {@link #runScript(ScriptingContainer)} runs with
+    * {@link #evaluate(ScriptingContainer, String)}, so that each pooled runtime parses them when it is created, instead
+    * of during its first transformation.
+    */
+   protected List<String> getScripts()
+   {
+      return Collections.emptyList();
+   }
+
    /**
     * Just returns the current object as the correct type for make the fluent builder work with subclasses.
     */
@@ -50,7 +74,8 @@ public abstract class JRubyTransformer<T extends JRubyTransformer<T>> extends St
    @Override
    public final String transform(HttpServletRewrite event, String input)
    {
-      ScriptingContainer container = getContainer(event.getServletContext());
+      JRubyRuntimePool pool = getPool(event.getServletContext());
+      ScriptingContainer container = pool.borrow();
       try {
 
          Object result = null;
@@ -64,52 +89,122 @@ public abstract class JRubyTransformer<T extends JRubyTransformer<T>> extends St
          return result != null ? result.toString() : null;
       }
       finally {
-         if (container != null)
-            container.clear();
+         container.clear();
+         pool.release(container);
       }
 
    }
 
-   private ScriptingContainer getContainer(ServletContext context)
+   /**
+    * Identifies the {@link CompatVersion} of the JRuby runtime. Subclasses must add any configuration that affects
+    * their output.
+    */
+   @Override
+   public String getCacheKey()
    {
-      @SuppressWarnings("unchecked")
-      Map<Class<T>, ScriptingContainer> storage = (Map<Class<T>, ScriptingContainer>) context
+      return String.valueOf(compatVersion);
+   }
+
+   /**
+    * Run the given script in the given {@link ScriptingContainer}. The script is parsed only the first time it is run
+    * by each pooled runtime.
+    */
+   protected Object evaluate(ScriptingContainer container, String script)
+   {
+      if (container instanceof JRubyRuntimePool.PooledContainer) {
+         return ((JRubyRuntimePool.PooledContainer) container).evaluate(script);
+      }
+      return container.runScriptlet(script);
+   }
+
+   /**
+    * Create the pooled JRuby runtimes for this {@link Transformer} type in the given {@link ServletContext} in the
+    * background, instead of when the first transformations are requested.
+    */
+   public T warmUp(ServletContext context)
+   {
+      getPool(context).warmUp();
+      return self();
+   }
+
+   @SuppressWarnings("unchecked")
+   private JRubyRuntimePool getPool(ServletContext context)
+   {
+      Map<String, JRubyRuntimePool> storage = (Map<String, JRubyRuntimePool>) context
                .getAttribute(CONTAINER_STORE_KEY);
       if (storage == null)
       {
-         storage = new ConcurrentHashMap<Class<T>, ScriptingContainer>();
-         context.setAttribute(CONTAINER_STORE_KEY, storage);
+         synchronized (context)
+         {
+            storage = (Map<String, JRubyRuntimePool>) context.getAttribute(CONTAINER_STORE_KEY);
+            if (storage == null)
+            {
+               storage = new ConcurrentHashMap<String, JRubyRuntimePool>();
+               context.setAttribute(CONTAINER_STORE_KEY, storage);
+            }
+         }
       }
 
-      ScriptingContainer cachedContainer = storage.get(getTransformerType());
-      if (cachedContainer == null)
+      String key = getPoolKey();
+      JRubyRuntimePool pool = storage.get(key);
+      if (pool == null)
       {
-         cachedContainer = new ScriptingContainer(LocalContextScope.CONCURRENT, LocalVariableBehavior.TRANSIENT);
-         cachedContainer.setRunRubyInProcess(false);
+         synchronized (storage)
+         {
+            pool = storage.get(key);
+            if (pool == null)
+            {
+               pool = new JRubyRuntimePool(this, poolSize);
+               storage.put(key, pool);
+            }
+         }
+      }
+      return pool;
+   }
 
-         storage.put(getTransformerType(), cachedContainer);
+   /**
+    * Identifies the {@link Transformer} type and every setting used to create its runtimes, so that only identically
+    * configured instances share a pool.
+    */
+   String getPoolKey()
+   {
+      return getTransformerType().getName() + ";" + compileMode + ";" + compatVersion + ";" + poolSize + ";"
+               + getLoadPaths();
+   }
 
-         // the user may have set a custom CompileMode
-         if (compileMode != null) {
-            cachedContainer.setCompileMode(compileMode);
-         }
+   /**
+    * Configure a newly created runtime of the pool. Libraries loaded by {@link #prepareContainer(ScriptingContainer)}
+    * stay loaded for the lifetime of the runtime.
+    */
+   void initializeContainer(ScriptingContainer container)
+   {
+      container.setRunRubyInProcess(false);
 
-         // the user may have set a customn CompatVersion
-         if (compatVersion != null) {
-            cachedContainer.setCompatVersion(compatVersion);
-         }
+      // the user may have set a custom CompileMode
+      if (compileMode != null) {
+         container.setCompileMode(compileMode);
+      }
 
-         // scripts typically need to set the load path for 3rd party gems
-         List<String> loadPaths = getLoadPaths();
-         if (loadPaths != null && !loadPaths.isEmpty()) {
-            cachedContainer.getLoadPaths().addAll(loadPaths);
-         }
+      // the user may have set a customn CompatVersion
+      if (compatVersion != null) {
+         container.setCompatVersion(compatVersion);
+      }
 
-         // perform custom initialization of the container
-         prepareContainer(cachedContainer);
+      // scripts typically need to set the load path for 3rd party gems
+      List<String> loadPaths = getLoadPaths();
+      if (loadPaths != null && !loadPaths.isEmpty()) {
+         container.getLoadPaths().addAll(loadPaths);
       }
 
-      return cachedContainer;
+      // perform custom initialization of the container
+      prepareContainer(container);
+
+      // parse the scripts ahead of the first transformation
+      if (container instanceof JRubyRuntimePool.PooledContainer) {
+         for (String script : getScripts()) {
+            ((JRubyRuntimePool.PooledContainer) container).prepare(script);
+         }
+      }
    }
 
    abstract protected Class<T> getTransformerType();
@@ -134,4 +229,13 @@ public abstract class JRubyTransformer<T extends JRubyTransformer<T>> extends St
       return self();
    }
 
+   /**
+    * Allows to customize the maximum number of JRuby runtimes used concurrently by this {@link Transformer} type.
+    */
+   public T poolSize(int poolSize)
+   {
+      this.poolSize = poolSize;
+      return self();
+   }
+
 }
@@ -5,11 +5,34 @@ import java.util.Map;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 
-import org.jruby.embed.ScriptingContainer;
+import org.ocpsoft.logging.Logger;
 import org.ocpsoft.rewrite.servlet.spi.ContextListener;
+import org.ocpsoft.rewrite.transform.markup.Asciidoc;
+import org.ocpsoft.rewrite.transform.markup.Markdown;
+import org.ocpsoft.rewrite.transform.markup.Sass;
+import org.ocpsoft.rewrite.transform.markup.Textile;
 
+/**
+ * Creates the JRuby runtimes of the {@link JRubyTransformer} types listed in the {@link #WARM_UP} servlet context init
+ * parameter in the background when the application starts, and terminates all JRuby runtimes when it stops. For
+ * example:
+ * 
+ * <pre>
+ * &lt;context-param&gt;
+ *   &lt;param-name&gt;org.ocpsoft.rewrite.config.MARKUP_WARM_UP&lt;/param-name&gt;
+ *   &lt;param-value&gt;Asciidoc, Sass&lt;/param-value&gt;
+ * &lt;/context-param&gt;
+ * </pre>
+ * 
+ * Runtimes created this way use the default pool size and JRuby settings of their type.
+ * 
+ * @author Christian Kaltepoth
+ */
 public class MarkupContextListener implements ContextListener
 {
+   public static final String WARM_UP = "org.ocpsoft.rewrite.config.MARKUP_WARM_UP";
+
+   private static final Logger log = Logger.getLogger(MarkupContextListener.class);
 
    @Override
    public int priority()
@@ -19,20 +42,47 @@ public class MarkupContextListener implements ContextListener
 
    @Override
    public void contextInitialized(ServletContextEvent event)
-   {}
+   {
+      ServletContext context = event.getServletContext();
+      String types = context.getInitParameter(WARM_UP);
+      if (types != null)
+      {
+         for (String type : types.split(",")) {
+            JRubyTransformer<?> transformer = getTransformer(type.trim());
+            if (transformer != null)
+               transformer.warmUp(context);
+            else if (!type.trim().isEmpty())
+               log.warn("Ignoring unknown markup type [" + type.trim() + "] in servlet context init parameter ["
+                        + WARM_UP + "]");
+         }
+      }
+   }
+
+   private static JRubyTransformer<?> getTransformer(String type)
+   {
+      if ("Asciidoc".equalsIgnoreCase(type))
+         return Asciidoc.partialDocument();
+      if ("Markdown".equalsIgnoreCase(type))
+         return Markdown.partialDocument();
+      if ("Textile".equalsIgnoreCase(type))
+         return Textile.partialDocument();
+      if ("Sass".equalsIgnoreCase(type))
+         return Sass.compiler();
+      return null;
+   }
 
    @Override
    @SuppressWarnings("unchecked")
    public void contextDestroyed(ServletContextEvent event)
    {
       ServletContext context = event.getServletContext();
-      Map<Class<?>, ScriptingContainer> storage = (Map<Class<?>, ScriptingContainer>) context
+      Map<String, JRubyRuntimePool> storage = (Map<String, JRubyRuntimePool>) context
                .getAttribute(JRubyTransformer.CONTAINER_STORE_KEY);
       if (storage != null)
       {
-         for (ScriptingContainer scriptingContainer : storage.values()) {
-            if (scriptingContainer != null)
-               scriptingContainer.terminate();
+         for (JRubyRuntimePool pool : storage.values()) {
+            if (pool != null)
+               pool.terminate();
          }
       }
    }
@@ -0,0 +1,204 @@
+package org.ocpsoft.rewrite.transform.markup.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+
+import org.jruby.CompatVersion;
+import org.jruby.embed.ScriptingContainer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+import org.ocpsoft.rewrite.transform.markup.Markdown;
+
+public class JRubyRuntimePoolTest
+{
+   private ServletContext context;
+   private HttpServletRewrite event;
+   private Map<String, JRubyRuntimePool> storage;
+
+   @Before
+   public void before()
+   {
+      storage = new HashMap<String, JRubyRuntimePool>();
+      context = Mockito.mock(ServletContext.class);
+      Mockito.when(context.getAttribute(JRubyTransformer.CONTAINER_STORE_KEY)).thenReturn(storage);
+
+      event = Mockito.mock(HttpServletRewrite.class);
+      Mockito.when(event.getServletContext()).thenReturn(context);
+   }
+
+   @After
+   public void after()
+   {
+      new MarkupContextListener().contextDestroyed(new ServletContextEvent(context));
+   }
+
+   @Test
+   public void shouldParseScriptsWhenRuntimeIsCreated()
+   {
+      JRubyRuntimePool pool = new JRubyRuntimePool(new Upcase(), 1);
+      JRubyRuntimePool.PooledContainer container = (JRubyRuntimePool.PooledContainer) pool.borrow();
+      try {
+         assertTrue(container.isPrepared(Upcase.SCRIPT));
+      }
+      finally {
+         pool.release(container);
+      }
+      pool.terminate();
+   }
+
+   @Test
+   public void shouldReuseParsedScriptWithNewInput()
+   {
+      Upcase transformer = new Upcase().poolSize(1);
+      assertEquals("ABC", transformer.transform(event, "abc"));
+      assertEquals("XYZ", transformer.transform(event, "xyz"));
+      assertEquals(1, storage.get(transformer.getPoolKey()).getIdleCount());
+   }
+
+   @Test
+   public void shouldNotShareRuntimesBetweenConfigurations()
+   {
+      Upcase ruby20 = new Upcase().poolSize(1);
+      Upcase ruby19 = new Upcase().poolSize(1).compatVersion(CompatVersion.RUBY1_9);
+      Upcase jit = new Upcase().poolSize(1);
+
+      assertEquals("ABC", ruby20.transform(event, "abc"));
+      assertEquals("ABC", ruby19.transform(event, "abc"));
+      assertEquals("ABC", jit.transform(event, "abc"));
+
+      assertEquals(2, storage.size());
+      assertNotSame(storage.get(ruby20.getPoolKey()), storage.get(ruby19.getPoolKey()));
+      assertSame(storage.get(ruby20.getPoolKey()), storage.get(jit.getPoolKey()));
+
+      JRubyRuntimePool pool = storage.get(ruby19.getPoolKey());
+      ScriptingContainer container = pool.borrow();
+      try {
+         assertEquals(CompatVersion.RUBY1_9, container.getCompatVersion());
+      }
+      finally {
+         pool.release(container);
+      }
+   }
+
+   @Test
+   public void shouldNotCreateMoreRuntimesThanPoolSize() throws Exception
+   {
+      final JRubyRuntimePool pool = new JRubyRuntimePool(new Upcase(), 1);
+      ScriptingContainer first = pool.borrow();
+
+      ExecutorService executor = Executors.newSingleThreadExecutor();
+      try {
+         Future<ScriptingContainer> second = executor.submit(new Callable<ScriptingContainer>() {
+            @Override
+            public ScriptingContainer call() throws Exception
+            {
+               return pool.borrow();
+            }
+         });
+
+         try {
+            second.get(500, TimeUnit.MILLISECONDS);
+            throw new AssertionError("Borrowed more runtimes than the pool size");
+         }
+         catch (TimeoutException e) {
+            // expected
+         }
+
+         pool.release(first);
+         assertSame(first, second.get(5, TimeUnit.SECONDS));
+         pool.release(first);
+      }
+      finally {
+         executor.shutdownNow();
+         pool.terminate();
+      }
+   }
+
+   @Test
+   public void shouldCreateAllRuntimesOnWarmUp() throws Exception
+   {
+      JRubyRuntimePool pool = new JRubyRuntimePool(new Upcase(), 2);
+      pool.warmUp();
+      awaitIdle(pool, 2);
+      pool.terminate();
+   }
+
+   @Test
+   public void shouldWarmUpTypesListedInContextParameter() throws Exception
+   {
+      Mockito.when(context.getInitParameter(MarkupContextListener.WARM_UP)).thenReturn("markdown, unknown");
+      new MarkupContextListener().contextInitialized(new ServletContextEvent(context));
+
+      JRubyRuntimePool pool = storage.get(((JRubyTransformer<?>) Markdown.partialDocument()).getPoolKey());
+      assertNotNull(pool);
+      awaitIdle(pool, 1);
+   }
+
+   private static void awaitIdle(JRubyRuntimePool pool, int count) throws InterruptedException
+   {
+      long deadline = System.currentTimeMillis() + 60000;
+      while (pool.getIdleCount() < count && System.currentTimeMillis() < deadline) {
+         Thread.sleep(50);
+      }
+      assertEquals(count, pool.getIdleCount());
+   }
+
+   private static class Upcase extends JRubyTransformer<Upcase>
+   {
+      static final String SCRIPT = "input.upcase";
+
+      @Override
+      public List<String> getLoadPaths()
+      {
+         return null;
+      }
+
+      @Override
+      protected List<String> getScripts()
+      {
+         return Arrays.asList(SCRIPT);
+      }
+
+      @Override
+      public Object runScript(ScriptingContainer container)
+      {
+         return evaluate(container, SCRIPT);
+      }
+
+      @Override
+      public Upcase self()
+      {
+         return this;
+      }
+
+      @Override
+      protected Class<Upcase> getTransformerType()
+      {
+         return Upcase.class;
+      }
+
+      @Override
+      protected void prepareContainer(ScriptingContainer container)
+      {}
+   }
+}
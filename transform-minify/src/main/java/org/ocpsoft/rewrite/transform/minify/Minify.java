@@ -2,6 +2,7 @@ package org.ocpsoft.rewrite.transform.minify;
 
 import java.nio.charset.Charset;
 
+import org.ocpsoft.rewrite.transform.CacheableTransformer;
 import org.ocpsoft.rewrite.transform.Transformer;
 
 /**
@@ -9,7 +10,7 @@ import org.ocpsoft.rewrite.transform.Transformer;
  * 
  * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
  */
-public abstract class Minify implements Transformer
+public abstract class Minify implements CacheableTransformer
 {
    private Charset charset = Charset.forName("UTF-8");
 
@@ -41,4 +42,10 @@ public abstract class Minify implements Transformer
    {
       return charset;
    }
+
+   @Override
+   public String getCacheKey()
+   {
+      return charset.name();
+   }
 }
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+/**
+ * A {@link Transformer} whose output depends only on its input and on the configuration identified by
+ * {@link #getCacheKey()}. Results of a {@link Transform} are only cached if every {@link Transformer} implements this
+ * interface.
+ * 
+ * @see Transform#withCache()
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public interface CacheableTransformer extends Transformer
+{
+
+   /**
+    * Identify the configuration of this {@link Transformer}. Two instances of the same class that return equal keys
+    * must produce the same output for the same input, also after a restart.
+    */
+   String getCacheKey();
+
+}
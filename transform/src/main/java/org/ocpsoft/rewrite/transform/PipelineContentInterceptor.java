@@ -23,7 +23,12 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 import org.ocpsoft.common.util.Streams;
+import org.ocpsoft.logging.Logger;
+import org.ocpsoft.rewrite.servlet.RewriteWrappedResponse;
 import org.ocpsoft.rewrite.servlet.config.response.ResponseContent;
 import org.ocpsoft.rewrite.servlet.config.response.ResponseContentInterceptor;
 import org.ocpsoft.rewrite.servlet.config.response.ResponseContentInterceptorChain;
@@ -34,28 +39,91 @@ import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
  * This pipeline is responsible to apply the registered {@link Transformer} implementations to the intercepted response
  * in the expected order.
  * <p>
- * TODO An alternate implementation should probably be provided that uses a {@link ResponseStreamWrapper}.
- * {@link Transformer} implementations would then need to select between stream wrapping or content interception.
+ * If every {@link Transformer} is a {@link StreamTransformer}, and results are not cached, the pipeline may be applied as a
+ * {@link ResponseStreamWrapper} instead; see {@link #getStreamWrapper()}.
  * 
  * @author Christian Kaltepoth
  */
 class PipelineContentInterceptor implements ResponseContentInterceptor
 {
 
+   private static final Logger log = Logger.getLogger(PipelineContentInterceptor.class);
+
    private List<Transformer> pipeline = new ArrayList<Transformer>();
 
+   private TransformCache cache;
+
+   private PipelineStreamWrapper streamWrapper;
+
+   private volatile String identity;
+
    public void add(Transformer transformer)
    {
       pipeline.add(transformer);
+      identity = null;
+   }
+
+   public void setCache(TransformCache cache)
+   {
+      this.cache = cache;
+   }
+
+   /**
+    * Get a {@link ResponseStreamWrapper} that applies this pipeline without buffering the response, or
+    * <code>null</code> if the pipeline must be applied to the complete response content.
+    */
+   public ResponseStreamWrapper getStreamWrapper()
+   {
+      if (pipeline.isEmpty() || (cache != null && getIdentity() != null))
+         return null;
+
+      for (Transformer transformer : pipeline) {
+         if (!(transformer instanceof StreamTransformer))
+            return null;
+      }
+
+      if (streamWrapper == null)
+         streamWrapper = new PipelineStreamWrapper(pipeline);
+      return streamWrapper;
    }
 
    @Override
    public void intercept(HttpServletRewrite event, ResponseContent buffer, ResponseContentInterceptorChain chain)
    {
       try {
-         ByteArrayOutputStream output = new ByteArrayOutputStream();
-         transform(event, new ByteArrayInputStream(buffer.getContents()), output);
-         buffer.setContents(output.toByteArray());
+         byte[] input = buffer.getContents();
+
+         String identity = cache == null || input.length == 0 ? null : getIdentity();
+         if (identity == null) {
+            buffer.setContents(transform(event, input));
+         }
+
+         else {
+            String key = cache.key(identity, input);
+            byte[] output = cache.get(key);
+            if (output == null) {
+               output = transform(event, input);
+               cache.put(key, output);
+            }
+
+            /*
+             * The key identifies both the input and the pipeline, and therefore also the output
+             */
+            int status = getStatus(event);
+            if (status >= 200 && status < 300) {
+               String etag = "\"" + key + "\"";
+               HttpServletResponse response = event.getResponse();
+               response.setHeader("ETag", etag);
+
+               HttpServletRequest request = event.getRequest();
+               if (isNotModified(status, request.getMethod(), request.getHeader("If-None-Match"), etag)) {
+                  response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                  output = new byte[0];
+               }
+            }
+            buffer.setContents(output);
+         }
+
          chain.proceed();
       }
       catch (IOException e) {
@@ -63,6 +131,70 @@ class PipelineContentInterceptor implements ResponseContentInterceptor
       }
    }
 
+   private byte[] transform(HttpServletRewrite event, byte[] input) throws IOException
+   {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      transform(event, new ByteArrayInputStream(input), output);
+      return output.toByteArray();
+   }
+
+   /**
+    * Identifies the {@link Transformer} types of this pipeline and their configuration, in order. Used to keep results
+    * of different pipelines apart when they share a cache directory. Returns <code>null</code> if any
+    * {@link Transformer} is not a {@link CacheableTransformer}, in which case results are never cached.
+    */
+   String getIdentity()
+   {
+      String result = identity;
+      if (result == null) {
+         StringBuilder builder = new StringBuilder();
+         for (Transformer transformer : pipeline) {
+            if (!(transformer instanceof CacheableTransformer)) {
+               log.warn("Not caching results of " + this + ", since [" + transformer.getClass().getName()
+                        + "] does not implement " + CacheableTransformer.class.getSimpleName());
+               result = "";
+               break;
+            }
+            String key = ((CacheableTransformer) transformer).getCacheKey();
+            builder.append(transformer.getClass().getName()).append('(').append(key.length()).append(':')
+                     .append(key).append(");");
+         }
+         identity = result = result == null ? builder.toString() : result;
+      }
+      return result.isEmpty() ? null : result;
+   }
+
+   private static int getStatus(HttpServletRewrite event)
+   {
+      RewriteWrappedResponse response = RewriteWrappedResponse.getCurrentInstance(event.getRequest());
+      return response != null ? response.getStatus() : HttpServletResponse.SC_OK;
+   }
+
+   /**
+    * Return <code>true</code> if a response with the given status and ETag may be answered with
+    * <code>304 Not Modified</code>, given the request method and <code>If-None-Match</code> header.
+    */
+   static boolean isNotModified(int status, String method, String header, String etag)
+   {
+      if (status < 200 || status >= 300)
+         return false;
+
+      if (!"GET".equals(method) && !"HEAD".equals(method))
+         return false;
+
+      if (header == null)
+         return false;
+
+      for (String candidate : header.split(",")) {
+         candidate = candidate.trim();
+         if (candidate.startsWith("W/"))
+            candidate = candidate.substring(2);
+         if ("*".equals(candidate) || etag.equals(candidate))
+            return true;
+      }
+      return false;
+   }
+
    public void transform(HttpServletRewrite event, InputStream input, OutputStream output) throws IOException
    {
 
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import org.ocpsoft.rewrite.exception.RewriteException;
+import org.ocpsoft.rewrite.servlet.config.response.ResponseStreamWrapper;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+
+/**
+ * Streaming alternative to {@link PipelineContentInterceptor}, used when every {@link Transformer} in the pipeline is
+ * a {@link StreamTransformer}. The stages are chained directly, so each one only buffers as much data as it needs.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+class PipelineStreamWrapper implements ResponseStreamWrapper
+{
+
+   private final String streamKey = PipelineStreamWrapper.class.getName() + "_" + System.identityHashCode(this);
+
+   private final List<Transformer> pipeline;
+
+   public PipelineStreamWrapper(List<Transformer> pipeline)
+   {
+      this.pipeline = pipeline;
+   }
+
+   @Override
+   public OutputStream wrap(HttpServletRewrite rewrite, OutputStream outputStream)
+   {
+      try {
+
+         // the first transformer must receive the data first, so the chain is built from the end
+         OutputStream stream = StreamTransformer.uncloseable(outputStream);
+         for (int i = pipeline.size() - 1; i >= 0; i--) {
+            stream = ((StreamTransformer) pipeline.get(i)).wrap(rewrite, stream);
+         }
+
+         rewrite.getRequest().setAttribute(streamKey, stream);
+         return stream;
+
+      }
+      catch (IOException e) {
+         throw new RewriteException("Could not wrap OutputStream with transformation pipeline " + pipeline, e);
+      }
+   }
+
+   @Override
+   public void finish(HttpServletRewrite rewrite)
+   {
+      OutputStream stream = (OutputStream) rewrite.getRequest().getAttribute(streamKey);
+      if (stream != null) {
+         try {
+            rewrite.getRequest().removeAttribute(streamKey);
+            stream.close();
+         }
+         catch (IOException e) {
+            throw new RewriteException("Could not finish transformation pipeline " + pipeline, e);
+         }
+      }
+   }
+
+   @Override
+   public String toString()
+   {
+      return "" + pipeline;
+   }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.ocpsoft.common.util.Streams;
+import org.ocpsoft.rewrite.servlet.config.response.ResponseStreamWrapper;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+
+/**
+ * Base class for {@link Transformer} implementations that can process their input incrementally, such as simple text
+ * filters. If every {@link Transformer} of a {@link Transform} extends this class, the {@link Transform} is applied as
+ * a {@link ResponseStreamWrapper}, and transformed output is sent to the client while the response is still being
+ * written, instead of after the whole response has been buffered in memory.
+ * <p>
+ * None of the transformers shipped with Rewrite extend this class, since minification, LESS compilation and markup
+ * rendering each need their complete input before they can produce any output. A {@link Transform} using any of them
+ * is always applied to the buffered response.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+public abstract class StreamTransformer implements Transformer
+{
+
+   /**
+    * Return an {@link OutputStream} that transforms all data written to it, and writes the result to the given
+    * {@link OutputStream}. Calling {@link OutputStream#close()} on the returned stream must write any remaining
+    * output, and close the given {@link OutputStream}.
+    */
+   public abstract OutputStream wrap(HttpServletRewrite event, OutputStream output) throws IOException;
+
+   @Override
+   public void transform(HttpServletRewrite event, InputStream input, OutputStream output) throws IOException
+   {
+      OutputStream stream = wrap(event, uncloseable(output));
+      try {
+         Streams.copy(input, stream);
+      }
+      finally {
+         stream.close();
+      }
+   }
+
+   /**
+    * Protect the given {@link OutputStream} from being closed by a chain of transforming streams.
+    */
+   static OutputStream uncloseable(OutputStream output)
+   {
+      return new FilterOutputStream(output) {
+         @Override
+         public void write(byte[] b, int off, int len) throws IOException
+         {
+            out.write(b, off, len);
+         }
+
+         @Override
+         public void close() throws IOException
+         {
+            flush();
+         }
+      };
+   }
+
+}
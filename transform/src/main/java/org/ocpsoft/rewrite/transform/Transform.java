@@ -15,12 +15,15 @@
  */
 package org.ocpsoft.rewrite.transform;
 
+import java.io.File;
+
 import javax.servlet.http.HttpServletResponse;
 
 import org.ocpsoft.rewrite.config.Operation;
 import org.ocpsoft.rewrite.context.EvaluationContext;
 import org.ocpsoft.rewrite.servlet.RewriteWrappedResponse;
 import org.ocpsoft.rewrite.servlet.config.HttpOperation;
+import org.ocpsoft.rewrite.servlet.config.response.ResponseStreamWrapper;
 import org.ocpsoft.rewrite.servlet.http.event.HttpInboundServletRewrite;
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
 
@@ -31,6 +34,9 @@ import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
  */
 public class Transform extends HttpOperation
 {
+   private static final long DEFAULT_CACHE_LIMIT = 4 * 1024 * 1024;
+   private static final long DEFAULT_DIRECTORY_LIMIT = 64 * 1024 * 1024;
+
    private PipelineContentInterceptor pipeline = new PipelineContentInterceptor();
 
    private Transform()
@@ -56,11 +62,49 @@ public class Transform extends HttpOperation
       return this;
    }
 
+   /**
+    * Cache the results of this {@link Transform} in memory, keyed by a hash of the response content, and answer
+    * conditional requests for successful responses carrying a matching <code>If-None-Match</code> header with
+    * <code>304 Not Modified</code>. Results are only cached if every {@link Transformer} is a
+    * {@link CacheableTransformer}, whose cache key is part of the hash.
+    */
+   public Transform withCache()
+   {
+      return withCache(null, 0);
+   }
+
+   /**
+    * Cache the results of this {@link Transform} as described by {@link #withCache()}, and also store up to 64 MB of
+    * them in the given directory, where they survive restarts. Each {@link Transform} should use its own directory.
+    */
+   public Transform withCache(File directory)
+   {
+      return withCache(directory, DEFAULT_DIRECTORY_LIMIT);
+   }
+
+   /**
+    * Cache the results of this {@link Transform} as described by {@link #withCache()}, and also store up to the given
+    * number of bytes of them in the given directory, where they survive restarts. The least recently used results are
+    * deleted first. Each {@link Transform} should use its own directory.
+    */
+   public Transform withCache(File directory, long maxDirectoryBytes)
+   {
+      pipeline.setCache(new TransformCache(DEFAULT_CACHE_LIMIT, directory, maxDirectoryBytes));
+      return this;
+   }
+
    @Override
    public void performHttp(HttpServletRewrite event, EvaluationContext context)
    {
       if (event instanceof HttpInboundServletRewrite) {
-         RewriteWrappedResponse.getCurrentInstance(event.getRequest()).addContentInterceptor(pipeline);
+         RewriteWrappedResponse response = RewriteWrappedResponse.getCurrentInstance(event.getRequest());
+         ResponseStreamWrapper streamWrapper = pipeline.getStreamWrapper();
+         if (streamWrapper != null) {
+            response.addStreamWrapper(streamWrapper);
+         }
+         else {
+            response.addContentInterceptor(pipeline);
+         }
       }
    }
 
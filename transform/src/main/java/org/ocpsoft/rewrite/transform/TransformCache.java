@@ -0,0 +1,244 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.ocpsoft.common.util.Streams;
+import org.ocpsoft.logging.Logger;
+
+/**
+ * Cache of {@link Transformer} pipeline results, keyed by a hash of the pipeline identity and the input bytes. Results
+ * are held in a memory tier bounded by the total number of cached bytes, and optionally in a directory on disk, which
+ * survives restarts and backs the memory tier. Both tiers discard their least recently used results first; the disk
+ * tier is bounded separately, and recovers its order from the modification times of its files after a restart.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+class TransformCache
+{
+   private static final Logger log = Logger.getLogger(TransformCache.class);
+
+   private static final Charset UTF8 = Charset.forName("UTF8");
+
+   private static final String TEMP_SUFFIX = ".tmp";
+
+   private final Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+   private final long limit;
+   private long size;
+
+   /*
+    * Length of each file in the directory, in order of last use.
+    */
+   private final Map<String, Long> files = new LinkedHashMap<String, Long>(16, 0.75f, true);
+   private final File directory;
+   private final long directoryLimit;
+   private long directorySize;
+
+   public TransformCache(long limit, File directory, long directoryLimit)
+   {
+      this.limit = limit;
+      this.directory = directory;
+      this.directoryLimit = directoryLimit;
+      if (directory != null)
+      {
+         if (!directory.isDirectory() && !directory.mkdirs())
+            log.warn("Could not create transform cache directory [" + directory + "]");
+         else
+            index();
+      }
+   }
+
+   /**
+    * Index the results stored by previous runs, least recently used first, and discard any partial writes.
+    */
+   private synchronized void index()
+   {
+      File[] existing = directory.listFiles();
+      if (existing == null)
+         return;
+
+      Arrays.sort(existing, new Comparator<File>() {
+         @Override
+         public int compare(File left, File right)
+         {
+            long difference = left.lastModified() - right.lastModified();
+            return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+         }
+      });
+
+      for (File file : existing) {
+         if (file.getName().endsWith(TEMP_SUFFIX))
+            file.delete();
+         else if (file.isFile())
+         {
+            files.put(file.getName(), file.length());
+            directorySize += file.length();
+         }
+      }
+      evictFiles();
+   }
+
+   /**
+    * Compute the cache key of the given input for the pipeline with the given identity.
+    */
+   public String key(String pipeline, byte[] input)
+   {
+      try {
+         MessageDigest digest = MessageDigest.getInstance("SHA-1");
+         digest.update(pipeline.getBytes(UTF8));
+         digest.update((byte) 0);
+         byte[] hash = digest.digest(input);
+
+         StringBuilder result = new StringBuilder(hash.length * 2);
+         for (byte b : hash) {
+            result.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+         }
+         return result.toString();
+      }
+      catch (NoSuchAlgorithmException e) {
+         throw new IllegalStateException(e);
+      }
+   }
+
+   /**
+    * Get the cached result for the given key, or <code>null</code> if none is cached.
+    */
+   public byte[] get(String key)
+   {
+      synchronized (this) {
+         byte[] result = entries.get(key);
+         if (result != null)
+            return result;
+      }
+
+      if (directory != null && touch(key)) {
+         File file = new File(directory, key);
+         if (file.isFile()) {
+            file.setLastModified(System.currentTimeMillis());
+            try {
+               InputStream input = new FileInputStream(file);
+               try {
+                  ByteArrayOutputStream output = new ByteArrayOutputStream((int) file.length());
+                  Streams.copy(input, output);
+                  byte[] result = output.toByteArray();
+                  putInMemory(key, result);
+                  return result;
+               }
+               finally {
+                  input.close();
+               }
+            }
+            catch (IOException e) {
+               log.warn("Could not read transform cache entry [" + file + "]", e);
+            }
+         }
+      }
+      return null;
+   }
+
+   /**
+    * Store the result for the given key.
+    */
+   public void put(String key, byte[] contents)
+   {
+      putInMemory(key, contents);
+
+      if (directory != null && contents.length <= directoryLimit) {
+         File temp = new File(directory, key + "." + Thread.currentThread().getId() + TEMP_SUFFIX);
+         try {
+            OutputStream output = new FileOutputStream(temp);
+            try {
+               output.write(contents);
+            }
+            finally {
+               output.close();
+            }
+            if (temp.renameTo(new File(directory, key)))
+               putInDirectory(key, contents.length);
+            else
+               temp.delete();
+         }
+         catch (IOException e) {
+            log.warn("Could not write transform cache entry [" + key + "] to [" + directory + "]", e);
+            temp.delete();
+         }
+      }
+   }
+
+   private synchronized void putInMemory(String key, byte[] contents)
+   {
+      if (contents.length > limit)
+         return;
+
+      byte[] previous = entries.put(key, contents);
+      if (previous != null)
+         size -= previous.length;
+      size += contents.length;
+
+      Iterator<byte[]> iterator = entries.values().iterator();
+      while (size > limit && iterator.hasNext()) {
+         size -= iterator.next().length;
+         iterator.remove();
+      }
+   }
+
+   /**
+    * Mark the given file as recently used, and return <code>true</code> if it is cached in the directory.
+    */
+   private synchronized boolean touch(String key)
+   {
+      return files.get(key) != null;
+   }
+
+   private synchronized void putInDirectory(String key, long length)
+   {
+      Long previous = files.put(key, length);
+      if (previous != null)
+         directorySize -= previous;
+      directorySize += length;
+      evictFiles();
+   }
+
+   private void evictFiles()
+   {
+      Iterator<Entry<String, Long>> iterator = files.entrySet().iterator();
+      while (directorySize > directoryLimit && iterator.hasNext()) {
+         Entry<String, Long> eldest = iterator.next();
+         File file = new File(directory, eldest.getKey());
+         if (file.delete() || !file.exists())
+         {
+            directorySize -= eldest.getValue();
+            iterator.remove();
+         }
+      }
+   }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+
+public class PipelineContentInterceptorTest
+{
+
+   private static final String ETAG = "\"abc\"";
+
+   @Test
+   public void testIdentityIncludesTransformerConfiguration()
+   {
+      String first = pipeline(new ConfiguredTransformer("a")).getIdentity();
+      String second = pipeline(new ConfiguredTransformer("b")).getIdentity();
+      assertNotNull(first);
+      assertFalse(first.equals(second));
+      assertEquals(first, pipeline(new ConfiguredTransformer("a")).getIdentity());
+   }
+
+   @Test
+   public void testIdentityIsUnambiguous()
+   {
+      String first = pipeline(new ConfiguredTransformer("a;b"), new ConfiguredTransformer("")).getIdentity();
+      String second = pipeline(new ConfiguredTransformer("a"), new ConfiguredTransformer("b")).getIdentity();
+      assertFalse(first.equals(second));
+   }
+
+   @Test
+   public void testIdentityDependsOnOrder()
+   {
+      String first = pipeline(new ConfiguredTransformer("a"), new UppercaseTransformer()).getIdentity();
+      String second = pipeline(new UppercaseTransformer(), new ConfiguredTransformer("a")).getIdentity();
+      assertFalse(first.equals(second));
+   }
+
+   @Test
+   public void testNoIdentityUnlessEveryTransformerIsCacheable()
+   {
+      assertNull(pipeline(new UppercaseTransformer(), new UppercaseStreamTransformer()).getIdentity());
+   }
+
+   @Test
+   public void testStreamWrapperUsedIfCacheNotApplicable()
+   {
+      PipelineContentInterceptor pipeline = pipeline(new UppercaseStreamTransformer());
+      pipeline.setCache(new TransformCache(1024, null, 0));
+      assertNotNull(pipeline.getStreamWrapper());
+   }
+
+   @Test
+   public void testIdentityUpdatedWhenTransformerAdded()
+   {
+      PipelineContentInterceptor pipeline = pipeline(new UppercaseTransformer());
+      String before = pipeline.getIdentity();
+      pipeline.add(new ConfiguredTransformer("a"));
+      assertFalse(before.equals(pipeline.getIdentity()));
+   }
+
+   @Test
+   public void testNotModifiedForMatchingETag()
+   {
+      assertTrue(PipelineContentInterceptor.isNotModified(200, "GET", ETAG, ETAG));
+      assertTrue(PipelineContentInterceptor.isNotModified(200, "HEAD", ETAG, ETAG));
+      assertTrue(PipelineContentInterceptor.isNotModified(200, "GET", "\"x\", W/" + ETAG, ETAG));
+      assertTrue(PipelineContentInterceptor.isNotModified(203, "GET", "*", ETAG));
+   }
+
+   @Test
+   public void testModifiedForOtherETagOrMethod()
+   {
+      assertFalse(PipelineContentInterceptor.isNotModified(200, "GET", null, ETAG));
+      assertFalse(PipelineContentInterceptor.isNotModified(200, "GET", "\"x\"", ETAG));
+      assertFalse(PipelineContentInterceptor.isNotModified(200, "POST", ETAG, ETAG));
+   }
+
+   @Test
+   public void testModifiedUnlessSuccessful()
+   {
+      assertFalse(PipelineContentInterceptor.isNotModified(404, "GET", ETAG, ETAG));
+      assertFalse(PipelineContentInterceptor.isNotModified(500, "GET", "*", ETAG));
+      assertFalse(PipelineContentInterceptor.isNotModified(302, "GET", ETAG, ETAG));
+      assertFalse(PipelineContentInterceptor.isNotModified(100, "GET", ETAG, ETAG));
+   }
+
+   private static PipelineContentInterceptor pipeline(Transformer... transformers)
+   {
+      PipelineContentInterceptor result = new PipelineContentInterceptor();
+      for (Transformer transformer : transformers) {
+         result.add(transformer);
+      }
+      return result;
+   }
+
+   private static class ConfiguredTransformer extends StringTransformer implements CacheableTransformer
+   {
+      private final String key;
+
+      public ConfiguredTransformer(String key)
+      {
+         this.key = key;
+      }
+
+      @Override
+      public String getCacheKey()
+      {
+         return key;
+      }
+
+      @Override
+      public String transform(HttpServletRewrite event, String input)
+      {
+         return key + input;
+      }
+   }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Test;
+
+public class StreamTransformerTest
+{
+
+   @Test
+   public void testBufferedTransformation() throws Exception
+   {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      new UppercaseStreamTransformer().transform(null, new ByteArrayInputStream("this is foo".getBytes("UTF-8")),
+               output);
+      assertEquals("THIS IS FOO", output.toString("UTF-8"));
+   }
+
+   @Test
+   public void testUnderlyingStreamIsNotClosed() throws Exception
+   {
+      final boolean[] closed = new boolean[1];
+      OutputStream output = new ByteArrayOutputStream() {
+         @Override
+         public void close() throws IOException
+         {
+            closed[0] = true;
+         }
+      };
+      new UppercaseStreamTransformer().transform(null, new ByteArrayInputStream(new byte[0]), output);
+      assertEquals(false, closed[0]);
+   }
+
+}
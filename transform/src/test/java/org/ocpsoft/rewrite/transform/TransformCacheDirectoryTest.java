@@ -0,0 +1,121 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TransformCacheDirectoryTest
+{
+   private File directory;
+
+   @Before
+   public void setUp() throws IOException
+   {
+      directory = File.createTempFile("rewrite-transform-cache", "");
+      directory.delete();
+      directory.mkdirs();
+   }
+
+   @After
+   public void tearDown()
+   {
+      File[] files = directory.listFiles();
+      if (files != null)
+         for (File file : files) {
+            file.delete();
+         }
+      directory.delete();
+   }
+
+   @Test
+   public void testResultsSurviveRestart()
+   {
+      new TransformCache(1024, directory, 1024).put("a", bytes(10));
+
+      TransformCache restarted = new TransformCache(1024, directory, 1024);
+      assertArrayEquals(bytes(10), restarted.get("a"));
+   }
+
+   @Test
+   public void testLeastRecentlyUsedFilesDeleted()
+   {
+      TransformCache cache = new TransformCache(0, directory, 25);
+      cache.put("a", bytes(10));
+      cache.put("b", bytes(10));
+      assertArrayEquals(bytes(10), cache.get("a"));
+
+      cache.put("c", bytes(10));
+      assertTrue(new File(directory, "a").isFile());
+      assertFalse(new File(directory, "b").exists());
+      assertTrue(new File(directory, "c").isFile());
+      assertNull(cache.get("b"));
+   }
+
+   @Test
+   public void testOversizedResultsNotStored()
+   {
+      TransformCache cache = new TransformCache(0, directory, 5);
+      cache.put("a", bytes(10));
+      assertEquals(0, directory.listFiles().length);
+   }
+
+   @Test
+   public void testLimitAppliedToExistingFilesOnRestart() throws IOException
+   {
+      write("old", 10, 1000);
+      write("new", 10, 2000);
+      write("partial.1.tmp", 10, 3000);
+
+      TransformCache cache = new TransformCache(0, directory, 15);
+      assertFalse(new File(directory, "old").exists());
+      assertFalse(new File(directory, "partial.1.tmp").exists());
+      assertArrayEquals(bytes(10), cache.get("new"));
+   }
+
+   private void write(String name, int length, long lastModified) throws IOException
+   {
+      File file = new File(directory, name);
+      FileOutputStream output = new FileOutputStream(file);
+      try {
+         output.write(bytes(length));
+      }
+      finally {
+         output.close();
+      }
+      file.setLastModified(lastModified);
+   }
+
+   private static byte[] bytes(int length)
+   {
+      byte[] result = new byte[length];
+      for (int i = 0; i < length; i++) {
+         result[i] = (byte) i;
+      }
+      return result;
+   }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.message.BasicHeader;
+import org.jboss.arquillian.container.test.api.Deployment;
+import org.jboss.arquillian.junit.Arquillian;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.ocpsoft.rewrite.config.ConfigurationProvider;
+import org.ocpsoft.rewrite.test.HttpAction;
+import org.ocpsoft.rewrite.test.RewriteTest;
+
+/**
+ * Test for caching of transformation results and handling of the 'If-None-Match' header.
+ * 
+ * @author <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ */
+@RunWith(Arquillian.class)
+public class TransformCacheTest extends RewriteTest
+{
+
+   @Deployment(testable = false)
+   public static WebArchive getDeployment()
+   {
+      return RewriteTest.getDeployment()
+               .addAsWebResource(new StringAsset("something"), "test.txt")
+               .addClasses(TransformCacheTestProvider.class, UppercaseTransformer.class)
+               .addAsServiceProvider(ConfigurationProvider.class, TransformCacheTestProvider.class);
+   }
+
+   @Test
+   public void testCachedResultHasStableETag() throws Exception
+   {
+      HttpAction<HttpGet> first = get("/test.txt");
+      assertEquals(200, first.getResponse().getStatusLine().getStatusCode());
+      assertEquals("SOMETHING", first.getResponseContent());
+      assertFalse(first.getResponseHeaderValues("ETag").isEmpty());
+
+      HttpAction<HttpGet> second = get("/test.txt");
+      assertEquals(200, second.getResponse().getStatusLine().getStatusCode());
+      assertEquals("SOMETHING", second.getResponseContent());
+      assertEquals(first.getResponseHeaderValues("ETag"), second.getResponseHeaderValues("ETag"));
+   }
+
+   @Test
+   public void testMatchingIfNoneMatchHeader() throws Exception
+   {
+      HttpAction<HttpGet> first = get("/test.txt");
+      String etag = first.getResponseHeaderValues("ETag").get(0);
+
+      HttpAction<HttpGet> second = get(new DefaultHttpClient(), "/test.txt", new BasicHeader("If-None-Match", etag));
+      assertEquals(304, second.getResponse().getStatusLine().getStatusCode());
+   }
+
+   @Test
+   public void testOtherIfNoneMatchHeader() throws Exception
+   {
+      HttpAction<HttpGet> request = get(new DefaultHttpClient(), "/test.txt", new BasicHeader("If-None-Match",
+               "\"other\""));
+      assertEquals(200, request.getResponse().getStatusLine().getStatusCode());
+      assertEquals("SOMETHING", request.getResponseContent());
+   }
+
+}
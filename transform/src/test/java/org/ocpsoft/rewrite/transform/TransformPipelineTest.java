@@ -43,7 +43,8 @@ public class TransformPipelineTest extends RewriteTest
    {
       WebArchive archive = RewriteTest.getDeployment()
                .addAsWebResource(new StringAsset("this is foo"), "test.txt")
-               .addClasses(TransformPipelineTestProvider.class, FooBarTransformer.class, UppercaseTransformer.class)
+               .addClasses(TransformPipelineTestProvider.class, FooBarTransformer.class, UppercaseTransformer.class,
+                        UppercaseStreamTransformer.class)
                .addAsServiceProvider(ConfigurationProvider.class, TransformPipelineTestProvider.class);
       return archive;
    }
@@ -64,4 +65,20 @@ public class TransformPipelineTest extends RewriteTest
       assertEquals("THIS IS BAR", action.getResponseContent());
    }
 
+   @Test
+   public void testPipelineWithStreamTransformer() throws Exception
+   {
+      HttpAction<HttpGet> action = get("/test.stream");
+      assertEquals(200, action.getResponse().getStatusLine().getStatusCode());
+      assertEquals("THIS IS FOO", action.getResponseContent());
+   }
+
+   @Test
+   public void testPipelineWithStreamAndStringTransformers() throws Exception
+   {
+      HttpAction<HttpGet> action = get("/test.mixed");
+      assertEquals(200, action.getResponse().getStatusLine().getStatusCode());
+      assertEquals("THIS IS BAR", action.getResponseContent());
+   }
+
 }
@@ -56,6 +56,17 @@ public class TransformPipelineTestProvider extends HttpConfigurationProvider
                .perform(Forward.to("/{basename}.txt").and(
                         Transform.with(new FooBarTransformer()).then(new UppercaseTransformer())))
 
+               // streaming transformer
+               .addRule()
+               .when(Path.matches("/{basename}.stream"))
+               .perform(Forward.to("/{basename}.txt").and(Transform.with(new UppercaseStreamTransformer())))
+
+               // streaming and buffering transformers
+               .addRule()
+               .when(Path.matches("/{basename}.mixed"))
+               .perform(Forward.to("/{basename}.txt").and(
+                        Transform.with(new FooBarTransformer()).then(new UppercaseStreamTransformer())))
+
       ;
    }
 
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2011 <a href="mailto:lincolnbaxter@gmail.com">Lincoln Baxter, III</a>
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.ocpsoft.rewrite.transform;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
+
+public class UppercaseStreamTransformer extends StreamTransformer
+{
+
+   @Override
+   public OutputStream wrap(HttpServletRewrite event, OutputStream output)
+   {
+      return new FilterOutputStream(output) {
+         @Override
+         public void write(int b) throws IOException
+         {
+            out.write(b >= 'a' && b <= 'z' ? b - 'a' + 'A' : b);
+         }
+      };
+   }
+
+}
@@ -17,9 +17,15 @@ package org.ocpsoft.rewrite.transform;
 
 import org.ocpsoft.rewrite.servlet.http.event.HttpServletRewrite;
 
-public class UppercaseTransformer extends StringTransformer
+public class UppercaseTransformer extends StringTransformer implements CacheableTransformer
 {
 
+   @Override
+   public String getCacheKey()
+   {
+      return "";
+   }
+
    @Override
    public String transform(HttpServletRewrite event, String input)
    {